@@ -0,0 +1,194 @@
+package application;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 值班表的日历分桶索引：按"年-月"与ISO周把每段值班登记到它覆盖的每个桶中，
+ * 用于只展示某月或某周的值班，代价只与该月（周）的天数和值班段数有关，而与整个值班表的大小无关。
+ * <p>一段值班会被登记到它跨越的所有月桶与周桶中，桶内按开始日期排序；
+ * 查询时把桶内各段值班裁剪到所查的月（周）范围内返回。
+ * <p>时间按 {@link TimeCodec} 编码，分钟精度下值班段仍按其覆盖的日期分桶，查询结果裁剪到该月（周）首日0点至末日结束。
+ *
+ * @param <L> 值班人员的类型
+ */
+public class CalendarIndex<L> {
+    private final TimeCodec codec;
+    private final Map<Integer, List<Duty<L>>> months = new HashMap<>();
+    private final Map<Integer, List<Duty<L>>> weeks = new HashMap<>();
+    //Abstraction function:
+    //  AF = 所有登记过的值班段，months.get(k)为与第k个月（year*12+month-1）有交集的值班段，
+    //       weeks.get(k)为与第k个ISO周（周所属年*53+周序号-1）有交集的值班段
+    //Representation invariant:
+    //  每段值班恰好出现在它覆盖的每个月桶与周桶中各一次，桶内按开始日期非递减排列，空桶不保留
+    //Safety from rep exposure:
+    //  成员变量均为private final，Duty不可变，查询返回新的list
+
+    /**
+     * 创建以天为时间单位的索引
+     */
+    public CalendarIndex() {
+        this(TimeCodec.DAY);
+    }
+
+    /**
+     * @param codec 值班时间的编码
+     */
+    public CalendarIndex(TimeCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * 登记一段值班
+     * @param label 值班人员
+     * @param start 开始日期（包含）
+     * @param end 结束日期（包含）
+     */
+    public void add(L label, long start, long end) {
+        Duty<L> duty = new Duty<>(label, start, end);
+        for (int key = monthKey(codec.dayOf(start)), last = monthKey(codec.dayOf(end)); key <= last; key++)
+            insertSorted(months.computeIfAbsent(key, k -> new ArrayList<>()), duty);
+        LocalDate monday = DayCodec.toLocalDate(codec.dayOf(start)).with(DayOfWeek.MONDAY);
+        LocalDate last = DayCodec.toLocalDate(codec.dayOf(end));
+        for (LocalDate d = monday; !d.isAfter(last); d = d.plusWeeks(1))
+            insertSorted(weeks.computeIfAbsent(weekKey(d), k -> new ArrayList<>()), duty);
+    }
+
+    /**
+     * 撤销一段值班的登记，没有登记过时不做任何事
+     * @param label 值班人员
+     * @param start 开始日期（包含）
+     * @param end 结束日期（包含）
+     */
+    public void remove(L label, long start, long end) {
+        for (int key = monthKey(codec.dayOf(start)), last = monthKey(codec.dayOf(end)); key <= last; key++)
+            removeFrom(months, key, label, start, end);
+        LocalDate monday = DayCodec.toLocalDate(codec.dayOf(start)).with(DayOfWeek.MONDAY);
+        LocalDate last = DayCodec.toLocalDate(codec.dayOf(end));
+        for (LocalDate d = monday; !d.isAfter(last); d = d.plusWeeks(1))
+            removeFrom(weeks, weekKey(d), label, start, end);
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        months.clear();
+        weeks.clear();
+    }
+
+    /**
+     * @param year 年
+     * @param month 月，1~12
+     * @return 该月内的值班段，已裁剪到该月范围内，按开始日期排序
+     */
+    public List<Duty<L>> month(int year, int month) {
+        long first = DayCodec.toDay(year, month, 1);
+        long last = DayCodec.fromLocalDate(DayCodec.toLocalDate(first).plusMonths(1)) - 1;
+        return clip(months.get(year * 12 + month - 1), codec.startOfDay(first), codec.endOfDay(last));
+    }
+
+    /**
+     * @param weekYear ISO周所属的年
+     * @param week ISO周序号，从1开始
+     * @return 该周内的值班段，已裁剪到该周范围内，按开始日期排序
+     */
+    public List<Duty<L>> week(int weekYear, int week) {
+        long first = weekStart(weekYear, week);
+        return clip(weeks.get(weekYear * 53 + week - 1), codec.startOfDay(first), codec.endOfDay(first + 6));
+    }
+
+    /**
+     * @param weekYear ISO周所属的年
+     * @param week ISO周序号，从1开始
+     * @return 该周星期一的日期
+     */
+    public static long weekStart(int weekYear, int week) {
+        LocalDate monday = LocalDate.of(weekYear, 1, 4)
+                .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, week)
+                .with(DayOfWeek.MONDAY);
+        return DayCodec.fromLocalDate(monday);
+    }
+
+    private static int monthKey(long day) {
+        LocalDate d = DayCodec.toLocalDate(day);
+        return d.getYear() * 12 + d.getMonthValue() - 1;
+    }
+
+    private static int weekKey(LocalDate d) {
+        return d.get(IsoFields.WEEK_BASED_YEAR) * 53 + d.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR) - 1;
+    }
+
+    private static <L> void insertSorted(List<Duty<L>> bucket, Duty<L> duty) {
+        int lo = 0;
+        int hi = bucket.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bucket.get(mid).start <= duty.start)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        bucket.add(lo, duty);
+    }
+
+    private void removeFrom(Map<Integer, List<Duty<L>>> buckets, int key, L label, long start, long end) {
+        List<Duty<L>> bucket = buckets.get(key);
+        if (bucket == null)
+            return;
+        for (int i = 0; i < bucket.size(); i++) {
+            Duty<L> d = bucket.get(i);
+            if (d.start == start && d.end == end && d.label.equals(label)) {
+                bucket.remove(i);
+                break;
+            }
+        }
+        if (bucket.isEmpty())
+            buckets.remove(key);
+    }
+
+    private static <L> List<Duty<L>> clip(List<Duty<L>> bucket, long first, long last) {
+        List<Duty<L>> result = new ArrayList<>();
+        if (bucket == null)
+            return result;
+        for (Duty<L> d : bucket) {
+            long s = Math.max(d.start, first);
+            long e = Math.min(d.end, last);
+            if (s <= e)
+                result.add(s == d.start && e == d.end ? d : new Duty<>(d.label, s, e));
+        }
+        return result;
+    }
+
+    /**
+     * 一段值班：值班人员与开始、结束日期（均包含），不可变
+     */
+    public static final class Duty<L> {
+        private final L label;
+        private final long start;
+        private final long end;
+
+        Duty(L label, long start, long end) {
+            this.label = label;
+            this.start = start;
+            this.end = end;
+        }
+
+        public L getLabel() {
+            return label;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package application;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * 值班系统中日期的long表示与年月日之间的转换。
+ * <p>与 {@code DutyRosterApp} 使用同一种编码：year*365 + (year+3)/4 + 当年该月之前的天数 + day，
+ * 闰年按能被4整除判断，因此在1901~2099年之间与公历一致，且相邻日期的编码相差1。
+ */
+public class DayCodec {
+    private static final int[][] DAY_OF_MONTH = { { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 },
+            { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 } };
+    /** 1970-01-01 的编码，用于与 {@link LocalDate#toEpochDay()} 相互换算 */
+    private static final long EPOCH = toDay(1970, 1, 1);
+
+    private DayCodec() {
+    }
+
+    /**
+     * 将年月日转换为long形式
+     * @param year 年
+     * @param month 月，1~12
+     * @param day 日
+     * @return 日期的long形式
+     */
+    public static long toDay(int year, int month, int day) {
+        long sum = year * 365L + (year + 3) / 4;
+        int leap = year % 4 == 0 ? 0 : 1;
+        for (int i = 0; i < month - 1; i++)
+            sum += DAY_OF_MONTH[leap][i];
+        return sum + day;
+    }
+
+    /**
+     * 解析 yyyy-mm-dd 形式的日期
+     * @param str 日期字符串
+     * @return 日期的long形式，格式或日期不合法时返回-1
+     */
+    public static long parse(String str) {
+        if (str == null || str.length() != 10 || str.charAt(4) != '-' || str.charAt(7) != '-')
+            return -1;
+        int year = digits(str, 0, 4);
+        int month = digits(str, 5, 7);
+        int day = digits(str, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1)
+            return -1;
+        if (day > DAY_OF_MONTH[year % 4 == 0 ? 0 : 1][month - 1])
+            return -1;
+        return toDay(year, month, day);
+    }
+
+    /**
+     * @param day 日期的long形式
+     * @return 对应的 {@link LocalDate}
+     */
+    public static LocalDate toLocalDate(long day) {
+        return LocalDate.ofEpochDay(day - EPOCH);
+    }
+
+    /**
+     * @param date 日期
+     * @return 日期的long形式
+     */
+    public static long fromLocalDate(LocalDate date) {
+        return date.toEpochDay() + EPOCH;
+    }
+
+    /**
+     * @param day 日期的long形式
+     * @return 星期几
+     */
+    public static DayOfWeek dayOfWeek(long day) {
+        return DayOfWeek.of((int) Math.floorMod(day - EPOCH + 3, 7L) + 1);
+    }
+
+    /**
+     * @param day 日期的long形式
+     * @return yyyy-mm-dd 形式的字符串
+     */
+    public static String format(long day) {
+        LocalDate date = toLocalDate(day);
+        return String.format("%04d-%02d-%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    private static int digits(String str, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
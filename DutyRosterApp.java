@@ -1,41 +1,67 @@
 package application;
 
 import API.APIs;
-import concrete.DutyIntervalSet;
 import dimensions.NonlapException;
 import entity.Employee;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class DutyRosterApp {
     private final static long[][] dayOfMonth = { { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 },
             { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 } };
 
-    private final static Scanner input = new Scanner(System.in);
-    private final static Map<Employee, Boolean> PeopleWithStatus = new HashMap<>();
+    private final static TokenReader input = new TokenReader(System.in);
     private final static APIs<Employee> api=new APIs<>();
 
-    private static DutyIntervalSet<Employee> dutySet = null;
+    private static DutyStore<EmployeeView> dutySet = null;
+    private static RosterHttpServer server = null;
+    private final static WorkloadLedger ledger = new WorkloadLedger();
+    private final static EmployeeStore employeeStore = new EmployeeStore();
+    private final static BitSet scheduled = new BitSet();
+    private static TimeCodec time = TimeCodec.DAY;
+    private static CalendarIndex<EmployeeView> calendar = new CalendarIndex<>();
+    private static PersistentRoster roster = null;
+    private static GapIndex gaps = null;
+    private static RosterHistory history = null;
+    private static PersistentRoster published = null;
+    private final static ReentrantLock editLock = new ReentrantLock();
+    private static RosterWatcher watcher = null;
+    private final static RosterChangeStream changes = new RosterChangeStream();
+    private static RosterChangeLog changeLog = null;
 
     // Abstract function:
     // 一个值班排班应用，它管理和调度员工的值班。它有一个值班时间表 dutySet，
-    // 它是一个 DutyIntervalSet 对象，表示整个值班时间段。
-    // 它有一个员工状态表 PeopleWithStatus，它是一个映射，键是 Employee 对象，值是布尔值，
-    // 表示该员工是否已被安排值班bel存储在L中的MultiIntervalSet组成的集合，
-    // 一个label可以对应多个时间段
+    // 它是一个 DutyStore 对象，表示整个值班时间段。
+    // 员工表 employeeStore 是员工信息的唯一来源，值班表、账本、日历索引与值班表版本都以其中的 EmployeeView 作为员工，
+    // 按姓名查找员工、判重都通过它完成；
+    // scheduled 以员工编号为下标，表示该员工是否已被安排值班（有显式排班或在轮换规则中）
+    // ledger 为每位员工的值班工作量账本，包括轮换规则展开后的各班，随每次排班与轮换规则的修改增量更新
+    // time 为值班表的时间精度（天或分钟），所有时间段都是按它编码的 [开始, 结束] 区间，不逐单位展开
+    // calendar 为值班表按月、按ISO周的分桶索引，随每次排班修改同步更新，用于月视图与周视图
+    // roster 为与 dutySet、employeeStore 同步的不可变值班表版本，每次修改得到一个共享结构的新版本；
+    // history 保存这些版本，用于撤销/重做与"假设"方案；published 为最近一次记入 history 并发布快照的版本，
+    // roster 未变化的命令（查询、打印等）不再重复记录与发布
+    // 轮换规则只保存在 roster 中（roster.getRotations()），叠加在 dutySet 之上，随版本恢复；
+    // 账本按规则的周期算出各班的工作量，值班表打印与月视图、周视图只展开所显示范围内的各班
+    // watcher 为可选的值班表文件监视，文件修改后在监视线程中只应用变化的员工与排班；
+    // 菜单命令与文件修改的应用都持有 editLock，二者不会同时修改值班表
+    // changes 为值班表修改的发布-订阅流，员工与排班的每次增删都记录为一条修改，每个命令结束后按批发布；
+    // changeLog 为可选的把修改写入文件的订阅者
+    // server 为可选的本地查询服务，未启动时为 null，它只读取每次操作后发布的值班表快照
 
     // Representation invariant:
-    // PeopleWithStatus 中的每个 Employee 对象都不为 null。
-    //PeopleWithStatus 中的每个布尔值都不为 null，并满足所有成员变量的RI。
+    // dutySet、calendar、ledger、roster 中的员工都是 employeeStore 中的现存员工；
+    // scheduled 中为 true 的编号都是现存员工，并满足所有成员变量的RI。
 
     // Safety from rep exposure:
     // 所有的字段都是 private 的。
-    // PeopleWithStatus 的修改方法都是 private 的，客户端无法修改它。
+    // employeeStore 与 scheduled 的修改方法都是 private 的，客户端无法修改它们。
     // dutySet 不可变。
     // 所有返回可变对象的方法都返回防御性拷贝的对象
 
@@ -45,7 +71,27 @@ public class DutyRosterApp {
      * @param end 值班总时间段结束时间
      */
     private static void makeWholeTimeLine(long start,long end){
-        dutySet=new DutyIntervalSet<>(start,end);
+        dutySet=new HeapDutyStore<>(start,end);
+        roster = PersistentRoster.empty(start, end);
+        rebuildGaps();
+    }
+
+    /**
+     * 按当前的排班与轮换规则重建空闲时间段索引
+     */
+    private static void rebuildGaps() {
+        gaps = new GapIndex(dutySet.getStart(), dutySet.getEnd());
+        for (long[] block : coveredBlocks())
+            gaps.occupy(block[0], block[1]);
+    }
+
+    /**
+     * 设置值班表的时间精度，须在创建值班总时间表之前调用
+     * @param codec 时间编码
+     */
+    private static void setPrecision(TimeCodec codec) {
+        time = codec;
+        calendar = new CalendarIndex<>(codec);
     }
 
     /**
@@ -57,6 +103,10 @@ public class DutyRosterApp {
         System.out.printf("%-15s %-15s %-15s\n", "1.自动排班", "2.手动排班", "3.检查排班进度");
         System.out.printf("%-15s %-15s %-15s\n", "4.添加新员工", "5.删除员工", "6.删除员工排班");
         System.out.printf("%-15s %-15s %-15s\n", "7.展示排班", "8.已排班员工", "9.未排班员工");
+        System.out.printf("%-15s %-15s %-15s\n", "10.启动查询服务", "11.工作量统计", "12.设置节假日");
+        System.out.printf("%-15s %-15s %-15s\n", "13.月/周视图", "14.撤销", "15.重做");
+        System.out.printf("%-15s %-15s %-15s\n", "16.假设方案", "17.多团队冲突检查", "18.轮换规则");
+        System.out.printf("%-15s %-15s %-15s\n", "19.文件热加载", "20.修改日志", "21.对比/合并");
         System.out.println("0.退出");
         System.out.println("**若排班表已从文件读入，则无法自动生成排班表**");
         return readNum();
@@ -67,12 +117,12 @@ public class DutyRosterApp {
      * @return 用户输入的数字
      */
     private static int readNum() {
-        String str = input.next();
-        while (!str.matches("[0-9]+")) {
+        int num = input.nextNum();
+        while (num < 0) {
             System.err.println("请输入正确选项");
-            str = input.next();
+            num = input.nextNum();
         }
-        return Integer.parseInt(str);
+        return num;
     }
 
     /**
@@ -83,16 +133,7 @@ public class DutyRosterApp {
      * @return 一种表示时间的long
      */
     private static long transTime(int year, int month, int day) {
-        long sum = 0;
-        sum += year * 365L + (year + 3) / 4;
-        for (int i = 0; i < month - 1; i++) {
-            if (year % 4 == 0)
-                sum += dayOfMonth[0][i];
-            else
-                sum += dayOfMonth[1][i];
-        }
-        sum += day;
-        return sum;
+        return DayCodec.toDay(year, month, day);
     }
 
     /**
@@ -135,6 +176,41 @@ public class DutyRosterApp {
         }
     }
 
+    /**
+     * 用户输入时间段的开始时刻：天精度下为日期，分钟精度下为日期与"HH:mm"时刻
+     * @return 按当前精度编码的时间
+     */
+    private static long getStartTime() {
+        long day = getTime();
+        if (!time.hasTimeOfDay())
+            return day;
+        return time.startOfDay(day) + getClock();
+    }
+
+    /**
+     * 用户输入时间段的结束时刻：天精度下为日期（包含），分钟精度下为日期与"HH:mm"时刻（不包含）
+     * @return 按当前精度编码的时间段内最后一个单位
+     */
+    private static long getEndTime() {
+        long day = getTime();
+        if (!time.hasTimeOfDay())
+            return day;
+        return time.startOfDay(day) + getClock() - 1;
+    }
+
+    /**
+     * 用户输入"HH:mm"形式的时刻
+     * @return 当日的分钟数
+     */
+    private static int getClock() {
+        int clock = TimeCodec.parseClock(input.next());
+        while (clock < 0) {
+            System.err.println("时刻格式错误，正确的格式为：HH:mm，请重新输入该时刻");
+            clock = TimeCodec.parseClock(input.next());
+        }
+        return clock;
+    }
+
     /**
      * 从long转化为年月日
      * @param sum 年月日的long表示
@@ -214,21 +290,40 @@ public class DutyRosterApp {
         return (int) (sum - s);
     }
 
+    /**
+     * @param name 员工姓名
+     * @return 员工表中该姓名的员工，不存在时返回null
+     */
+    private static EmployeeView findEmployee(String name) {
+        int id = employeeStore.find(name);
+        return id < 0 ? null : employeeStore.view(id);
+    }
+
+    /**
+     * @return 员工是否已被安排值班
+     */
+    private static boolean isScheduled(EmployeeView employee) {
+        return scheduled.get(employee.getId());
+    }
+
+    private static void setScheduled(EmployeeView employee, boolean value) {
+        scheduled.set(employee.getId(), value);
+    }
+
     /**
      * 显示已做安排员工表或未做安排员工表，
      * 其中，未做安排员工可以被安排进排班表，已做安排员工若满足安排进排班表后，值班时间不出现间断，也可以被安排进排班表。
-     * @param peopleStatus
-     * @param choice
+     * @param choice 0为未做安排员工，其他为已做安排员工
      */
-    private static void showPeople(Map<Employee, Boolean> peopleStatus, int choice) {
+    private static void showPeople(int choice) {
         if (choice == 0)
             System.out.print("未做安排员工：\n");
         else {
             System.out.print("已做安排员工：\n");
         }
         boolean status=choice==0? false:true;
-        for (Employee E : peopleStatus.keySet()) {
-            if (peopleStatus.get(E).equals(status)) {
+        for (EmployeeView E : employeeStore.views()) {
+            if (isScheduled(E) == status) {
                 String s = E.getName() + "[" + E.getPosition() + "]" + "\n";
                 System.out.print(s);
             }
@@ -257,13 +352,44 @@ public class DutyRosterApp {
         if (!phoneNumber.matches("[0-9]+")) {
             throw new IllegalArgumentException("电话号码必须全为数字，请重新输入");
         }
-        for (Employee existingEmployee : PeopleWithStatus.keySet()) {
-            if (existingEmployee.getName().equals(name)) {
-                throw new confictName("已存在名为 " + name + " 的员工，请重新输入");
-            }
+        if (employeeStore.find(name) >= 0) {
+            throw new confictName("已存在名为 " + name + " 的员工，请重新输入");
         }
-        Employee newEmployee = new Employee(name, position, phoneNumber);
-        PeopleWithStatus.put(newEmployee, false);
+        registerEmployee(name, position, phoneNumber);
+    }
+
+    /**
+     * 登记一个已通过检查的新员工，同步更新员工表、工作量账本与值班表版本，并记录这次修改
+     * @return 新员工
+     */
+    private static EmployeeView registerEmployee(String name, String position, String phoneNumber) {
+        EmployeeView newEmployee = enrollEmployee(name, position, phoneNumber);
+        changes.emit(RosterChange.employeeAdded(name));
+        return newEmployee;
+    }
+
+    /**
+     * 把员工加入员工表，同步更新工作量账本与值班表版本；从文件读入值班表时使用，不记录修改
+     * @return 新员工
+     * @throws confictName 已存在同名员工
+     */
+    private static EmployeeView enrollEmployee(String name, String position, String phoneNumber) {
+        EmployeeView newEmployee = employeeStore.view(employeeStore.add(name, position, phoneNumber));
+        ledger.addEmployee(newEmployee);
+        roster = roster.withEmployee(newEmployee);
+        return newEmployee;
+    }
+
+    /**
+     * 删除一个没有排班的员工，同步更新员工索引、工作量账本与值班表版本
+     * @param employee 要删除的员工
+     */
+    private static void dropEmployee(EmployeeView employee) {
+        setScheduled(employee, false);
+        ledger.removeEmployee(employee);
+        employeeStore.remove(employee.getId());
+        roster = roster.withoutEmployee(employee.getName());
+        changes.emit(RosterChange.employeeRemoved(employee.getName()));
     }
 
     /**
@@ -271,24 +397,18 @@ public class DutyRosterApp {
      * 如果此员工不存在或未被安排进排班表中，表示删除失败
      */
     private static void removeEmployeeDuty() {
-        showPeople(PeopleWithStatus, 1);
+        showPeople(1);
         System.out.println("输入要删除排班的员工姓名:");
         String dPName = input.next();
-        Employee employee1 = null;
-        boolean exist1 = false;
-        for (Employee e : PeopleWithStatus.keySet()) {
-            if (e.getName().equals(dPName) ) {
-                exist1 = true;
-                employee1 = e;
-                break;
-            }
-        }
-        if (!exist1) {
+        EmployeeView employee1 = findEmployee(dPName);
+        if (employee1 == null) {
             System.err.print("此人不存在或未被安排进排班表中\n");
             return;
         }
+        if (dutySet.contains(employee1))
+            onDutyRemoved(employee1, dutySet.start(employee1), dutySet.end(employee1));
         dutySet.remove(employee1);
-        PeopleWithStatus.put(employee1, false);
+        setScheduled(employee1, inRotation(employee1));
         System.out.println("删除排班完成");
     }
     /**
@@ -303,122 +423,866 @@ public class DutyRosterApp {
      * @throws noExsistedException 如果没有找到名为给定参数的员工
      */
     private static void removeEmployee(String name) {
-        Employee toRemove = null;
-        for (Employee employee : PeopleWithStatus.keySet()) {
-            if (employee.getName().equals(name)) {
-                if (PeopleWithStatus.get(employee)) {
-                    throw new wrongStatusException("员工已经被编排进排班表，必须先删除其排班信息才能删除员工");
-                }
-                toRemove = employee;
-                break;
-            }
-        }
-        if (toRemove != null) {
-            PeopleWithStatus.remove(toRemove);
-        } else {
+        EmployeeView toRemove = findEmployee(name);
+        if (toRemove == null) {
             throw new noExsistedException("没有找到名为 " + name + " 的员工");
         }
+        if (isScheduled(toRemove)) {
+            throw new wrongStatusException("员工已经被编排进排班表，必须先删除其排班信息才能删除员工");
+        }
+        dropEmployee(toRemove);
     }
 
     /**
-     * 安排一个员工到特定时间段进行值班。这个时间段的开始和结束时间必须以天为单位。
+     * 安排一个员工到特定时间段进行值班。这个时间段的开始和结束时间按当前时间精度 {@link #time} 编码。
      * 可以给同一个员工通过多次追加值班时间段增扩时间，但是同一个员工的值班时间必须连续。
      * <p>没有找到这个员工，会抛出
      * {@link IllegalArgumentException}。
      * <p>检查新的值班时间段是否与这个员工已有的值班时间段连续。如果不连续，抛出
      * {@link IllegalArgumentException}。
-     * <p>将新的值班时间段添加到值班表中。如果新的值班时间段与已有的值班时间段重叠，抛出
-     * {@link NonlapException}。
+     * <p>将新的值班时间段添加到值班表中。如果新的值班时间段与已有的值班时间段或轮换规则重叠，抛出
+     * {@link doubleBookedException}，值班表不变。
      *
      * @param name 员工的名字
-     * @param start 值班时间段的开始时间，以天为单位
-     * @param end 值班时间段的结束时间，以天为单位
+     * @param start 值班时间段的开始时间（包含）
+     * @param end 值班时间段的结束时间（包含）
      * @throws IllegalArgumentException 如果没有找到名为给定参数的员工，或者新的值班时间段与这个员工已有的值班时间段不连续
+     * @throws doubleBookedException 如果新的值班时间段与已有的值班时间段或轮换规则重叠
      */
     private static void addDuty(String name, long start, long end) {
-        Employee employee = null;
         //根据姓名找到对应人员
-        for (Employee e : PeopleWithStatus.keySet()) {
-            if (e.getName().equals(name)) {
-                employee = e;
-                break;
-            }
-        }
+        EmployeeView employee = findEmployee(name);
         if (employee == null) {
             throw new IllegalArgumentException("没有找到名为 " + name + " 的员工");
         }
-        // 确定排班连续
-        for (Employee e : dutySet.labels()) {
-            if (e.equals(employee)) {
-                long lastEnd = dutySet.end(e)+1;
-                long lastStart= dutySet.start(e)-1;
-                // 可以加到已有值班时间的连续前端或后端
-                if (lastEnd != start&&lastStart!=end&&(!dutySet.labels().contains(e))) {
-                    throw new IllegalArgumentException("员工 " + name + " 的排班不连续");
-                }
-            }
+        // 确定排班连续：已有值班的员工只能加到已有值班时间的连续前端或后端
+        if (dutySet.contains(employee) && start != dutySet.end(employee) + 1
+                && end != dutySet.start(employee) - 1) {
+            throw new IllegalArgumentException("员工 " + name + " 的排班不连续");
+        }
+        if (roster.getRotations().overlaps(start, end)) {
+            throw new doubleBookedException("新建的排班记录与轮换规则重叠");
         }
         try {
-            PeopleWithStatus.put(employee, true);
             dutySet.Insert(start,end,employee);
         } catch (NonlapException e) {
-            System.err.println("新建的排班记录与已有重叠冲突" + e.getMessage());
+            throw new doubleBookedException("新建的排班记录与已有重叠冲突" + e.getMessage());
         }
+        setScheduled(employee, true);
+        onDutyAdded(employee, start, end);
     }
     /**
-     * 返回未排班时间段的list
-     * @return 未排班时间段的List，每个元素为一个long[2]数组，表示一个时间段
+     * 值班表中新增了一段值班后调用，同步更新各项派生数据；
+     * 该员工已有值班时，新的一段已在 dutySet 中与之合并，日历与值班表版本都改为合并后的时间段
+     * @param employee 值班员工
+     * @param start 新增一段的开始日期
+     * @param end 新增一段的结束日期
      */
-    private static List<long[]> getFreePeriod() {
-        List<Employee> intervals = dutySet.sort();
-        List<long[]> freePeriod=new ArrayList<>();
-        double period=0;
-        for(int i=0;i<=intervals.size();i++){
-            if(i==0){
-                //处理开始处的空隙
-                if(dutySet.start(intervals.get(0))>dutySet.getStart()){
-                    freePeriod.add(new long[]{dutySet.getStart(),dutySet.start(intervals.get(0))});
-                    period+=dutySet.start(intervals.get(0))-dutySet.getStart();
+    private static void onDutyAdded(EmployeeView employee, long start, long end) {
+        long[] previous = roster.duty(employee.getName());
+        long mergedStart = dutySet.start(employee);
+        long mergedEnd = dutySet.end(employee);
+        // 账本与日历中每位员工只登记合并后的一段，删除时按同一段扣除；
+        // 分钟精度下相接的两段可能落在同一天，逐段累加会把这一天重复计入
+        if (previous != null) {
+            ledger.removeDuty(employee, time.dayOf(previous[0]), time.dayOf(previous[1]));
+            calendar.remove(employee, previous[0], previous[1]);
+        }
+        ledger.addDuty(employee, time.dayOf(mergedStart), time.dayOf(mergedEnd));
+        calendar.add(employee, mergedStart, mergedEnd);
+        gaps.occupy(start, end);
+        changes.emit(RosterChange.dutyAdded(employee.getName(), start, end));
+        try {
+            // 以 dutySet 中该员工合并后的时间段为准
+            roster = roster.withoutDuty(employee.getName()).withDuty(employee.getName(), mergedStart, mergedEnd);
+        } catch (NonlapException e) {
+            System.err.println("值班表版本记录失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 值班表中即将删除一段值班前调用，同步更新各项派生数据
+     * @param employee 值班员工
+     * @param start 值班开始日期
+     * @param end 值班结束日期
+     */
+    private static void onDutyRemoved(EmployeeView employee, long start, long end) {
+        ledger.removeDuty(employee, time.dayOf(start), time.dayOf(end));
+        calendar.remove(employee, start, end);
+        gaps.release(start, end);
+        roster = roster.withoutDuty(employee.getName());
+        changes.emit(RosterChange.dutyRemoved(employee.getName(), start, end));
+    }
+
+    /**
+     * 值班表版本中加入一条轮换规则后调用：规则在总时间段内的工作量按周期计入账本，并记录一条新增规则的修改，不逐班展开
+     * @param rule 轮换规则
+     */
+    private static void onRotationAdded(RotationRule<EmployeeView> rule) {
+        ledger.addRotation(rule, roster.getPeriodStart(), roster.getPeriodEnd(), time);
+        changes.emit(RosterChange.rotationAdded(memberNames(rule), rule.getStart(), rule.getEnd()));
+    }
+
+    /**
+     * 删除一条轮换规则时调用，与 {@link #onRotationAdded} 对称，须在总时间段改变之前调用
+     * @param rule 轮换规则
+     */
+    private static void onRotationRemoved(RotationRule<EmployeeView> rule) {
+        ledger.removeRotation(rule, roster.getPeriodStart(), roster.getPeriodEnd(), time);
+        changes.emit(RosterChange.rotationRemoved(memberNames(rule), rule.getStart(), rule.getEnd()));
+    }
+
+    /**
+     * 把 dutySet、employeeStore、轮换规则及各项派生数据恢复为给定版本；版本中已被删除的员工按原编号恢复，用于撤销、重做与切换方案。
+     * <p>总时间段相同时只应用两个版本之间的差异（见 {@link PersistentRoster#changedNames}），
+     * 未变化的员工、排班与轮换规则保持不动，每处差异记录为一条修改；总时间段不同时按版本整体重建
+     * @param version 要恢复的版本
+     */
+    private static void applyVersion(PersistentRoster version) {
+        if (version.getPeriodStart() != roster.getPeriodStart() || version.getPeriodEnd() != roster.getPeriodEnd()) {
+            rebuildFrom(version);
+            return;
+        }
+        long periodStart = version.getPeriodStart();
+        long periodEnd = version.getPeriodEnd();
+        List<RotationRule<EmployeeView>> addedRules = new ArrayList<>();
+        Set<EmployeeView> affected = new HashSet<>();
+        roster.getRotations().diff(version.getRotations(), (before, after) -> {
+            if (before != null) {
+                onRotationRemoved(before);
+                releaseRule(before);
+                affected.addAll(before.getMembers());
+            }
+            if (after != null)
+                addedRules.add(after);
+        });
+        List<String> names = roster.changedNames(version);
+        // 先删除再恢复，被删除后又有同名新员工时，恢复旧员工前新员工已不在员工表中
+        for (String name : names) {
+            EmployeeView before = roster.employee(name);
+            EmployeeView after = version.employee(name);
+            if (before == null)
+                continue;
+            long[] duty = roster.duty(name);
+            if (duty != null && (!before.equals(after) || !Arrays.equals(duty, version.duty(name)))) {
+                dutySet.remove(before);
+                ledger.removeDuty(before, time.dayOf(duty[0]), time.dayOf(duty[1]));
+                calendar.remove(before, duty[0], duty[1]);
+                gaps.release(duty[0], duty[1]);
+                changes.emit(RosterChange.dutyRemoved(name, duty[0], duty[1]));
+            }
+            if (!before.equals(after)) {
+                setScheduled(before, false);
+                ledger.removeEmployee(before);
+                employeeStore.remove(before.getId());
+                changes.emit(RosterChange.employeeRemoved(name));
+            }
+            affected.add(before);
+        }
+        for (String name : names) {
+            EmployeeView before = roster.employee(name);
+            EmployeeView after = version.employee(name);
+            if (after == null)
+                continue;
+            if (!after.equals(before)) {
+                employeeStore.revive(after.getId());
+                ledger.addEmployee(after);
+                changes.emit(RosterChange.employeeAdded(name));
+            }
+            long[] duty = version.duty(name);
+            if (duty != null && (!after.equals(before) || !Arrays.equals(duty, roster.duty(name)))) {
+                try {
+                    dutySet.Insert(duty[0], duty[1], after);
+                } catch (NonlapException ex) {
+                    System.err.println("恢复排班失败：" + ex.getMessage());
+                    continue;
                 }
-            } else if (i==intervals.size()) {
-                //处理结束的空隙
-                if(dutySet.getEnd()>dutySet.end(intervals.get(i-1))){
-                    freePeriod.add(new long[]{dutySet.end(intervals.get(i-1)),dutySet.getEnd()});
-                    period+=dutySet.getEnd()-dutySet.end(intervals.get(i-1));
+                ledger.addDuty(after, time.dayOf(duty[0]), time.dayOf(duty[1]));
+                calendar.add(after, duty[0], duty[1]);
+                gaps.occupy(duty[0], duty[1]);
+                changes.emit(RosterChange.dutyAdded(name, duty[0], duty[1]));
+            }
+            affected.add(after);
+        }
+        roster = version;
+        for (RotationRule<EmployeeView> rule : addedRules) {
+            onRotationAdded(rule);
+            long from = Math.max(rule.getStart(), periodStart);
+            long to = Math.min(rule.getEnd(), periodEnd);
+            if (from <= to)
+                gaps.occupy(from, to);
+            affected.addAll(rule.getMembers());
+        }
+        for (EmployeeView e : affected) {
+            if (employeeStore.contains(e.getId()))
+                setScheduled(e, dutySet.contains(e) || inRotation(e));
+        }
+    }
+
+    /**
+     * 在空闲时间段索引中释放一条轮换规则在值班总时间段内的范围
+     * @param rule 轮换规则
+     */
+    private static void releaseRule(RotationRule<EmployeeView> rule) {
+        long from = Math.max(rule.getStart(), dutySet.getStart());
+        long to = Math.min(rule.getEnd(), dutySet.getEnd());
+        if (from <= to)
+            gaps.release(from, to);
+    }
+
+    /**
+     * 按版本整体重建 dutySet、employeeStore 与各项派生数据，用于总时间段不同的版本
+     * @param version 要恢复的版本
+     */
+    private static void rebuildFrom(PersistentRoster version) {
+        ledger.clearDuties();
+        calendar.clear();
+        Set<EmployeeView> kept = new HashSet<>(version.employees());
+        // 先删除再恢复，被删除后又有同名新员工时，恢复旧员工前新员工已不在员工表中
+        for (EmployeeView e : employeeStore.views()) {
+            if (!kept.contains(e)) {
+                ledger.removeEmployee(e);
+                employeeStore.remove(e.getId());
+            }
+        }
+        scheduled.clear();
+        for (EmployeeView e : kept) {
+            if (employeeStore.revive(e.getId()))
+                ledger.addEmployee(e);
+        }
+        dutySet = new HeapDutyStore<>(version.getPeriodStart(), version.getPeriodEnd());
+        for (EmployeeView e : version.sort()) {
+            long[] duty = version.duty(e.getName());
+            try {
+                dutySet.Insert(duty[0], duty[1], e);
+            } catch (NonlapException ex) {
+                System.err.println("恢复排班失败：" + ex.getMessage());
+                continue;
+            }
+            setScheduled(e, true);
+            calendar.add(e, duty[0], duty[1]);
+        }
+        for (EmployeeView e : version.sort()) {
+            long[] duty = version.duty(e.getName());
+            ledger.addDuty(e, time.dayOf(duty[0]), time.dayOf(duty[1]));
+        }
+        for (RotationRule<EmployeeView> rule : version.getRotations().rules()) {
+            ledger.addRotation(rule, version.getPeriodStart(), version.getPeriodEnd(), time);
+            // 只在轮换规则中的员工同样是已排班的
+            for (EmployeeView e : rule.getMembers())
+                setScheduled(e, true);
+        }
+        roster = version;
+        rebuildGaps();
+        changes.emit(RosterChange.reset());
+    }
+
+    /**
+     * 撤销上一次修改
+     */
+    private static void undo() {
+        if (!history.canUndo()) {
+            System.out.println("没有可撤销的操作");
+            return;
+        }
+        applyVersion(history.undo());
+        System.out.println("已撤销");
+    }
+
+    /**
+     * 重做上一次撤销的修改
+     */
+    private static void redo() {
+        if (!history.canRedo()) {
+            System.out.println("没有可重做的操作");
+            return;
+        }
+        applyVersion(history.redo());
+        System.out.println("已重做");
+    }
+
+    /**
+     * "假设"方案：把当前值班表保存为方案、切换到已保存的方案，或并列对比所有方案。
+     * <p>方案之间共享未修改的部分，保存方案不复制值班表。
+     */
+    private static void whatIf() {
+        System.out.println("1.保存当前排班为方案  2.切换到方案  3.对比所有方案");
+        int choice = readNum();
+        if (choice == 1) {
+            System.out.print("请输入方案名称：");
+            String name = input.next();
+            history.saveVariant(name);
+            System.out.println("已保存方案 " + name);
+        } else if (choice == 2) {
+            System.out.println("已有方案：" + history.variantNames());
+            System.out.print("请输入方案名称：");
+            String name = input.next();
+            try {
+                applyVersion(history.switchTo(name));
+                System.out.println("已切换到方案 " + name);
+            } catch (noExsistedException e) {
+                System.err.println(e.getMessage());
+            }
+        } else if (choice == 3) {
+            System.out.println(String.format("%-15s %-10s %-10s %-15s %-15s", "方案", "员工数", "已排班人数", "已排时长", "空缺时长"));
+            printVariant("(当前)", history.current());
+            for (String name : history.variantNames())
+                printVariant(name, history.variant(name));
+        } else {
+            System.err.println("非法选择");
+        }
+    }
+
+    /**
+     * 管理轮换规则：添加、删除、列出规则，或查询某日的值班人员。
+     * <p>规则不能与显式排班或其他规则重叠；规则中的员工视为已排班。
+     */
+    private static void manageRotations() {
+        System.out.println("1.添加轮换规则  2.删除轮换规则  3.查看轮换规则  4.查询某日值班");
+        int choice = readNum();
+        if (choice == 1) {
+            List<EmployeeView> members = new ArrayList<>();
+            System.out.println("请按轮换顺序逐个输入员工姓名，输入0结束");
+            String name = input.next();
+            while (!name.equals("0")) {
+                EmployeeView member = findEmployee(name);
+                if (member == null)
+                    System.err.println("没有找到名为 " + name + " 的员工");
+                else
+                    members.add(member);
+                name = input.next();
+            }
+            System.out.println("输入第一班开始时间");
+            long start = getStartTime();
+            System.out.println("输入规则结束时间");
+            long end = getEndTime();
+            System.out.print(time.hasTimeOfDay() ? "每班小时数：" : "每班天数：");
+            long block = time.hasTimeOfDay() ? readNum() * 60L : readNum();
+            try {
+                if (start < dutySet.getStart() || end > dutySet.getEnd())
+                    throw new IllegalArgumentException("轮换规则不能超出值班总时间段");
+                RotationRule<EmployeeView> rule = new RotationRule<>(members, start, end, block, time);
+                // 值班表版本检查规则与已有值班、已有规则都不重叠
+                roster = roster.withRotation(rule);
+                gaps.occupy(start, end);
+                onRotationAdded(rule);
+                for (EmployeeView e : members)
+                    setScheduled(e, true);
+                System.out.println("已添加轮换规则");
+            } catch (NonlapException e) {
+                System.err.println("轮换规则与已有排班重叠：" + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+            }
+        } else if (choice == 2) {
+            listRotations();
+            System.out.print("请输入要删除的规则序号：");
+            int index = readNum();
+            List<RotationRule<EmployeeView>> rules = roster.getRotations().rules();
+            if (index < 1 || index > rules.size()) {
+                System.err.println("规则不存在");
+                return;
+            }
+            RotationRule<EmployeeView> removed = rules.get(index - 1);
+            onRotationRemoved(removed);
+            roster = roster.withoutRotation(removed);
+            releaseRule(removed);
+            for (EmployeeView e : removed.getMembers()) {
+                if (!inRotation(e) && !dutySet.contains(e) && employeeStore.contains(e.getId()))
+                    setScheduled(e, false);
+            }
+            System.out.println("已删除轮换规则");
+        } else if (choice == 3) {
+            listRotations();
+        } else if (choice == 4) {
+            System.out.println(time.hasTimeOfDay() ? "输入要查询的时刻" : "输入要查询的日期");
+            long day = getStartTime();
+            EmployeeView employee = roster.onDuty(day);
+            if (employee == null)
+                System.out.println("该时间无人值班");
+            else
+                System.out.println(String.format("%-20s %-15s %-15s %-20s", time.format(day),
+                        employee.getName(), employee.getPosition(), employee.getPhoneNum()));
+        } else {
+            System.err.println("非法选择");
+        }
+    }
+
+    /**
+     * @return 规则中按轮换顺序排列的人员姓名
+     */
+    private static List<String> memberNames(RotationRule<EmployeeView> rule) {
+        List<String> names = new ArrayList<>(rule.getMembers().size());
+        for (EmployeeView e : rule.getMembers())
+            names.add(e.getName());
+        return names;
+    }
+
+    /**
+     * @return 员工是否出现在某条轮换规则中
+     */
+    private static boolean inRotation(EmployeeView employee) {
+        return roster.getRotations().contains(employee);
+    }
+
+    private static void listRotations() {
+        List<RotationRule<EmployeeView>> rules = roster.getRotations().rules();
+        if (rules.isEmpty()) {
+            System.out.println("无轮换规则");
+            return;
+        }
+        for (int i = 0; i < rules.size(); i++)
+            System.out.println((i + 1) + ". " + rules.get(i));
+    }
+
+    /**
+     * 开始或停止监视一个值班表文件。开始监视后立即按文件内容同步一次，之后文件每次保存都重新解析，
+     * 只把与内存中不同的员工与排班应用到值班表上
+     */
+    private static void watchFile() {
+        if (watcher != null) {
+            System.out.println("正在监视 " + watcher.getFile() + "  1.停止监视  0.返回");
+            if (readNum() == 1) {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    System.err.println("停止监视失败：" + e.getMessage());
                 }
-                break;
-            }else{
-                //处理中间的空隙
-                if(dutySet.start(intervals.get(i))-1>dutySet.end(intervals.get(i-1))){
-                    freePeriod.add(new long[]{dutySet.end(intervals.get(i-1)),dutySet.start(intervals.get(i))});
-                    period+=dutySet.start(intervals.get(i))-1-dutySet.end(intervals.get(i-1));
+                watcher = null;
+                System.out.println("已停止监视");
+            }
+            return;
+        }
+        System.out.print("请输入要监视的值班表文件路径：");
+        String path = input.next();
+        try {
+            watcher = new RosterWatcher(Paths.get(path), DutyRosterApp::onFileChanged, System.err::println);
+        } catch (IOException e) {
+            System.err.println("无法监视文件：" + e.getMessage());
+            return;
+        }
+        watcher.reloadNow();
+        System.out.println("开始监视 " + watcher.getFile());
+    }
+
+    /**
+     * 监视线程在文件修改后调用：应用变化，记录新版本并发布快照
+     * @param file 文件的解析结果
+     */
+    private static void onFileChanged(RosterFile file) {
+        editLock.lock();
+        try {
+            applyReload(file);
+            publishIfChanged();
+        } finally {
+            editLock.unlock();
+        }
+    }
+
+    /**
+     * 把重新解析的值班表文件与内存中的员工表、值班表按姓名比较，只应用其中的差异：
+     * 删除文件中已不存在或信息、时间段有变化的排班与员工，再添加文件中新出现的员工与排班。
+     * <p>比较只需各遍历一次两边的员工与排班，未变化的员工与排班保持不动，
+     * 因此修改一个大文件中的少数几行时，只有这几行对应的员工与排班被修改。
+     * <p>文件未通过校验或时间精度不同时保持当前值班表不变；总时间段变化时按新的总时间段重建值班表，员工保留，
+     * 仍在新总时间段内的轮换规则保留，超出的删除。
+     * @param file 文件的解析结果
+     */
+    private static void applyReload(RosterFile file) {
+        long begin = System.nanoTime();
+        ScheduleValidator.Report report = ScheduleValidator.validateRoster(file, false);
+        if (!report.isValid()) {
+            System.err.print("文件中有错误，未应用本次修改\n" + report);
+            return;
+        }
+        if (file.getCodec() != time) {
+            System.err.println("文件的时间精度与当前值班表不同，未应用本次修改");
+            return;
+        }
+        Map<String, RosterFile.EmployeeEntry> listed = new HashMap<>();
+        for (RosterFile.EmployeeEntry entry : file.getEmployees())
+            listed.put(entry.getName(), entry);
+        // 同一员工的多条相接排班合并为一段
+        Map<String, long[]> scheduled = new LinkedHashMap<>();
+        for (RosterFile.DutyEntry entry : file.getDuties()) {
+            long[] duty = scheduled.get(entry.getName());
+            if (duty == null) {
+                scheduled.put(entry.getName(), new long[]{entry.getStart(), entry.getEnd()});
+            } else {
+                duty[0] = Math.min(duty[0], entry.getStart());
+                duty[1] = Math.max(duty[1], entry.getEnd());
+            }
+        }
+        int removedDuties = 0;
+        if (file.getPeriodStart() != dutySet.getStart() || file.getPeriodEnd() != dutySet.getEnd()) {
+            for (EmployeeView e : new ArrayList<>(dutySet.labels())) {
+                onDutyRemoved(e, dutySet.start(e), dutySet.end(e));
+                setScheduled(e, inRotation(e));
+                removedDuties++;
+            }
+            // 轮换规则的工作量随总时间段裁剪，按新的总时间段重新计入；
+            // 与添加规则时的检查一致，超出新总时间段的规则不再保留
+            List<RotationRule<EmployeeView>> rules = roster.getRotations().rules();
+            for (RotationRule<EmployeeView> rule : rules)
+                onRotationRemoved(rule);
+            makeWholeTimeLine(file.getPeriodStart(), file.getPeriodEnd());
+            for (EmployeeView e : employeeStore.views())
+                roster = roster.withEmployee(e);
+            for (RotationRule<EmployeeView> rule : rules) {
+                if (rule.getStart() < file.getPeriodStart() || rule.getEnd() > file.getPeriodEnd()) {
+                    System.err.println("轮换规则 " + rule + " 超出新的总时间段，已删除");
+                    continue;
+                }
+                try {
+                    roster = roster.withRotation(rule);
+                    onRotationAdded(rule);
+                } catch (NonlapException ex) {
+                    System.err.println("轮换规则版本记录失败：" + ex.getMessage());
                 }
             }
+            for (RotationRule<EmployeeView> rule : rules) {
+                for (EmployeeView e : rule.getMembers())
+                    setScheduled(e, inRotation(e) || dutySet.contains(e));
+            }
+            System.out.println("总时间段已改为 " + time.formatRange(file.getPeriodStart(), file.getPeriodEnd()));
         }
-        String format=String.format("%.3f",period/(double) (dutySet.getEnd()- dutySet.getStart()+1));
+
+        int removedEmployees = 0;
+        Set<EmployeeView> onDuty = new HashSet<>(dutySet.labels());
+        Map<String, EmployeeView> byName = new HashMap<>();
+        Set<String> unchangedDuty = new HashSet<>();
+        for (EmployeeView e : employeeStore.views()) {
+            RosterFile.EmployeeEntry entry = listed.get(e.getName());
+            boolean keep = entry != null && entry.getPosition().equals(e.getPosition())
+                    && entry.getPhone().equals(e.getPhoneNum());
+            if (onDuty.contains(e)) {
+                long[] duty = scheduled.get(e.getName());
+                if (keep && duty != null && duty[0] == dutySet.start(e) && duty[1] == dutySet.end(e)) {
+                    unchangedDuty.add(e.getName());
+                } else {
+                    onDutyRemoved(e, dutySet.start(e), dutySet.end(e));
+                    dutySet.remove(e);
+                    setScheduled(e, inRotation(e));
+                    removedDuties++;
+                }
+            }
+            if (!keep && inRotation(e)) {
+                System.err.println("员工 " + e.getName() + " 仍在轮换规则中，未修改");
+                keep = true;
+            }
+            if (keep) {
+                byName.put(e.getName(), e);
+            } else {
+                dropEmployee(e);
+                removedEmployees++;
+            }
+        }
+
+        int addedEmployees = 0;
+        int addedDuties = 0;
+        for (RosterFile.EmployeeEntry entry : file.getEmployees()) {
+            if (byName.containsKey(entry.getName()))
+                continue;
+            byName.put(entry.getName(), registerEmployee(entry.getName(), entry.getPosition(), entry.getPhone()));
+            addedEmployees++;
+        }
+        for (Map.Entry<String, long[]> entry : scheduled.entrySet()) {
+            if (unchangedDuty.contains(entry.getKey()))
+                continue;
+            EmployeeView e = byName.get(entry.getKey());
+            long start = entry.getValue()[0];
+            long end = entry.getValue()[1];
+            if (roster.getRotations().overlaps(start, end)) {
+                System.err.println(e.getName() + " 的排班与轮换规则重叠，未添加");
+                continue;
+            }
+            try {
+                dutySet.Insert(start, end, e);
+            } catch (NonlapException ex) {
+                System.err.println(e.getName() + " 的排班与已有排班重叠，未添加");
+                continue;
+            }
+            setScheduled(e, true);
+            onDutyAdded(e, start, end);
+            addedDuties++;
+        }
+        System.out.println(String.format("已应用文件修改：新增员工%d  删除员工%d  新增排班%d  删除排班%d  用时%.3fms",
+                addedEmployees, removedEmployees, addedDuties, removedDuties, (System.nanoTime() - begin) / 1e6));
+    }
+
+    /**
+     * 开始或停止把值班表的修改写入日志文件。日志在独立线程中写入，写入跟不上时丢弃部分批次，不影响排班操作
+     */
+    private static void toggleChangeLog() {
+        if (changeLog != null) {
+            changeLog.cancel();
+            System.out.println("已停止记录，共写入 " + changeLog.written() + " 条修改，丢弃 "
+                    + changes.droppedChanges() + " 条");
+            changeLog = null;
+            return;
+        }
+        System.out.print("请输入日志文件路径：");
+        String path = input.next();
+        try {
+            changeLog = new RosterChangeLog(Paths.get(path), time);
+        } catch (IOException e) {
+            System.err.println("日志文件打开失败：" + e.getMessage());
+            return;
+        }
+        changes.subscribe(changeLog);
+        System.out.println("开始记录值班表修改到 " + path);
+    }
+
+    /**
+     * 把当前值班表与一个值班表文件对比，或以一个共同祖先文件为基准，把另一个值班表文件合并进当前值班表。
+     * <p>合并结果先按值班表的规则校验，通过后才写入新的文件，不修改当前值班表；确认无冲突后可以通过文件热加载应用到当前值班表上。
+     * 当前值班表中的轮换规则展开为各班参与合并，但不写入文件，仍保留在内存中
+     */
+    private static void diffOrMerge() {
+        System.out.println("1.与文件对比  2.三方合并  0.返回");
+        int choice = readNum();
+        if (choice != 1 && choice != 2)
+            return;
+        RosterDiff.Version current = RosterDiff.Version.of(roster, time);
+        if (choice == 1) {
+            System.out.print("请输入要对比的值班表文件路径：");
+            RosterDiff.Version other = readVersion(input.next());
+            if (other == null)
+                return;
+            long begin = System.nanoTime();
+            RosterDiff diff = RosterDiff.compare(current, other);
+            System.out.print(diff.isEmpty() ? "两个值班表相同\n" : diff);
+            System.out.println(String.format("用时%.3fms", (System.nanoTime() - begin) / 1e6));
+            return;
+        }
+        System.out.print("请输入共同祖先值班表文件路径：");
+        RosterDiff.Version base = readVersion(input.next());
+        if (base == null)
+            return;
+        System.out.print("请输入要合并的值班表文件路径：");
+        RosterDiff.Version theirs = readVersion(input.next());
+        if (theirs == null)
+            return;
+        long begin = System.nanoTime();
+        RosterDiff.Merge merge = RosterDiff.merge(base, current, theirs);
+        System.out.println(String.format("合并完成，%d条排班，用时%.3fms", merge.getResult().dutyCount(),
+                (System.nanoTime() - begin) / 1e6));
+        if (merge.hasConflicts()) {
+            System.out.println("有" + merge.getConflicts().size() + "处冲突，冲突的时间段暂时保留当前值班表的排班：");
+            for (RosterDiff.Conflict conflict : merge.getConflicts())
+                System.out.println(conflict.describe(time));
+        }
+        // 总时间段与排班分别合并，合并后的排班可能超出合并后的总时间段，未通过校验的结果不保存
+        ScheduleValidator.Report report = merge.getResult().validate();
+        if (!report.isValid()) {
+            System.err.print("合并结果未通过校验，未保存\n" + report);
+            return;
+        }
+        System.out.print("请输入合并结果的保存路径（输入0不保存）：");
+        String path = input.next();
+        if (path.equals("0"))
+            return;
+        try (Writer out = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            merge.getResult().writeTo(out);
+        } catch (IOException e) {
+            System.err.println("保存失败：" + e.getMessage());
+            return;
+        }
+        System.out.println("已保存到 " + path);
+    }
+
+    /**
+     * 读入并校验一个值班表文件
+     * @param path 文件路径
+     * @return 文件中的值班表；文件无法读取、未通过校验或时间精度与当前值班表不同时返回null
+     */
+    private static RosterDiff.Version readVersion(String path) {
+        RosterFile file;
+        try {
+            file = RosterFile.read(Paths.get(path));
+        } catch (IOException e) {
+            System.err.println("文件打开失败：" + e.getMessage());
+            return null;
+        }
+        ScheduleValidator.Report report = ScheduleValidator.validateRoster(file, false);
+        if (!report.isValid()) {
+            System.err.print(report);
+            return null;
+        }
+        if (file.getCodec() != time) {
+            System.err.println("文件的时间精度与当前值班表不同");
+            return null;
+        }
+        return RosterDiff.Version.of(file);
+    }
+
+    /**
+     * 读入多个团队的值班表文件，与当前值班表共享同一个员工库，报告同一员工在多个团队同时值班的排班
+     */
+    private static void checkTeamRosters() {
+        RosterHub hub = new RosterHub(time);
+        // 当前值班表先加入，各团队文件中与它重复值班的排班都会被报告
+        List<String> skipped = new ArrayList<>(hub.include("当前值班表", roster));
+        System.out.println("请逐个输入团队值班表文件路径，输入0结束");
+        String path = input.next();
+        int team = 0;
+        while (!path.equals("0")) {
+            String name = "团队" + (++team);
+            try {
+                skipped.addAll(hub.load(name, Paths.get(path)));
+                System.out.println("已读入 " + name + "：" + path);
+            } catch (IOException e) {
+                System.err.println("文件打开失败：" + path);
+                team--;
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                team--;
+            }
+            path = input.next();
+        }
+        if (skipped.isEmpty())
+            System.out.println("没有发现冲突");
+        for (String msg : skipped)
+            System.out.println(msg);
+    }
+
+    private static void printVariant(String name, PersistentRoster version) {
+        System.out.println(String.format("%-15s %-10d %-10d %-15s %-15s", name, version.employeeCount(),
+                version.dutyCount(), time.formatLength(version.dutyDays()), time.formatLength(version.freeDays())));
+    }
+
+    /**
+     * 展示每位员工的值班天数、周末与节假日天数，以及值班天数的最大最小比与基尼系数
+     */
+    private static void showWorkload() {
+        if (ledger.size() == 0) {
+            System.out.println("无员工");
+            return;
+        }
+        System.out.println(String.format("%-15s %-10s %-10s %-10s", "姓名", "值班天数", "周末天数", "节假日天数"));
+        for (int i = 0; i < ledger.size(); i++) {
+            EmployeeView e = ledger.employeeAt(i);
+            System.out.println(String.format("%-15s %-10d %-10d %-10d", e.getName(),
+                    ledger.dutyDays(e), ledger.weekendDays(e), ledger.holidayDays(e)));
+        }
+        System.out.println(String.format("最多:%d天  最少:%d天  最大/最小:%.3f  基尼系数:%.3f",
+                ledger.maxDays(), ledger.minDays(), ledger.maxMinRatio(), ledger.gini()));
+    }
+
+    /**
+     * 用户逐个输入节假日日期，输入0结束；之后按新的节假日重算所有员工的节假日天数
+     */
+    private static void setHolidays() {
+        List<Long> days = new ArrayList<>();
+        System.out.println("请逐个输入节假日日期(yyyy-mm-dd)，输入0结束");
+        String str = input.next();
+        while (!str.equals("0")) {
+            long day = DayCodec.parse(str);
+            if (day < 0)
+                System.err.println("日期格式错误，正确的格式为：yyyy-mm-dd");
+            else
+                days.add(day);
+            str = input.next();
+        }
+        long[] holidays = new long[days.size()];
+        for (int i = 0; i < holidays.length; i++)
+            holidays[i] = days.get(i);
+        ledger.setHolidays(holidays);
+        ledger.clearDuties();
+        for (EmployeeView e : roster.sort()) {
+            long[] duty = roster.duty(e.getName());
+            ledger.addDuty(e, time.dayOf(duty[0]), time.dayOf(duty[1]));
+        }
+        for (RotationRule<EmployeeView> rule : roster.getRotations().rules())
+            ledger.addRotation(rule, roster.getPeriodStart(), roster.getPeriodEnd(), time);
+        System.out.println("已设置 " + holidays.length + " 个节假日");
+    }
+
+    /**
+     * 返回未排班时间段的list，时间段的精度与值班表相同，直接从空闲时间段索引中读出
+     * @return 未排班时间段的List，每个元素为一个long[2]数组{开始, 结束}（都包含在内）
+     */
+    private static List<long[]> getFreePeriod() {
+        String format=String.format("%.3f",gaps.freeLength()/(double) (dutySet.getEnd()- dutySet.getStart()+1));
         System.out.println("未排班时间占比为："+format);
-        return freePeriod;
+        return gaps.gaps(1);
     }
+
+    /**
+     * 返回已排班的时间块：dutySet 中每位员工的值班时间段，以及每条轮换规则在值班总时间段内的范围。
+     * <p>轮换规则覆盖范围内的每一天都有人值班，因此无需展开即可作为一整块参与空闲时间段索引的构建。
+     * @return 按开始日期排序的时间块，每个元素为{开始, 结束}
+     */
+    private static List<long[]> coveredBlocks() {
+        List<long[]> blocks = new ArrayList<>();
+        for (EmployeeView e : dutySet.sort())
+            blocks.add(new long[]{dutySet.start(e), dutySet.end(e)});
+        if (roster.getRotations().isEmpty())
+            return blocks;
+        for (RotationRule<EmployeeView> rule : roster.getRotations().rules()) {
+            long s = Math.max(rule.getStart(), dutySet.getStart());
+            long e = Math.min(rule.getEnd(), dutySet.getEnd());
+            if (s <= e)
+                blocks.add(new long[]{s, e});
+        }
+        blocks.sort(Comparator.comparingLong(block -> block[0]));
+        return blocks;
+    }
+
     /**
-     * 展示未排班时间段,用字符串形式输出
+     * 展示未排班时间段的概况，再按用户的选择列出全部空闲段、查找某时间之后第一个足够长的空闲段，
+     * 或列出所有足够长的空闲段，用字符串形式输出
      */
     private static void showFreePeriod(){
-        List<long[]> freePeriods=getFreePeriod();
-        if(freePeriods.size()==0){
+        if(gaps.isEmpty()){
             System.out.println("排版完成，无未排班时间段\n");
             return;
         }
-        System.out.println("未排班时间段还有:\n");
-        for (long[] period:freePeriods){
-            List<Integer> timeStart= longTrans(period[0]+1);
-            List<Integer> timeEnd= longTrans(period[1]);
-            System.out.println("["+timeStart.get(0)+"-"
-                    +timeStart.get(1)+"-"+timeStart.get(2)+"] ~ ["+
-                    timeEnd.get(0)+"-"
-                    +timeEnd.get(1)+"-"+timeEnd.get(2)+"]\n");
+        String format=String.format("%.3f",gaps.freeLength()/(double) (dutySet.getEnd()- dutySet.getStart()+1));
+        System.out.println("未排班时间占比为："+format+"  共" + gaps.count() + "段  最长" + time.formatLength(gaps.longest()));
+        System.out.println("1.列出全部  2.查找某时间之后的空闲段  3.列出足够长的空闲段  0.返回");
+        int choice = readNum();
+        if (choice == 1) {
+            printGaps(getFreePeriod());
+        } else if (choice == 2) {
+            System.out.println("输入最早开始时间");
+            long from = getStartTime();
+            long length = readLength();
+            if (length <= 0)
+                return;
+            long[] gap = gaps.firstFit(from, length);
+            if (gap == null)
+                System.out.println("该时间之后没有足够长的空闲时间段");
+            else
+                printGaps(Collections.singletonList(gap));
+        } else if (choice == 3) {
+            long length = readLength();
+            if (length <= 0)
+                return;
+            List<long[]> found = gaps.gaps(length);
+            System.out.println("不短于" + time.formatLength(length) + "的空闲时间段共" + found.size() + "段");
+            printGaps(found);
+        } else {
+            return;
         }
         System.out.println("请继续进行手动排班");
     }
+
+    private static void printGaps(List<long[]> freePeriods) {
+        for (long[] period:freePeriods){
+            System.out.println("[" + time.format(period[0]) + "] ~ [" + time.formatEnd(period[1]) + "]  "
+                    + time.formatLength(period[1] - period[0] + 1));
+        }
+    }
+
+    /**
+     * 读取用户需要的时间长度，天精度以天为单位，分钟精度以小时为单位
+     * @return 值班表时间单位下的长度，用户输入0时为0
+     */
+    private static long readLength() {
+        System.out.print(time.hasTimeOfDay() ? "需要的小时数：" : "需要的天数：");
+        return time.hasTimeOfDay() ? readNum() * 60L : readNum();
+    }
     /**
      * 自动随机生成一个排班表；
      * 如果排班表不为空，则无法进行该操作；
@@ -429,17 +1293,16 @@ public class DutyRosterApp {
         long end= dutySet.getEnd();
         Random rand = new Random();
         long length=end-start+1;
-        int emplSize=PeopleWithStatus.size();
+        int emplSize=employeeStore.size();
         long done=start-1;
-        Employee now=null;
-        for(Employee e:PeopleWithStatus.keySet()){
+        EmployeeView now=null;
+        for(EmployeeView e:employeeStore.views()){
             now=e;
-            int randomNum = rand.nextInt((int) (length/emplSize)*2+1);
-            if(done-start+1+randomNum<=length){
+            // 每人至少一个时间单位，否则会得到开始晚于结束的时间段
+            int randomNum = Math.max(1, rand.nextInt((int) (length/emplSize)*2+1));
+            if(done+randomNum<end){
                 addDuty(e.getName(),done+1,done+randomNum);
                 done+=randomNum;
-                if(done==length)
-                    return;
             }else{
                 addDuty(e.getName(),done+1,end);
                 return;
@@ -452,74 +1315,111 @@ public class DutyRosterApp {
      * 进行手动排班
      */
     private static void manualDutyAssignment( ) {
-        showPeople(PeopleWithStatus, 0);
+        showPeople(0);
         System.out.print("请输入人名：");
         String name = input.next();
-        Employee employee = null;
-        boolean exist = false;
-        for (Employee e : PeopleWithStatus.keySet()) {
-            if (e.getName().equals(name)) {
-                exist = true;
-                employee = e;
-                break;
-            }
-        }
-        if (!exist) {
+        EmployeeView employee = findEmployee(name);
+        if (employee == null) {
             System.err.print("此人不存在或未被安排进排班表中\n");
             return;
         }
+        if (suggestDuty(employee))
+            return;
         System.out.println("输入该员工排班开始时间");
-        long start1 = getTime();
+        long start1 = getStartTime();
         while (start1< dutySet.getStart()){
             System.err.print("开始时间不能早于排班表开始时间\n");
             System.out.println("请重新输入该员工排班开始时间");
-            start1=getTime();
+            start1=getStartTime();
         }
         System.out.println("输入该员工排班结束时间");
-        long end1 = getTime();
+        long end1 = getEndTime();
         if(end1> dutySet.getEnd()){
             System.err.print("结束时间不能晚于排班表结束时间\n");
             System.out.println("请重新输入该员工排班结束时间");
-            end1 = getTime();
+            end1 = getEndTime();
         }
         if (start1 > end1) {
             System.err.print("开始时间不能晚于结束时间\n");
             return;
         }
-        addDuty(name, start1, end1);
+        try {
+            addDuty(name, start1, end1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
         System.out.println("该次手动排班完成\n");
     }
     /**
-     * 用于检查文件中时间信息是否符合格式,。若符合，将日期信息转换为long形式
-     * 如果该时间格式不为yyyy-mm-dd，或信息不正确，程序直接退出
-     * @param str checkfileparser中的一个字符子串，表示一个时间，需要为yyyy-mm-dd形式
-     * @return {@link #transTime},用这个函数将日期信息转换为long形式
+     * 按用户需要的长度从空闲时间段索引中给出候选时间段，用户选中后直接排班：
+     * 已有排班的员工只能在其排班前后相接处追加，候选为紧接已有排班之前、之后的空闲时间；
+     * 其他员工的候选为最早的足够长的空闲段（首次适配）与最短的足够长的空闲段（最佳适配）
+     * @param employee 要排班的员工
+     * @return 是否已按候选时间段排班；用户不需要候选、没有合适的空闲段或排班失败时返回false，改为手动输入时间段
      */
-    private static long checkLineParser(String str){
-        String regex = "\\d{4}-\\d{2}-\\d{2}";
-        if (!str.matches(regex)) {
-            System.err.print("时间不为对应形式 yyyy-mm-dd\n");
-            System.exit(0);
+    private static boolean suggestDuty(EmployeeView employee) {
+        if (gaps.isEmpty()) {
+            System.out.println("排班表已排满");
+            return true;
         }
-        int month = Integer.parseInt(str.substring(5, 7));
-        int day = Integer.parseInt(str.substring(8, 10));
-        int year = Integer.parseInt(str.substring(0, 4));
-        if (month <= 0 || month > 12) {
-            System.err.print("不存在"+month+"月\n");
-            System.exit(0);
-        }
-        if (year % 4 == 0) {
-            if (day > dayOfMonth[0][month - 1] || day <= 0) {
-                System.err.print(month+"月不能为"+day+"天\n");
-                System.exit(0);
+        System.out.println("输入需要的值班时长以查找空闲时间段，输入0直接输入时间段");
+        long length = readLength();
+        if (length <= 0)
+            return false;
+        List<long[]> candidates = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        if (dutySet.contains(employee)) {
+            // 紧接之前：从 start-length 开始的空闲时间足够长，即所在空闲段一直延续到 start-1
+            long before = dutySet.start(employee) - length;
+            long[] gap = before < dutySet.getStart() ? null : gaps.firstFit(before, length);
+            if (gap != null && gap[0] == before) {
+                candidates.add(gap);
+                labels.add("紧接已有排班之前");
+            }
+            long after = dutySet.end(employee) + 1;
+            gap = after > dutySet.getEnd() ? null : gaps.firstFit(after, length);
+            if (gap != null && gap[0] == after) {
+                candidates.add(gap);
+                labels.add("紧接已有排班之后");
+            }
+            if (candidates.isEmpty()) {
+                System.out.println("该员工已有排班的前后都没有不短于" + time.formatLength(length) + "的空闲时间");
+                return false;
             }
         } else {
-            if (day > dayOfMonth[1][month - 1] || day <= 0) {
-                System.err.print(month+"月不能为"+day+"天\n");
-                System.exit(0);
+            long[] first = gaps.firstFit(dutySet.getStart(), length);
+            if (first == null) {
+                System.out.println("没有不短于" + time.formatLength(length) + "的空闲时间段，最长的空闲时间段为"
+                        + time.formatLength(gaps.longest()));
+                return false;
+            }
+            candidates.add(first);
+            labels.add("最早");
+            long[] best = gaps.bestFit(length);
+            if (best[0] != first[0]) {
+                candidates.add(best);
+                labels.add("最合适");
             }
         }
-        return transTime(year, month, day);
+        for (int i = 0; i < candidates.size(); i++) {
+            long[] gap = candidates.get(i);
+            System.out.println((i + 1) + "." + labels.get(i) + "：" + time.formatRange(gap[0], gap[0] + length - 1)
+                    + "（可用空闲时间 " + time.formatRange(gap[0], gap[1]) + "）");
+        }
+        System.out.println("0.手动输入时间段");
+        int choice = readNum();
+        if (choice < 1 || choice > candidates.size())
+            return false;
+        long start = candidates.get(choice - 1)[0];
+        try {
+            addDuty(employee.getName(), start, start + length - 1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return false;
+        }
+        System.out.println("该次手动排班完成\n");
+        return true;
     }
 
     /**
@@ -530,45 +1430,15 @@ public class DutyRosterApp {
         String indexStr = String.valueOf(index);
 
         try {
-            FileReader reader = new FileReader("src/text/text"+indexStr+".txt");
-            BufferedReader bufferedReader = new BufferedReader(reader);
-
-            String line="";
-            while ((line = bufferedReader.readLine()) != null) {
-                    if (line.contains("Period{")) {
-                        getLineInfo(line);
-                        break;
-                    }
-            }
-            reader.close();
-            FileReader readerNew1 = new FileReader("src/text/text"+indexStr+".txt");
-            BufferedReader bufferedReaderNew1 = new BufferedReader(readerNew1);
-            String newLine1="";
-            while ((newLine1 = bufferedReaderNew1.readLine()) != null) {
-                        if(newLine1.contains("Employee{")){
-                            while(!newLine1.matches("[\\s}]*")||newLine1.matches("\\s*")){
-                                getLineInfo(newLine1);
-                                newLine1=bufferedReaderNew1.readLine();
-                            }
-                            break;
-                        }
-            }
-            reader.close();
-
-            FileReader readerNew2 = new FileReader("src/text/text"+indexStr+".txt");
-            BufferedReader bufferedReaderNew2 = new BufferedReader(readerNew2);
-            String newLine2="";
-            while((newLine2=bufferedReaderNew2.readLine())!=null){
-                if(newLine2.contains("Roster{")){
-                    while(!newLine2.matches("[\\s}]*")||newLine2.matches("\\s*")){
-                        getLineInfo(newLine2);
-                        newLine2=bufferedReaderNew2.readLine();
-                    }
-                    break;
-                }
+            // 先整体校验一遍，一次报告文件中的所有问题，再用同一份解析结果生成排班表
+            RosterFile file = RosterFile.read(Paths.get("src/text/text" + indexStr + ".txt"));
+            ScheduleValidator.Report report = ScheduleValidator.validateRoster(file, false);
+            if (!report.isValid()) {
+                System.err.print(report);
+                System.exit(0);
             }
-            reader.close();
-
+            setPrecision(file.getCodec());
+            loadRosterFile(file);
         } catch (IOException e) {
             System.err.print("文件打开失败\n");
             System.exit(0);
@@ -576,123 +1446,147 @@ public class DutyRosterApp {
     }
 
     /**
-     * 根据文件中信息生成排班表，若文件格式错误或信息错误，进程直接结束；
-     * <p>
-     *     格式错误包括：1.时间不为yyyy-mm-dd 2.员工姓名中含有非字母符号或数字 3.员工电话号码不为数字
-     * </p>
-     * 信息错误包括：1.员工姓名重复 2.员工姓名在员工表中不存在，但试图将其添加到排班表
-     * @param str 文件名
-     */
-    private static int  ifHave =0;
-    private static void getLineInfo(String originStr) {
-        String str=originStr.replaceAll("\\s","");
-        long start;
-        long end;
-        if (str == null || str.trim().isEmpty()) {
-            return;
-        }
-        // 取得时间信息
-        if (str.startsWith("Period{")) {
-            String time = str.substring(7, 17);
-            start = checkLineParser(time);
-            String next = str.substring(str.length() - 11, str.length() - 1);
-            end = checkLineParser(next);
-            if(ifHave==0) {
-                dutySet = new DutyIntervalSet<>(start, end);
-                ifHave=1;
+     * 用已校验过的文件解析结果生成排班表
+     * @param file 值班表文件的解析结果
+     */
+    private static void loadRosterFile(RosterFile file) {
+        makeWholeTimeLine(file.getPeriodStart(), file.getPeriodEnd());
+        Map<String, EmployeeView> byName = new HashMap<>();
+        for (RosterFile.EmployeeEntry entry : file.getEmployees())
+            byName.put(entry.getName(), enrollEmployee(entry.getName(), entry.getPosition(), entry.getPhone()));
+        for (RosterFile.DutyEntry entry : file.getDuties()) {
+            EmployeeView employee = byName.get(entry.getName());
+            try {
+                dutySet.Insert(entry.getStart(), entry.getEnd(), employee);
+            } catch (NonlapException e) {
+                System.err.print("排班在" + employee.getName() + "时出现重复\n");
+                System.exit(0);
             }
-        } else if (str.startsWith("Employee{")) {
+            setScheduled(employee, true);
+            onDutyAdded(employee, entry.getStart(), entry.getEnd());
+        }
+    }
 
-        } else if (str.startsWith("Roster{")) {
+    /**
+     * 打印值班表；显式排班与轮换规则都按开始日期排列，二者互不重叠，因此按规则的开始日期插入到显式排班之间即可
+     */
+    private static void printDutyRoster() {
+        printDutyHeader();
+        List<RotationRule<EmployeeView>> rules = roster.getRotations().rules();
+        int next = 0;
+        for (EmployeeView e : roster.sort()) {
+            long[] duty = roster.duty(e.getName());
+            while (next < rules.size() && rules.get(next).getStart() < duty[0])
+                printRotation(rules.get(next++));
+            printDuty(new CalendarIndex.Duty<>(e, duty[0], duty[1]));
+        }
+        while (next < rules.size())
+            printRotation(rules.get(next++));
+    }
 
-        } else if (str.startsWith("}")) {
+    /**
+     * 打印一条轮换规则在值班总时间段内的各班；每次只展开1024班，长期规则也不会一次展开全部的班
+     * @param rule 轮换规则
+     */
+    private static void printRotation(RotationRule<EmployeeView> rule) {
+        long from = Math.max(rule.getStart(), roster.getPeriodStart());
+        long to = Math.min(rule.getEnd(), roster.getPeriodEnd());
+        long chunk = rule.getBlock() * 1024;
+        while (from <= to) {
+            // 按规则的班次对齐，一班不会被拆成两行
+            long chunkEnd = Math.min(to, rule.getStart() + ((from - rule.getStart()) / chunk + 1) * chunk - 1);
+            for (CalendarIndex.Duty<EmployeeView> duty : rule.materialize(from, chunkEnd))
+                printDuty(duty);
+            from = chunkEnd + 1;
+        }
+    }
 
-        } else {
-            // 设置日期区间正则规则
-            String reg1 = "\\d{4}-\\d{2}-\\d{2},\\d{4}-\\d{2}-\\d{2}";
-            Pattern pattern1 = Pattern.compile(reg1);
-            Matcher matcher1 = pattern1.matcher(str);
-
-            // 设置号码正则规则
-            String reg2 = "\\d{3}-\\d{4}-\\d{4}";
-            Pattern pattern2 = Pattern.compile(reg2);
-            Matcher matcher2 = pattern2.matcher(str);
-            // 匹配日期
-            if (matcher1.find()) {
-                //找日期区间格式
-                String msg = matcher1.group();
-                long startTime = checkLineParser(msg.substring(0, 10));
-                long endTime = checkLineParser(msg.substring(11, 21));
-                String reg3 = "[a-zA-Z]+";
-
-                Pattern pattern3 = Pattern.compile(reg3);
-                Matcher matcher3 = pattern3.matcher(str);
-                if(matcher3.find()) {
-                    String name = matcher3.group();
-                    boolean flag = false;
-                    for (Employee E : PeopleWithStatus.keySet()) {
-                        // 在员工表中已经定义
-                        if (E.getName().equals(name)) {
-                            flag = true;
-                            try {
-                                dutySet.Insert(startTime, endTime, E);
-                            } catch (NonlapException e) {
-                                System.err.print("排班在" + E.getName() + "时出现重复\n");
-                                System.exit(0);
-                            }
-                            PeopleWithStatus.put(E, true);
-                            break;
-                        }
-                    }
-                    if (!flag) {
-                        System.err.print("没有名为“" + name + "”的员工\n");
-                        System.exit(0);
-                    }
-                }
-            } else if (matcher2.find()) {// 电话号码
-                String msg1 = matcher2.group();
-                String reg4 = "[a-zA-Z ]+";
-                Pattern pattern4 = Pattern.compile(reg4);
-                Matcher matcher4 = pattern4.matcher(str);
-                String name = null, job = null;
-                if (matcher4.find()) {// 员工姓名
-                    name = matcher4.group();
-                    if (str.charAt(1 + name.length()) != '{') {
-                        System.err.print("人名中含有非字母的符号或数字\n");
-                        System.exit(0);
-                    }
-                    for (Employee E : PeopleWithStatus.keySet()) {
-                        if (E.getName().equals(name)) {
-                            System.err.print("有重复人名\n");
-                            System.exit(0);
-                        }
-                    }
-                }
-                if (matcher4.find()) {//姓名之后的职位
-                    job = matcher4.group();
-                }
-                Employee newEmployee = new Employee(name, job, msg1);
-                PeopleWithStatus.put(newEmployee, false);
-            } else {
-                System.err.print("非法的手机号\n");
-                System.exit(0);
-            }
+    private static void printDutyHeader() {
+        if (time.hasTimeOfDay())
+            System.out.println(String.format("%-40s %-15s %-15s %-20s", "时间段", "值班人姓名", "职位", "手机号码"));
+        else
+            System.out.println(String.format("%-20s %-15s %-15s %-20s", "日期", "值班人姓名", "职位", "手机号码"));
+    }
+
+    /**
+     * 打印一段值班：天精度下逐日打印，分钟精度下整段打印为一行，不按分钟展开
+     * @param duty 值班时间段
+     */
+    private static void printDuty(CalendarIndex.Duty<EmployeeView> duty) {
+        EmployeeView employee = duty.getLabel();
+        if (time.hasTimeOfDay()) {
+            System.out.println(String.format("%-40s %-15s %-15s %-20s", time.formatRange(duty.getStart(), duty.getEnd()),
+                    employee.getName(), employee.getPosition(), employee.getPhoneNum()));
+            return;
         }
+        for (long day = duty.getStart(); day <= duty.getEnd(); day++)
+            System.out.println(String.format("%-20s %-15s %-15s %-20s", DayCodec.format(day),
+                    employee.getName(), employee.getPosition(), employee.getPhoneNum()));
     }
+
     /**
-     * 打印值班表
+     * 按月或按ISO周展示值班表，只读取日历索引中对应的桶
      */
-    private static void printDutyRoster() {
-        System.out.println(String.format("%-20s %-15s %-15s %-20s", "日期", "值班人姓名", "职位", "手机号码"));
-        List<Employee> sortedList = dutySet.sort();
-        for (Employee employee : sortedList) {
-            long start = dutySet.start(employee);
-            long end = dutySet.end(employee);
-            for (long day = start; day <= end; day++) {
-                List<Integer> dayList = longTrans(day);
-                String date = String.format("%04d-%02d-%02d", dayList.get(0), dayList.get(1), dayList.get(2));
-                System.out.println(String.format("%-20s %-15s %-15s %-20s", date, employee.getName(), employee.getPosition(), employee.getPhoneNum()));
+    private static void printCalendarView() {
+        System.out.println("1.按月  2.按周");
+        int kind = readNum();
+        List<CalendarIndex.Duty<EmployeeView>> duties;
+        if (kind == 1) {
+            System.out.print("请输入年份：");
+            int year = readNum();
+            System.out.print("请输入月份：");
+            int month = readNum();
+            if (month < 1 || month > 12) {
+                System.err.println("月份应在1~12之间");
+                return;
             }
+            duties = calendar.month(year, month);
+            long first = DayCodec.toDay(year, month, 1);
+            duties.addAll(roster.getRotations().materialize(time.startOfDay(first),
+                    time.endOfDay(DayCodec.fromLocalDate(DayCodec.toLocalDate(first).plusMonths(1)) - 1)));
+            System.out.println(String.format("—————%04d年%02d月—————", year, month));
+        } else if (kind == 2) {
+            System.out.print("请输入年份：");
+            int year = readNum();
+            System.out.print("请输入周序号：");
+            int week = readNum();
+            if (week < 1 || week > 53) {
+                System.err.println("周序号应在1~53之间");
+                return;
+            }
+            duties = calendar.week(year, week);
+            long monday = CalendarIndex.weekStart(year, week);
+            duties.addAll(roster.getRotations().materialize(time.startOfDay(monday), time.endOfDay(monday + 6)));
+            System.out.println(String.format("—————%04d年第%d周—————", year, week));
+        } else {
+            System.err.println("非法选择");
+            return;
+        }
+        if (duties.isEmpty()) {
+            System.out.println("该时间段内无排班");
+            return;
+        }
+        duties.sort(Comparator.comparingLong(CalendarIndex.Duty::getStart));
+        printDutyHeader();
+        for (CalendarIndex.Duty<EmployeeView> duty : duties)
+            printDuty(duty);
+    }
+
+    /**
+     * 在本机启动值班表查询服务，服务已启动时只提示其端口
+     * @param port 监听端口
+     */
+    private static void startServer(int port) {
+        if (server != null) {
+            System.out.println("查询服务已在端口 " + server.getPort() + " 运行");
+            return;
+        }
+        try {
+            server = new RosterHttpServer(port, RosterSnapshot.of(roster, time));
+            System.out.println("查询服务已启动：http://127.0.0.1:" + server.getPort()
+                    + "/duty?date=yyyy-mm-dd  /free  /employee?name=姓名");
+        } catch (IOException e) {
+            System.err.println("查询服务启动失败：" + e.getMessage());
         }
     }
 
@@ -703,11 +1597,14 @@ public class DutyRosterApp {
         long start = 0;
         long end = 0;
         boolean flag = true;
+        System.out.print("时间精度（1.天  2.分钟）：");
+        setPrecision(readNum() == 2 ? TimeCodec.MINUTE : TimeCodec.DAY);
+        String format = time.hasTimeOfDay() ? "(yyyy-mm-dd HH:mm)" : "(yyyy-mm-dd)";
         while (flag) {
-            System.out.println("输入值班总开始时间(yyyy-mm-dd)");
-            start = getTime();
-            System.out.println("输入值班总结束时间(yyyy-mm-dd)");
-            end = getTime();
+            System.out.println("输入值班总开始时间" + format);
+            start = getStartTime();
+            System.out.println("输入值班总结束时间" + format);
+            end = getEndTime();
             if (start <= end) {
                 flag = false;
                 makeWholeTimeLine(start, end); //初始化值班表时间轴
@@ -738,93 +1635,156 @@ public class DutyRosterApp {
         running(start, end);
     }
 
+    /**
+     * 发布本次命令的修改；roster 自上次发布以来被替换为新版本时，才把它记入历史并向查询服务发布快照。
+     * 值班表版本不可变，每次修改都得到新的对象，因此比较引用即可知道是否有修改
+     */
+    private static void publishIfChanged() {
+        changes.flush();
+        if (roster == published)
+            return;
+        history.commit(roster);
+        if (server != null)
+            server.publish(RosterSnapshot.of(roster, time));
+        published = roster;
+    }
+
     /**
      * 在用户选择数据来源、输入初始工作人员数据后，按照用户在菜单上选择的操作选项进行操作；
      * <p>
      * 操作选项包括：1.自动排班 2.手动排班 3.检查排班进度 4.添加新员工 5.删除员工 6.删除员工排班 7.展示排班 8.已排班员工 9.未排班员工
+     * 10.启动查询服务 11.工作量统计 12.设置节假日 13.月/周视图 14.撤销 15.重做 16.假设方案 17.多团队冲突检查 18.轮换规则
+     * 19.文件热加载 20.修改日志 21.对比/合并
      * </p>
      * @param start  值班总时间段开始时间
      * @param end 值班总时间段结束时间
      */
     private static void running(long start,long end){
+        history = new RosterHistory(roster);
+        published = roster;
         do {
             int choice=menu();
-            switch (choice) {
-                case 1://自动排班
-                    if (PeopleWithStatus.isEmpty()) {
-                        System.out.println("无所需人员信息");
+            // 等待输入时文件修改可以被应用；执行命令期间文件修改等待命令结束
+            editLock.lock();
+            try {
+                switch (choice) {
+                    case 1://自动排班
+                        if (employeeStore.size() == 0) {
+                            System.out.println("无所需人员信息");
+                            break;
+                        }
+                        if (!dutySet.labels().isEmpty() || !roster.getRotations().isEmpty()) {
+                            System.err.println("已有排班，无法自动排班");
+                            break;
+                        }
+                        autoGenerateDutyset();
+                        System.out.println("自动排班完成\n");
                         break;
-                    }
-                    if (!dutySet.labels().isEmpty()) {
-                        System.err.println("已有排班，无法自动排班");
+                    case 2://手动排班
+                        manualDutyAssignment();
+                        break;
+                    case 3://检查排班进度
+                        if (gaps.isEmpty()) {
+                            System.out.println("排班表已排满");
+                        } else if (dutySet.labels().isEmpty() && roster.getRotations().isEmpty()) {
+                            System.out.println("还未开始排班");
+                        } else {
+                            showFreePeriod();
+                        }
+                        break;
+                    case 4://排班过程中添加新员工
+                        int emplFlag1 = 0;
+                        while (emplFlag1 == 0) {
+                            try{
+                                System.out.print("请输入人名：");
+                                String name1 = input.next();
+                                System.out.print("请输入职务：");
+                                String position1 = input.next();
+                                System.out.print("请输入电话号码：");
+                                String phone1 = input.next();
+                                addEmployee(name1,position1, phone1);
+                            } catch (confictName e){
+                                System.err.println(e.getMessage());
+                                continue;
+                            } catch (IllegalArgumentException e){
+                                System.err.println(e.getMessage());
+                                continue;
+                            }
+                            System.out.println("是否结束？(Y/任意输入)");
+                            String choose = input.next();
+                            emplFlag1 = choose.equals("Y") ? 1 : 0;
+                        }
                         break;
-                    }
-                    autoGenerateDutyset();
-                    System.out.println("自动排班完成\n");
-                    break;
-                case 2://手动排班
-                    manualDutyAssignment();
-                    break;
-                case 3://检查排班进度
-                    boolean check = dutySet.checkIfNonblank();
-                    if (check) {
-                        System.out.println("排班表已排满");
-                    } else if (dutySet.labels().isEmpty()) {
-                        System.out.println("还未开始排班");
-                    } else {
-                        showFreePeriod();
-                    }
-                    break;
-                case 4://排班过程中添加新员工
-                    int emplFlag1 = 0;
-                    while (emplFlag1 == 0) {
-                        try{
-                            System.out.print("请输入人名：");
-                            String name1 = input.next();
-                            System.out.print("请输入职务：");
-                            String position1 = input.next();
-                            System.out.print("请输入电话号码：");
-                            String phone1 = input.next();
-                            addEmployee(name1,position1, phone1);
-                        } catch (confictName e){
-                            System.err.println(e.getMessage());
-                            continue;
-                        } catch (IllegalArgumentException e){
-                            System.err.println(e.getMessage());
-                            continue;
+                    case 5://从员工表中删除员工
+                        showPeople(0);
+                        System.out.println("输入要删除的员工姓名:");
+                        String dName = input.next();
+                        try {
+                            removeEmployee(dName);
+                        } catch (noExsistedException e) {
+                            System.out.println("该员工不在员工库中");
+                        } catch (wrongStatusException e) {
+                            System.out.println("该员工在排班表中，无法删除");
                         }
-                        System.out.println("是否结束？(Y/任意输入)");
-                        String choose = input.next();
-                        emplFlag1 = choose.equals("Y") ? 1 : 0;
-                    }
-                    break;
-                case 5://从员工表中删除员工
-                    showPeople(PeopleWithStatus, 0);
-                    System.out.println("输入要删除的员工姓名:");
-                    String dName = input.next();
-                    try {
-                        removeEmployee(dName);
-                    } catch (noExsistedException e) {
-                        System.out.println("该员工不在员工库中");
-                    } catch (wrongStatusException e) {
-                        System.out.println("该员工在排班表中，无法删除");
-                    }
-                    break;
-                case 6://删除员工排班
-                    removeEmployeeDuty();
-                    break;
-                case 7://展示排班表
-                    printDutyRoster();
-                    break;
-                case 8://已排班员工
-                    showPeople(PeopleWithStatus, 1);
-                    break;
-                case 9://未排班员工
-                    showPeople(PeopleWithStatus, 0);
-                    break;
-                default:
-                    System.out.println("退出排班系统");
-                    System.exit(0);
+                        break;
+                    case 6://删除员工排班
+                        removeEmployeeDuty();
+                        break;
+                    case 7://展示排班表
+                        printDutyRoster();
+                        break;
+                    case 8://已排班员工
+                        showPeople(1);
+                        break;
+                    case 9://未排班员工
+                        showPeople(0);
+                        break;
+                    case 10://启动查询服务
+                        System.out.print("请输入端口号：");
+                        startServer(readNum());
+                        break;
+                    case 11://工作量统计
+                        showWorkload();
+                        break;
+                    case 12://设置节假日
+                        setHolidays();
+                        break;
+                    case 13://月/周视图
+                        printCalendarView();
+                        break;
+                    case 14://撤销
+                        undo();
+                        break;
+                    case 15://重做
+                        redo();
+                        break;
+                    case 16://假设方案
+                        whatIf();
+                        break;
+                    case 17://多团队冲突检查
+                        checkTeamRosters();
+                        break;
+                    case 18://轮换规则
+                        manageRotations();
+                        break;
+                    case 19://文件热加载
+                        watchFile();
+                        break;
+                    case 20://修改日志
+                        toggleChangeLog();
+                        break;
+                    case 21://对比/合并
+                        diffOrMerge();
+                        break;
+                    default:
+                        System.out.println("退出排班系统");
+                        // 发布剩余的修改，等待修改日志等订阅者处理完后停止投递线程
+                        changes.close();
+                        System.exit(0);
+                }
+                publishIfChanged();
+            } finally {
+                editLock.unlock();
             }
         } while (true);
     }
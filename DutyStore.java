@@ -0,0 +1,74 @@
+package application;
+
+import dimensions.NonlapException;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 值班记录表：值班总时间段内每位值班人员的值班时间段，任意两段不重叠。
+ * <p>操作与 {@code DutyIntervalSet} 相同，{@code DutyRosterApp} 只通过这个接口读写值班记录。
+ * 实现有包装 {@code DutyIntervalSet} 的 {@link HeapDutyStore} 与把记录放在直接内存中的 {@link OffHeapDutyStore}。
+ *
+ * @param <L> 值班人员的类型
+ */
+public interface DutyStore<L> {
+    /**
+     * 插入一段值班
+     * @param start 开始时间（包含）
+     * @param end 结束时间（包含）
+     * @param label 值班人员
+     * @throws NonlapException 与其他人员的值班重叠
+     */
+    void Insert(long start, long end, L label) throws NonlapException;
+
+    /**
+     * 删除某人的全部值班
+     * @param label 值班人员
+     * @return 删除前该人员是否有值班
+     */
+    boolean remove(L label);
+
+    /**
+     * @param label 有值班的人员
+     * @return 该人员最早的值班开始时间
+     */
+    long start(L label);
+
+    /**
+     * @param label 有值班的人员
+     * @return 该人员最晚的值班结束时间
+     */
+    long end(L label);
+
+    /**
+     * @param label 人员
+     * @return 该人员是否有值班，不复制人员集合
+     */
+    boolean contains(L label);
+
+    /**
+     * @return 有值班的所有人员
+     */
+    Set<L> labels();
+
+    /**
+     * @return 有值班的所有人员，按最早值班开始时间排序
+     */
+    List<L> sort();
+
+    /**
+     * @return 值班是否覆盖了整个总时间段，中间没有空隙
+     */
+    boolean checkIfNonblank();
+
+    /**
+     * @return 值班总时间段开始时间
+     */
+    long getStart();
+
+    /**
+     * @return 值班总时间段结束时间
+     */
+    long getEnd();
+}
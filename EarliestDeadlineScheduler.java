@@ -0,0 +1,67 @@
+package application;
+
+/**
+ * 最早截止期限优先调度：总是执行绝对截止时间最早的就绪进程。
+ * <p>进程的截止时间由 {@link ScheduleRunner} 给出（到达时间加最长执行时间）。
+ * 该策略不划分时间片，只在截止更早的进程到达时被抢占。
+ */
+public class EarliestDeadlineScheduler implements ProcessScheduler {
+    private final LongMinHeap ready = new LongMinHeap();
+    private long[] deadline = new long[0];
+    //Abstraction function:
+    //  AF(ready, deadline) = 以deadline[slot]为优先级的就绪队列
+    //Representation invariant:
+    //  ready中的每个槽位都小于deadline.length
+    //Safety from rep exposure:
+    //  成员变量均为private，deadline仅在调度器内部读取
+
+    @Override
+    public String name() {
+        return "EDF";
+    }
+
+    @Override
+    public void reset(long[] deadline) {
+        ready.clear();
+        this.deadline = deadline;
+    }
+
+    @Override
+    public void deadlinesResized(long[] deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public void offer(int slot, long now) {
+        ready.offer(deadline[slot], slot);
+    }
+
+    @Override
+    public int poll(long now) {
+        return ready.isEmpty() ? -1 : ready.poll();
+    }
+
+    @Override
+    public long quantum(int slot) {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void sliceEnd(int slot, long ran, boolean finished) {
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ready.isEmpty();
+    }
+
+    @Override
+    public boolean preemptOnArrival() {
+        return true;
+    }
+
+    @Override
+    public long rank(int slot) {
+        return deadline[slot];
+    }
+}
@@ -0,0 +1,331 @@
+package application;
+
+import entity.Employee;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑的员工信息存储，适用于数量很大的员工表。
+ * <ul>
+ *     <li>姓名以 UTF-8 字节连续存放在一个共享的字节数组中，每位员工只记录起始偏移；</li>
+ *     <li>职务去重后编码为小整数，相同职务只保存一个字符串；</li>
+ *     <li>电话号码编码为一个long：低58位为数字值，其上1位标记是否为 xxx-xxxx-xxxx 形式，最高5位为位数。
+ *     无法编码的号码（超过17位或含其他字符）单独存放。</li>
+ * </ul>
+ * 员工编号从0开始连续分配。按姓名查找通过一个以字节内容为键的开放寻址表完成，不为每位员工保存姓名字符串。
+ * <p>通过 {@link #view(int)} 得到的 {@link EmployeeView} 提供与 {@link Employee} 相同的访问方法，
+ * 需要真正的 {@code Employee} 对象时再用 {@link EmployeeView#toEmployee()} 生成。
+ */
+public class EmployeeStore {
+    private static final int COUNT_SHIFT = 59;
+    private static final long DASH_FLAG = 1L << 58;
+    private static final long VALUE_MASK = DASH_FLAG - 1;
+    private static final long UNENCODABLE = -1;
+
+    private byte[] arena = new byte[1024];
+    private int arenaSize = 0;
+    private int[] nameOffset = new int[16];
+    private int[] positionCode = new int[16];
+    private long[] phone = new long[16];
+    private boolean[] removed = new boolean[16];
+    private int size = 0;
+    private int live = 0;
+
+    private final Map<String, Integer> codeOfPosition = new HashMap<>();
+    private final List<String> positions = new ArrayList<>();
+    private final Map<Integer, String> rawPhones = new HashMap<>();
+
+    // 姓名索引：开放寻址表，存放 编号+1，0 表示空位
+    private int[] nameTable = new int[32];
+    //Abstraction function:
+    //  AF = 编号 0..size-1 中未被删除的员工（已删除员工的信息仍保留，可被恢复），编号i的员工姓名为 arena[nameOffset[i] .. nameOffset[i+1])，
+    //       职务为positions.get(positionCode[i])，电话由phone[i]（或rawPhones.get(i)）解码得到
+    //Representation invariant:
+    //  nameOffset[size] == arenaSize；nameTable中恰好包含所有未删除员工的 编号+1；
+    //  live 等于未删除员工的个数，且 nameTable 中非空位不超过其长度的一半
+    //Safety from rep exposure:
+    //  成员变量均为private，只返回不可变的字符串或基本类型
+
+    /**
+     * 加入一位员工
+     * @param name 姓名
+     * @param position 职务
+     * @param phoneNumber 电话号码
+     * @return 新员工的编号
+     * @throws confictName 已存在同名员工
+     */
+    public int add(String name, String position, String phoneNumber) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (find(bytes) >= 0)
+            throw new confictName("已存在名为 " + name + " 的员工");
+        if (size + 1 >= nameOffset.length) {
+            int cap = nameOffset.length * 2;
+            nameOffset = Arrays.copyOf(nameOffset, cap);
+            positionCode = Arrays.copyOf(positionCode, cap);
+            phone = Arrays.copyOf(phone, cap);
+            removed = Arrays.copyOf(removed, cap);
+        }
+        if (arenaSize + bytes.length > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + bytes.length));
+        int id = size++;
+        nameOffset[id] = arenaSize;
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        arenaSize += bytes.length;
+        nameOffset[size] = arenaSize;
+        positionCode[id] = codeOf(position);
+        phone[id] = encodePhone(phoneNumber);
+        if (phone[id] == UNENCODABLE)
+            rawPhones.put(id, phoneNumber);
+        live++;
+        insertName(id);
+        if (live * 2 > nameTable.length)
+            rehash(nameTable.length * 2);
+        return id;
+    }
+
+    /**
+     * 删除一位员工，其编号不再被复用；员工信息仍保留在存储中，已删除的员工可以用 {@link #revive(int)} 恢复
+     * @param id 员工编号
+     * @return 删除前该员工是否存在
+     */
+    public boolean remove(int id) {
+        if (id < 0 || id >= size || removed[id])
+            return false;
+        int mask = nameTable.length - 1;
+        int i = hash(id) & mask;
+        while (nameTable[i] != id + 1)
+            i = (i + 1) & mask;
+        // 线性探测表的后移删除
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (nameTable[j] == 0)
+                break;
+            int home = hash(nameTable[j] - 1) & mask;
+            if ((j > i && (home <= i || home > j)) || (j < i && home <= i && home > j)) {
+                nameTable[i] = nameTable[j];
+                i = j;
+            }
+        }
+        nameTable[i] = 0;
+        removed[id] = true;
+        live--;
+        return true;
+    }
+
+    /**
+     * 恢复一位已删除的员工，沿用原来的编号与信息，用于撤销删除
+     * @param id 员工编号
+     * @return 恢复前该员工是否已被删除
+     * @throws confictName 已有另一位同名员工
+     */
+    public boolean revive(int id) {
+        if (id < 0 || id >= size || !removed[id])
+            return false;
+        if (find(arenaName(id)) >= 0)
+            throw new confictName("已存在名为 " + name(id) + " 的员工");
+        removed[id] = false;
+        live++;
+        insertName(id);
+        if (live * 2 > nameTable.length)
+            rehash(nameTable.length * 2);
+        return true;
+    }
+
+    /**
+     * @param name 姓名
+     * @return 该员工的编号，不存在时返回-1
+     */
+    public int find(String name) {
+        return find(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param id 员工编号
+     * @return 该编号的员工是否存在
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < size && !removed[id];
+    }
+
+    /**
+     * @return 现存员工人数
+     */
+    public int size() {
+        return live;
+    }
+
+    /**
+     * @return 已分配的最大编号加1，编号范围为 0 ~ capacity()-1（其中可能有已删除的）
+     */
+    public int capacity() {
+        return size;
+    }
+
+    /**
+     * @param id 员工编号，已删除的员工也可以查询
+     * @return 员工姓名
+     */
+    public String name(int id) {
+        return new String(arena, nameOffset[id], nameOffset[id + 1] - nameOffset[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param id 员工编号
+     * @return 员工职务，相同职务返回同一个字符串对象
+     */
+    public String position(int id) {
+        return positions.get(positionCode[id]);
+    }
+
+    /**
+     * @param id 员工编号
+     * @return 职务编码
+     */
+    public int positionCode(int id) {
+        return positionCode[id];
+    }
+
+    /**
+     * @param id 员工编号
+     * @return 电话号码，与加入时的字符串相同
+     */
+    public String phone(int id) {
+        long code = phone[id];
+        if (code == UNENCODABLE)
+            return rawPhones.get(id);
+        int digits = (int) (code >>> COUNT_SHIFT);
+        StringBuilder sb = new StringBuilder(Long.toString(code & VALUE_MASK));
+        while (sb.length() < digits)
+            sb.insert(0, '0');
+        if ((code & DASH_FLAG) != 0) {
+            sb.insert(7, '-');
+            sb.insert(3, '-');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param id 员工编号
+     * @return 该员工的轻量视图
+     */
+    public EmployeeView view(int id) {
+        if (!contains(id))
+            throw new noExsistedException("不存在编号为 " + id + " 的员工");
+        return new EmployeeView(this, id);
+    }
+
+    /**
+     * @return 全部现存员工的视图，按编号排序
+     */
+    public List<EmployeeView> views() {
+        List<EmployeeView> list = new ArrayList<>(live);
+        for (int id = 0; id < size; id++) {
+            if (!removed[id])
+                list.add(new EmployeeView(this, id));
+        }
+        return list;
+    }
+
+    /**
+     * 返回与给定职务相等的共享字符串，不存在时登记它
+     * @param position 职务
+     * @return 共享的职务字符串
+     */
+    public String internPosition(String position) {
+        return positions.get(codeOf(position));
+    }
+
+    /**
+     * @return 不同职务的个数
+     */
+    public int positionCount() {
+        return positions.size();
+    }
+
+    private int codeOf(String position) {
+        Integer code = codeOfPosition.get(position);
+        if (code == null) {
+            code = positions.size();
+            positions.add(position);
+            codeOfPosition.put(position, code);
+        }
+        return code;
+    }
+
+    /**
+     * 将纯数字或 xxx-xxxx-xxxx 形式的号码编码为long
+     * @return 编码，无法编码时返回UNENCODABLE
+     */
+    static long encodePhone(String phoneNumber) {
+        boolean dashed = phoneNumber.length() == 13 && phoneNumber.charAt(3) == '-' && phoneNumber.charAt(8) == '-';
+        long value = 0;
+        int digits = 0;
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (dashed && (i == 3 || i == 8))
+                continue;
+            if (c < '0' || c > '9' || digits == 17)
+                return UNENCODABLE;
+            value = value * 10 + (c - '0');
+            digits++;
+        }
+        if (digits == 0)
+            return UNENCODABLE;
+        return ((long) digits << COUNT_SHIFT) | (dashed ? DASH_FLAG : 0) | value;
+    }
+
+    private int find(byte[] bytes) {
+        int mask = nameTable.length - 1;
+        int i = hash(bytes, 0, bytes.length) & mask;
+        while (nameTable[i] != 0) {
+            int id = nameTable[i] - 1;
+            if (nameEquals(id, bytes))
+                return id;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private byte[] arenaName(int id) {
+        return Arrays.copyOfRange(arena, nameOffset[id], nameOffset[id + 1]);
+    }
+
+    private boolean nameEquals(int id, byte[] bytes) {
+        int from = nameOffset[id];
+        int length = nameOffset[id + 1] - from;
+        return Arrays.equals(arena, from, from + length, bytes, 0, bytes.length);
+    }
+
+    private void insertName(int id) {
+        int mask = nameTable.length - 1;
+        int i = hash(id) & mask;
+        while (nameTable[i] != 0)
+            i = (i + 1) & mask;
+        nameTable[i] = id + 1;
+    }
+
+    private void rehash(int cap) {
+        nameTable = new int[cap];
+        for (int id = 0; id < size; id++) {
+            if (!removed[id])
+                insertName(id);
+        }
+    }
+
+    private int hash(int id) {
+        return hash(arena, nameOffset[id], nameOffset[id + 1]);
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < to; i++)
+            h = (h ^ bytes[i]) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+}
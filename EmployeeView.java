@@ -0,0 +1,64 @@
+package application;
+
+import entity.Employee;
+
+/**
+ * {@link EmployeeStore} 中一位员工的轻量视图，只保存存储的引用与员工编号。
+ * <p>提供与 {@link Employee} 相同的 getName、getPosition、getPhoneNum 方法，每次调用时从存储中解码。
+ */
+public class EmployeeView {
+    private final EmployeeStore store;
+    private final int id;
+    //Abstraction function:
+    //  AF = store中编号为id的员工
+    //Representation invariant:
+    //  创建时 store.contains(id)
+    //Safety from rep exposure:
+    //  字段均为private final，只返回不可变的字符串
+
+    EmployeeView(EmployeeStore store, int id) {
+        this.store = store;
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return store.name(id);
+    }
+
+    public String getPosition() {
+        return store.position(id);
+    }
+
+    public String getPhoneNum() {
+        return store.phone(id);
+    }
+
+    /**
+     * @return 与该视图内容相同的 Employee 对象
+     */
+    public Employee toEmployee() {
+        return new Employee(getName(), getPosition(), getPhoneNum());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof EmployeeView))
+            return false;
+        EmployeeView other = (EmployeeView) o;
+        return other.store == store && other.id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(store) + id;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "[" + getPosition() + "]";
+    }
+}
@@ -0,0 +1,364 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 值班总时间段中未排班时间段（空闲段）的索引，随排班的增删增量维护。
+ * <p>空闲段按开始时间存放在一棵treap中，每个结点额外记录其子树中最长空闲段的长度，
+ * 查找某时间之后第一个足够长的空闲段（首次适配）时可以跳过整棵不够长的子树，期望代价为 O(log n)。
+ * 另按（长度, 开始时间）有序地维护一份空闲段集合，查找长度不小于给定值的最短空闲段（最佳适配）同样为 O(log n)。
+ * <p>结点存放在并行数组中，删除的结点编号被回收复用。时间与长度的单位与值班表相同（见 {@link TimeCodec}），
+ * 时间段两端都包含在内。
+ */
+public class GapIndex {
+    private static final int NIL = 0;
+    /** 最佳适配查询时用作比较对象的结点 */
+    private static final int PROBE = 1;
+
+    private final long periodStart;
+    private final long periodEnd;
+    private long[] starts;
+    private long[] ends;
+    private long[] maxLength;
+    private int[] priorities;
+    private int[] lefts;
+    private int[] rights;
+    private int root = NIL;
+    private int nextSlot = 2;
+    private int freeSlot = NIL;
+    private int size = 0;
+    private long freeUnits = 0;
+    private int seed = 0x2545F491;
+    private final TreeSet<Integer> byLength = new TreeSet<>(this::compareLength);
+    private int splitLeft;
+    private int splitRight;
+    //Abstraction function:
+    //  AF = 总时间段[periodStart, periodEnd]内互不相交、互不相接的空闲段集合
+    //       { [starts[i], ends[i]] | i为以root为根的treap中的结点 }
+    //Representation invariant:
+    //  treap按starts有序，且结点的priorities不小于其子结点；每个结点 starts[i] <= ends[i]，
+    //  且与下一个结点之间至少隔一个单位；maxLength[i]为i子树中最长空闲段的长度，maxLength[NIL] == 0；
+    //  byLength恰好包含treap中的全部结点；size为结点数，freeUnits为各空闲段的长度之和
+    //Safety from rep exposure:
+    //  成员变量均为private，查询返回新的数组与list
+
+    /**
+     * 创建一个整个总时间段都空闲的索引
+     * @param periodStart 值班总时间段开始
+     * @param periodEnd 值班总时间段结束
+     * @throws IllegalArgumentException periodStart > periodEnd
+     */
+    public GapIndex(long periodStart, long periodEnd) {
+        if (periodStart > periodEnd)
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+        int cap = 16;
+        starts = new long[cap];
+        ends = new long[cap];
+        maxLength = new long[cap];
+        priorities = new int[cap];
+        lefts = new int[cap];
+        rights = new int[cap];
+        addGap(periodStart, periodEnd);
+    }
+
+    /**
+     * 把一段时间标记为已排班，它所在的空闲段被拆成前后两段（可能为空）
+     * @param start 开始
+     * @param end 结束
+     * @throws IllegalArgumentException 时间段超出总时间段，或不完全在某个空闲段内
+     */
+    public void occupy(long start, long end) {
+        checkRange(start, end);
+        int gap = floor(start);
+        if (gap == NIL || ends[gap] < end)
+            throw new IllegalArgumentException("时间段[" + start + ", " + end + "]不在空闲时间段内");
+        long gapStart = starts[gap];
+        long gapEnd = ends[gap];
+        removeGap(gap);
+        if (gapStart < start)
+            addGap(gapStart, start - 1);
+        if (end < gapEnd)
+            addGap(end + 1, gapEnd);
+    }
+
+    /**
+     * 把一段已排班的时间重新标记为空闲，与前后相接的空闲段合并为一段
+     * @param start 开始
+     * @param end 结束
+     * @throws IllegalArgumentException 时间段超出总时间段，或与已有空闲段重叠
+     */
+    public void release(long start, long end) {
+        checkRange(start, end);
+        int before = floor(end);
+        if (before != NIL && ends[before] >= start)
+            throw new IllegalArgumentException("时间段[" + start + ", " + end + "]与空闲时间段重叠");
+        if (before != NIL && ends[before] == start - 1) {
+            start = starts[before];
+            removeGap(before);
+        }
+        int after = end < periodEnd ? floor(end + 1) : NIL;
+        if (after != NIL && starts[after] == end + 1) {
+            end = ends[after];
+            removeGap(after);
+        }
+        addGap(start, end);
+    }
+
+    /**
+     * 首次适配：从from开始（含）最早的、长度不小于minLength的空闲时间，from落在某个空闲段中间时只计其后半段
+     * @param from 最早开始时间
+     * @param minLength 最短长度
+     * @return {开始, 结束}，开始不早于from，结束为所在空闲段的结束；没有时返回null
+     * @throws IllegalArgumentException minLength不为正
+     */
+    public long[] firstFit(long from, long minLength) {
+        checkLength(minLength);
+        long lo = Math.max(from, periodStart);
+        int gap = floor(lo);
+        if (gap != NIL && ends[gap] >= lo && ends[gap] - lo + 1 >= minLength)
+            return new long[]{lo, ends[gap]};
+        gap = firstAfter(root, lo, minLength);
+        return gap == NIL ? null : new long[]{starts[gap], ends[gap]};
+    }
+
+    /**
+     * 最佳适配：长度不小于minLength的空闲段中最短的一段，同样长时取最早的一段
+     * @param minLength 最短长度
+     * @return {开始, 结束}；没有时返回null
+     * @throws IllegalArgumentException minLength不为正
+     */
+    public long[] bestFit(long minLength) {
+        checkLength(minLength);
+        starts[PROBE] = Long.MIN_VALUE;
+        ends[PROBE] = Long.MIN_VALUE + minLength - 1;
+        Integer gap = byLength.ceiling(PROBE);
+        return gap == null ? null : new long[]{starts[gap], ends[gap]};
+    }
+
+    /**
+     * @param minLength 最短长度
+     * @return 长度不小于minLength的全部空闲段，按开始时间排序，每个元素为{开始, 结束}；
+     *         只访问可能含有这些空闲段的子树，代价为 O(k log n)，k为结果数
+     * @throws IllegalArgumentException minLength不为正
+     */
+    public List<long[]> gaps(long minLength) {
+        checkLength(minLength);
+        List<long[]> result = new ArrayList<>();
+        collect(root, minLength, result);
+        return result;
+    }
+
+    /**
+     * @return 空闲段数
+     */
+    public int count() {
+        return size;
+    }
+
+    /**
+     * @return 是否已没有空闲时间
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return 空闲时间的总长度
+     */
+    public long freeLength() {
+        return freeUnits;
+    }
+
+    /**
+     * @return 最长空闲段的长度，没有空闲段时为0
+     */
+    public long longest() {
+        return maxLength[root];
+    }
+
+    public long getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getPeriodEnd() {
+        return periodEnd;
+    }
+
+    private void checkRange(long start, long end) {
+        if (start > end)
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        if (start < periodStart || end > periodEnd)
+            throw new IllegalArgumentException("时间段[" + start + ", " + end + "]超出值班总时间段");
+    }
+
+    private static void checkLength(long minLength) {
+        if (minLength <= 0)
+            throw new IllegalArgumentException("空闲时间段的长度必须为正");
+    }
+
+    private long length(int node) {
+        return ends[node] - starts[node] + 1;
+    }
+
+    private int compareLength(int a, int b) {
+        int c = Long.compare(length(a), length(b));
+        return c != 0 ? c : Long.compare(starts[a], starts[b]);
+    }
+
+    private void update(int node) {
+        maxLength[node] = Math.max(length(node), Math.max(maxLength[lefts[node]], maxLength[rights[node]]));
+    }
+
+    /**
+     * @return 开始时间不晚于key的最后一个空闲段，没有时为NIL
+     */
+    private int floor(long key) {
+        int node = root;
+        int found = NIL;
+        while (node != NIL) {
+            if (starts[node] <= key) {
+                found = node;
+                node = rights[node];
+            } else {
+                node = lefts[node];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return node子树中开始时间晚于lo、长度不小于minLength的第一个空闲段，没有时为NIL
+     */
+    private int firstAfter(int node, long lo, long minLength) {
+        if (node == NIL || maxLength[node] < minLength)
+            return NIL;
+        if (starts[node] <= lo)
+            return firstAfter(rights[node], lo, minLength);
+        int found = firstAfter(lefts[node], lo, minLength);
+        if (found != NIL)
+            return found;
+        if (length(node) >= minLength)
+            return node;
+        return leftmost(rights[node], minLength);
+    }
+
+    /**
+     * @return node子树中长度不小于minLength的第一个空闲段，没有时为NIL
+     */
+    private int leftmost(int node, long minLength) {
+        if (maxLength[node] < minLength)
+            return NIL;
+        while (node != NIL) {
+            if (maxLength[lefts[node]] >= minLength)
+                node = lefts[node];
+            else if (length(node) >= minLength)
+                return node;
+            else
+                node = rights[node];
+        }
+        return NIL;
+    }
+
+    private void collect(int node, long minLength, List<long[]> result) {
+        if (node == NIL || maxLength[node] < minLength)
+            return;
+        collect(lefts[node], minLength, result);
+        if (length(node) >= minLength)
+            result.add(new long[]{starts[node], ends[node]});
+        collect(rights[node], minLength, result);
+    }
+
+    private void addGap(long start, long end) {
+        int node = allocate();
+        starts[node] = start;
+        ends[node] = end;
+        maxLength[node] = end - start + 1;
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        priorities[node] = seed;
+        lefts[node] = NIL;
+        rights[node] = NIL;
+        split(root, start);
+        int left = splitLeft;
+        int right = splitRight;
+        root = merge(merge(left, node), right);
+        byLength.add(node);
+        size++;
+        freeUnits += end - start + 1;
+    }
+
+    private void removeGap(int node) {
+        // 先从byLength中删除，此时结点的开始与结束尚未改变
+        byLength.remove(node);
+        split(root, starts[node]);
+        int left = splitLeft;
+        split(splitRight, starts[node] + 1);
+        root = merge(left, splitRight);
+        size--;
+        freeUnits -= length(node);
+        lefts[node] = freeSlot;
+        freeSlot = node;
+    }
+
+    private int allocate() {
+        if (freeSlot != NIL) {
+            int node = freeSlot;
+            freeSlot = lefts[node];
+            return node;
+        }
+        if (nextSlot == starts.length) {
+            int cap = starts.length << 1;
+            starts = Arrays.copyOf(starts, cap);
+            ends = Arrays.copyOf(ends, cap);
+            maxLength = Arrays.copyOf(maxLength, cap);
+            priorities = Arrays.copyOf(priorities, cap);
+            lefts = Arrays.copyOf(lefts, cap);
+            rights = Arrays.copyOf(rights, cap);
+        }
+        return nextSlot++;
+    }
+
+    /**
+     * 把node子树拆成开始时间早于key的splitLeft与其余的splitRight
+     */
+    private void split(int node, long key) {
+        if (node == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+        } else if (starts[node] < key) {
+            split(rights[node], key);
+            rights[node] = splitLeft;
+            update(node);
+            splitLeft = node;
+        } else {
+            split(lefts[node], key);
+            lefts[node] = splitRight;
+            update(node);
+            splitRight = node;
+        }
+    }
+
+    /**
+     * 合并两棵treap，a中的空闲段都早于b中的
+     */
+    private int merge(int a, int b) {
+        if (a == NIL)
+            return b;
+        if (b == NIL)
+            return a;
+        if (priorities[a] > priorities[b]) {
+            rights[a] = merge(rights[a], b);
+            update(a);
+            return a;
+        }
+        lefts[b] = merge(a, lefts[b]);
+        update(b);
+        return b;
+    }
+}
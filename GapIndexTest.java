@@ -0,0 +1,179 @@
+package application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link GapIndex} 的测试：占用与释放时空闲段的拆分与合并，首次适配与最佳适配，
+ * 以及随机占用、释放后与逐单位标记的朴素实现对照。
+ */
+public class GapIndexTest {
+    /**
+     * [0, 99]中占用[10, 19]、[30, 59]、[62, 69]后的空闲段：[0, 9]、[20, 29]、[60, 61]、[70, 99]
+     */
+    private static GapIndex sample() {
+        GapIndex index = new GapIndex(0, 99);
+        index.occupy(10, 19);
+        index.occupy(30, 59);
+        index.occupy(62, 69);
+        return index;
+    }
+
+    @Test
+    public void occupySplitsAndReleaseCoalesces() {
+        GapIndex index = new GapIndex(0, 99);
+        assertEquals(1, index.count());
+        assertEquals(100, index.freeLength());
+        index.occupy(40, 49);
+        assertEquals(2, index.count());
+        assertEquals(90, index.freeLength());
+        assertEquals(50, index.longest());
+        index.occupy(0, 39);
+        assertEquals(1, index.count());
+        assertArrayEquals(new long[]{50, 99}, index.gaps(1).get(0));
+        // 与前后两段都相接，合并为一段
+        index.release(45, 49);
+        index.release(0, 44);
+        assertEquals(1, index.count());
+        assertEquals(100, index.longest());
+        index.occupy(0, 99);
+        assertTrue(index.isEmpty());
+        assertEquals(0, index.longest());
+    }
+
+    @Test
+    public void occupyAndReleaseRejectInvalidRanges() {
+        GapIndex index = sample();
+        assertThrows(IllegalArgumentException.class, () -> index.occupy(15, 15));
+        assertThrows(IllegalArgumentException.class, () -> index.occupy(25, 35));
+        assertThrows(IllegalArgumentException.class, () -> index.occupy(90, 100));
+        assertThrows(IllegalArgumentException.class, () -> index.release(5, 12));
+        assertThrows(IllegalArgumentException.class, () -> index.release(19, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.firstFit(0, 0));
+        assertEquals(4, index.count());
+    }
+
+    @Test
+    public void firstFitTakesEarliestLongEnoughGap() {
+        GapIndex index = sample();
+        assertArrayEquals(new long[]{0, 9}, index.firstFit(0, 10));
+        // [60, 61]不够长，跳过
+        assertArrayEquals(new long[]{70, 99}, index.firstFit(35, 3));
+        assertArrayEquals(new long[]{70, 99}, index.firstFit(0, 11));
+        // from落在空闲段中间时只计其后半段
+        assertArrayEquals(new long[]{25, 29}, index.firstFit(25, 5));
+        assertArrayEquals(new long[]{70, 99}, index.firstFit(25, 6));
+        assertArrayEquals(new long[]{60, 61}, index.firstFit(30, 2));
+        assertArrayEquals(new long[]{0, 9}, index.firstFit(-50, 3));
+        assertNull(index.firstFit(0, 31));
+        assertNull(index.firstFit(95, 6));
+    }
+
+    @Test
+    public void bestFitTakesShortestLongEnoughGap() {
+        GapIndex index = sample();
+        assertArrayEquals(new long[]{60, 61}, index.bestFit(1));
+        assertArrayEquals(new long[]{60, 61}, index.bestFit(2));
+        // [0, 9]与[20, 29]一样长，取较早的一段
+        assertArrayEquals(new long[]{0, 9}, index.bestFit(3));
+        assertArrayEquals(new long[]{70, 99}, index.bestFit(11));
+        assertNull(index.bestFit(31));
+        index.occupy(0, 9);
+        assertArrayEquals(new long[]{20, 29}, index.bestFit(3));
+    }
+
+    @Test
+    public void gapsListsLongEnoughGapsInOrder() {
+        GapIndex index = sample();
+        List<long[]> gaps = index.gaps(3);
+        assertEquals(3, gaps.size());
+        assertArrayEquals(new long[]{0, 9}, gaps.get(0));
+        assertArrayEquals(new long[]{20, 29}, gaps.get(1));
+        assertArrayEquals(new long[]{70, 99}, gaps.get(2));
+        assertEquals(4, index.gaps(1).size());
+        assertEquals(0, index.gaps(31).size());
+    }
+
+    @Test
+    public void randomEditsMatchNaiveBitmap() {
+        int n = 2_000;
+        GapIndex index = new GapIndex(0, n - 1);
+        boolean[] used = new boolean[n];
+        List<long[]> occupied = new ArrayList<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 20_000; step++) {
+            if (!occupied.isEmpty() && random.nextInt(3) == 0) {
+                long[] block = occupied.remove(random.nextInt(occupied.size()));
+                index.release(block[0], block[1]);
+                for (long t = block[0]; t <= block[1]; t++)
+                    used[(int) t] = false;
+            } else {
+                long[] gap = index.firstFit(random.nextInt(n), 1);
+                if (gap == null)
+                    continue;
+                long end = Math.min(gap[1], gap[0] + random.nextInt(20));
+                index.occupy(gap[0], end);
+                occupied.add(new long[]{gap[0], end});
+                for (long t = gap[0]; t <= end; t++)
+                    used[(int) t] = true;
+            }
+            if (step % 500 == 0)
+                assertMatches(index, used, random);
+        }
+        assertMatches(index, used, random);
+    }
+
+    private static void assertMatches(GapIndex index, boolean[] used, Random random) {
+        List<long[]> expected = new ArrayList<>();
+        for (int t = 0; t < used.length; t++) {
+            if (used[t])
+                continue;
+            int s = t;
+            while (t + 1 < used.length && !used[t + 1])
+                t++;
+            expected.add(new long[]{s, t});
+        }
+        List<long[]> actual = index.gaps(1);
+        assertEquals(expected.size(), actual.size());
+        long free = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+            free += expected.get(i)[1] - expected.get(i)[0] + 1;
+        }
+        assertEquals(free, index.freeLength());
+        for (int q = 0; q < 20; q++) {
+            long from = random.nextInt(used.length);
+            long length = 1 + random.nextInt(30);
+            assertArrayEquals(naiveFirstFit(expected, from, length), index.firstFit(from, length));
+            assertArrayEquals(naiveBestFit(expected, length), index.bestFit(length));
+        }
+    }
+
+    private static long[] naiveFirstFit(List<long[]> gaps, long from, long length) {
+        for (long[] gap : gaps) {
+            long s = Math.max(gap[0], from);
+            if (gap[1] - s + 1 >= length)
+                return new long[]{s, gap[1]};
+        }
+        return null;
+    }
+
+    private static long[] naiveBestFit(List<long[]> gaps, long length) {
+        long[] best = null;
+        for (long[] gap : gaps) {
+            long len = gap[1] - gap[0] + 1;
+            if (len >= length && (best == null || len < best[1] - best[0] + 1))
+                best = gap;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,80 @@
+package application;
+
+import concrete.DutyIntervalSet;
+import dimensions.NonlapException;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 以 {@code DutyIntervalSet} 实现的 {@link DutyStore}，值班记录都在堆上。
+ *
+ * @param <L> 值班人员的类型
+ */
+public class HeapDutyStore<L> implements DutyStore<L> {
+    private final DutyIntervalSet<L> set;
+    //Abstraction function:
+    //  AF = set表示的值班表
+    //Representation invariant:
+    //  set不为null
+    //Safety from rep exposure:
+    //  set为private final，不直接返回它
+
+    /**
+     * @param start 值班总时间段开始时间
+     * @param end 值班总时间段结束时间
+     */
+    public HeapDutyStore(long start, long end) {
+        this.set = new DutyIntervalSet<>(start, end);
+    }
+
+    @Override
+    public void Insert(long start, long end, L label) throws NonlapException {
+        set.Insert(start, end, label);
+    }
+
+    @Override
+    public boolean remove(L label) {
+        return set.remove(label);
+    }
+
+    @Override
+    public long start(L label) {
+        return set.start(label);
+    }
+
+    @Override
+    public long end(L label) {
+        return set.end(label);
+    }
+
+    @Override
+    public boolean contains(L label) {
+        return set.labels().contains(label);
+    }
+
+    @Override
+    public Set<L> labels() {
+        return set.labels();
+    }
+
+    @Override
+    public List<L> sort() {
+        return set.sort();
+    }
+
+    @Override
+    public boolean checkIfNonblank() {
+        return set.checkIfNonblank();
+    }
+
+    @Override
+    public long getStart() {
+        return set.getStart();
+    }
+
+    @Override
+    public long getEnd() {
+        return set.getEnd();
+    }
+}
@@ -0,0 +1,100 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * 以环形数组实现的int先进先出队列，用于保存进程槽位编号，避免装箱。
+ */
+public class IntRingQueue {
+    private int[] elements;
+    private int head = 0;
+    private int size = 0;
+    //Abstraction function:
+    //  AF(elements, head, size) = 从elements[head]开始按环形顺序排列的size个元素组成的队列
+    //Representation invariant:
+    //  elements.length为2的幂，0 <= head < elements.length，0 <= size <= elements.length
+    //Safety from rep exposure:
+    //  成员变量均为private，不返回内部数组
+
+    public IntRingQueue() {
+        this(16);
+    }
+
+    /**
+     * @param capacity 初始容量，不足时自动扩容
+     */
+    public IntRingQueue(int capacity) {
+        int cap = 16;
+        while (cap < capacity)
+            cap <<= 1;
+        elements = new int[cap];
+    }
+
+    /**
+     * 入队
+     * @param value 入队元素
+     */
+    public void offer(int value) {
+        if (size == elements.length)
+            grow();
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * 出队
+     * @return 队首元素
+     * @throws IllegalStateException 队列为空
+     */
+    public int poll() {
+        if (size == 0)
+            throw new IllegalStateException("队列为空");
+        int value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * @return 队首元素，不出队
+     * @throws IllegalStateException 队列为空
+     */
+    public int peek() {
+        if (size == 0)
+            throw new IllegalStateException("队列为空");
+        return elements[head];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空队列，保留已分配的空间
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int[] bigger = new int[elements.length << 1];
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, bigger, 0, firstPart);
+        System.arraycopy(elements, 0, bigger, firstPart, size - firstPart);
+        elements = bigger;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        int[] copy = new int[size];
+        for (int i = 0; i < size; i++)
+            copy[i] = elements[(head + i) & (elements.length - 1)];
+        return Arrays.toString(copy);
+    }
+}
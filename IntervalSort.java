@@ -0,0 +1,75 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * 按开始时间对大批时间段排序的工具，只使用基本类型数组，千万级时间段也不产生装箱对象。
+ * <p>开始时间的跨度与下标能一起放进一个非负long时，把 (开始时间-最小值, 下标) 打包成一个键，
+ * 用 {@link Arrays#sort(long[])} 排序后取回下标；否则使用自底向上的归并排序。两种方式最坏都是 O(n log n)，且排序稳定。
+ */
+class IntervalSort {
+    private IntervalSort() {
+    }
+
+    /**
+     * @param starts 每个时间段的开始时间，不会被修改
+     * @param n 参与排序的时间段个数，即starts的前n个元素
+     * @return 长度为n的下标数组，按对应开始时间非递减排列，开始时间相同的按下标排列
+     */
+    static int[] orderByStart(long[] starts, int n) {
+        int[] order = new int[n];
+        if (n == 0)
+            return order;
+        long min = starts[0];
+        long max = starts[0];
+        for (int i = 1; i < n; i++) {
+            min = Math.min(min, starts[i]);
+            max = Math.max(max, starts[i]);
+        }
+        int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, n - 1));
+        long span = max - min;
+        if (span >= 0 && span < (1L << (63 - indexBits))) {
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++)
+                keys[i] = ((starts[i] - min) << indexBits) | i;
+            Arrays.sort(keys);
+            long mask = (1L << indexBits) - 1;
+            for (int i = 0; i < n; i++)
+                order[i] = (int) (keys[i] & mask);
+            return order;
+        }
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        mergeSort(starts, order);
+        return order;
+    }
+
+    /**
+     * 自底向上的稳定归并排序，按starts中对应的值排列order
+     */
+    private static void mergeSort(long[] starts, int[] order) {
+        int n = order.length;
+        int[] from = order;
+        int[] to = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi)
+                    to[k++] = starts[from[j]] < starts[from[i]] ? from[j++] : from[i++];
+                while (i < mid)
+                    to[k++] = from[i++];
+                while (j < hi)
+                    to[k++] = from[j++];
+            }
+            int[] t = from;
+            from = to;
+            to = t;
+        }
+        if (from != order)
+            System.arraycopy(from, 0, order, 0, n);
+    }
+}
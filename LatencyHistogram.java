@@ -0,0 +1,102 @@
+package application;
+
+/**
+ * 对非负整数取值进行计数的对数分桶直方图，用于统计延迟类指标的分位数。
+ * <p>按取值的最高二进制位分组，每组再等分为 2^SUB_BITS 个子桶，相对误差不超过 1/2^SUB_BITS。
+ * 记录一个值是 O(1)，查询分位数只遍历固定数量的桶，与记录的值的个数无关。
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total = 0;
+    private long sum = 0;
+    private long max = 0;
+    private long min = Long.MAX_VALUE;
+    //Abstraction function:
+    //  AF = 已记录的total个值组成的多重集，counts[b]为落入桶b的值的个数
+    //Representation invariant:
+    //  total 等于 counts 之和；total > 0 时 min <= max
+    //Safety from rep exposure:
+    //  成员变量均为private，不返回内部数组
+
+    /**
+     * 记录一个值
+     * @param value 非负值，负值按0记录
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[bucketOf(v)]++;
+        total++;
+        sum += v;
+        max = Math.max(max, v);
+        min = Math.min(min, v);
+    }
+
+    /**
+     * @param p 分位，取值0~1
+     * @return 不小于该分位的最小桶的上界（不超过最大记录值），没有记录时返回0
+     */
+    public long percentile(double p) {
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank)
+                return Math.min(max, upperBound(b));
+        }
+        return max;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public double mean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public long min() {
+        return total == 0 ? 0 : min;
+    }
+
+    /**
+     * 清空所有记录
+     */
+    public void clear() {
+        java.util.Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        max = 0;
+        min = Long.MAX_VALUE;
+    }
+
+    private static int bucketOf(long v) {
+        if (v < SUB_COUNT)
+            return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) ((v >>> shift) - SUB_COUNT);
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT)
+            return bucket;
+        int shift = bucket / SUB_COUNT - 1;
+        long sub = bucket % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("平均:%.2f  p50:%d  p90:%d  p99:%d  最大:%d",
+                mean(), percentile(0.5), percentile(0.9), percentile(0.99), max());
+    }
+}
@@ -0,0 +1,121 @@
+package application;
+
+/**
+ * 基于开放寻址（线性探测）的long集合，元素直接存放在long数组中，避免装箱。
+ */
+public class LongHashSet {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] table;
+    private int size = 0;
+    private boolean containsEmpty = false;
+    //Abstraction function:
+    //  AF(table, containsEmpty) = table中所有不等于EMPTY的元素，containsEmpty为true时再加上EMPTY本身
+    //Representation invariant:
+    //  table.length为2的幂，size为集合元素个数，table中非EMPTY元素个数不超过table.length的一半
+    //Safety from rep exposure:
+    //  成员变量均为private，不返回内部数组
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expected 预计元素个数
+     */
+    public LongHashSet(int expected) {
+        int cap = 16;
+        while (cap < expected * 2)
+            cap <<= 1;
+        table = newTable(cap);
+    }
+
+    /**
+     * 加入一个元素
+     * @param value 要加入的元素
+     * @return 集合中原先没有该元素时返回true
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty)
+                return false;
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value)
+                return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        if ((size - (containsEmpty ? 1 : 0)) * 2 > table.length)
+            rehash(table.length << 1);
+        return true;
+    }
+
+    /**
+     * @param value 要查找的元素
+     * @return 集合中是否包含该元素
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY)
+            return containsEmpty;
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value)
+                return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空集合，保留已分配的空间
+     */
+    public void clear() {
+        java.util.Arrays.fill(table, EMPTY);
+        size = 0;
+        containsEmpty = false;
+    }
+
+    /**
+     * 将long打散为int散列值，避免连续编号集中在相邻位置
+     */
+    static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long[] newTable(int cap) {
+        long[] t = new long[cap];
+        java.util.Arrays.fill(t, EMPTY);
+        return t;
+    }
+
+    private void rehash(int cap) {
+        long[] old = table;
+        table = newTable(cap);
+        int mask = cap - 1;
+        for (long value : old) {
+            if (value == EMPTY)
+                continue;
+            int i = mix(value) & mask;
+            while (table[i] != EMPTY)
+                i = (i + 1) & mask;
+            table[i] = value;
+        }
+    }
+}
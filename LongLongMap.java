@@ -0,0 +1,134 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * 基于开放寻址（线性探测）的long到long映射，键和值存放在并行数组中，避免装箱。
+ * <p>不支持删除；查找不到时返回构造时给定的缺省值。
+ */
+public class LongLongMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long missing;
+    private long[] keys;
+    private long[] values;
+    private int size = 0;
+    private boolean hasEmptyKey = false;
+    private long emptyKeyValue;
+    //Abstraction function:
+    //  AF = { keys[i] -> values[i] | keys[i] != EMPTY }，hasEmptyKey为true时再加上 EMPTY -> emptyKeyValue
+    //Representation invariant:
+    //  keys.length == values.length 且为2的幂，非EMPTY键的个数不超过keys.length的一半，键互不相同
+    //Safety from rep exposure:
+    //  成员变量均为private，不返回内部数组
+
+    /**
+     * @param missing 查找不到键时返回的值
+     */
+    public LongLongMap(long missing) {
+        this(16, missing);
+    }
+
+    /**
+     * @param expected 预计键的个数
+     * @param missing 查找不到键时返回的值
+     */
+    public LongLongMap(int expected, long missing) {
+        int cap = 16;
+        while (cap < expected * 2)
+            cap <<= 1;
+        this.missing = missing;
+        keys = new long[cap];
+        values = new long[cap];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @param key 键
+     * @return 键对应的值，不存在时返回缺省值
+     */
+    public long get(long key) {
+        if (key == EMPTY)
+            return hasEmptyKey ? emptyKeyValue : missing;
+        int mask = keys.length - 1;
+        int i = LongHashSet.mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key)
+                return values[i];
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * @param key 键
+     * @return 是否包含该键
+     */
+    public boolean containsKey(long key) {
+        if (key == EMPTY)
+            return hasEmptyKey;
+        int mask = keys.length - 1;
+        int i = LongHashSet.mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key)
+                return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 设置键对应的值
+     * @param key 键
+     * @param value 值
+     */
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey)
+                size++;
+            hasEmptyKey = true;
+            emptyKeyValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = LongHashSet.mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        if ((size - (hasEmptyKey ? 1 : 0)) * 2 > keys.length)
+            rehash(keys.length << 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void rehash(int cap) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[cap];
+        values = new long[cap];
+        Arrays.fill(keys, EMPTY);
+        int mask = cap - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY)
+                continue;
+            int i = LongHashSet.mix(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
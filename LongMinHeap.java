@@ -0,0 +1,136 @@
+package application;
+
+/**
+ * 以long为键、int为值的二叉最小堆，键与值分别存放在并行数组中，避免装箱。
+ * <p>键相同时按入堆顺序出堆，保证调度结果可复现。
+ */
+public class LongMinHeap {
+    private long[] keys;
+    private long[] seqs;
+    private int[] values;
+    private int size = 0;
+    private long nextSeq = 0;
+    //Abstraction function:
+    //  AF(keys, seqs, values, size) = 前size个(keys[i], values[i])组成的优先队列
+    //Representation invariant:
+    //  对 0 < i < size，(keys[(i-1)/2], seqs[(i-1)/2]) 按字典序不大于 (keys[i], seqs[i])
+    //Safety from rep exposure:
+    //  成员变量均为private，不返回内部数组
+
+    public LongMinHeap() {
+        this(16);
+    }
+
+    /**
+     * @param capacity 初始容量，不足时自动扩容
+     */
+    public LongMinHeap(int capacity) {
+        int cap = Math.max(capacity, 2);
+        keys = new long[cap];
+        seqs = new long[cap];
+        values = new int[cap];
+    }
+
+    /**
+     * 入堆
+     * @param key 排序键
+     * @param value 附带的值
+     */
+    public void offer(long key, int value) {
+        if (size == keys.length) {
+            int cap = keys.length << 1;
+            keys = java.util.Arrays.copyOf(keys, cap);
+            seqs = java.util.Arrays.copyOf(seqs, cap);
+            values = java.util.Arrays.copyOf(values, cap);
+        }
+        int i = size++;
+        long seq = nextSeq++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(key, seq, keys[parent], seqs[parent]))
+                break;
+            move(parent, i);
+            i = parent;
+        }
+        keys[i] = key;
+        seqs[i] = seq;
+        values[i] = value;
+    }
+
+    /**
+     * @return 最小键
+     * @throws IllegalStateException 堆为空
+     */
+    public long peekKey() {
+        if (size == 0)
+            throw new IllegalStateException("堆为空");
+        return keys[0];
+    }
+
+    /**
+     * @return 最小键对应的值
+     * @throws IllegalStateException 堆为空
+     */
+    public int peekValue() {
+        if (size == 0)
+            throw new IllegalStateException("堆为空");
+        return values[0];
+    }
+
+    /**
+     * 弹出最小键对应的元素
+     * @return 该元素的值
+     * @throws IllegalStateException 堆为空
+     */
+    public int poll() {
+        int top = peekValue();
+        size--;
+        if (size > 0) {
+            long key = keys[size];
+            long seq = seqs[size];
+            int value = values[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && less(keys[right], seqs[right], keys[child], seqs[child]))
+                    child = right;
+                if (!less(keys[child], seqs[child], key, seq))
+                    break;
+                move(child, i);
+                i = child;
+            }
+            keys[i] = key;
+            seqs[i] = seq;
+            values[i] = value;
+        }
+        return top;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空堆，保留已分配的空间
+     */
+    public void clear() {
+        size = 0;
+        nextSeq = 0;
+    }
+
+    private static boolean less(long k1, long s1, long k2, long s2) {
+        return k1 < k2 || (k1 == k2 && s1 < s2);
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        seqs[to] = seqs[from];
+        values[to] = values[from];
+    }
+}
@@ -0,0 +1,374 @@
+package application;
+
+import OriginSets.IntervalSet;
+import OriginSets.MultiIntervalSet;
+import concrete.ProcessIntervalSet;
+import dimensions.NonlapException;
+import dimensions.NonperiodicException;
+import entity.Employee;
+import entity.Process;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 值班表与进程调度中各项内存数据结构的堆占用基准。
+ * <p>对每个规模n分别构建下列结构，测量构建后保留的堆内存，并折算为每条记录的字节数：
+ * <ul>
+ *     <li>员工：原先 {@code DutyRosterApp} 的 {@code HashMap<Employee, Boolean>} 与现在的 {@link EmployeeStore}</li>
+ *     <li>排班：{@link HeapDutyStore}（{@code DutyIntervalSet<EmployeeView>}）、{@link PersistentRoster}、{@link CalendarIndex}、{@link RosterSnapshot}</li>
+ *     <li>进程：原先的 {@code Map<Process, Long>}（processTodoMap）与 {@link ProcessProgress}</li>
+ *     <li>时间片：{@code ProcessIntervalSet<Process>} 与 {@code ProcessScheduleApp.getInfo} 构建的 {@code List<List<long[]>>}</li>
+ * </ul>
+ * 员工表的两项都包含员工信息本身；其余结构引用的员工、进程对象在测量前预先构建，由各结构共享，不计入其占用。
+ * <p>之后在最大规模下测量主要操作的分配量：每次操作在堆上分配的字节数、分配速率，以及期间的GC次数与耗时；
+ * JVM不支持按线程统计分配量时这两列显示为"不支持"。
+ * <p>最后比较值班记录存放在堆上（{@link HeapDutyStore}）与堆外（{@link OffHeapDutyStore}）时的GC开销：在记录存活期间分配大量短命对象，统计期间的GC次数与耗时（老年代越大，每次GC需要扫描的越多）。
+ * <p>用法：{@code MemoryFootprintBenchmark [规模,规模,...] [结构名=每条字节上限 ...]}，默认规模为 10000,100000,1000000。
+ * 给出上限时，任何一项在任一规模下超出上限都会使进程以状态1退出，可用于发现内存占用的回退。
+ */
+public class MemoryFootprintBenchmark {
+    /** GC开销测量中分配短命对象的轮数 */
+    private static final int CHURN_ROUNDS = 200;
+
+    private MemoryFootprintBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = {10_000, 100_000, 1_000_000};
+        Map<String, Double> limits = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                limits.put(arg.substring(0, eq), Double.parseDouble(arg.substring(eq + 1)));
+            } else {
+                String[] parts = arg.split(",");
+                sizes = new int[parts.length];
+                for (int i = 0; i < parts.length; i++)
+                    sizes[i] = Integer.parseInt(parts[i].trim());
+            }
+        }
+
+        boolean exceeded = false;
+        System.out.printf("%-28s%8s%12s%18s%14s\n", "结构", "记录", "记录数", "保留堆内存(字节)", "每条(字节)");
+        for (int n : sizes) {
+            List<Row> rows = footprint(n);
+            for (Row row : rows) {
+                Double limit = limits.get(row.name);
+                boolean over = limit != null && row.perRecord() > limit;
+                exceeded |= over;
+                System.out.printf("%-28s%8s%,12d%,18d%14.1f%s\n", row.name, row.unit, row.records, row.bytes, row.perRecord(),
+                        over ? "    超出上限 " + limit : "");
+            }
+        }
+
+        int n = sizes[sizes.length - 1];
+        System.out.println();
+        System.out.printf("%-28s%12s%14s%14s%10s%12s\n", "操作", "次数", "每次(字节)", "速率(MB/s)", "GC次数", "GC耗时(ms)");
+        for (Allocation a : allocations(n)) {
+            if (a.bytes < 0)
+                System.out.printf("%-28s%,12d%14s%14s%10d%12d\n", a.name, a.operations, "不支持", "不支持",
+                        a.gcCount, a.gcMillis);
+            else
+                System.out.printf("%-28s%,12d%14.1f%14.1f%10d%12d\n", a.name, a.operations, (double) a.bytes / a.operations,
+                        a.bytes / 1e6 / Math.max(1e-9, a.nanos / 1e9), a.gcCount, a.gcMillis);
+        }
+
+        System.out.println();
+        System.out.printf("%-28s%18s%16s%10s%12s\n", "值班记录存储", "保留堆内存(字节)", "堆外(字节)", "GC次数", "GC耗时(ms)");
+        for (GcOverhead g : gcOverhead(n))
+            System.out.printf("%-28s%,18d%,16d%10d%12d\n", g.name, g.heapBytes, g.offHeapBytes, g.gcCount, g.gcMillis);
+        if (exceeded)
+            System.exit(1);
+    }
+
+    /**
+     * 构建规模为n的各项结构并测量保留的堆内存
+     */
+    static List<Row> footprint(int n) {
+        List<Row> rows = new ArrayList<>();
+        List<Employee> employees = employees(n);
+        List<EmployeeView> views = storeOf(employees).views();
+        List<Process> processes = processes(Math.max(1, n / 100));
+
+        rows.add(new Row("HashMap<Employee, Boolean>", "员工", n, MemoryProbe.retainedBytes(() -> {
+            Map<Employee, Boolean> people = new HashMap<>();
+            for (Employee e : employees)
+                people.put(new Employee(e.getName(), e.getPosition(), e.getPhoneNum()), false);
+            return people;
+        })));
+        rows.add(new Row("EmployeeStore", "员工", n, MemoryProbe.retainedBytes(() -> storeOf(employees))));
+
+        rows.add(new Row("DutyIntervalSet", "排班", n, MemoryProbe.retainedBytes(() -> dutySet(views))));
+        rows.add(new Row("PersistentRoster", "排班", n, MemoryProbe.retainedBytes(() -> {
+            PersistentRoster roster = PersistentRoster.empty(0, n - 1);
+            try {
+                for (int i = 0; i < n; i++)
+                    roster = roster.withEmployee(views.get(i)).withDuty(views.get(i).getName(), i, i);
+            } catch (NonlapException e) {
+                throw new IllegalStateException(e);
+            }
+            return roster;
+        })));
+        rows.add(new Row("CalendarIndex", "排班", n, MemoryProbe.retainedBytes(() -> {
+            CalendarIndex<EmployeeView> calendar = new CalendarIndex<>();
+            for (int i = 0; i < n; i++)
+                calendar.add(views.get(i), i, i);
+            return calendar;
+        })));
+        DutyStore<EmployeeView> dutySet = dutySet(views);
+        rows.add(new Row("RosterSnapshot", "排班", n, MemoryProbe.retainedBytes(() -> RosterSnapshot.of(dutySet))));
+
+        rows.add(new Row("Map<Process, Long>", "进程", processes.size(), MemoryProbe.retainedBytes(() -> {
+            Map<Process, Long> todo = new HashMap<>();
+            for (Process p : processes)
+                todo.put(p, 0L);
+            return todo;
+        })));
+        rows.add(new Row("ProcessProgress", "进程", processes.size(), MemoryProbe.retainedBytes(() -> {
+            ProcessProgress progress = new ProcessProgress();
+            for (Process p : processes)
+                progress.add(p.getpID(), 0);
+            return progress;
+        })));
+
+        rows.add(new Row("ProcessIntervalSet", "时间片", n, MemoryProbe.retainedBytes(() -> schedule(processes, n))));
+        MultiIntervalSet<Process> schedule = schedule(processes, n);
+        rows.add(new Row("List<List<long[]>>", "时间片", n, MemoryProbe.retainedBytes(() -> infoOf(schedule))));
+        return rows;
+    }
+
+    /**
+     * 测量主要操作在规模n下的分配量
+     */
+    static List<Allocation> allocations(int n) {
+        List<Allocation> result = new ArrayList<>();
+        List<Employee> employees = employees(n);
+        List<EmployeeView> views = storeOf(employees).views();
+        List<Process> processes = processes(Math.max(1, n / 100));
+
+        result.add(measure("EmployeeStore.add", n, () -> storeOf(employees)));
+        result.add(measure("DutyIntervalSet.Insert", n, () -> dutySet(views)));
+        DutyStore<EmployeeView> dutySet = dutySet(views);
+        result.add(measure("RosterSnapshot.of", n, () -> RosterSnapshot.of(dutySet)));
+        result.add(measure("ProcessIntervalSet.insert", n, () -> schedule(processes, n)));
+        MultiIntervalSet<Process> schedule = schedule(processes, n);
+        result.add(measure("getInfo", n, () -> infoOf(schedule)));
+        return result;
+    }
+
+    private static Allocation measure(String name, long operations, Supplier<?> op) {
+        MemoryProbe.usedAfterGc();
+        long[] gcBefore = MemoryProbe.gcCountAndMillis();
+        long before = MemoryProbe.allocatedBytes();
+        long begin = System.nanoTime();
+        Object kept = op.get();
+        long nanos = System.nanoTime() - begin;
+        long after = MemoryProbe.allocatedBytes();
+        long[] gcAfter = MemoryProbe.gcCountAndMillis();
+        // 保证结果在测量结束前不被回收，分配不会被优化掉
+        Reference.reachabilityFence(kept);
+        long bytes = before < 0 || after < 0 ? -1 : after - before;
+        return new Allocation(name, operations, bytes, nanos, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+    }
+
+    /**
+     * 值班记录分别存放在堆上与堆外，构建后测量保留的堆内存，再在记录存活期间测量GC开销
+     */
+    static List<GcOverhead> gcOverhead(int n) {
+        List<EmployeeView> views = storeOf(employees(n)).views();
+        List<GcOverhead> result = new ArrayList<>();
+        result.add(gcOverhead("HeapDutyStore", () -> new HeapDutyStore<>(0, n - 1), views));
+        result.add(gcOverhead("OffHeapDutyStore", () -> new OffHeapDutyStore<>(0, n - 1), views));
+        return result;
+    }
+
+    private static GcOverhead gcOverhead(String name, Supplier<DutyStore<EmployeeView>> factory,
+                                         List<EmployeeView> views) {
+        List<DutyStore<EmployeeView>> holder = new ArrayList<>(1);
+        long heapBytes = MemoryProbe.retainedBytes(() -> {
+            DutyStore<EmployeeView> store = fill(factory.get(), views);
+            holder.add(store);
+            return store;
+        });
+        DutyStore<EmployeeView> store = holder.get(0);
+        long[] gc = churn(CHURN_ROUNDS);
+        long offHeapBytes = store instanceof OffHeapDutyStore ? ((OffHeapDutyStore<?>) store).offHeapBytes() : 0;
+        // 记录在GC开销测量期间必须存活
+        Reference.reachabilityFence(store);
+        return new GcOverhead(name, heapBytes, offHeapBytes, gc[0], gc[1]);
+    }
+
+    /**
+     * 分配大量短命对象，返回期间的GC{次数, 毫秒}
+     */
+    private static long[] churn(int rounds) {
+        long[] before = MemoryProbe.gcCountAndMillis();
+        for (int r = 0; r < rounds; r++) {
+            List<long[]> garbage = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++)
+                garbage.add(new long[64]);
+            Reference.reachabilityFence(garbage);
+        }
+        long[] after = MemoryProbe.gcCountAndMillis();
+        return new long[]{after[0] - before[0], after[1] - before[1]};
+    }
+
+    private static List<Employee> employees(int n) {
+        List<Employee> employees = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            employees.add(new Employee(nameOf(i), "Position" + (i % 50), phoneOf(i)));
+        return employees;
+    }
+
+    /**
+     * @return 第i个只含字母的姓名
+     */
+    static String nameOf(int i) {
+        StringBuilder sb = new StringBuilder("Emp");
+        int v = i;
+        do {
+            sb.append((char) ('a' + v % 26));
+            v /= 26;
+        } while (v > 0);
+        return sb.toString();
+    }
+
+    /**
+     * @return 第i个 xxx-xxxx-xxxx 形式的电话号码
+     */
+    static String phoneOf(int i) {
+        return String.format("138-%04d-%04d", (i / 10000) % 10000, i % 10000);
+    }
+
+    private static EmployeeStore storeOf(List<Employee> employees) {
+        EmployeeStore store = new EmployeeStore();
+        for (Employee e : employees)
+            store.add(e.getName(), e.getPosition(), e.getPhoneNum());
+        return store;
+    }
+
+    private static List<Process> processes(int k) {
+        List<Process> processes = new ArrayList<>(k);
+        for (int i = 0; i < k; i++)
+            processes.add(new Process(i + 1, "P" + (i + 1), 10, 1000));
+        return processes;
+    }
+
+    /**
+     * 每位员工值班一天，依次排满 [0, n-1]
+     */
+    private static DutyStore<EmployeeView> dutySet(List<EmployeeView> employees) {
+        return fill(new HeapDutyStore<>(0, employees.size() - 1), employees);
+    }
+
+    /**
+     * 每位员工值班一天，依次排满给定的空值班表
+     */
+    private static DutyStore<EmployeeView> fill(DutyStore<EmployeeView> set, List<EmployeeView> employees) {
+        try {
+            for (int i = 0; i < employees.size(); i++)
+                set.Insert(i, i, employees.get(i));
+        } catch (NonlapException e) {
+            throw new IllegalStateException(e);
+        }
+        return set;
+    }
+
+    /**
+     * 各进程轮流执行，共n个长为10的时间片
+     */
+    private static MultiIntervalSet<Process> schedule(List<Process> processes, int n) {
+        MultiIntervalSet<Process> schedule = new ProcessIntervalSet<>();
+        try {
+            for (int i = 0; i < n; i++)
+                schedule.insert(i * 10L, i * 10L + 10, processes.get(i % processes.size()));
+        } catch (NonlapException | NonperiodicException e) {
+            throw new IllegalStateException(e);
+        }
+        return schedule;
+    }
+
+    /**
+     * 与 {@code ProcessScheduleApp.getInfo} 相同的结构：每个时间片一个{进程ID}、{开始, 结束}组成的list
+     */
+    private static List<List<long[]>> infoOf(MultiIntervalSet<Process> schedule) {
+        List<List<long[]>> info = new ArrayList<>();
+        for (Process p : schedule.labels()) {
+            IntervalSet<Integer> intervalSet = schedule.intervals(p);
+            for (int i : intervalSet.labels()) {
+                List<long[]> subInfo = new ArrayList<>();
+                subInfo.add(new long[]{p.getpID()});
+                subInfo.add(new long[]{intervalSet.start(i), intervalSet.end(i)});
+                info.add(subInfo);
+            }
+        }
+        return info;
+    }
+
+    /**
+     * 一项结构在某一规模下的保留堆内存
+     */
+    static final class Row {
+        final String name;
+        final String unit;
+        final long records;
+        final long bytes;
+
+        Row(String name, String unit, long records, long bytes) {
+            this.name = name;
+            this.unit = unit;
+            this.records = records;
+            this.bytes = bytes;
+        }
+
+        double perRecord() {
+            return (double) bytes / Math.max(1, records);
+        }
+    }
+
+    /**
+     * 一种值班记录存储保留的堆内存、堆外内存，以及记录存活期间分配短命对象时的GC
+     */
+    static final class GcOverhead {
+        final String name;
+        final long heapBytes;
+        final long offHeapBytes;
+        final long gcCount;
+        final long gcMillis;
+
+        GcOverhead(String name, long heapBytes, long offHeapBytes, long gcCount, long gcMillis) {
+            this.name = name;
+            this.heapBytes = heapBytes;
+            this.offHeapBytes = offHeapBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+
+    /**
+     * 一项操作重复operations次的分配量（JVM不支持统计时为-1）、耗时与期间的GC
+     */
+    static final class Allocation {
+        final String name;
+        final long operations;
+        final long bytes;
+        final long nanos;
+        final long gcCount;
+        final long gcMillis;
+
+        Allocation(String name, long operations, long bytes, long nanos, long gcCount, long gcMillis) {
+            this.name = name;
+            this.operations = operations;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+}
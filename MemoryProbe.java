@@ -0,0 +1,71 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.function.Supplier;
+
+/**
+ * 粗略测量堆内存占用与分配量的工具，供各项内存基准使用。
+ * <p>保留内存通过"多次GC后已用堆"的差值测量，精度约为几十KB，适合测量百万级记录的数据结构；
+ * 分配量通过 {@code com.sun.management.ThreadMXBean} 读取当前线程累计分配的字节数。
+ */
+public class MemoryProbe {
+    private MemoryProbe() {
+    }
+
+    /**
+     * 构建一个对象并测量它保留的堆内存
+     * @param builder 构建被测对象
+     * @return 被测对象在构建后保留的字节数
+     */
+    public static long retainedBytes(Supplier<?> builder) {
+        long before = usedAfterGc();
+        Object kept = builder.get();
+        long after = usedAfterGc();
+        // 保证测量期间对象不被回收
+        Reference.reachabilityFence(kept);
+        return after - before;
+    }
+
+    /**
+     * @return 多次GC后的已用堆字节数
+     */
+    public static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * @return 当前线程累计在堆上分配的字节数，JVM不支持时返回-1
+     */
+    public static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        return -1;
+    }
+
+    /**
+     * @return 所有收集器累计的GC次数与耗时{次数, 毫秒}
+     */
+    public static long[] gcCountAndMillis() {
+        long count = 0;
+        long millis = 0;
+        for (java.lang.management.GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+}
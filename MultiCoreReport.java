@@ -0,0 +1,102 @@
+package application;
+
+/**
+ * 多核调度的结果报告，不可变。
+ * <p>包含每个核心的执行时间、完成时刻与利用率，以及整体的完成时间（makespan）。
+ * 核心利用率 = 该核心执行时间 / 整体完成时间。
+ */
+public class MultiCoreReport {
+    private final String engine;
+    private final String placement;
+    private final long[] busy;
+    private final long[] finish;
+    private final int[] assigned;
+    private final long steals;
+    private final long wallNanos;
+    //Abstraction function:
+    //  AF = 引擎engine按placement放置策略在busy.length个核心上的调度结果，
+    //       核心c执行了busy[c]时间、在finish[c]时刻完成、有assigned[c]个进程在该核心上执行完毕
+    //Representation invariant:
+    //  busy、finish、assigned长度相同且大于0，对每个核心 busy[c] <= finish[c]
+    //Safety from rep exposure:
+    //  构造时对数组做防御性拷贝，只通过基本类型返回
+
+    public MultiCoreReport(String engine, String placement, long[] busy, long[] finish, int[] assigned,
+                           long steals, long wallNanos) {
+        this.engine = engine;
+        this.placement = placement;
+        this.busy = busy.clone();
+        this.finish = finish.clone();
+        this.assigned = assigned.clone();
+        this.steals = steals;
+        this.wallNanos = wallNanos;
+    }
+
+    public int cores() {
+        return busy.length;
+    }
+
+    /**
+     * @return 所有核心中最晚的完成时刻
+     */
+    public long makespan() {
+        long makespan = 0;
+        for (long f : finish)
+            makespan = Math.max(makespan, f);
+        return makespan;
+    }
+
+    /**
+     * @param core 核心编号
+     * @return 该核心的完成时刻
+     */
+    public long finish(int core) {
+        return finish[core];
+    }
+
+    /**
+     * @param core 核心编号
+     * @return 该核心的累计执行时间
+     */
+    public long busy(int core) {
+        return busy[core];
+    }
+
+    /**
+     * @param core 核心编号
+     * @return 该核心的利用率，取值0~1
+     */
+    public double utilisation(int core) {
+        long makespan = makespan();
+        return makespan == 0 ? 0 : (double) busy[core] / makespan;
+    }
+
+    /**
+     * @return 所有核心的平均利用率
+     */
+    public double avgUtilisation() {
+        double sum = 0;
+        for (int c = 0; c < busy.length; c++)
+            sum += utilisation(c);
+        return sum / busy.length;
+    }
+
+    public long getSteals() {
+        return steals;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("引擎:%s    放置策略:%s    核心数:%d    总完成时间:%d    平均利用率:%.3f    窃取次数:%d    耗时:%.3fms\n",
+                engine, placement, busy.length, makespan(), avgUtilisation(), steals, wallNanos / 1e6));
+        sb.append(String.format("%-8s %10s %12s %12s %10s\n", "核心", "完成进程数", "执行时间", "完成时刻", "利用率"));
+        for (int c = 0; c < busy.length; c++)
+            sb.append(String.format("%-8d %10d %12d %12d %10.3f\n", c, assigned[c], busy[c], finish[c], utilisation(c)));
+        return sb.toString();
+    }
+}
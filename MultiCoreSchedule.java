@@ -0,0 +1,306 @@
+package application;
+
+import OriginSets.MultiIntervalSet;
+import entity.Process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * 多核进程调度模型：每个核心拥有自己的就绪队列（一个 {@link ProcessScheduler} 实例）
+ * 和自己的调度时间轴 {@code MultiIntervalSet<Process>}。
+ * <p>进程在分派时按最小负载原则放到估计负载最少的核心上。放置时还不知道进程的实际执行时间，
+ * 以最短与最长执行时间的平均值减去已执行时间作为估计。
+ * <ul>
+ *     <li>{@link Placement#LEAST_LOADED}：放置后各核心互不影响，可以每个核心一个线程并行模拟；</li>
+ *     <li>{@link Placement#WORK_STEALING}：核心的就绪队列为空时，从排队进程最多的核心窃取一个进程，
+ *     被窃取的进程保留其优先级别；核心之间相互影响，因此在单线程中按虚拟时间交错模拟。</li>
+ * </ul>
+ * <p>所有进程在时刻0到达。
+ */
+public class MultiCoreSchedule {
+    /**
+     * 进程放置策略
+     */
+    public enum Placement {
+        LEAST_LOADED("最小负载"),
+        WORK_STEALING("工作窃取");
+
+        private final String description;
+
+        Placement(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private final int cores;
+    private final Supplier<ProcessScheduler> engineFactory;
+    private final List<MultiIntervalSet<Process>> timelines = new ArrayList<>();
+    //Abstraction function:
+    //  AF = cores个核心组成的调度模型，第c个核心使用engineFactory创建的调度策略，结果写入timelines.get(c)
+    //Representation invariant:
+    //  cores > 0 且 timelines.size() == cores
+    //Safety from rep exposure:
+    //  成员变量均为private final；timelines在构造时由调用者提供，之后只在内部写入
+
+    /**
+     * @param engineFactory 为每个核心创建调度策略
+     * @param timelines 每个核心的调度时间轴，其数量即核心数；元素为null时该核心只统计不写入
+     * @throws IllegalArgumentException 核心数为0
+     */
+    public MultiCoreSchedule(Supplier<ProcessScheduler> engineFactory, List<? extends MultiIntervalSet<Process>> timelines) {
+        if (timelines.isEmpty())
+            throw new IllegalArgumentException("核心数必须为正");
+        this.cores = timelines.size();
+        this.engineFactory = engineFactory;
+        this.timelines.addAll(timelines);
+    }
+
+    /**
+     * 调度所有进程
+     * @param processes 进程列表，下标即进程槽位
+     * @param demand 每个槽位需要执行的时间，不会被修改
+     * @param executed 每个槽位已执行的时间，运行结束后累加本次执行时间
+     * @param placement 放置策略
+     * @param parallel 为true且放置策略为LEAST_LOADED时，每个核心在独立线程中模拟
+     * @return 多核调度报告
+     */
+    public MultiCoreReport run(List<Process> processes, long[] demand, long[] executed,
+                               Placement placement, boolean parallel) {
+        return run(processes, demand, executed, placement, parallel, null);
+    }
+
+    /**
+     * 调度所有进程，并把每个核心上的时间片与完成事件通知给观察者。
+     * <p>并行模拟时观察者会被多个线程调用，每次通知都在观察者对象上同步。
+     * @param processes 进程列表，下标即进程槽位
+     * @param demand 每个槽位需要执行的时间，不会被修改
+     * @param executed 每个槽位已执行的时间，运行结束后累加本次执行时间
+     * @param placement 放置策略
+     * @param parallel 为true且放置策略为LEAST_LOADED时，每个核心在独立线程中模拟
+     * @param listener 调度过程的观察者，槽位为processes中的下标，完成事件中的执行时间为本次调度中的执行时间；可以为null
+     * @return 多核调度报告
+     */
+    public MultiCoreReport run(List<Process> processes, long[] demand, long[] executed,
+                               Placement placement, boolean parallel, ScheduleListener listener) {
+        long begin = System.nanoTime();
+        int[] owner = place(processes, demand, executed);
+        long[] busy = new long[cores];
+        long[] finish = new long[cores];
+        int[] assigned = new int[cores];
+        long steals = 0;
+        String engine = engineFactory.get().name();
+        if (placement == Placement.WORK_STEALING) {
+            steals = runStealing(processes, demand, executed, owner, busy, finish, assigned, listener);
+        } else {
+            runPartitioned(processes, demand, executed, owner, busy, finish, assigned, parallel, listener);
+        }
+        return new MultiCoreReport(engine, placement.toString() + (parallel && placement == Placement.LEAST_LOADED ? "(并行)" : ""),
+                busy, finish, assigned, steals, System.nanoTime() - begin);
+    }
+
+    /**
+     * 按最小负载原则为每个进程选择核心，负载按估计执行时间累计
+     * @return 每个槽位所属的核心，无需执行的进程为-1
+     */
+    private int[] place(List<Process> processes, long[] demand, long[] executed) {
+        int[] owner = new int[demand.length];
+        long[] load = new long[cores];
+        LongMinHeap leastLoaded = new LongMinHeap(cores);
+        for (int c = 0; c < cores; c++)
+            leastLoaded.offer(0, c);
+        for (int slot = 0; slot < demand.length; slot++) {
+            if (demand[slot] == 0) {
+                owner[slot] = -1;
+                continue;
+            }
+            int core = leastLoaded.poll();
+            owner[slot] = core;
+            load[core] += estimate(processes.get(slot), executed[slot]);
+            leastLoaded.offer(load[core], core);
+        }
+        return owner;
+    }
+
+    /**
+     * @param p 进程
+     * @param executed 进程已执行的时间
+     * @return 进程还需执行的估计时间，至少为1
+     */
+    static long estimate(Process p, long executed) {
+        long expected = p.getMinEXT() + (p.getMaxEXT() - p.getMinEXT()) / 2;
+        return Math.max(1, expected - executed);
+    }
+
+    /**
+     * 各核心独立运行单核调度
+     */
+    private void runPartitioned(List<Process> processes, long[] demand, long[] executed, int[] owner,
+                                long[] busy, long[] finish, int[] assigned, boolean parallel,
+                                ScheduleListener listener) {
+        List<List<Integer>> slotsOf = new ArrayList<>();
+        for (int c = 0; c < cores; c++)
+            slotsOf.add(new ArrayList<>());
+        for (int slot = 0; slot < owner.length; slot++) {
+            if (owner[slot] >= 0)
+                slotsOf.get(owner[slot]).add(slot);
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        for (int c = 0; c < cores; c++) {
+            int core = c;
+            List<Integer> slots = slotsOf.get(c);
+            tasks.add(() -> {
+                List<Process> local = new ArrayList<>(slots.size());
+                long[] localDemand = new long[slots.size()];
+                long[] localExecuted = new long[slots.size()];
+                for (int i = 0; i < slots.size(); i++) {
+                    local.add(processes.get(slots.get(i)));
+                    localDemand[i] = demand[slots.get(i)];
+                }
+                SchedulerMetrics metrics = ScheduleRunner.run(engineFactory.get(), local, localDemand,
+                        localExecuted, timelines.get(core), listener == null ? null : new ScheduleListener() {
+                            // 把核心内的局部下标换回全局槽位
+                            @Override
+                            public void onSlice(int slot, long start, long end) {
+                                synchronized (listener) {
+                                    listener.onSlice(slots.get(slot), start, end);
+                                }
+                            }
+
+                            @Override
+                            public void onComplete(int slot, long arrival, long finish, long service) {
+                                synchronized (listener) {
+                                    listener.onComplete(slots.get(slot), arrival, finish, service);
+                                }
+                            }
+                        });
+                for (int i = 0; i < slots.size(); i++) {
+                    busy[core] += localExecuted[i];
+                    executed[slots.get(i)] += localExecuted[i];
+                }
+                finish[core] = metrics.getMakespan();
+                assigned[core] = slots.size();
+            });
+        }
+        if (!parallel || cores == 1) {
+            for (Runnable task : tasks)
+                task.run();
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(cores, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks)
+                futures.add(pool.submit(task));
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("多核并行模拟被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("多核并行模拟失败", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 按虚拟时间交错模拟所有核心，空闲核心从排队最多的核心窃取进程
+     * @return 窃取次数
+     */
+    private long runStealing(List<Process> processes, long[] demand, long[] executed, int[] owner,
+                             long[] busy, long[] finish, int[] assigned, ScheduleListener listener) {
+        int n = demand.length;
+        long[] remaining = demand.clone();
+        long[] readyAt = new long[n];
+        long[] deadline = new long[n];
+        for (int slot = 0; slot < n; slot++)
+            deadline[slot] = processes.get(slot).getMaxEXT();
+        ProcessScheduler[] queues = new ProcessScheduler[cores];
+        int[] queued = new int[cores];
+        long[] time = new long[cores];
+        ScheduleRunner.SliceWriter[] writers = new ScheduleRunner.SliceWriter[cores];
+        for (int c = 0; c < cores; c++) {
+            queues[c] = engineFactory.get();
+            queues[c].reset(deadline);
+            writers[c] = new ScheduleRunner.SliceWriter(processes, timelines.get(c));
+        }
+        for (int slot = 0; slot < n; slot++) {
+            if (owner[slot] >= 0) {
+                queues[owner[slot]].offer(slot, 0);
+                queued[owner[slot]]++;
+            }
+        }
+        // 按核心的当前虚拟时刻排序，每次推进最早的核心
+        LongMinHeap clock = new LongMinHeap(cores);
+        for (int c = 0; c < cores; c++)
+            clock.offer(0, c);
+        long steals = 0;
+        while (!clock.isEmpty()) {
+            long now = clock.peekKey();
+            int core = clock.poll();
+            if (queued[core] == 0) {
+                int victim = -1;
+                for (int c = 0; c < cores; c++) {
+                    if (queued[c] > 0 && (victim < 0 || queued[c] > queued[victim]))
+                        victim = c;
+                }
+                if (victim < 0)
+                    continue;
+                // 在被窃取核心自己的时刻出队，进程带着原来的级别进入本核心的队列
+                int slot = queues[victim].poll(time[victim]);
+                queued[victim]--;
+                queues[core].offer(slot, now, queues[victim].level(slot));
+                queued[core]++;
+                steals++;
+            }
+            int slot = queues[core].poll(now);
+            queued[core]--;
+            long start = Math.max(now, readyAt[slot]);
+            long run = Math.min(queues[core].quantum(slot), remaining[slot]);
+            writers[core].write(slot, start, start + run);
+            long end = start + run;
+            if (listener != null && run > 0)
+                listener.onSlice(slot, start, end);
+            remaining[slot] -= run;
+            executed[slot] += run;
+            busy[core] += run;
+            finish[core] = end;
+            readyAt[slot] = end;
+            boolean finished = remaining[slot] == 0;
+            if (finished) {
+                assigned[core]++;
+                if (listener != null)
+                    listener.onComplete(slot, 0, end, demand[slot]);
+            }
+            queues[core].sliceEnd(slot, run, finished);
+            if (!finished) {
+                queues[core].offer(slot, end);
+                queued[core]++;
+            }
+            time[core] = end;
+            clock.offer(end, core);
+        }
+        for (ScheduleRunner.SliceWriter writer : writers)
+            writer.flush();
+        return steals;
+    }
+
+    /**
+     * @param core 核心编号
+     * @return 该核心的调度时间轴
+     */
+    public MultiIntervalSet<Process> timeline(int core) {
+        return timelines.get(core);
+    }
+}
@@ -0,0 +1,135 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * 多级反馈队列调度。
+ * <p>新进程进入最高优先级队列；第 i 级队列的时间片为 baseQuantum * 2^i，超出long的范围时取 {@link Long#MAX_VALUE}。
+ * 进程用满时间片仍未执行完毕则降一级，提前让出则保持原级别。
+ * <p>为避免低优先级进程饥饿，每经过 boostInterval 时间，所有进程提升回最高优先级。
+ */
+public class MultiLevelFeedbackScheduler implements ProcessScheduler {
+    private final long baseQuantum;
+    private final long boostInterval;
+    private final IntRingQueue[] queues;
+    private int[] level = new int[0];
+    private int waiting = 0;
+    private long lastBoost = 0;
+    //Abstraction function:
+    //  AF(queues, level) = 由queues.length级就绪队列组成的调度器，level[slot]为进程当前所在级别
+    //Representation invariant:
+    //  baseQuantum > 0，boostInterval > 0，waiting 等于所有队列长度之和
+    //Safety from rep exposure:
+    //  成员变量均为private，不返回内部数组
+
+    /**
+     * @param levels 队列级数，至少为1
+     * @param baseQuantum 最高优先级队列的时间片，必须为正
+     * @param boostInterval 优先级提升周期，必须为正
+     * @throws IllegalArgumentException 参数不合法
+     */
+    public MultiLevelFeedbackScheduler(int levels, long baseQuantum, long boostInterval) {
+        if (levels < 1 || levels > 62)
+            throw new IllegalArgumentException("队列级数应在1~62之间");
+        if (baseQuantum <= 0 || boostInterval <= 0)
+            throw new IllegalArgumentException("时间片与提升周期必须为正");
+        this.baseQuantum = baseQuantum;
+        this.boostInterval = boostInterval;
+        this.queues = new IntRingQueue[levels];
+        for (int i = 0; i < levels; i++)
+            queues[i] = new IntRingQueue();
+    }
+
+    @Override
+    public String name() {
+        return "MLFQ(" + queues.length + "级,q=" + baseQuantum + ")";
+    }
+
+    @Override
+    public void reset(long[] deadline) {
+        for (IntRingQueue queue : queues)
+            queue.clear();
+        level = new int[deadline.length];
+        waiting = 0;
+        lastBoost = 0;
+    }
+
+    @Override
+    public void offer(int slot, long now) {
+        if (slot >= level.length)
+            level = Arrays.copyOf(level, Math.max(slot + 1, level.length * 2));
+        queues[level[slot]].offer(slot);
+        waiting++;
+    }
+
+    @Override
+    public void offer(int slot, long now, int level) {
+        if (slot >= this.level.length)
+            this.level = Arrays.copyOf(this.level, Math.max(slot + 1, this.level.length * 2));
+        this.level[slot] = Math.min(Math.max(level, 0), queues.length - 1);
+        offer(slot, now);
+    }
+
+    @Override
+    public int level(int slot) {
+        return slot < level.length ? level[slot] : 0;
+    }
+
+    @Override
+    public int poll(long now) {
+        if (waiting == 0)
+            return -1;
+        if (now - lastBoost >= boostInterval) {
+            boost();
+            lastBoost = now;
+        }
+        for (IntRingQueue queue : queues) {
+            if (!queue.isEmpty()) {
+                waiting--;
+                return queue.poll();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long quantum(int slot) {
+        int shift = level[slot];
+        // 左移后最高位会进入符号位时溢出
+        return shift >= Long.numberOfLeadingZeros(baseQuantum) ? Long.MAX_VALUE : baseQuantum << shift;
+    }
+
+    @Override
+    public void sliceEnd(int slot, long ran, boolean finished) {
+        if (finished) {
+            level[slot] = 0;
+        } else if (ran >= quantum(slot) && level[slot] < queues.length - 1) {
+            level[slot]++;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return waiting == 0;
+    }
+
+    @Override
+    public boolean preemptOnArrival() {
+        return false;
+    }
+
+    /**
+     * 将所有低级队列中的进程移回最高优先级队列
+     */
+    private void boost() {
+        IntRingQueue top = queues[0];
+        for (int i = 1; i < queues.length; i++) {
+            IntRingQueue queue = queues[i];
+            while (!queue.isEmpty()) {
+                int slot = queue.poll();
+                level[slot] = 0;
+                top.offer(slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package application;
+
+import dimensions.NonlapException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 堆外存储的值班记录表，实现与 {@link HeapDutyStore} 相同的 {@link DutyStore} 接口。
+ * <p>每条值班记录以固定宽度存放在直接内存（{@link ByteBuffer#allocateDirect}）中：
+ * <pre>
+ *   偏移 0  long 开始日期
+ *   偏移 8  long 结束日期
+ *   偏移 16 int  员工编号（-1 表示空闲记录）
+ *   偏移 20 int  同一员工的下一条记录，空闲记录为下一条空闲记录（-1 表示没有）
+ *   偏移 24 int  左子记录（-1 表示没有）
+ *   偏移 28 int  右子记录（-1 表示没有）
+ *   偏移 32 int  随机优先级
+ * </pre>
+ * 记录同时是一棵以开始日期为键的树堆（treap）的结点，左右子记录与优先级都存在记录中，
+ * 插入、删除与重叠检查都是期望 O(log n)，乱序的批量导入也不会退化。
+ * 堆上只为每位员工（而不是每条记录）保存标签对象与汇总信息，因此记录再多也不会增加GC需要扫描的对象。
+ * <p>同一员工可以有多条记录，{@link #start}/{@link #end} 返回其最早开始与最晚结束日期；任意两条记录不能重叠。
+ * <p>删除的记录与员工编号分别放入空闲链表与空闲栈，之后插入时优先复用，反复增删不会使直接内存与员工表增长。
+ * <p>只有值班记录本身是大头时堆外存放才能减轻GC。{@code DutyRosterApp} 还在堆上保存值班表版本、账本与日历索引，
+ * 因此它使用 {@link HeapDutyStore}；本类用于只需要值班记录的大批量场景。
+ *
+ * @param <L> 值班人员的类型
+ */
+public class OffHeapDutyStore<L> implements DutyStore<L> {
+    private static final int RECORD_BYTES = 40;
+    private static final int START = 0;
+    private static final int END = 8;
+    private static final int LABEL = 16;
+    private static final int NEXT = 20;
+    private static final int LEFT = 24;
+    private static final int RIGHT = 28;
+    private static final int PRIORITY = 32;
+
+    private final long periodStart;
+    private final long periodEnd;
+    private ByteBuffer records;
+    private int recordCount = 0;
+    private int size = 0;
+    private int root = -1;
+    private int freeRecord = -1;
+    private int seed = 0x2545F491;
+
+    private final Map<L, Integer> idOf = new HashMap<>();
+    private final List<L> labelOf = new ArrayList<>();
+    private long[] labelStart = new long[16];
+    private long[] labelEnd = new long[16];
+    private int[] firstRecord = new int[16];
+    private int[] freeLabels = new int[16];
+    private int freeLabelCount = 0;
+    //Abstraction function:
+    //  AF = 总时间段为[periodStart, periodEnd]的值班表，以root为根的树中的每条记录
+    //       r 表示 labelOf.get(label(r)) 在 [start(r), end(r)] 值班
+    //Representation invariant:
+    //  树中恰有size条记录，按开始日期是二叉搜索树、按优先级是最大堆，记录互不重叠且均在总时间段内；
+    //  idOf与labelOf中的非null元素互逆；firstRecord[id]开始沿NEXT串起编号为id的所有记录；
+    //  labelStart[id]/labelEnd[id]为这些记录的最早开始与最晚结束；
+    //  记录 0..recordCount-1 中不在树中的恰好是从freeRecord开始沿NEXT串起的空闲记录；
+    //  freeLabels[0..freeLabelCount)恰好是labelOf中为null的编号
+    //Safety from rep exposure:
+    //  成员变量均为private，labels()与sort()返回新的集合
+
+    /**
+     * @param start 值班总时间段开始日期
+     * @param end 值班总时间段结束日期
+     * @throws IllegalArgumentException 开始日期晚于结束日期
+     */
+    public OffHeapDutyStore(long start, long end) {
+        if (start > end)
+            throw new IllegalArgumentException("值班开始时间应不大于结束时间");
+        this.periodStart = start;
+        this.periodEnd = end;
+        this.records = ByteBuffer.allocateDirect(1024 * RECORD_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * 插入一段值班
+     * @param start 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @param label 值班人员
+     * @throws NonlapException 与已有的值班记录重叠
+     * @throws IllegalArgumentException 时间段不合法或超出总时间段
+     */
+    @Override
+    public void Insert(long start, long end, L label) throws NonlapException {
+        if (start > end || start < periodStart || end > periodEnd)
+            throw new IllegalArgumentException("值班时间段不合法或超出总时间段");
+        int before = floor(start);
+        if (before >= 0 && recordEnd(before) >= start)
+            throw new NonlapException("与已有值班记录重叠");
+        int after = higher(start);
+        if (after >= 0 && recordStart(after) <= end)
+            throw new NonlapException("与已有值班记录重叠");
+        Integer known = idOf.get(label);
+        int id = known == null ? newLabel(label) : known;
+        int r = appendRecord(start, end, id);
+        int[] parts = split(root, start);
+        root = merge(merge(parts[0], r), parts[1]);
+        size++;
+        if (known == null || firstRecord[id] < 0) {
+            labelStart[id] = start;
+            labelEnd[id] = end;
+        } else {
+            labelStart[id] = Math.min(labelStart[id], start);
+            labelEnd[id] = Math.max(labelEnd[id], end);
+        }
+        firstRecord[id] = r;
+    }
+
+    /**
+     * 删除某人的全部值班记录，记录与员工编号留待之后的插入复用
+     * @param label 值班人员
+     * @return 删除前该人员是否有值班记录
+     */
+    @Override
+    public boolean remove(L label) {
+        Integer id = idOf.remove(label);
+        if (id == null)
+            return false;
+        int r = firstRecord[id];
+        while (r >= 0) {
+            int base = r * RECORD_BYTES;
+            int next = records.getInt(base + NEXT);
+            root = delete(root, recordStart(r));
+            size--;
+            records.putInt(base + LABEL, -1);
+            records.putInt(base + NEXT, freeRecord);
+            freeRecord = r;
+            r = next;
+        }
+        firstRecord[id] = -1;
+        labelOf.set(id, null);
+        if (freeLabelCount == freeLabels.length)
+            freeLabels = Arrays.copyOf(freeLabels, freeLabelCount * 2);
+        freeLabels[freeLabelCount++] = id;
+        return true;
+    }
+
+    /**
+     * @param label 值班人员
+     * @return 该人员最早的值班开始日期
+     * @throws noExsistedException 该人员没有值班记录
+     */
+    @Override
+    public long start(L label) {
+        return labelStart[idOrThrow(label)];
+    }
+
+    /**
+     * @param label 值班人员
+     * @return 该人员最晚的值班结束日期
+     * @throws noExsistedException 该人员没有值班记录
+     */
+    @Override
+    public long end(L label) {
+        return labelEnd[idOrThrow(label)];
+    }
+
+    @Override
+    public boolean contains(L label) {
+        return idOf.containsKey(label);
+    }
+
+    /**
+     * @return 有值班记录的所有人员
+     */
+    @Override
+    public Set<L> labels() {
+        return new LinkedHashSet<>(idOf.keySet());
+    }
+
+    /**
+     * @return 所有有值班记录的人员，按其最早值班开始日期排序
+     */
+    @Override
+    public List<L> sort() {
+        List<L> sorted = new ArrayList<>(idOf.size());
+        boolean[] seen = new boolean[labelOf.size()];
+        int[] order = inOrder();
+        for (int r : order) {
+            int id = records.getInt(r * RECORD_BYTES + LABEL);
+            if (!seen[id]) {
+                seen[id] = true;
+                sorted.add(labelOf.get(id));
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * @return 值班记录是否覆盖了整个总时间段，中间没有空隙
+     */
+    @Override
+    public boolean checkIfNonblank() {
+        long next = periodStart;
+        for (int r : inOrder()) {
+            if (recordStart(r) > next)
+                return false;
+            next = recordEnd(r) + 1;
+        }
+        return next > periodEnd;
+    }
+
+    @Override
+    public long getStart() {
+        return periodStart;
+    }
+
+    @Override
+    public long getEnd() {
+        return periodEnd;
+    }
+
+    /**
+     * @return 现存的值班记录条数
+     */
+    public int recordCount() {
+        return size;
+    }
+
+    /**
+     * @return 占用的直接内存字节数
+     */
+    public long offHeapBytes() {
+        return records.capacity();
+    }
+
+    private int idOrThrow(L label) {
+        Integer id = idOf.get(label);
+        if (id == null)
+            throw new noExsistedException("该人员没有值班记录");
+        return id;
+    }
+
+    private int newLabel(L label) {
+        int id;
+        if (freeLabelCount > 0) {
+            id = freeLabels[--freeLabelCount];
+            labelOf.set(id, label);
+            idOf.put(label, id);
+            firstRecord[id] = -1;
+            return id;
+        }
+        id = labelOf.size();
+        labelOf.add(label);
+        idOf.put(label, id);
+        if (id == firstRecord.length) {
+            int cap = id * 2;
+            labelStart = Arrays.copyOf(labelStart, cap);
+            labelEnd = Arrays.copyOf(labelEnd, cap);
+            firstRecord = Arrays.copyOf(firstRecord, cap);
+        }
+        firstRecord[id] = -1;
+        return id;
+    }
+
+    private int appendRecord(long start, long end, int id) {
+        int r;
+        if (freeRecord >= 0) {
+            r = freeRecord;
+            freeRecord = records.getInt(r * RECORD_BYTES + NEXT);
+        } else {
+            if ((recordCount + 1) * RECORD_BYTES > records.capacity())
+                records = grow(records, records.capacity() * 2);
+            r = recordCount++;
+        }
+        int base = r * RECORD_BYTES;
+        records.putLong(base + START, start);
+        records.putLong(base + END, end);
+        records.putInt(base + LABEL, id);
+        records.putInt(base + NEXT, firstRecord[id]);
+        records.putInt(base + LEFT, -1);
+        records.putInt(base + RIGHT, -1);
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        records.putInt(base + PRIORITY, seed);
+        return r;
+    }
+
+    /**
+     * 把以t为根的树拆成开始日期小于key与不小于key的两棵树
+     * @return {小于key的树, 不小于key的树}
+     */
+    private int[] split(int t, long key) {
+        if (t < 0)
+            return new int[]{-1, -1};
+        if (recordStart(t) < key) {
+            int[] parts = split(right(t), key);
+            setRight(t, parts[0]);
+            parts[0] = t;
+            return parts;
+        }
+        int[] parts = split(left(t), key);
+        setLeft(t, parts[1]);
+        parts[1] = t;
+        return parts;
+    }
+
+    /**
+     * 合并两棵树，a中所有记录的开始日期都小于b中的
+     * @return 合并后的根
+     */
+    private int merge(int a, int b) {
+        if (a < 0)
+            return b;
+        if (b < 0)
+            return a;
+        if (priority(a) >= priority(b)) {
+            setRight(a, merge(right(a), b));
+            return a;
+        }
+        setLeft(b, merge(a, left(b)));
+        return b;
+    }
+
+    /**
+     * 从以t为根的树中摘除开始日期为key的记录
+     * @return 新的根
+     */
+    private int delete(int t, long key) {
+        long s = recordStart(t);
+        if (s == key)
+            return merge(left(t), right(t));
+        if (key < s)
+            setLeft(t, delete(left(t), key));
+        else
+            setRight(t, delete(right(t), key));
+        return t;
+    }
+
+    /**
+     * @return 开始日期不大于key的最后一条记录，不存在时返回-1
+     */
+    private int floor(long key) {
+        int found = -1;
+        int t = root;
+        while (t >= 0) {
+            if (recordStart(t) <= key) {
+                found = t;
+                t = right(t);
+            } else {
+                t = left(t);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return 开始日期大于key的第一条记录，不存在时返回-1
+     */
+    private int higher(long key) {
+        int found = -1;
+        int t = root;
+        while (t >= 0) {
+            if (recordStart(t) > key) {
+                found = t;
+                t = left(t);
+            } else {
+                t = right(t);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return 按开始日期排列的所有记录
+     */
+    private int[] inOrder() {
+        int[] order = new int[size];
+        int[] stack = new int[16];
+        int depth = 0;
+        int n = 0;
+        int t = root;
+        while (t >= 0 || depth > 0) {
+            while (t >= 0) {
+                if (depth == stack.length)
+                    stack = Arrays.copyOf(stack, depth * 2);
+                stack[depth++] = t;
+                t = left(t);
+            }
+            t = stack[--depth];
+            order[n++] = t;
+            t = right(t);
+        }
+        return order;
+    }
+
+    private int left(int r) {
+        return records.getInt(r * RECORD_BYTES + LEFT);
+    }
+
+    private int right(int r) {
+        return records.getInt(r * RECORD_BYTES + RIGHT);
+    }
+
+    private int priority(int r) {
+        return records.getInt(r * RECORD_BYTES + PRIORITY);
+    }
+
+    private void setLeft(int r, int child) {
+        records.putInt(r * RECORD_BYTES + LEFT, child);
+    }
+
+    private void setRight(int r, int child) {
+        records.putInt(r * RECORD_BYTES + RIGHT, child);
+    }
+
+    private static ByteBuffer grow(ByteBuffer old, int capacity) {
+        ByteBuffer bigger = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        ByteBuffer src = old.duplicate();
+        src.clear();
+        bigger.put(src);
+        bigger.clear();
+        return bigger;
+    }
+
+
+    private long recordStart(int r) {
+        return records.getLong(r * RECORD_BYTES + START);
+    }
+
+    private long recordEnd(int r) {
+        return records.getLong(r * RECORD_BYTES + END);
+    }
+}
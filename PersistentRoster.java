@@ -0,0 +1,341 @@
+package application;
+
+import dimensions.NonlapException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 不可变的值班表版本：员工表与每位员工的值班时间段。
+ * <p>每次修改返回一个新版本，新旧版本通过 {@link PersistentSortedMap} 共享未被修改的部分，
+ * 一次修改只新建 O(log n) 个结点。因此可以廉价地保留所有历史版本用于撤销/重做，
+ * 也可以从同一版本出发分别修改，得到多个互不影响的"假设"方案。
+ * <p>与 {@code DutyIntervalSet} 一致，每位员工至多有一段连续的值班；
+ * 为已有值班的员工追加首尾相接的时间段时，两段合并为一段。
+ * <p>轮换规则（{@link RotationRule}）同样属于版本的一部分，由版本中的 {@link RotationPlan} 保存，
+ * 撤销、重做与切换方案时与值班一起恢复；规则之间、规则与值班之间都不重叠，规则中的员工视为已排班。
+ * 版本只保存规则本身，不展开其中的各班。
+ */
+public final class PersistentRoster {
+    /**
+     * 员工及其值班时间段，未排班时start与end为-1
+     */
+    private static final class Member {
+        final EmployeeView employee;
+        final long start;
+        final long end;
+
+        Member(EmployeeView employee, long start, long end) {
+            this.employee = employee;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean onDuty() {
+            return start >= 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Member))
+                return false;
+            Member other = (Member) o;
+            return other.employee.equals(employee) && other.start == start && other.end == end;
+        }
+
+        @Override
+        public int hashCode() {
+            return (employee.hashCode() * 31 + Long.hashCode(start)) * 31 + Long.hashCode(end);
+        }
+    }
+
+    private final long periodStart;
+    private final long periodEnd;
+    private final PersistentSortedMap<String, Member> members;
+    private final PersistentSortedMap<Long, String> duties;
+    private final long dutyDays;
+    private final RotationPlan<EmployeeView> rotations;
+    //Abstraction function:
+    //  AF = 总时间段为[periodStart, periodEnd]的值班表，members为按姓名索引的员工及其值班时间段，
+    //       duties为按开始日期索引的值班人姓名，dutyDays为显式值班的总天数，rotations为轮换规则
+    //Representation invariant:
+    //  duties中每个(start, name)对应members中start相同且在值班的员工，反之亦然；
+    //  各值班时间段互不重叠且在总时间段内；dutyDays等于各段天数之和；
+    //  各轮换规则互不重叠，不与值班时间段重叠，其中的员工都在members中
+    //Safety from rep exposure:
+    //  所有字段为private final且不可变，RotationPlan与RotationRule不可变，
+    //  EmployeeView只引用员工编号，员工信息在存储中不会被修改
+
+    private PersistentRoster(long periodStart, long periodEnd, PersistentSortedMap<String, Member> members,
+                             PersistentSortedMap<Long, String> duties, long dutyDays,
+                             RotationPlan<EmployeeView> rotations) {
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+        this.members = members;
+        this.duties = duties;
+        this.dutyDays = dutyDays;
+        this.rotations = rotations;
+    }
+
+    /**
+     * @param start 值班总时间段开始日期
+     * @param end 值班总时间段结束日期
+     * @return 没有员工的空值班表
+     */
+    public static PersistentRoster empty(long start, long end) {
+        return new PersistentRoster(start, end, PersistentSortedMap.empty(Comparator.naturalOrder()),
+                PersistentSortedMap.empty(Comparator.naturalOrder()), 0, RotationPlan.empty());
+    }
+
+    /**
+     * @param employee 新员工
+     * @return 加入该员工后的新版本
+     * @throws confictName 已存在同名员工
+     */
+    public PersistentRoster withEmployee(EmployeeView employee) {
+        if (members.containsKey(employee.getName()))
+            throw new confictName("已存在名为 " + employee.getName() + " 的员工");
+        return new PersistentRoster(periodStart, periodEnd,
+                members.put(employee.getName(), new Member(employee, -1, -1)), duties, dutyDays, rotations);
+    }
+
+    /**
+     * @param name 员工姓名
+     * @return 删除该员工后的新版本
+     * @throws noExsistedException 没有该员工
+     * @throws wrongStatusException 该员工仍有值班或仍在轮换规则中
+     */
+    public PersistentRoster withoutEmployee(String name) {
+        Member m = member(name);
+        if (m.onDuty() || rotations.contains(m.employee))
+            throw new wrongStatusException("员工已经被编排进排班表，必须先删除其排班信息才能删除员工");
+        return new PersistentRoster(periodStart, periodEnd, members.remove(name), duties, dutyDays, rotations);
+    }
+
+    /**
+     * 为员工安排一段值班；员工已有值班时，新时间段必须与之首尾相接，两段合并为一段
+     * @param name 员工姓名
+     * @param start 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @return 安排后的新版本
+     * @throws NonlapException 与其他员工的值班或轮换规则重叠
+     * @throws noExsistedException 没有该员工
+     * @throws IllegalArgumentException 时间段不合法、超出总时间段或与该员工已有值班不连续
+     */
+    public PersistentRoster withDuty(String name, long start, long end) throws NonlapException {
+        Member m = member(name);
+        if (start > end || start < periodStart || end > periodEnd)
+            throw new IllegalArgumentException("值班时间段不合法或超出总时间段");
+        long s = start;
+        long e = end;
+        PersistentSortedMap<Long, String> rest = duties;
+        long days = dutyDays;
+        if (m.onDuty()) {
+            if (start != m.end + 1 && end != m.start - 1)
+                throw new IllegalArgumentException("员工 " + name + " 的排班不连续");
+            s = Math.min(s, m.start);
+            e = Math.max(e, m.end);
+            rest = rest.remove(m.start);
+            days -= m.end - m.start + 1;
+        }
+        Long before = rest.floorKey(s);
+        if (before != null && member(rest.get(before)).end >= s)
+            throw new NonlapException("与 " + rest.get(before) + " 的排班重叠");
+        Long after = rest.ceilingKey(s);
+        if (after != null && after <= e)
+            throw new NonlapException("与 " + rest.get(after) + " 的排班重叠");
+        RotationRule<EmployeeView> rule = rotations.overlapping(s, e);
+        if (rule != null)
+            throw new NonlapException("与轮换规则 " + rule + " 重叠");
+        return new PersistentRoster(periodStart, periodEnd, members.put(name, new Member(m.employee, s, e)),
+                rest.put(s, name), days + e - s + 1, rotations);
+    }
+
+    /**
+     * @param name 员工姓名
+     * @return 删除该员工值班后的新版本，该员工没有值班时返回本版本
+     * @throws noExsistedException 没有该员工
+     */
+    public PersistentRoster withoutDuty(String name) {
+        Member m = member(name);
+        if (!m.onDuty())
+            return this;
+        return new PersistentRoster(periodStart, periodEnd, members.put(name, new Member(m.employee, -1, -1)),
+                duties.remove(m.start), dutyDays - (m.end - m.start + 1), rotations);
+    }
+
+    /**
+     * 加入一条轮换规则
+     * @param rule 轮换规则
+     * @return 加入后的新版本
+     * @throws NonlapException 与已有的轮换规则或值班重叠
+     * @throws noExsistedException 规则中有不在员工表中的员工
+     */
+    public PersistentRoster withRotation(RotationRule<EmployeeView> rule) throws NonlapException {
+        for (EmployeeView e : rule.getMembers())
+            member(e.getName());
+        Long duty = duties.floorKey(rule.getEnd());
+        if (duty != null && member(duties.get(duty)).end >= rule.getStart())
+            throw new NonlapException("与 " + duties.get(duty) + " 的排班重叠");
+        return new PersistentRoster(periodStart, periodEnd, members, duties, dutyDays, rotations.with(rule));
+    }
+
+    /**
+     * @param rule 本版本中的一条轮换规则
+     * @return 删除该规则后的新版本
+     * @throws noExsistedException 本版本中没有该规则
+     */
+    public PersistentRoster withoutRotation(RotationRule<EmployeeView> rule) {
+        return new PersistentRoster(periodStart, periodEnd, members, duties, dutyDays, rotations.without(rule));
+    }
+
+    public long getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getPeriodEnd() {
+        return periodEnd;
+    }
+
+    /**
+     * @return 员工人数
+     */
+    public int employeeCount() {
+        return members.size();
+    }
+
+    /**
+     * @return 已排班的员工人数：有值班或在某条轮换规则中的员工
+     */
+    public int dutyCount() {
+        Set<String> rotating = new HashSet<>();
+        for (RotationRule<EmployeeView> rule : rotations.rules()) {
+            for (EmployeeView e : rule.getMembers()) {
+                if (!members.get(e.getName()).onDuty())
+                    rotating.add(e.getName());
+            }
+        }
+        return duties.size() + rotating.size();
+    }
+
+    /**
+     * @return 已排班的总天数，包括轮换规则在总时间段内覆盖的天数
+     */
+    public long dutyDays() {
+        long days = dutyDays;
+        for (RotationRule<EmployeeView> rule : rotations.rules())
+            days += Math.max(0, Math.min(rule.getEnd(), periodEnd) - Math.max(rule.getStart(), periodStart) + 1);
+        return days;
+    }
+
+    /**
+     * @return 总时间段内未排班的天数
+     */
+    public long freeDays() {
+        return periodEnd - periodStart + 1 - dutyDays();
+    }
+
+    /**
+     * @return 所有员工，按姓名排序
+     */
+    public List<EmployeeView> employees() {
+        List<EmployeeView> list = new ArrayList<>(members.size());
+        members.forEach((name, m) -> list.add(m.employee));
+        return list;
+    }
+
+    /**
+     * @return 有值班的员工，按值班开始日期排序
+     */
+    public List<EmployeeView> sort() {
+        List<EmployeeView> list = new ArrayList<>(duties.size());
+        duties.forEach((start, name) -> list.add(members.get(name).employee));
+        return list;
+    }
+
+    /**
+     * @return 本版本的轮换规则
+     */
+    public RotationPlan<EmployeeView> getRotations() {
+        return rotations;
+    }
+
+    /**
+     * @param time 日期，分钟精度下为时刻
+     * @return 该时刻值班的员工：显式值班按开始日期查找，否则按轮换规则算出；无人值班时为null
+     */
+    public EmployeeView onDuty(long time) {
+        Long start = duties.floorKey(time);
+        if (start != null) {
+            Member m = members.get(duties.get(start));
+            if (m.end >= time)
+                return m.employee;
+        }
+        return rotations.onDuty(time);
+    }
+
+    /**
+     * @param name 员工姓名
+     * @return 该姓名的员工，没有时为null
+     */
+    public EmployeeView employee(String name) {
+        Member m = members.get(name);
+        return m == null ? null : m.employee;
+    }
+
+    /**
+     * 与另一版本按姓名比较员工与显式值班，两个版本共享的部分直接跳过，代价与差异个数成正比
+     * @param other 另一版本
+     * @return 在两个版本中员工或值班不同的姓名，按姓名排序
+     */
+    public List<String> changedNames(PersistentRoster other) {
+        List<String> names = new ArrayList<>();
+        members.diff(other.members, (name, before, after) -> names.add(name));
+        return names;
+    }
+
+    /**
+     * @param other 另一版本
+     * @return 两个版本的总时间段、员工、值班与轮换规则是否都相同
+     */
+    public boolean sameAs(PersistentRoster other) {
+        if (other == this)
+            return true;
+        if (other.periodStart != periodStart || other.periodEnd != periodEnd)
+            return false;
+        if (!changedNames(other).isEmpty())
+            return false;
+        boolean[] differs = {false};
+        rotations.diff(other.rotations, (before, after) -> differs[0] = true);
+        return !differs[0];
+    }
+
+    /**
+     * @param name 员工姓名
+     * @return 该员工是否有值班
+     */
+    public boolean isOnDuty(String name) {
+        Member m = members.get(name);
+        return m != null && m.onDuty();
+    }
+
+    /**
+     * @param name 员工姓名
+     * @return 该员工的值班时间段{开始, 结束}，没有值班时为null
+     * @throws noExsistedException 没有该员工
+     */
+    public long[] duty(String name) {
+        Member m = member(name);
+        return m.onDuty() ? new long[]{m.start, m.end} : null;
+    }
+
+    private Member member(String name) {
+        Member m = members.get(name);
+        if (m == null)
+            throw new noExsistedException("没有找到名为 " + name + " 的员工");
+        return m;
+    }
+}
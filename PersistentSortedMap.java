@@ -0,0 +1,345 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * 不可变的有序映射（持久化AVL树）。每次 {@link #put}/{@link #remove} 只复制从根到被修改结点路径上的 O(log n) 个结点，
+ * 其余结点在新旧版本之间共享，因此保留任意多个历史版本的代价只与修改次数成正比。
+ *
+ * @param <K> 键的类型
+ * @param <V> 值的类型
+ */
+final class PersistentSortedMap<K, V> {
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    /**
+     * 两个版本之间的一处差异
+     */
+    interface DiffVisitor<K, V> {
+        /**
+         * @param key 键
+         * @param before 本版本中的值，不存在时为null
+         * @param after 另一版本中的值，不存在时为null
+         */
+        void visit(K key, V before, V after);
+    }
+
+    /**
+     * 按中序逐步展开一棵树的游标；栈中的结点或者代表整棵子树（whole为true），或者只代表结点本身
+     */
+    private static final class Cursor<K, V> {
+        final ArrayDeque<Node<K, V>> nodes = new ArrayDeque<>();
+        final ArrayDeque<Boolean> whole = new ArrayDeque<>();
+
+        Cursor(Node<K, V> root) {
+            pushTree(root);
+        }
+
+        void pushTree(Node<K, V> n) {
+            if (n != null) {
+                nodes.push(n);
+                whole.push(true);
+            }
+        }
+
+        boolean isEmpty() {
+            return nodes.isEmpty();
+        }
+
+        boolean atTree() {
+            return whole.peek();
+        }
+
+        Node<K, V> peek() {
+            return nodes.peek();
+        }
+
+        void pop() {
+            nodes.pop();
+            whole.pop();
+        }
+
+        /**
+         * 把栈顶的子树展开为左子树、结点本身与右子树
+         */
+        void expand() {
+            Node<K, V> n = nodes.pop();
+            whole.pop();
+            pushTree(n.right);
+            nodes.push(n);
+            whole.push(false);
+            pushTree(n.left);
+        }
+    }
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+    //Abstraction function:
+    //  AF = root为根的AVL树中所有(key, value)组成的映射，按comparator排序
+    //Representation invariant:
+    //  root满足二叉搜索树性质与AVL平衡性质，结点的height与size与子树一致
+    //Safety from rep exposure:
+    //  结点不可变且不暴露给调用者
+
+    private PersistentSortedMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    /**
+     * @param comparator 键的比较器
+     * @return 空映射
+     */
+    static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentSortedMap<>(comparator, null);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return 键对应的值，不存在时为null
+     */
+    V get(K key) {
+        Node<K, V> n = root;
+        while (n != null) {
+            int c = comparator.compare(key, n.key);
+            if (c == 0)
+                return n.value;
+            n = c < 0 ? n.left : n.right;
+        }
+        return null;
+    }
+
+    boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return 不大于key的最大键，不存在时为null
+     */
+    K floorKey(K key) {
+        K best = null;
+        Node<K, V> n = root;
+        while (n != null) {
+            int c = comparator.compare(key, n.key);
+            if (c == 0)
+                return n.key;
+            if (c < 0) {
+                n = n.left;
+            } else {
+                best = n.key;
+                n = n.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return 不小于key的最小键，不存在时为null
+     */
+    K ceilingKey(K key) {
+        K best = null;
+        Node<K, V> n = root;
+        while (n != null) {
+            int c = comparator.compare(key, n.key);
+            if (c == 0)
+                return n.key;
+            if (c > 0) {
+                n = n.right;
+            } else {
+                best = n.key;
+                n = n.left;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return 加入或替换(key, value)后的新版本，本版本不变
+     */
+    PersistentSortedMap<K, V> put(K key, V value) {
+        return new PersistentSortedMap<>(comparator, put(root, key, value));
+    }
+
+    /**
+     * @return 删除key后的新版本，key不存在时返回本版本
+     */
+    PersistentSortedMap<K, V> remove(K key) {
+        if (!containsKey(key))
+            return this;
+        return new PersistentSortedMap<>(comparator, remove(root, key));
+    }
+
+    /**
+     * 按键的顺序遍历所有键值对
+     */
+    void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(root, action);
+    }
+
+    /**
+     * 按键的顺序列出本版本与另一版本的差异：只在一边出现的键，以及两边的值不相等（按equals）的键。
+     * <p>两个版本由同一映射经少数几次修改得到时共享大部分结点，两边同时遇到同一棵子树时整棵跳过，
+     * 因此代价约为 O(d log n)（d为差异个数），而不是 O(n)。
+     * @param other 另一版本，比较器须相同
+     * @param visitor 对每处差异调用一次
+     */
+    void diff(PersistentSortedMap<K, V> other, DiffVisitor<K, V> visitor) {
+        Cursor<K, V> a = new Cursor<>(root);
+        Cursor<K, V> b = new Cursor<>(other.root);
+        while (!a.isEmpty() && !b.isEmpty()) {
+            if (a.atTree() && b.atTree() && a.peek() == b.peek()) {
+                a.pop();
+                b.pop();
+            } else if (a.atTree() && (!b.atTree() || a.peek().height >= b.peek().height)) {
+                a.expand();
+            } else if (b.atTree()) {
+                b.expand();
+            } else {
+                Node<K, V> x = a.peek();
+                Node<K, V> y = b.peek();
+                int c = comparator.compare(x.key, y.key);
+                if (c < 0) {
+                    visitor.visit(x.key, x.value, null);
+                    a.pop();
+                } else if (c > 0) {
+                    visitor.visit(y.key, null, y.value);
+                    b.pop();
+                } else {
+                    if (!Objects.equals(x.value, y.value))
+                        visitor.visit(x.key, x.value, y.value);
+                    a.pop();
+                    b.pop();
+                }
+            }
+        }
+        for (; !a.isEmpty(); a.pop()) {
+            if (a.atTree())
+                forEach(a.peek(), (k, v) -> visitor.visit(k, v, null));
+            else
+                visitor.visit(a.peek().key, a.peek().value, null);
+        }
+        for (; !b.isEmpty(); b.pop()) {
+            if (b.atTree())
+                forEach(b.peek(), (k, v) -> visitor.visit(k, null, v));
+            else
+                visitor.visit(b.peek().key, null, b.peek().value);
+        }
+    }
+
+    /**
+     * 检查表示不变量，供测试使用
+     * @return root是否满足二叉搜索树性质与AVL平衡性质，且各结点的height与size与子树一致
+     */
+    boolean checkRep() {
+        return checkRep(root, null, null) >= 0;
+    }
+
+    /**
+     * @return n子树满足不变量且键都在(low, high)内时返回其高度，否则返回-1
+     */
+    private int checkRep(Node<K, V> n, K low, K high) {
+        if (n == null)
+            return 0;
+        if ((low != null && comparator.compare(n.key, low) <= 0) || (high != null && comparator.compare(n.key, high) >= 0))
+            return -1;
+        int left = checkRep(n.left, low, n.key);
+        int right = checkRep(n.right, n.key, high);
+        if (left < 0 || right < 0 || Math.abs(left - right) > 1)
+            return -1;
+        if (n.height != Math.max(left, right) + 1 || n.size != size(n.left) + size(n.right) + 1)
+            return -1;
+        return n.height;
+    }
+
+    private static <K, V> void forEach(Node<K, V> n, BiConsumer<? super K, ? super V> action) {
+        while (n != null) {
+            forEach(n.left, action);
+            action.accept(n.key, n.value);
+            n = n.right;
+        }
+    }
+
+    private Node<K, V> put(Node<K, V> n, K key, V value) {
+        if (n == null)
+            return new Node<>(key, value, null, null);
+        int c = comparator.compare(key, n.key);
+        if (c == 0)
+            return new Node<>(key, value, n.left, n.right);
+        if (c < 0)
+            return balance(n.key, n.value, put(n.left, key, value), n.right);
+        return balance(n.key, n.value, n.left, put(n.right, key, value));
+    }
+
+    private Node<K, V> remove(Node<K, V> n, K key) {
+        int c = comparator.compare(key, n.key);
+        if (c < 0)
+            return balance(n.key, n.value, remove(n.left, key), n.right);
+        if (c > 0)
+            return balance(n.key, n.value, n.left, remove(n.right, key));
+        if (n.left == null)
+            return n.right;
+        if (n.right == null)
+            return n.left;
+        Node<K, V> min = n.right;
+        while (min.left != null)
+            min = min.left;
+        return balance(min.key, min.value, n.left, remove(n.right, min.key));
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) < height(left.right))
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            return rotateRight(key, value, left, right);
+        }
+        if (diff < -1) {
+            if (height(right.right) < height(right.left))
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            return rotateLeft(key, value, left, right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+    }
+
+    private static int height(Node<?, ?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static int size(Node<?, ?> n) {
+        return n == null ? 0 : n.size;
+    }
+}
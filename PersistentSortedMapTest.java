@@ -0,0 +1,132 @@
+package application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link PersistentSortedMap} 的测试：随机增删后的AVL不变量与内容，旧版本在修改后保持不变，
+ * 以及两个版本之间的差异与逐键比较的结果一致。
+ */
+public class PersistentSortedMapTest {
+    private static PersistentSortedMap<Integer, String> empty() {
+        return PersistentSortedMap.empty(Comparator.naturalOrder());
+    }
+
+    private static List<Integer> keys(PersistentSortedMap<Integer, String> map) {
+        List<Integer> keys = new ArrayList<>();
+        map.forEach((k, v) -> keys.add(k));
+        return keys;
+    }
+
+    @Test
+    public void ascendingInsertsStayBalanced() {
+        PersistentSortedMap<Integer, String> map = empty();
+        for (int i = 0; i < 10_000; i++) {
+            map = map.put(i, "v" + i);
+            assertTrue(map.checkRep(), "插入 " + i + " 后不平衡");
+        }
+        assertEquals(10_000, map.size());
+        assertEquals(0, (int) map.floorKey(0));
+        assertEquals(9_999, (int) map.floorKey(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void randomPutAndRemoveMatchTreeMap() {
+        Random random = new Random(42);
+        PersistentSortedMap<Integer, String> map = empty();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+            if (i % 97 == 0)
+                assertTrue(map.checkRep(), "第 " + i + " 次修改后不满足不变量");
+        }
+        assertTrue(map.checkRep());
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.keySet()), keys(map));
+        for (int key = -1; key <= 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.floorKey(key), map.floorKey(key));
+            assertEquals(expected.ceilingKey(key), map.ceilingKey(key));
+        }
+    }
+
+    @Test
+    public void oldVersionsAreUnchanged() {
+        PersistentSortedMap<Integer, String> base = empty();
+        for (int i = 0; i < 100; i++)
+            base = base.put(i, "base");
+        PersistentSortedMap<Integer, String> replaced = base.put(50, "new");
+        PersistentSortedMap<Integer, String> removed = base.remove(10);
+        PersistentSortedMap<Integer, String> added = base.put(1_000, "added");
+
+        assertEquals("base", base.get(50));
+        assertEquals(100, base.size());
+        assertTrue(base.containsKey(10));
+        assertFalse(base.containsKey(1_000));
+
+        assertEquals("new", replaced.get(50));
+        assertFalse(removed.containsKey(10));
+        assertEquals(99, removed.size());
+        assertEquals(101, added.size());
+        assertTrue(replaced.checkRep() && removed.checkRep() && added.checkRep());
+    }
+
+    @Test
+    public void removingMissingKeyReturnsSameVersion() {
+        PersistentSortedMap<Integer, String> map = empty().put(1, "a");
+        assertSame(map, map.remove(2));
+        assertNull(map.get(2));
+        assertTrue(empty().isEmpty());
+    }
+
+    @Test
+    public void diffMatchesKeyByKeyComparison() {
+        Random random = new Random(11);
+        PersistentSortedMap<Integer, String> base = empty();
+        for (int i = 0; i < 2_000; i++)
+            base = base.put(random.nextInt(5_000), "v" + random.nextInt(3));
+        for (int round = 0; round < 50; round++) {
+            PersistentSortedMap<Integer, String> other = base;
+            for (int k = random.nextInt(20); k > 0; k--) {
+                int key = random.nextInt(5_000);
+                other = random.nextBoolean() ? other.remove(key) : other.put(key, "v" + random.nextInt(3));
+            }
+            TreeMap<Integer, String> x = new TreeMap<>();
+            TreeMap<Integer, String> y = new TreeMap<>();
+            base.forEach(x::put);
+            other.forEach(y::put);
+            List<String> expected = new ArrayList<>();
+            TreeMap<Integer, String> all = new TreeMap<>(x);
+            all.putAll(y);
+            for (Integer key : all.keySet()) {
+                if (!Objects.equals(x.get(key), y.get(key)))
+                    expected.add(key + ":" + x.get(key) + ">" + y.get(key));
+            }
+            List<String> actual = new ArrayList<>();
+            base.diff(other, (key, before, after) -> actual.add(key + ":" + before + ">" + after));
+            assertEquals(expected, actual);
+        }
+        List<String> none = new ArrayList<>();
+        base.diff(base, (key, before, after) -> none.add(key + ""));
+        assertTrue(none.isEmpty());
+    }
+}
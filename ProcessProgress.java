@@ -0,0 +1,109 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * 进程执行进度表，按进程槽位（进程在进程列表中的下标）紧凑存放。
+ * <p>每个槽位的已执行时间与到达时间存放在long数组中，调度循环中按槽位直接读写，不装箱也不计算进程的散列值；
+ * 按进程 ID 查找槽位通过 {@link LongLongMap} 完成。
+ * <p>所有调度引擎共享同一份已执行时间数组 {@link #executedArray()}。
+ */
+public class ProcessProgress {
+    private long[] executed;
+    private long[] arrival;
+    private int size = 0;
+    private final LongLongMap slotOf = new LongLongMap(-1);
+    //Abstraction function:
+    //  AF = 槽位 0..size-1 的进程进度，槽位i的进程已执行executed[i]时间、在arrival[i]时刻到达（-1表示未指定），
+    //       slotOf为进程ID到槽位的映射
+    //Representation invariant:
+    //  executed.length == arrival.length >= size，slotOf.size() == size，
+    //  对 0 <= i < size 有 executed[i] >= 0
+    //Safety from rep exposure:
+    //  成员变量均为private；executedArray()有意返回内部数组供调度引擎原地更新，
+    //  调用者只能修改 0..size-1 范围内的已执行时间
+
+    public ProcessProgress() {
+        this(16);
+    }
+
+    /**
+     * @param capacity 初始槽位容量
+     */
+    public ProcessProgress(int capacity) {
+        int cap = Math.max(capacity, 16);
+        executed = new long[cap];
+        arrival = new long[cap];
+    }
+
+    /**
+     * 为新进程分配下一个槽位，已执行时间初始化为0
+     * @param pID 进程ID
+     * @param arrivalTime 到达时间，-1表示未指定
+     * @return 新槽位；ID已存在时返回-1
+     */
+    public int add(long pID, long arrivalTime) {
+        if (slotOf.containsKey(pID))
+            return -1;
+        if (size == executed.length) {
+            executed = Arrays.copyOf(executed, size * 2);
+            arrival = Arrays.copyOf(arrival, size * 2);
+        }
+        int slot = size++;
+        executed[slot] = 0;
+        arrival[slot] = arrivalTime;
+        slotOf.put(pID, slot);
+        return slot;
+    }
+
+    /**
+     * @param pID 进程ID
+     * @return 该进程的槽位，不存在时返回-1
+     */
+    public int slotOf(long pID) {
+        return (int) slotOf.get(pID);
+    }
+
+    /**
+     * @param pID 进程ID
+     * @return 是否已有该ID的进程
+     */
+    public boolean contains(long pID) {
+        return slotOf.containsKey(pID);
+    }
+
+    /**
+     * @param slot 槽位
+     * @return 该槽位进程的已执行时间
+     */
+    public long executed(int slot) {
+        return executed[slot];
+    }
+
+    /**
+     * @param slot 槽位
+     * @param value 新的已执行时间
+     */
+    public void setExecuted(int slot, long value) {
+        executed[slot] = value;
+    }
+
+    /**
+     * @param slot 槽位
+     * @return 该槽位进程的到达时间，-1表示未指定
+     */
+    public long arrival(int slot) {
+        return arrival[slot];
+    }
+
+    /**
+     * @return 已执行时间数组本身（不是拷贝），长度不小于 {@link #size()}，供调度引擎原地更新
+     */
+    public long[] executedArray() {
+        return executed;
+    }
+
+    public int size() {
+        return size;
+    }
+}
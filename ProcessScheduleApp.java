@@ -7,19 +7,33 @@ import dimensions.NonlapException;
 import dimensions.NonperiodicException;
 import entity.Process;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Supplier;
 
 
 public class ProcessScheduleApp {
-    private static final Scanner input = new Scanner(System.in);
+    private static final TokenReader input = new TokenReader(System.in);
 
     private final static  List<Process> processes = new ArrayList<>();
-    private final static Map<Process, Long> processTodoMap = new HashMap<>();
+    private final static ProcessProgress progress = new ProcessProgress();
     private final static MultiIntervalSet<Process> processSchedule = new ProcessIntervalSet<>();
+    private final static List<MultiIntervalSet<Process>> coreSchedules = new ArrayList<>();
+    private final static ScheduleStatistics statistics = new ScheduleStatistics();
+    private static ScheduleStatistics coreStatistics = null;
+    private static SimulationKernel online = null;
+    private static int onlineSubmitted = 0;
+    private static final Random onlineRand = new Random();
     //Abstraction function:
     //  AF(processes) = 进程列表
-    //  AF(processTodoMap) = 还未执行完毕的进程及其剩余时间
+    //  AF(progress) = 进程列表中每个进程（按下标）的已执行时间与到达时间
     //  AF(processSchedule) = 调度系统时间轴
+    //  AF(coreSchedules) = 多核模拟中每个核心的调度时间轴
+    //  AF(statistics) = 随每次写入processSchedule增量更新的调度统计
+    //  AF(coreStatistics) = 随每次写入coreSchedules增量更新的多核调度统计，未进行多核模拟时为null
+    //  AF(online) = 正在进行的在线调度模拟，未开始时为null；进程列表中前onlineSubmitted个槽位已提交给它
 
     //Representation invariant:
     //  同一进程执行时间段不能重叠，不能存储相同进程
@@ -34,12 +48,12 @@ public class ProcessScheduleApp {
      * @return 返回用户输入的数字
      */
     private static int readNum() {
-        String str = input.next();
-        while (!str.matches("[0-9]+")) {
+        int num = input.nextNum();
+        while (num < 0) {
             System.err.println("该输入不是数字，请重新输入");
-            str = input.next();
+            num = input.nextNum();
         }
-        return Integer.parseInt(str);
+        return num;
     }
     /**
      * 使用最短进程优先策略对进程进行调度。
@@ -64,47 +78,51 @@ public class ProcessScheduleApp {
         flag=1;
         Random rand = new Random();
         long timePoint = 0;
-        List<Process> temp_processes = new ArrayList<>(processes); // 尚未完全执行的进程
-        while (!temp_processes.isEmpty()) {
+        long[] executedArray = progress.executedArray();
+        int[] temp_slots = allSlots(); // 尚未完全执行的进程槽位
+        int remain = temp_slots.length;
+        while (remain > 0) {
             // 间隔时间
             long blankTime = rand.nextInt(5);
             timePoint += blankTime;
             long remainTime = Long.MAX_VALUE;
-            // 找到最短的剩余时间的进程
-            for (Process temp : temp_processes) {
-                long temp_remainTime = temp.getMaxEXT() - processTodoMap.get(temp);
-                remainTime = Math.min(temp_remainTime, remainTime);
-            }
-            Process p = temp_processes.get(0);
-            for (Process temp : temp_processes) {
-                long temp_remainTime = temp.getMaxEXT() - processTodoMap.get(temp);
-                if (temp_remainTime == remainTime) {
-                    p = temp;
+            int index = 0;
+            // 找到最短的剩余时间的进程，剩余时间相同时取靠后的
+            for (int i = 0; i < remain; i++) {
+                int temp = temp_slots[i];
+                long temp_remainTime = processes.get(temp).getMaxEXT() - executedArray[temp];
+                if (temp_remainTime <= remainTime) {
+                    remainTime = temp_remainTime;
+                    index = i;
                 }
             }
+            int slot = temp_slots[index];
+            Process p = processes.get(slot);
             long minEXT = p.getMinEXT();
             long maxEXT = p.getMaxEXT();
             // 计算下一个进程的执行情况
             long thisTime = (long) (rand.nextDouble() * maxEXT);
-            long executed = processTodoMap.get(p);
+            long executed = executedArray[slot];
             long totalTime = thisTime + executed;
             if (totalTime >= maxEXT) { //时间超出
                 thisTime = maxEXT - executed;
                 totalTime = maxEXT;
-                temp_processes.remove(p);
             }
             if (totalTime >= minEXT) { // 进程执行完毕，无异常
-                temp_processes.remove(p);
+                remain = removeSlot(temp_slots, remain, index);
             }
             try {
                 processSchedule.insert(timePoint, timePoint + thisTime, p);
+                statistics.onSlice(slot, timePoint, timePoint + thisTime);
             } catch (NonlapException e) {
                 System.out.println("同种进程的时间重复");
             } catch (NonperiodicException e) {
                 System.out.println("不符合非周期性");
             }
-            processTodoMap.put(p, totalTime);
+            executedArray[slot] = totalTime;
             timePoint += thisTime;
+            if (totalTime >= minEXT)
+                statistics.onComplete(slot, 0, timePoint, totalTime);
         }
         System.out.println("调度完毕");
         return true;
@@ -130,46 +148,317 @@ public class ProcessScheduleApp {
         flag=1;
         Random rand = new Random();
         long timePoint = 0;
-        List<Process> temp_processes = new ArrayList<>(processes); // 尚未完全执行的进程
-        while (!temp_processes.isEmpty()) {
+        long[] executedArray = progress.executedArray();
+        int[] temp_slots = allSlots(); // 尚未完全执行的进程槽位
+        int size = temp_slots.length;
+        while (size > 0) {
             // 间隔时间
             long blankTime = rand.nextInt(5);
             timePoint += blankTime;
-            int size = temp_processes.size();
             int random;
             if (size > 1) // 随机选取
                 random = rand.nextInt(size - 1);
             else
                 random = 0;
-            Process p = temp_processes.get(random);
+            int slot = temp_slots[random];
+            Process p = processes.get(slot);
             long minTime = p.getMinEXT();
             long maxTime = p.getMaxEXT();
             // 计算下一个进程的执行情况
             long thisTime = (long) (rand.nextDouble() * maxTime);
-            long executed = processTodoMap.get(p);
+            long executed = executedArray[slot];
             long totalTime = thisTime + executed;
             if (totalTime >= maxTime) { //时间超出
                 thisTime = maxTime - executed;
                 totalTime = maxTime;
-                temp_processes.remove(p);
             }
             if (totalTime >= minTime) { // 进程执行完毕，无异常
-                temp_processes.remove(p);
+                size = removeSlot(temp_slots, size, random);
             }
             try {
                 processSchedule.insert(timePoint,timePoint+thisTime,p);
+                statistics.onSlice(slot, timePoint, timePoint + thisTime);
             } catch (NonlapException e) {
                 System.out.println("同种进程时间重叠");
             } catch (NonperiodicException e) {
                 System.out.println("不符合非周期性");
             }
 
-            processTodoMap.put(p, totalTime);
+            executedArray[slot] = totalTime;
             timePoint += thisTime;
+            if (totalTime >= minTime)
+                statistics.onComplete(slot, 0, timePoint, totalTime);
+        }
+        System.out.println("调度完毕");
+        return true;
+    }
+    /**
+     * 使用可插拔的调度引擎对进程进行调度，并输出该引擎的性能指标。
+     * @param scheduler 调度引擎
+     * @return 如果没有进程可供调度或进程已被安排调度，返回false；否则返回true。
+     */
+    private static boolean engineGet(ProcessScheduler scheduler) {
+        if (processes.isEmpty()) {
+            System.out.println("调度系统中无进程储备");
+            return false;
+        }
+        if (!processSchedule.isEmpty()) {
+            System.out.println("进程已被部分安排调度");
+            return false;
         }
+        flag=1;
+        SchedulerMetrics metrics = ScheduleRunner.run(scheduler, processes, progress.executedArray(),
+                processSchedule, new Random(), statistics);
         System.out.println("调度完毕");
+        System.out.println(SchedulerMetrics.header());
+        System.out.println(metrics);
+        return true;
+    }
+
+    /**
+     * 在当前进程列表上依次运行所有调度引擎并输出指标对比，不修改当前调度结果。
+     * <p>每个引擎使用相同的随机种子，保证各进程的实际执行时间一致；
+     * 先写入独立的调度时间轴测一次，再不写入时间轴测一次，以区分引擎本身与时间轴写入的开销。
+     * @param quantum 轮转与多级反馈队列的基本时间片
+     */
+    private static void compareEngines(long quantum) {
+        if (processes.isEmpty()) {
+            System.out.println("调度系统中无进程储备");
+            return;
+        }
+        ProcessScheduler[] engines = {
+                new RoundRobinScheduler(quantum),
+                new MultiLevelFeedbackScheduler(3, quantum, quantum * 50),
+                new EarliestDeadlineScheduler()
+        };
+        long seed = System.nanoTime();
+        System.out.println("写入调度时间轴：");
+        System.out.println(SchedulerMetrics.header());
+        for (ProcessScheduler engine : engines) {
+            System.out.println(ScheduleRunner.run(engine, processes, new long[processes.size()],
+                    new ProcessIntervalSet<>(), new Random(seed), null));
+        }
+        System.out.println("仅模拟，不写入时间轴：");
+        System.out.println(SchedulerMetrics.header());
+        for (ProcessScheduler engine : engines) {
+            System.out.println(ScheduleRunner.run(engine, processes, new long[processes.size()],
+                    null, new Random(seed), null));
+        }
+    }
+
+    /**
+     * 在多个核心上进行离散事件模拟调度，每个核心的执行情况写入各自的调度时间轴。
+     * <p>导入时指定了到达时间的进程按该时间到达，其余进程按随机间隔依次到达，与随机调度、最短进程优先调度中的间隔时间一致。
+     * @param scheduler 调度引擎
+     * @param cores 核心数
+     * @param ioInterval 两次 I/O 之间的执行时间，0表示不模拟 I/O
+     * @param ioLatency 每次 I/O 的等待时间
+     * @return 如果没有进程可供调度或已进行过多核模拟，返回false；否则返回true。
+     */
+    private static boolean multiCoreGet(ProcessScheduler scheduler, int cores, long ioInterval, long ioLatency) {
+        if (processes.isEmpty()) {
+            System.out.println("调度系统中无进程储备");
+            return false;
+        }
+        if (!coreSchedules.isEmpty()) {
+            System.out.println("已进行过多核模拟");
+            return false;
+        }
+        for (int c = 0; c < cores; c++)
+            coreSchedules.add(new ProcessIntervalSet<>());
+        SimulationKernel kernel = new SimulationKernel(scheduler, processes, coreSchedules);
+        kernel.setIo(ioInterval, ioLatency);
+        coreStatistics = new ScheduleStatistics(cores);
+        kernel.setListener(coreStatistics);
+        Random rand = new Random();
+        long arrival = 0;
+        for (int slot = 0; slot < processes.size(); slot++) {
+            Process p = processes.get(slot);
+            arrival += rand.nextInt(5);
+            long executed = progress.executed(slot);
+            kernel.submit(slot, progress.arrival(slot) >= 0 ? progress.arrival(slot) : arrival,
+                    Math.max(0, ScheduleRunner.drawDemand(p, rand) - executed));
+        }
+        SchedulerMetrics metrics = kernel.run();
+        for (int slot = 0; slot < processes.size(); slot++)
+            progress.setExecuted(slot, progress.executed(slot) + kernel.executed(slot));
+        System.out.println("多核模拟完毕，共处理事件 " + kernel.eventCount() + " 个");
+        System.out.println(SchedulerMetrics.header());
+        System.out.println(metrics);
+        for (int c = 0; c < cores; c++)
+            System.out.printf("核心%d    执行时间:%d    空闲时间:%d\n", c, kernel.busyTime(c), kernel.idleTime(c));
         return true;
     }
+
+    /**
+     * 在多个核心上按放置策略进行调度，每个核心拥有独立的就绪队列与调度时间轴，并输出各核心利用率与总完成时间。
+     * @param engineFactory 为每个核心创建调度引擎
+     * @param cores 核心数
+     * @param placement 进程放置策略
+     * @return 如果没有进程可供调度或已进行过多核模拟，返回false；否则返回true。
+     */
+    private static boolean multiCoreBalance(Supplier<ProcessScheduler> engineFactory, int cores,
+                                            MultiCoreSchedule.Placement placement) {
+        if (processes.isEmpty()) {
+            System.out.println("调度系统中无进程储备");
+            return false;
+        }
+        if (!coreSchedules.isEmpty()) {
+            System.out.println("已进行过多核模拟");
+            return false;
+        }
+        for (int c = 0; c < cores; c++)
+            coreSchedules.add(new ProcessIntervalSet<>());
+        Random rand = new Random();
+        long[] demand = new long[processes.size()];
+        long[] executed = progress.executedArray();
+        for (int slot = 0; slot < demand.length; slot++)
+            demand[slot] = Math.max(0, ScheduleRunner.drawDemand(processes.get(slot), rand) - executed[slot]);
+        MultiCoreSchedule schedule = new MultiCoreSchedule(engineFactory, coreSchedules);
+        coreStatistics = new ScheduleStatistics(cores);
+        MultiCoreReport report = schedule.run(processes, demand, executed, placement,
+                placement == MultiCoreSchedule.Placement.LEAST_LOADED, coreStatistics);
+        System.out.println("多核调度完毕");
+        System.out.print(report);
+        return true;
+    }
+
+    /**
+     * 在线调度：在processSchedule已有的调度之后继续，新进程可以在模拟推进的过程中随时到达。
+     * <p>首次进入时选择调度引擎，并以当前调度的结束时刻为起点，把尚未执行完毕的进程按其已执行时间继续调度；
+     * 之后每次进入都接着上一次的模拟。每个时间片写入processSchedule，同时增量更新进度表与调度统计。
+     */
+    private static void onlineGet() {
+        if (online == null) {
+            online = new SimulationKernel(chooseEngine().get(), processes,
+                    Collections.singletonList(processSchedule));
+            online.setListener(new ScheduleListener() {
+                @Override
+                public void onSlice(int slot, long start, long end) {
+                    progress.setExecuted(slot, progress.executed(slot) + end - start);
+                    statistics.onSlice(slot, start, end);
+                }
+
+                @Override
+                public void onComplete(int slot, long arrival, long finish, long service) {
+                    // 重新提交时的到达时刻是模拟的当前时刻，统计按进程原本的到达时刻与累计执行时间计算
+                    statistics.onComplete(slot, progress.arrival(slot), finish, progress.executed(slot));
+                }
+            });
+            online.runUntil(statistics.slices() == 0 ? 0 : statistics.makespan());
+            flag = 1;
+        }
+        submitArrivals();
+        while (true) {
+            System.out.println("当前时刻:" + online.now() + "    已到达:" + online.submitted()
+                    + "    已完成:" + online.completed());
+            System.out.println("1.推进到指定时刻  2.新进程到达  3.运行至全部完成  0.返回");
+            int choice = readNum();
+            if (choice == 1) {
+                System.out.print("推进到时刻: ");
+                long time = readNum();
+                if (time < online.now())
+                    System.out.println("时刻不能早于当前时刻");
+                else
+                    online.runUntil(time);
+            } else if (choice == 2) {
+                System.out.println("请输入到达的进程数量");
+                int num = readNum();
+                if (num > 0) {
+                    addProcess(num);
+                    submitArrivals();
+                }
+            } else if (choice == 3) {
+                online.runUntil(Long.MAX_VALUE);
+                System.out.println(SchedulerMetrics.header());
+                System.out.println(online.metrics());
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 把进程列表中尚未提交的进程在当前时刻（或其指定的更晚到达时间）提交给在线模拟；
+     * 之前的调度中已执行到最短执行时间的进程已经完成，不再提交
+     */
+    private static void submitArrivals() {
+        for (int slot = onlineSubmitted; slot < processes.size(); slot++) {
+            if (progress.executed(slot) >= processes.get(slot).getMinEXT())
+                continue;
+            long arrival = Math.max(online.now(), progress.arrival(slot));
+            long demand = ScheduleRunner.drawDemand(processes.get(slot), onlineRand) - progress.executed(slot);
+            online.submit(slot, arrival, Math.max(0, demand));
+        }
+        onlineSubmitted = processes.size();
+    }
+
+    /**
+     * 让用户选择一种调度引擎
+     * @return 按用户选择创建调度引擎的工厂，每次调用返回一个新的引擎
+     */
+    private static Supplier<ProcessScheduler> chooseEngine() {
+        System.out.print("选择调度引擎(1.时间片轮转 2.多级反馈队列 3.最早截止期限优先): ");
+        int choice = readNum();
+        while (choice < 1 || choice > 3) {
+            System.out.println("输入非法，请输入1~3的数字");
+            choice = readNum();
+        }
+        if (choice == 3)
+            return EarliestDeadlineScheduler::new;
+        long quantum = readQuantum();
+        if (choice == 1)
+            return () -> new RoundRobinScheduler(quantum);
+        return () -> new MultiLevelFeedbackScheduler(3, quantum, quantum * 50);
+    }
+
+    /**
+     * 读取一个正的核心数
+     * @return 用户输入的核心数
+     */
+    private static int readCores() {
+        System.out.print("核心数: ");
+        int cores = readNum();
+        while (cores <= 0) {
+            System.out.println("核心数必须为正，请重新输入");
+            cores = readNum();
+        }
+        return cores;
+    }
+
+    /**
+     * 读取一个正的时间片长度
+     * @return 用户输入的时间片长度
+     */
+    private static long readQuantum() {
+        System.out.print("请输入时间片长度: ");
+        int quantum = readNum();
+        while (quantum <= 0) {
+            System.out.println("时间片长度必须为正，请重新输入");
+            quantum = readNum();
+        }
+        return quantum;
+    }
+
+    /**
+     * @return 包含所有进程槽位 0..n-1 的数组
+     */
+    private static int[] allSlots() {
+        int[] slots = new int[processes.size()];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = i;
+        return slots;
+    }
+
+    /**
+     * 从slots的前size个元素中删除下标为index的元素，保持其余元素的顺序
+     * @return 删除后的元素个数
+     */
+    private static int removeSlot(int[] slots, int size, int index) {
+        System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+        return size - 1;
+    }
+
     /**
      * 显示当前的进程调度结果。
      * <p>它会打印出所有进程的情况，包括每个进程的ID、名称、最小执行时间、最大执行时间和执行状态。
@@ -184,8 +473,9 @@ public class ProcessScheduleApp {
             System.out.println("无进程");
         else {
             System.out.println("当前进程：");
-            for (Process p : processes) {
-                if (processTodoMap.get(p) >= p.getMinEXT())
+            for (int slot = 0; slot < processes.size(); slot++) {
+                Process p = processes.get(slot);
+                if (progress.executed(slot) >= p.getMinEXT())
                     System.out.printf("ID:%d    名称:%s    状态:已执行完毕\n",
                             p.getpID(), p.getpName(), p.getMinEXT(), p.getMaxEXT());
                 else
@@ -212,10 +502,9 @@ public class ProcessScheduleApp {
                         ID = entry.get(0)[0];
                     }
                 }
-                for (Process p : processes) {
-                    if (p.getpID()==ID)
-                        name = p.getpName();
-                }
+                int slot = progress.slotOf(ID);
+                if (slot >= 0)
+                    name = processes.get(slot).getpName();
                 System.out.printf("[%d ~ %d] ： ID:%d ， 进程名：%s\n", start, end, ID, name);
                 // 删除list中的该元素
                 Iterator<List<long[]>> it = info.iterator();
@@ -228,6 +517,36 @@ public class ProcessScheduleApp {
         }
     }
 
+    /**
+     * 展示调度统计：CPU空闲时间、总时长、周转时间与等待时间的分位数，以及每个进程的时间片数、周转时间与等待时间。
+     * <p>统计在每次写入调度时间轴时已增量更新，这里只读取结果，不遍历调度时间轴。单核调度与多核模拟分别统计。
+     */
+    private static void showStatistics() {
+        if (statistics.slices() == 0 && coreStatistics == null) {
+            System.out.println("未开始调度");
+            return;
+        }
+        if (statistics.slices() > 0) {
+            System.out.println("单核调度：");
+            printStatistics(statistics);
+        }
+        if (coreStatistics != null) {
+            System.out.println("多核模拟：");
+            printStatistics(coreStatistics);
+        }
+    }
+
+    private static void printStatistics(ScheduleStatistics statistics) {
+        System.out.print(statistics);
+        System.out.printf("%-10s %-15s %10s %10s %10s\n", "ID", "名称", "时间片数", "周转时间", "等待时间");
+        for (int slot = 0; slot < processes.size(); slot++) {
+            Process p = processes.get(slot);
+            System.out.printf("%-10d %-15s %10d %10s %10s\n", p.getpID(), p.getpName(), statistics.sliceCount(slot),
+                    statistics.turnaround(slot) < 0 ? "未完成" : String.valueOf(statistics.turnaround(slot)),
+                    statistics.waiting(slot) < 0 ? "未完成" : String.valueOf(statistics.waiting(slot)));
+        }
+    }
+
     /**
      * 向进程调度系统中添加指定数量的进程。
      *
@@ -236,8 +555,8 @@ public class ProcessScheduleApp {
      * <p>对于每一个要添加的进程，方法会提示用户输入进程的相关信息，包括ID、名称、最短执行时间和最长执行时间。
      * <p>如果用户输入的最短执行时间大于或等于最长执行时间，
      *            方法会提示用户重新输入最长执行时间，直到最短执行时间小于最长执行时间为止。
-     * <p>如果进程是否已经存在于 processTodo 映射中，方法会打印一条消息并跳过当前循环，不会添加这个进程。
-     * <p>如果进程不存在于 processTodo 映射中，方法会将新的 Process 对象添加到 processTodo 映射中，
+     * <p>如果进度表 progress 中已有相同 ID 的进程，方法会打印一条消息并跳过当前循环，不会添加这个进程。
+     * <p>如果进度表中没有该 ID，方法会为新的 Process 对象分配槽位并加入进程列表，
      *            并将其执行时间初始化为0。
      */
     private static void addProcess(int num){
@@ -261,17 +580,164 @@ public class ProcessScheduleApp {
                 continue;
            }
             Process process = new Process(id, name, (long)min, (long)max);
-            if(processTodoMap.containsKey(process)){
+            if(progress.contains(id)){
                 System.out.println("该进程已存在，添加失败");
                i--;
                 continue;
             }
-            processes.add(process);
-            processTodoMap.put(process, 0L);
+            appendProcess(process, -1);
             System.out.println("添加进程成功");
         }
     }
 
+    /**
+     * 将进程追加到进程列表末尾，并初始化其执行时间与到达时间
+     * @param process 进程
+     * @param arrival 到达时间，-1表示未指定
+     */
+    private static void appendProcess(Process process, long arrival) {
+        if (progress.add(process.getpID(), arrival) >= 0)
+            processes.add(process);
+    }
+
+    /**
+     * 从文件流式导入进程，每行格式为 ID,名称,最短执行时间,最长执行时间[,到达时间]。
+     * <p>与已有进程 ID 重复、最短执行时间不小于最长执行时间或格式错误的行被跳过，导入结束后统一报告。
+     * <p>在线调度正在进行时，每批导入的进程立即提交给在线模拟，在当前时刻（或其指定的更晚到达时间）到达。
+     * @param path 文件路径
+     */
+    private static void importProcesses(Path path) {
+        ProcessTraceImporter importer = new ProcessTraceImporter();
+        for (Process p : processes)
+            importer.reserve(p.getpID());
+        try {
+            ProcessTraceImporter.ImportReport report = importer.importFile(path, (batch, arrivals) -> {
+                for (int i = 0; i < batch.size(); i++)
+                    appendProcess(batch.get(i), arrivals[i]);
+                if (online != null)
+                    submitArrivals();
+            });
+            System.out.print(report);
+        } catch (IOException e) {
+            System.out.println("文件读取失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 把调度时间轴与进程表保存为二进制调度轨迹文件
+     * @param path 文件路径
+     */
+    private static void saveTrace(Path path) {
+        if (processSchedule.isEmpty()) {
+            System.out.println("未开始调度");
+            return;
+        }
+        try {
+            long count = ScheduleTraceWriter.save(path, processes, processSchedule);
+            System.out.println("已保存 " + count + " 个时间片");
+        } catch (IOException e) {
+            System.out.println("文件写入失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 从二进制调度轨迹文件回放调度：轨迹中尚未存在的进程被加入进程列表，每个时间片写入调度时间轴并更新统计。
+     * <p>为保持时间轴一致，只能在尚未调度时载入。
+     * @param path 文件路径
+     */
+    private static void loadTrace(Path path) {
+        if (!processSchedule.isEmpty() || flag != 0) {
+            System.out.println("已有调度，无法载入轨迹");
+            return;
+        }
+        if (!validateTrace(path))
+            return;
+        try (ScheduleTraceReader reader = new ScheduleTraceReader(path)) {
+            Map<Long, Process> defined = new HashMap<>();
+            for (Process p : reader.processes())
+                defined.put(p.getpID(), p);
+            long count = 0;
+            while (reader.next()) {
+                int slot = progress.slotOf(reader.pID());
+                if (slot < 0) {
+                    Process p = defined.get(reader.pID());
+                    if (p == null) {
+                        System.out.println("轨迹中的进程 " + reader.pID() + " 没有定义，已跳过");
+                        continue;
+                    }
+                    appendProcess(p, -1);
+                    slot = progress.slotOf(reader.pID());
+                }
+                Process p = processes.get(slot);
+                try {
+                    processSchedule.insert(reader.start(), reader.end(), p);
+                } catch (NonlapException e) {
+                    System.out.println("同种进程时间重叠");
+                    continue;
+                } catch (NonperiodicException e) {
+                    System.out.println("不符合非周期性");
+                    continue;
+                }
+                long before = progress.executed(slot);
+                long after = before + reader.end() - reader.start();
+                progress.setExecuted(slot, after);
+                statistics.onSlice(slot, reader.start(), reader.end());
+                if (before < p.getMinEXT() && after >= p.getMinEXT())
+                    statistics.onComplete(slot, Math.max(0, progress.arrival(slot)), reader.end(), after);
+                count++;
+            }
+            flag = 1;
+            System.out.println("已载入 " + count + " 个时间片");
+        } catch (IOException e) {
+            System.out.println("文件读取失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 载入前对整个轨迹做一次批量校验，报告所有重叠、未定义进程与超过最长执行时间的时间片
+     * @param path 文件路径
+     * @return 校验通过时返回true
+     */
+    private static boolean validateTrace(Path path) {
+        ScheduleValidator validator = new ScheduleValidator("个时间片");
+        LongLongMap maxExecution = new LongLongMap(-1);
+        for (int slot = 0; slot < processes.size(); slot++)
+            maxExecution.put(processes.get(slot).getpID(), processes.get(slot).getMaxEXT());
+        try (ScheduleTraceReader reader = new ScheduleTraceReader(path)) {
+            for (Process p : reader.processes()) {
+                if (!maxExecution.containsKey(p.getpID()))
+                    maxExecution.put(p.getpID(), p.getMaxEXT());
+            }
+            long index = 0;
+            while (reader.next())
+                validator.add(reader.start(), reader.end(), reader.pID(), index++);
+        } catch (IOException e) {
+            System.out.println("文件读取失败：" + e.getMessage());
+            return false;
+        }
+        ScheduleValidator.Report report = validator.validateTimeline(maxExecution);
+        if (!report.isValid())
+            System.out.print(report);
+        return report.isValid();
+    }
+
+    /**
+     * 比较两个调度轨迹文件，报告第一个不同的时间片
+     * @param a 一个轨迹文件
+     * @param b 另一个轨迹文件
+     */
+    private static void compareTraces(Path a, Path b) {
+        try {
+            long index = ScheduleTraceReader.firstDifference(a, b);
+            if (index < 0)
+                System.out.println("两个调度轨迹完全相同");
+            else
+                System.out.println("两个调度轨迹从第 " + index + " 个时间片开始不同");
+        } catch (IOException e) {
+            System.out.println("文件读取失败：" + e.getMessage());
+        }
+    }
+
     /**
      * 返回调度时间轴中的信息
      * @return 一个包含每个标签的调度时间的List<List<long[]>
@@ -304,6 +770,18 @@ public class ProcessScheduleApp {
      * <p>选择2->进行随机调度
      * <p>选择3->进行最短进程优先调度
      * <p>选择4->展示调度情况
+     * <p>选择5->进行时间片轮转调度
+     * <p>选择6->进行多级反馈队列调度
+     * <p>选择7->进行最早截止期限优先调度
+     * <p>选择8->对比各调度引擎性能
+     * <p>选择9->进行多核离散事件模拟
+     * <p>选择10->进行多核负载均衡调度
+     * <p>选择11->从文件导入进程
+     * <p>选择12->展示调度统计
+     * <p>选择13->保存调度轨迹
+     * <p>选择14->载入调度轨迹
+     * <p>选择15->对比调度轨迹
+     * <p>选择16->在线调度
      * <p>选择0->退出调度系统
      */
     private static void menu(){
@@ -312,9 +790,21 @@ public class ProcessScheduleApp {
         System.out.println("2.随机调度");
         System.out.println("3.最短进程优先原则调度");
         System.out.println("4.调度情况展示");
+        System.out.println("5.时间片轮转调度");
+        System.out.println("6.多级反馈队列调度");
+        System.out.println("7.最早截止期限优先调度");
+        System.out.println("8.调度引擎性能对比");
+        System.out.println("9.多核离散事件模拟");
+        System.out.println("10.多核负载均衡调度");
+        System.out.println("11.从文件导入进程");
+        System.out.println("12.调度统计");
+        System.out.println("13.保存调度轨迹");
+        System.out.println("14.载入调度轨迹");
+        System.out.println("15.对比调度轨迹");
+        System.out.println("16.在线调度");
         System.out.println("0.退出调度系统");
         System.out.println();
-        System.out.print("请输入要使用的功能(0~4):");
+        System.out.print("请输入要使用的功能(0~16):");
         int choice =readNum();
         switch (choice){
             case 0:
@@ -335,8 +825,65 @@ public class ProcessScheduleApp {
             case 4:
                 showProcess();
                 break;
+            case 5:
+                engineGet(new RoundRobinScheduler(readQuantum()));
+                break;
+            case 6:
+                long quantum = readQuantum();
+                engineGet(new MultiLevelFeedbackScheduler(3, quantum, quantum * 50));
+                break;
+            case 7:
+                engineGet(new EarliestDeadlineScheduler());
+                break;
+            case 8:
+                compareEngines(readQuantum());
+                break;
+            case 9:
+                ProcessScheduler engine = chooseEngine().get();
+                int cores = readCores();
+                System.out.print("两次I/O间的执行时间(0表示无I/O): ");
+                int ioInterval = readNum();
+                int ioLatency = 0;
+                if (ioInterval > 0) {
+                    System.out.print("每次I/O的等待时间: ");
+                    ioLatency = readNum();
+                }
+                multiCoreGet(engine, cores, ioInterval, ioLatency);
+                break;
+            case 10:
+                Supplier<ProcessScheduler> engineFactory = chooseEngine();
+                int coreCount = readCores();
+                System.out.print("放置策略(1.最小负载，各核心并行模拟 2.工作窃取): ");
+                MultiCoreSchedule.Placement placement = readNum() == 2
+                        ? MultiCoreSchedule.Placement.WORK_STEALING : MultiCoreSchedule.Placement.LEAST_LOADED;
+                multiCoreBalance(engineFactory, coreCount, placement);
+                break;
+            case 11:
+                System.out.print("请输入进程文件路径: ");
+                importProcesses(Paths.get(input.next()));
+                break;
+            case 12:
+                showStatistics();
+                break;
+            case 13:
+                System.out.print("请输入轨迹文件路径: ");
+                saveTrace(Paths.get(input.next()));
+                break;
+            case 14:
+                System.out.print("请输入轨迹文件路径: ");
+                loadTrace(Paths.get(input.next()));
+                break;
+            case 15:
+                System.out.print("请输入第一个轨迹文件路径: ");
+                Path first = Paths.get(input.next());
+                System.out.print("请输入第二个轨迹文件路径: ");
+                compareTraces(first, Paths.get(input.next()));
+                break;
+            case 16:
+                onlineGet();
+                break;
             default:
-                System.out.println("输入非法，请输入0~4的数字");
+                System.out.println("输入非法，请输入0~16的数字");
         }
     }
     public static void main(String[] args) {
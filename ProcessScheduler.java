@@ -0,0 +1,92 @@
+package application;
+
+/**
+ * 可插拔的进程调度策略。
+ * <p>策略只维护就绪队列，进程以其在进程列表中的槽位编号表示；
+ * 时间推进、执行时间片的计算与写入调度时间轴由 {@link ScheduleRunner} 负责。
+ * <p>ScheduleRunner 在每个时间片结束时调用 {@link #sliceEnd}，未执行完毕的进程会再次通过 {@link #offer} 回到就绪队列。
+ */
+public interface ProcessScheduler {
+    /**
+     * @return 调度策略名称，用于展示与性能对比
+     */
+    String name();
+
+    /**
+     * 为新一轮调度清空内部队列
+     * @param deadline 每个槽位的绝对截止时间，不使用截止时间的策略可忽略
+     */
+    void reset(long[] deadline);
+
+    /**
+     * 进程槽位增加、截止时间数组被换成更大的数组时调用，不清空就绪队列
+     * @param deadline 新的截止时间数组，已有槽位的值不变
+     */
+    default void deadlinesResized(long[] deadline) {
+    }
+
+    /**
+     * 进程进入就绪状态
+     * @param slot 进程槽位
+     * @param now 当前时刻
+     */
+    void offer(int slot, long now);
+
+    /**
+     * 进程带着在其他就绪队列中的优先级别进入就绪状态，用于在核心之间迁移进程；不分级的策略与 {@link #offer(int, long)} 相同
+     * @param slot 进程槽位
+     * @param now 当前时刻
+     * @param level 进程原来的优先级别，由 {@link #level(int)} 得到
+     */
+    default void offer(int slot, long now, int level) {
+        offer(slot, now);
+    }
+
+    /**
+     * @param slot 进程槽位
+     * @return 该进程当前的优先级别，不分级的策略返回0
+     */
+    default int level(int slot) {
+        return 0;
+    }
+
+    /**
+     * 取出下一个要执行的进程
+     * @param now 当前时刻
+     * @return 进程槽位，就绪队列为空时返回-1
+     */
+    int poll(long now);
+
+    /**
+     * @param slot 即将执行的进程槽位
+     * @return 该进程本次最多可执行的时间，不限制时返回 Long.MAX_VALUE
+     */
+    long quantum(int slot);
+
+    /**
+     * 时间片结束时的回调，供需要根据执行情况调整优先级的策略使用
+     * @param slot 进程槽位
+     * @param ran 本次实际执行时间
+     * @param finished 进程是否已执行完毕
+     */
+    void sliceEnd(int slot, long ran, boolean finished);
+
+    /**
+     * @return 就绪队列是否为空
+     */
+    boolean isEmpty();
+
+    /**
+     * @return 新进程到达时是否需要抢占正在执行的进程
+     */
+    boolean preemptOnArrival();
+
+    /**
+     * 抢占式策略用来比较进程的先后：到达的进程只抢占排序值最大的正在执行的进程，且仅当自己的排序值更小时
+     * @param slot 进程槽位
+     * @return 排序值，越小越优先
+     */
+    default long rank(int slot) {
+        return 0;
+    }
+}
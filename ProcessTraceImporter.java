@@ -0,0 +1,244 @@
+package application;
+
+import entity.Process;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 以流的方式从文本文件导入进程定义。
+ * <p>每行一个进程：{@code ID,名称,最短执行时间,最长执行时间[,到达时间]}。
+ * 含逗号的行只以逗号分隔字段，字段两端的空白被去掉，因此名称中可以含有空格；
+ * 不含逗号的行以空白分隔字段，此时名称中不能有空格。空行与以 # 开头的注释行被忽略。
+ * <p>导入时一次遍历完成校验：字段个数与数字格式、名称非空、最短执行时间小于最长执行时间、ID 不重复。
+ * 不合法的行被跳过并记录到 {@link ImportReport}，合法的进程每攒够一批便交给 {@link BatchSink}，
+ * 因此内存占用只与批大小和已出现的 ID 个数有关，与文件大小无关。
+ */
+public class ProcessTraceImporter {
+    /**
+     * 接收一批已通过校验的进程
+     */
+    public interface BatchSink {
+        /**
+         * @param batch 本批进程，调用返回后列表会被复用，需要保留时应自行拷贝
+         * @param arrivals 与batch对应的到达时间，未给出到达时间的进程为-1；调用返回后数组会被复用
+         */
+        void accept(List<Process> batch, long[] arrivals);
+    }
+
+    private static final int DEFAULT_BATCH = 4096;
+
+    private final int batchSize;
+    private final LongHashSet seenIDs = new LongHashSet();
+    //Abstraction function:
+    //  AF(batchSize, seenIDs) = 每批交付batchSize个进程、已出现过seenIDs中ID的导入器
+    //Representation invariant:
+    //  batchSize > 0
+    //Safety from rep exposure:
+    //  成员变量均为private final，不返回seenIDs
+
+    public ProcessTraceImporter() {
+        this(DEFAULT_BATCH);
+    }
+
+    /**
+     * @param batchSize 每批交付的进程个数
+     * @throws IllegalArgumentException 批大小不为正
+     */
+    public ProcessTraceImporter(int batchSize) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("批大小必须为正");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 登记一个已经存在的进程 ID，之后导入的同 ID 进程视为重复
+     * @param pID 进程ID
+     */
+    public void reserve(long pID) {
+        seenIDs.add(pID);
+    }
+
+    /**
+     * 从文件导入进程
+     * @param path 文件路径
+     * @param sink 接收每批进程
+     * @return 导入报告
+     * @throws IOException 文件读取失败
+     */
+    public ImportReport importFile(Path path, BatchSink sink) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return importFrom(reader, sink);
+        }
+    }
+
+    /**
+     * 从字符流导入进程
+     * @param source 字符流，不会被关闭
+     * @param sink 接收每批进程
+     * @return 导入报告
+     * @throws IOException 读取失败
+     */
+    public ImportReport importFrom(Reader source, BatchSink sink) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader
+                ? (BufferedReader) source : new BufferedReader(source, 1 << 16);
+        ImportReport report = new ImportReport();
+        List<Process> batch = new ArrayList<>(batchSize);
+        long[] arrivals = new long[batchSize];
+        String[] fields = new String[5];
+        String line;
+        long lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            int count = split(line, fields);
+            if (count == 0 || fields[0].startsWith("#"))
+                continue;
+            String error = parse(fields, count, batch, arrivals);
+            if (error != null) {
+                report.reject(lineNo, error);
+                continue;
+            }
+            report.accept();
+            if (batch.size() == batchSize) {
+                sink.accept(batch, arrivals);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            sink.accept(batch, arrivals);
+        return report;
+    }
+
+    /**
+     * 校验一行的字段，合法时把进程追加到batch
+     * @return 不合法的原因，合法时返回null
+     */
+    private String parse(String[] fields, int count, List<Process> batch, long[] arrivals) {
+        if (count != 4 && count != 5)
+            return "字段个数应为4或5，实际为" + count;
+        long id;
+        long min;
+        long max;
+        long arrival = -1;
+        try {
+            id = Long.parseLong(fields[0]);
+            min = Long.parseLong(fields[2]);
+            max = Long.parseLong(fields[3]);
+            if (count == 5)
+                arrival = Long.parseLong(fields[4]);
+        } catch (NumberFormatException e) {
+            return "数字格式错误";
+        }
+        if (fields[1].isEmpty())
+            return "进程名称不能为空";
+        if (id < 0 || min < 0 || (count == 5 && arrival < 0))
+            return "ID、执行时间与到达时间不能为负";
+        if (min >= max)
+            return "最短执行时间大于或等于最长执行时间";
+        if (!seenIDs.add(id))
+            return "进程ID " + id + " 重复";
+        arrivals[batch.size()] = arrival;
+        batch.add(new Process(id, fields[1], min, max));
+        return null;
+    }
+
+    /**
+     * 分隔一行，不使用正则：含逗号时只以逗号分隔，并去掉每个字段两端的空白，空字段也计数；否则以空白分隔
+     * @return 字段个数，空行为0；超过fields长度的字段只计数不保存
+     */
+    static int split(String line, String[] fields) {
+        int n = line.length();
+        if (line.indexOf(',') < 0) {
+            int count = 0;
+            int i = 0;
+            while (i < n) {
+                while (i < n && isBlank(line.charAt(i)))
+                    i++;
+                if (i >= n)
+                    break;
+                int begin = i;
+                while (i < n && !isBlank(line.charAt(i)))
+                    i++;
+                if (count < fields.length)
+                    fields[count] = line.substring(begin, i);
+                count++;
+            }
+            return count;
+        }
+        int count = 0;
+        int begin = 0;
+        while (true) {
+            int comma = line.indexOf(',', begin);
+            int end = comma < 0 ? n : comma;
+            int from = begin;
+            int to = end;
+            while (from < to && isBlank(line.charAt(from)))
+                from++;
+            while (to > from && isBlank(line.charAt(to - 1)))
+                to--;
+            if (count < fields.length)
+                fields[count] = line.substring(from, to);
+            count++;
+            if (comma < 0)
+                return count;
+            begin = comma + 1;
+        }
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * 一次导入的结果统计，只保留前若干条错误信息
+     */
+    public static class ImportReport {
+        private static final int MAX_MESSAGES = 20;
+
+        private long accepted = 0;
+        private long rejected = 0;
+        private final List<String> messages = new ArrayList<>();
+
+        private void accept() {
+            accepted++;
+        }
+
+        private void reject(long lineNo, String reason) {
+            rejected++;
+            if (messages.size() < MAX_MESSAGES)
+                messages.add("第" + lineNo + "行：" + reason);
+        }
+
+        public long getAccepted() {
+            return accepted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return 前若干条错误信息的拷贝
+         */
+        public List<String> getMessages() {
+            return new ArrayList<>(messages);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("成功导入 ").append(accepted).append(" 个进程，跳过 ").append(rejected).append(" 行\n");
+            for (String message : messages)
+                sb.append(message).append('\n');
+            if (rejected > messages.size())
+                sb.append("……其余 ").append(rejected - messages.size()).append(" 条错误未列出\n");
+            return sb.toString();
+        }
+    }
+}
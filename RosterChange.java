@@ -0,0 +1,137 @@
+package application;
+
+import java.util.List;
+
+/**
+ * 值班表的一次修改，不可变。
+ * <p>只记录修改的种类、员工姓名与时间段，不持有员工或值班表对象，订阅者无法通过事件修改值班表。
+ * 时间段的编码与值班表相同（见 {@link TimeCodec}），两端都包含在内；员工增删事件的时间段为-1。
+ * <p>轮换规则的增删只记录为一条规则事件，事件的时间段为规则的范围，规则不展开为各班的排班事件；
+ * 订阅者需要各班时可按规则的轮换顺序自行算出。
+ */
+public final class RosterChange {
+    /**
+     * 修改的种类
+     */
+    public enum Kind {
+        EMPLOYEE_ADDED("新增员工"),
+        EMPLOYEE_REMOVED("删除员工"),
+        DUTY_ADDED("新增排班"),
+        DUTY_REMOVED("删除排班"),
+        ROTATION_ADDED("新增轮换规则"),
+        ROTATION_REMOVED("删除轮换规则"),
+        RESET("整体替换");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final long start;
+    private final long end;
+    //Abstraction function:
+    //  AF = 对员工name的一次kind种类的修改，排班修改涉及的时间段为[start, end]；
+    //       轮换规则修改时name为按轮换顺序排列的人员，[start, end]为规则的起止时间；
+    //       RESET表示值班表被整体替换（撤销、重做、切换方案），name为null
+    //Representation invariant:
+    //  排班与轮换规则修改时 start <= end，其余种类 start == end == -1
+    //Safety from rep exposure:
+    //  成员变量均为private final且不可变
+
+    private RosterChange(Kind kind, String name, long start, long end) {
+        this.kind = kind;
+        this.name = name;
+        this.start = start;
+        this.end = end;
+    }
+
+    public static RosterChange employeeAdded(String name) {
+        return new RosterChange(Kind.EMPLOYEE_ADDED, name, -1, -1);
+    }
+
+    public static RosterChange employeeRemoved(String name) {
+        return new RosterChange(Kind.EMPLOYEE_REMOVED, name, -1, -1);
+    }
+
+    public static RosterChange dutyAdded(String name, long start, long end) {
+        return new RosterChange(Kind.DUTY_ADDED, name, start, end);
+    }
+
+    public static RosterChange dutyRemoved(String name, long start, long end) {
+        return new RosterChange(Kind.DUTY_REMOVED, name, start, end);
+    }
+
+    /**
+     * @param members 按轮换顺序排列的人员姓名
+     * @param start 规则的开始时间
+     * @param end 规则的结束时间
+     * @return 新增轮换规则的事件
+     */
+    public static RosterChange rotationAdded(List<String> members, long start, long end) {
+        return new RosterChange(Kind.ROTATION_ADDED, String.join("、", members), start, end);
+    }
+
+    /**
+     * @param members 按轮换顺序排列的人员姓名
+     * @param start 规则的开始时间
+     * @param end 规则的结束时间
+     * @return 删除轮换规则的事件
+     */
+    public static RosterChange rotationRemoved(List<String> members, long start, long end) {
+        return new RosterChange(Kind.ROTATION_REMOVED, String.join("、", members), start, end);
+    }
+
+    /**
+     * @return 值班表被整体替换的事件，订阅者应重新读取整个值班表
+     */
+    public static RosterChange reset() {
+        return new RosterChange(Kind.RESET, null, -1, -1);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @param codec 值班表的时间编码
+     * @return 修改的文字描述
+     */
+    public String describe(TimeCodec codec) {
+        switch (kind) {
+            case DUTY_ADDED:
+            case DUTY_REMOVED:
+            case ROTATION_ADDED:
+            case ROTATION_REMOVED:
+                return "[" + kind.getDescription() + "] " + name + " " + codec.formatRange(start, end);
+            case RESET:
+                return "[" + kind.getDescription() + "]";
+            default:
+                return "[" + kind.getDescription() + "] " + name;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return describe(TimeCodec.DAY);
+    }
+}
@@ -0,0 +1,106 @@
+package application;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * 把值班表修改按批追加写入文本文件的订阅者。
+ * <p>每处理完一批才请求下一批，写文件较慢时未处理的批次留在 {@link RosterChangeStream} 为它保留的缓冲区中，
+ * 缓冲区满后新的批次被丢弃，而不会拖慢修改值班表的线程；此后日志中会出现一条整体替换记录，表示其前缺失了部分修改。
+ */
+public class RosterChangeLog implements Flow.Subscriber<List<RosterChange>> {
+    private final BufferedWriter out;
+    private final TimeCodec codec;
+    private volatile Flow.Subscription subscription;
+    private volatile long written = 0;
+    private boolean closed = false;
+    //Abstraction function:
+    //  AF = 把收到的每批修改按codec格式化后写入out的订阅者，已写入written条修改
+    //Representation invariant:
+    //  subscription在onSubscribe之后不为null；closed之后不再写out
+    //Safety from rep exposure:
+    //  成员变量均为private
+
+    /**
+     * @param path 日志文件，已存在时追加
+     * @param codec 值班表的时间编码
+     * @throws IOException 文件无法打开
+     */
+    public RosterChangeLog(Path path, TimeCodec codec) throws IOException {
+        this.out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.codec = codec;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public synchronized void onNext(List<RosterChange> changes) {
+        if (closed)
+            return;
+        try {
+            out.write("# " + LocalDateTime.now() + " " + changes.size() + "条修改");
+            out.newLine();
+            for (RosterChange change : changes) {
+                out.write(change.describe(codec));
+                out.newLine();
+            }
+            out.flush();
+            written += changes.size();
+        } catch (IOException e) {
+            subscription.cancel();
+            onError(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println("修改日志写入失败：" + throwable.getMessage());
+        close();
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    /**
+     * 取消订阅并关闭日志文件
+     */
+    public void cancel() {
+        if (subscription != null)
+            subscription.cancel();
+        close();
+    }
+
+    /**
+     * @return 已写入的修改数
+     */
+    public long written() {
+        return written;
+    }
+
+    private synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            // 已关闭
+        }
+    }
+}
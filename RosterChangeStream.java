@@ -0,0 +1,240 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 值班表修改的发布-订阅流，基于 {@link java.util.concurrent.Flow}。
+ * <p>修改先在当前批次中累积，{@link #flush} 时（或批次达到上限时）把整批作为一个不可修改的 list 发布，
+ * 订阅者每次请求得到一批修改而不是一条。
+ * <p>每个订阅者有一个容量有限的缓冲区，按 Flow 的请求数接收批次。发布时使用非阻塞的
+ * {@link SubmissionPublisher#offer}：某个订阅者的缓冲区已满时丢弃发给它的这一批并计数，
+ * 因此慢订阅者不会阻塞修改值班表的线程，也不会影响其他订阅者。
+ * 被丢弃过批次的订阅者此后收到的第一批以一条 {@link RosterChange#reset()} 开头，提示它重新读取整个值班表；
+ * 丢弃后暂时没有新的修改时，下一次 {@link #flush} 会单独为它发布这条事件。
+ * <p>订阅者在固定数目的守护线程中接收批次，应用退出时应调用 {@link #close} 发布剩余的修改并停止这些线程。
+ */
+public class RosterChangeStream implements AutoCloseable {
+    /** 单个批次的默认事件数上限 */
+    static final int DEFAULT_BATCH = 256;
+    /** 每个订阅者默认缓冲的批次数 */
+    static final int DEFAULT_BUFFER = 64;
+    /** 向订阅者投递批次的线程数 */
+    private static final int DELIVERY_THREADS = 2;
+    /** 关闭时等待订阅者处理完缓冲区的最长毫秒数 */
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+
+    private final int maxBatch;
+    private final ExecutorService executor;
+    private final SubmissionPublisher<Batch> publisher;
+    private List<RosterChange> batch = new ArrayList<>();
+    private long published = 0;
+    private long sequence = 0;
+    private final AtomicLong droppedBatches = new AtomicLong();
+    private final AtomicLong droppedChanges = new AtomicLong();
+    private final AtomicInteger awaitingReset = new AtomicInteger();
+    //Abstraction function:
+    //  AF = 已发布published个修改、尚有batch中的修改待发布的修改流，
+    //       因订阅者缓冲区已满而丢弃的批次与修改分别为droppedBatches、droppedChanges，
+    //       awaitingReset个订阅者在丢弃后尚未收到RESET
+    //Representation invariant:
+    //  maxBatch > 0，batch.size() < maxBatch（emit之间）；sequence为最近一次发布的批次序号
+    //Safety from rep exposure:
+    //  成员变量均为private，发布的批次是不可修改的list，batch在发布后换成新的list
+
+    /**
+     * 使用默认的批次上限与缓冲区容量
+     */
+    public RosterChangeStream() {
+        this(DEFAULT_BATCH, DEFAULT_BUFFER);
+    }
+
+    /**
+     * @param maxBatch 单个批次的事件数上限，当前批次达到上限时立即发布
+     * @param bufferPerSubscriber 每个订阅者最多缓冲的批次数，会被向上取整为2的幂
+     * @throws IllegalArgumentException 参数不为正
+     */
+    public RosterChangeStream(int maxBatch, int bufferPerSubscriber) {
+        if (maxBatch <= 0 || bufferPerSubscriber <= 0)
+            throw new IllegalArgumentException("批次上限与缓冲区容量必须为正");
+        this.maxBatch = maxBatch;
+        this.executor = Executors.newFixedThreadPool(DELIVERY_THREADS, task -> {
+            Thread thread = new Thread(task, "roster-changes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher = new SubmissionPublisher<>(executor, bufferPerSubscriber);
+    }
+
+    /**
+     * 订阅修改流，订阅者需要通过 {@link Flow.Subscription#request} 请求批次
+     * @param subscriber 订阅者
+     */
+    public void subscribe(Flow.Subscriber<? super List<RosterChange>> subscriber) {
+        publisher.subscribe(new Resyncing(subscriber));
+    }
+
+    /**
+     * 记录一次修改，当前批次达到上限时立即发布
+     * @param change 修改
+     */
+    public synchronized void emit(RosterChange change) {
+        batch.add(change);
+        if (batch.size() >= maxBatch)
+            flush();
+    }
+
+    /**
+     * 发布当前批次；没有订阅者时只清空批次。当前批次为空时，只在有订阅者等待RESET时发布一个空批次。不会阻塞
+     */
+    public synchronized void flush() {
+        if (batch.isEmpty() && awaitingReset.get() == 0)
+            return;
+        List<RosterChange> items = Collections.unmodifiableList(batch);
+        batch = new ArrayList<>();
+        published += items.size();
+        if (!publisher.hasSubscribers())
+            return;
+        publisher.offer(new Batch(++sequence, items), (subscriber, dropped) -> {
+            droppedBatches.incrementAndGet();
+            droppedChanges.addAndGet(dropped.items.size());
+            ((Resyncing) subscriber).dropped(dropped.sequence);
+            return false;
+        });
+    }
+
+    /**
+     * @return 当前订阅者数
+     */
+    public int subscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * @return 已发布的修改数（不论是否有订阅者收到）
+     */
+    public synchronized long published() {
+        return published;
+    }
+
+    /**
+     * @return 因订阅者缓冲区已满而丢弃的批次数，每个订阅者分别计数
+     */
+    public long droppedBatches() {
+        return droppedBatches.get();
+    }
+
+    /**
+     * @return 因订阅者缓冲区已满而丢弃的修改数，每个订阅者分别计数
+     */
+    public long droppedChanges() {
+        return droppedChanges.get();
+    }
+
+    /**
+     * 一个已发布的批次及其序号
+     */
+    private static final class Batch {
+        private final long sequence;
+        private final List<RosterChange> items;
+
+        private Batch(long sequence, List<RosterChange> items) {
+            this.sequence = sequence;
+            this.items = items;
+        }
+    }
+
+    /**
+     * 包装一个订阅者：转发批次内容；该订阅者有批次被丢弃时，把丢弃之后的第一批换成以RESET开头的批次，
+     * 不含修改也无需RESET的空批次不转发，并代它再请求一批
+     */
+    private final class Resyncing implements Flow.Subscriber<Batch> {
+        private final Flow.Subscriber<? super List<RosterChange>> target;
+        // 最近一次被丢弃的批次序号，-1表示不需要RESET
+        private final AtomicLong droppedAt = new AtomicLong(-1);
+        private Flow.Subscription subscription;
+
+        private Resyncing(Flow.Subscriber<? super List<RosterChange>> target) {
+            this.target = target;
+        }
+
+        private void dropped(long sequence) {
+            if (droppedAt.getAndSet(sequence) < 0)
+                awaitingReset.incrementAndGet();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            target.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    forget();
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(Batch item) {
+            long at = droppedAt.get();
+            if (at >= 0 && item.sequence > at && droppedAt.compareAndSet(at, -1)) {
+                awaitingReset.decrementAndGet();
+                List<RosterChange> items = new ArrayList<>(item.items.size() + 1);
+                items.add(RosterChange.reset());
+                items.addAll(item.items);
+                target.onNext(Collections.unmodifiableList(items));
+            } else if (item.items.isEmpty()) {
+                subscription.request(1);
+            } else {
+                target.onNext(item.items);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            forget();
+            target.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            forget();
+            target.onComplete();
+        }
+
+        private void forget() {
+            if (droppedAt.getAndSet(-1) >= 0)
+                awaitingReset.decrementAndGet();
+        }
+    }
+
+    /**
+     * 发布剩余的修改后关闭流，订阅者在处理完缓冲区后收到 onComplete；
+     * 最多等待 {@value #CLOSE_TIMEOUT_MS} 毫秒让订阅者处理完，之后投递线程全部结束
+     */
+    @Override
+    public void close() {
+        flush();
+        publisher.close();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
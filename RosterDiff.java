@@ -0,0 +1,690 @@
+package application;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 两个值班表版本之间的差异，以及三个版本（共同祖先、我方、对方）的三方合并。
+ * <p>每个版本的排班是按开始时间排序、互不重叠的时间段。比较时对两边的时间段做一次有序归并：
+ * 游标每次前进到任一边的下一个端点，得到值班人不变的最小区间，因此代价为 O(n + m)，
+ * 与时间段的长度以及时间精度都无关，报告的也是整段的新增、删除与换人，而不是逐日的差异。
+ * 员工表按姓名散列后比较，代价同样是线性的。
+ * <p>三方合并同样对三个版本做一次归并：某段时间只有一方相对祖先做了修改时采用该修改，
+ * 两方修改相同时采用共同的结果，两方做了不同修改时记为冲突并暂时保留我方的排班。
+ * 合并结果中某位员工的排班不再连续时也记为冲突。
+ * <p>轮换规则不展开，每条规则在总时间段内的范围作为一段参与比较与合并，值班人记为描述规则的名称
+ * （如"轮换(A、B 每2天, 自2021-01-11)"），因此规则相同的两段相等，代价与规则的长度无关；
+ * 合并结果中保留其轮换标记，只检查显式排班是否连续。
+ */
+public final class RosterDiff {
+    /**
+     * 排班差异的种类
+     */
+    public enum Kind {
+        ADDED("新增排班"),
+        REMOVED("删除排班"),
+        REASSIGNED("换人");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Version before;
+    private final Version after;
+    private final List<Change> changes;
+    private final List<EmployeeChange> employeeChanges;
+    //Abstraction function:
+    //  AF = 从版本before到版本after的差异：排班差异changes与员工差异employeeChanges
+    //Representation invariant:
+    //  before与after的时间编码相同；changes按开始时间递增、互不重叠，相邻且种类与前后值班人都相同的差异已合并
+    //Safety from rep exposure:
+    //  成员变量均为private final，版本与各项差异不可变，列表以不可修改的视图返回
+
+    private RosterDiff(Version before, Version after, List<Change> changes, List<EmployeeChange> employeeChanges) {
+        this.before = before;
+        this.after = after;
+        this.changes = changes;
+        this.employeeChanges = employeeChanges;
+    }
+
+    /**
+     * 比较两个版本
+     * @param before 原版本
+     * @param after 新版本
+     * @return 从原版本到新版本的差异
+     * @throws IllegalArgumentException 两个版本的时间精度不同
+     */
+    public static RosterDiff compare(Version before, Version after) {
+        requireSameCodec(before, after);
+        List<Change> changes = new ArrayList<>();
+        sweep(new Version[]{before, after}, (start, end, owners, rotated) -> {
+            String a = owners[0];
+            String b = owners[1];
+            if (Objects.equals(a, b))
+                return;
+            Kind kind = a == null ? Kind.ADDED : b == null ? Kind.REMOVED : Kind.REASSIGNED;
+            Change last = changes.isEmpty() ? null : changes.get(changes.size() - 1);
+            if (last != null && last.end + 1 == start && last.kind == kind
+                    && Objects.equals(last.before, a) && Objects.equals(last.after, b))
+                changes.set(changes.size() - 1, new Change(kind, last.start, end, a, b));
+            else
+                changes.add(new Change(kind, start, end, a, b));
+        });
+        List<EmployeeChange> employeeChanges = new ArrayList<>();
+        for (Map.Entry<String, String[]> e : before.employees.entrySet()) {
+            String[] b = after.employees.get(e.getKey());
+            if (b == null)
+                employeeChanges.add(new EmployeeChange(EmployeeChange.REMOVED, e.getKey(), e.getValue(), null));
+            else if (!Arrays.equals(e.getValue(), b))
+                employeeChanges.add(new EmployeeChange(EmployeeChange.CHANGED, e.getKey(), e.getValue(), b));
+        }
+        for (Map.Entry<String, String[]> e : after.employees.entrySet()) {
+            if (!before.employees.containsKey(e.getKey()))
+                employeeChanges.add(new EmployeeChange(EmployeeChange.ADDED, e.getKey(), null, e.getValue()));
+        }
+        employeeChanges.sort(Comparator.comparing(EmployeeChange::getName));
+        return new RosterDiff(before, after, Collections.unmodifiableList(changes),
+                Collections.unmodifiableList(employeeChanges));
+    }
+
+    /**
+     * 三方合并
+     * @param base 共同祖先
+     * @param ours 我方版本
+     * @param theirs 对方版本
+     * @return 合并结果，其中记录了所有冲突
+     * @throws IllegalArgumentException 三个版本的时间精度不同
+     */
+    public static Merge merge(Version base, Version ours, Version theirs) {
+        requireSameCodec(base, ours);
+        requireSameCodec(base, theirs);
+        List<Conflict> conflicts = new ArrayList<>();
+
+        // 总时间段按与员工相同的规则合并
+        long[] period = pick(new long[]{base.periodStart, base.periodEnd}, new long[]{ours.periodStart, ours.periodEnd},
+                new long[]{theirs.periodStart, theirs.periodEnd});
+        if (period == null) {
+            conflicts.add(new Conflict("总时间段", ours.codec.formatRange(ours.periodStart, ours.periodEnd) + " / "
+                    + theirs.codec.formatRange(theirs.periodStart, theirs.periodEnd)));
+            period = new long[]{ours.periodStart, ours.periodEnd};
+        }
+
+        Map<String, String[]> employees = new LinkedHashMap<>();
+        Set<String> names = new LinkedHashSet<>(ours.employees.keySet());
+        names.addAll(theirs.employees.keySet());
+        names.addAll(base.employees.keySet());
+        for (String name : names) {
+            String[] b = base.employees.get(name);
+            String[] o = ours.employees.get(name);
+            String[] t = theirs.employees.get(name);
+            String[] chosen = pick(b, o, t);
+            if (chosen == null && !Arrays.equals(o, t)) {
+                conflicts.add(new Conflict("员工 " + name, describe(o) + " / " + describe(t)));
+                chosen = o;
+            }
+            if (chosen != null)
+                employees.put(name, chosen);
+        }
+
+        List<String> dutyNames = new ArrayList<>();
+        List<long[]> dutyRanges = new ArrayList<>();
+        List<Boolean> dutyRotated = new ArrayList<>();
+        // 只有在被修改过的时间段上出现过的员工，合并后的排班才可能不连续
+        Set<String> touched = new HashSet<>();
+        sweep(new Version[]{base, ours, theirs}, (start, end, owners, rotated) -> {
+            String b = owners[0];
+            String o = owners[1];
+            String t = owners[2];
+            if (!Objects.equals(o, b) || !Objects.equals(t, b)) {
+                touched.add(b);
+                touched.add(o);
+                touched.add(t);
+            }
+            String chosen;
+            boolean fromRotation;
+            if (Objects.equals(o, t) || Objects.equals(t, b)) {
+                chosen = o;
+                fromRotation = rotated[1];
+            } else if (Objects.equals(o, b)) {
+                chosen = t;
+                fromRotation = rotated[2];
+            } else {
+                Conflict last = conflicts.isEmpty() ? null : conflicts.get(conflicts.size() - 1);
+                if (last != null && last.end + 1 == start && Objects.equals(last.base, b)
+                        && Objects.equals(last.ours, o) && Objects.equals(last.theirs, t))
+                    conflicts.set(conflicts.size() - 1, new Conflict(last.start, end, b, o, t));
+                else
+                    conflicts.add(new Conflict(start, end, b, o, t));
+                chosen = o;
+                fromRotation = rotated[1];
+            }
+            if (chosen == null)
+                return;
+            int last = dutyNames.size() - 1;
+            if (last >= 0 && dutyNames.get(last).equals(chosen) && dutyRanges.get(last)[1] + 1 == start
+                    && dutyRotated.get(last) == fromRotation)
+                dutyRanges.get(last)[1] = end;
+            else {
+                dutyNames.add(chosen);
+                dutyRanges.add(new long[]{start, end});
+                dutyRotated.add(fromRotation);
+            }
+        });
+
+        Map<String, Integer> seen = new HashMap<>();
+        for (int i = 0; i < dutyNames.size(); i++) {
+            String name = dutyNames.get(i);
+            if (!touched.contains(name))
+                continue;
+            Integer previous = dutyRotated.get(i) ? null : seen.put(name, i);
+            if (previous != null)
+                conflicts.add(new Conflict("员工 " + name, "合并后的排班不连续："
+                        + ours.codec.formatRange(dutyRanges.get(previous)[0], dutyRanges.get(previous)[1]) + " 与 "
+                        + ours.codec.formatRange(dutyRanges.get(i)[0], dutyRanges.get(i)[1])));
+            if (!dutyRotated.get(i) && !employees.containsKey(name))
+                conflicts.add(new Conflict("员工 " + name, "合并后有排班但已被删除"));
+        }
+
+        long[] starts = new long[dutyNames.size()];
+        long[] ends = new long[dutyNames.size()];
+        boolean[] rotated = new boolean[dutyNames.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = dutyRanges.get(i)[0];
+            ends[i] = dutyRanges.get(i)[1];
+            rotated[i] = dutyRotated.get(i);
+        }
+        Version merged = new Version(ours.codec, period[0], period[1], employees, starts, ends,
+                dutyNames.toArray(new String[0]), rotated);
+        conflicts.sort((x, y) -> Long.compare(x.start, y.start));
+        return new Merge(merged, Collections.unmodifiableList(conflicts));
+    }
+
+    /**
+     * 三方合并的通用规则
+     * @return 采用的值；两方做了不同修改时为null（此时调用者需区分"两方都删除"的null）
+     */
+    private static <T> T pick(T base, T ours, T theirs) {
+        if (same(ours, theirs) || same(theirs, base))
+            return ours;
+        if (same(ours, base))
+            return theirs;
+        return null;
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a instanceof long[] && b instanceof long[])
+            return Arrays.equals((long[]) a, (long[]) b);
+        if (a instanceof String[] && b instanceof String[])
+            return Arrays.equals((String[]) a, (String[]) b);
+        return Objects.equals(a, b);
+    }
+
+    private static void requireSameCodec(Version a, Version b) {
+        if (a.codec != b.codec)
+            throw new IllegalArgumentException("两个值班表的时间精度不同");
+    }
+
+    private static String describe(String[] info) {
+        return info == null ? "(已删除)" : info[0] + "," + info[1];
+    }
+
+    /**
+     * 对k个版本的时间段做一次有序归并，按时间顺序对每个至少一个版本有人值班、且各版本值班人都不变的最小区间调用visitor，
+     * 同时给出各版本中这段排班是否为轮换中的一班
+     */
+    private static void sweep(Version[] versions, SegmentVisitor visitor) {
+        int k = versions.length;
+        int[] at = new int[k];
+        String[] owners = new String[k];
+        boolean[] rotated = new boolean[k];
+        long pos = Long.MIN_VALUE;
+        while (true) {
+            boolean any = false;
+            long next = Long.MAX_VALUE;
+            for (int v = 0; v < k; v++) {
+                Version ver = versions[v];
+                while (at[v] < ver.starts.length && ver.ends[at[v]] < pos)
+                    at[v]++;
+                owners[v] = null;
+                rotated[v] = false;
+                if (at[v] == ver.starts.length)
+                    continue;
+                if (ver.starts[at[v]] <= pos) {
+                    owners[v] = ver.names[at[v]];
+                    rotated[v] = ver.rotated[at[v]];
+                    any = true;
+                    next = Math.min(next, ver.ends[at[v]] + 1);
+                } else {
+                    next = Math.min(next, ver.starts[at[v]]);
+                }
+            }
+            if (next == Long.MAX_VALUE)
+                return;
+            if (any)
+                visitor.visit(pos, next - 1, owners, rotated);
+            pos = next;
+        }
+    }
+
+    private interface SegmentVisitor {
+        void visit(long start, long end, String[] owners, boolean[] rotated);
+    }
+
+    public Version getBefore() {
+        return before;
+    }
+
+    public Version getAfter() {
+        return after;
+    }
+
+    /**
+     * @return 排班差异，按开始时间排序
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return 员工差异，按姓名排序
+     */
+    public List<EmployeeChange> getEmployeeChanges() {
+        return employeeChanges;
+    }
+
+    /**
+     * @return 总时间段是否改变
+     */
+    public boolean isPeriodChanged() {
+        return before.periodStart != after.periodStart || before.periodEnd != after.periodEnd;
+    }
+
+    /**
+     * @return 两个版本是否完全相同
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty() && employeeChanges.isEmpty() && !isPeriodChanged();
+    }
+
+    @Override
+    public String toString() {
+        TimeCodec codec = before.codec;
+        StringBuilder sb = new StringBuilder();
+        if (isPeriodChanged())
+            sb.append("[总时间段] ").append(codec.formatRange(before.periodStart, before.periodEnd)).append(" -> ")
+                    .append(codec.formatRange(after.periodStart, after.periodEnd)).append('\n');
+        for (EmployeeChange c : employeeChanges)
+            sb.append(c).append('\n');
+        for (Change c : changes)
+            sb.append(c.describe(codec)).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * 值班表的一个版本：总时间段、员工表与按开始时间排序的排班，不可变。
+     * <p>轮换规则展开后的各班与显式排班一起参与比较，但标记为轮换，不写入文件：
+     * 值班表文件中每位员工只有一段排班，轮换规则只保存在内存中的值班表里
+     */
+    public static final class Version {
+        private final TimeCodec codec;
+        private final long periodStart;
+        private final long periodEnd;
+        private final Map<String, String[]> employees;
+        private final long[] starts;
+        private final long[] ends;
+        private final String[] names;
+        private final boolean[] rotated;
+        //Representation invariant:
+        //  starts、ends、names、rotated长度相同，starts[i] <= ends[i] < starts[i+1]；
+        //  rotated[i]表示第i段为轮换规则中的一班
+
+        private Version(TimeCodec codec, long periodStart, long periodEnd, Map<String, String[]> employees,
+                        long[] starts, long[] ends, String[] names, boolean[] rotated) {
+            this.codec = codec;
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.employees = employees;
+            this.starts = starts;
+            this.ends = ends;
+            this.names = names;
+            this.rotated = rotated;
+        }
+
+        /**
+         * 由内存中的值班表版本创建版本：每段显式排班为一段，每条轮换规则在总时间段内的范围为一段，不展开为各班
+         * @param roster 值班表版本
+         * @param codec 值班表的时间编码
+         * @return 版本
+         */
+        public static Version of(PersistentRoster roster, TimeCodec codec) {
+            Map<String, String[]> table = new LinkedHashMap<>();
+            for (EmployeeView e : roster.employees())
+                table.put(e.getName(), new String[]{e.getPosition(), e.getPhoneNum()});
+            List<CalendarIndex.Duty<String>> duties = new ArrayList<>();
+            for (EmployeeView e : roster.sort()) {
+                long[] duty = roster.duty(e.getName());
+                duties.add(new CalendarIndex.Duty<>(e.getName(), duty[0], duty[1]));
+            }
+            int explicit = duties.size();
+            for (RotationRule<EmployeeView> rule : roster.getRotations().rules()) {
+                long s = Math.max(rule.getStart(), roster.getPeriodStart());
+                long e = Math.min(rule.getEnd(), roster.getPeriodEnd());
+                if (s <= e)
+                    duties.add(new CalendarIndex.Duty<>(rotationName(rule, codec), s, e));
+            }
+            Integer[] order = new Integer[duties.size()];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, Comparator.comparingLong(i -> duties.get(i).getStart()));
+            long[] starts = new long[order.length];
+            long[] ends = new long[order.length];
+            String[] names = new String[order.length];
+            boolean[] rotated = new boolean[order.length];
+            for (int i = 0; i < order.length; i++) {
+                CalendarIndex.Duty<String> d = duties.get(order[i]);
+                starts[i] = d.getStart();
+                ends[i] = d.getEnd();
+                names[i] = d.getLabel();
+                rotated[i] = order[i] >= explicit;
+            }
+            return new Version(codec, roster.getPeriodStart(), roster.getPeriodEnd(), table, starts, ends, names,
+                    rotated);
+        }
+
+        /**
+         * @return 描述轮换规则的名称，由轮换顺序、每班长度与开始时间组成，不与员工姓名相同
+         */
+        private static String rotationName(RotationRule<EmployeeView> rule, TimeCodec codec) {
+            StringBuilder sb = new StringBuilder("轮换(");
+            for (int i = 0; i < rule.getMembers().size(); i++) {
+                if (i > 0)
+                    sb.append('、');
+                sb.append(rule.getMembers().get(i).getName());
+            }
+            return sb.append(" 每").append(codec.formatLength(rule.getBlock())).append(", 自")
+                    .append(codec.format(rule.getStart())).append(')').toString();
+        }
+
+        /**
+         * 由值班表文件创建版本，文件应已通过 {@link ScheduleValidator} 的校验（排班互不重叠）
+         * @param file 值班表文件的解析结果
+         * @return 版本
+         */
+        public static Version of(RosterFile file) {
+            Map<String, String[]> table = new LinkedHashMap<>();
+            for (RosterFile.EmployeeEntry entry : file.getEmployees())
+                table.put(entry.getName(), new String[]{entry.getPosition(), entry.getPhone()});
+            List<RosterFile.DutyEntry> duties = new ArrayList<>(file.getDuties());
+            duties.sort((x, y) -> Long.compare(x.getStart(), y.getStart()));
+            long[] starts = new long[duties.size()];
+            long[] ends = new long[duties.size()];
+            String[] names = new String[duties.size()];
+            for (int i = 0; i < names.length; i++) {
+                starts[i] = duties.get(i).getStart();
+                ends[i] = duties.get(i).getEnd();
+                names[i] = duties.get(i).getName();
+            }
+            return new Version(file.getCodec(), file.getPeriodStart(), file.getPeriodEnd(), table, starts, ends, names,
+                    new boolean[names.length]);
+        }
+
+        public TimeCodec getCodec() {
+            return codec;
+        }
+
+        /**
+         * @return 排班段数，每条轮换规则计为一段
+         */
+        public int dutyCount() {
+            return starts.length;
+        }
+
+        /**
+         * 按值班表的规则校验这个版本，用于检查合并结果：各段在总时间段内、互不重叠、值班人在员工表中、
+         * 显式排班每人一段连续；轮换规则的各段不属于员工表中的员工，只检查其范围
+         * @return 校验报告，位置为第几段排班
+         */
+        public ScheduleValidator.Report validate() {
+            ScheduleValidator validator = new ScheduleValidator("段", codec);
+            Map<String, Integer> ids = new HashMap<>();
+            for (String name : employees.keySet())
+                ids.put(name, ids.size());
+            long nextRotationLabel = ids.size();
+            for (int i = 0; i < starts.length; i++) {
+                Integer id = ids.get(names[i]);
+                long label = rotated[i] ? nextRotationLabel++ : id == null ? -1 : id;
+                validator.add(starts[i], ends[i], label, i + 1);
+            }
+            return validator.validateRoster(periodStart, periodEnd, false);
+        }
+
+        /**
+         * 以 {@link RosterFile} 能读入的格式写出这个版本，轮换规则的各段不写出
+         * @param out 输出
+         * @throws IOException 写入失败
+         */
+        public void writeTo(Writer out) throws IOException {
+            out.write("Period{" + codec.format(periodStart) + "," + codec.formatEnd(periodEnd) + "}\n");
+            out.write("Employee{\n");
+            for (Map.Entry<String, String[]> e : employees.entrySet())
+                out.write("    " + e.getKey() + "{" + e.getValue()[0] + "," + e.getValue()[1] + "}\n");
+            out.write("}\nRoster{\n");
+            for (int i = 0; i < starts.length; i++) {
+                if (rotated[i])
+                    continue;
+                out.write("    " + names[i] + "{" + codec.format(starts[i]) + "," + codec.formatEnd(ends[i]) + "}\n");
+            }
+            out.write("}\n");
+        }
+    }
+
+    /**
+     * 一段排班差异：[start, end]（均包含）内的值班人由before变为after，为null表示无人值班
+     */
+    public static final class Change {
+        private final Kind kind;
+        private final long start;
+        private final long end;
+        private final String before;
+        private final String after;
+
+        Change(Kind kind, long start, long end, String before, String after) {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+            this.before = before;
+            this.after = after;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public String getBefore() {
+            return before;
+        }
+
+        public String getAfter() {
+            return after;
+        }
+
+        /**
+         * @param codec 时间编码
+         * @return 差异的文字描述
+         */
+        public String describe(TimeCodec codec) {
+            String range = codec.formatRange(start, end);
+            switch (kind) {
+                case ADDED:
+                    return "[" + kind.getDescription() + "] " + range + " " + after;
+                case REMOVED:
+                    return "[" + kind.getDescription() + "] " + range + " " + before;
+                default:
+                    return "[" + kind.getDescription() + "] " + range + " " + before + " -> " + after;
+            }
+        }
+    }
+
+    /**
+     * 一位员工的信息差异
+     */
+    public static final class EmployeeChange {
+        static final String ADDED = "新增员工";
+        static final String REMOVED = "删除员工";
+        static final String CHANGED = "员工信息修改";
+
+        private final String kind;
+        private final String name;
+        private final String[] before;
+        private final String[] after;
+
+        EmployeeChange(String kind, String name, String[] before, String[] after) {
+            this.kind = kind;
+            this.name = name;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return "新增员工"、"删除员工"或"员工信息修改"
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        @Override
+        public String toString() {
+            if (before == null)
+                return "[" + kind + "] " + name + " " + describe(after);
+            if (after == null)
+                return "[" + kind + "] " + name;
+            return "[" + kind + "] " + name + " " + describe(before) + " -> " + describe(after);
+        }
+    }
+
+    /**
+     * 三方合并的结果
+     */
+    public static final class Merge {
+        private final Version result;
+        private final List<Conflict> conflicts;
+
+        Merge(Version result, List<Conflict> conflicts) {
+            this.result = result;
+            this.conflicts = conflicts;
+        }
+
+        /**
+         * @return 合并后的版本，冲突处采用我方的排班
+         */
+        public Version getResult() {
+            return result;
+        }
+
+        /**
+         * @return 所有冲突，按开始时间排序（与排班无关的冲突在前）
+         */
+        public List<Conflict> getConflicts() {
+            return conflicts;
+        }
+
+        public boolean hasConflicts() {
+            return !conflicts.isEmpty();
+        }
+    }
+
+    /**
+     * 一处冲突：某段时间内两方把排班改成了不同的人，或员工信息、总时间段被两方改得不同
+     */
+    public static final class Conflict {
+        private final long start;
+        private final long end;
+        private final String base;
+        private final String ours;
+        private final String theirs;
+        private final String subject;
+        private final String detail;
+
+        Conflict(long start, long end, String base, String ours, String theirs) {
+            this.start = start;
+            this.end = end;
+            this.base = base;
+            this.ours = ours;
+            this.theirs = theirs;
+            this.subject = null;
+            this.detail = null;
+        }
+
+        Conflict(String subject, String detail) {
+            this.start = Long.MIN_VALUE;
+            this.end = Long.MIN_VALUE;
+            this.base = null;
+            this.ours = null;
+            this.theirs = null;
+            this.subject = subject;
+            this.detail = detail;
+        }
+
+        /**
+         * @return 是否为排班时间段上的冲突
+         */
+        public boolean isDutyConflict() {
+            return subject == null;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * @param codec 时间编码
+         * @return 冲突的文字描述
+         */
+        public String describe(TimeCodec codec) {
+            if (!isDutyConflict())
+                return "[冲突] " + subject + "：" + detail;
+            return "[冲突] " + codec.formatRange(start, end) + " 原为 " + name(base) + "，我方改为 " + name(ours)
+                    + "，对方改为 " + name(theirs);
+        }
+
+        private static String name(String owner) {
+            return owner == null ? "(无人)" : owner;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package application;
+
+import dimensions.NonlapException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link RosterDiff#merge} 的测试：两方改动同一时间段、员工信息与总时间段的冲突，合并后排班不连续，
+ * 轮换规则展开的各班参与合并，以及合并结果超出合并后总时间段时的校验。
+ */
+public class RosterDiffTest {
+    private static final String EMPLOYEES = "Employee{\n    A{Manager,139-0000-0001}\n    B{Clerk,139-0000-0002}\n"
+            + "    C{Clerk,139-0000-0003}\n}\n";
+
+    private static RosterDiff.Version version(String period, String... duties) throws IOException {
+        return versionWith(EMPLOYEES, period, duties);
+    }
+
+    private static RosterDiff.Version versionWith(String employees, String period, String... duties) throws IOException {
+        StringBuilder sb = new StringBuilder(employees);
+        sb.append("Period{").append(period).append("}\nRoster{\n");
+        for (String duty : duties)
+            sb.append("    ").append(duty).append('\n');
+        sb.append("}\n");
+        RosterFile file = RosterFile.parse(new StringReader(sb.toString()));
+        assertTrue(ScheduleValidator.validateRoster(file, false).isValid(), "测试数据不合法：" + sb);
+        return RosterDiff.Version.of(file);
+    }
+
+    private static String text(RosterDiff.Version version) throws IOException {
+        StringWriter out = new StringWriter();
+        version.writeTo(out);
+        return out.toString();
+    }
+
+    private static long day(String date) {
+        return DayCodec.parse(date);
+    }
+
+    @Test
+    public void differentReassignmentsOfTheSameDaysConflict() throws IOException {
+        RosterDiff.Version base = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-10}", "B{2021-01-11,2021-01-20}");
+        RosterDiff.Version ours = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-05}", "C{2021-01-06,2021-01-10}",
+                "B{2021-01-11,2021-01-20}");
+        RosterDiff.Version theirs = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-05}", "B{2021-01-06,2021-01-20}");
+        RosterDiff.Merge merge = RosterDiff.merge(base, ours, theirs);
+        List<RosterDiff.Conflict> conflicts = merge.getConflicts();
+        assertEquals(1, conflicts.size());
+        RosterDiff.Conflict conflict = conflicts.get(0);
+        assertTrue(conflict.isDutyConflict());
+        assertEquals(day("2021-01-06"), conflict.getStart());
+        assertEquals(day("2021-01-10"), conflict.getEnd());
+        String described = conflict.describe(TimeCodec.DAY);
+        assertTrue(described.contains("原为 A") && described.contains("我方改为 C") && described.contains("对方改为 B"),
+                described);
+        // 冲突处暂时保留我方的排班
+        assertTrue(text(merge.getResult()).contains("C{2021-01-06,2021-01-10}"));
+    }
+
+    @Test
+    public void oneSidedChangesMergeWithoutConflict() throws IOException {
+        RosterDiff.Version base = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-10}");
+        RosterDiff.Version ours = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-10}", "B{2021-01-11,2021-01-15}");
+        RosterDiff.Version theirs = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-10}", "C{2021-01-21,2021-01-25}");
+        RosterDiff.Merge merge = RosterDiff.merge(base, ours, theirs);
+        assertFalse(merge.hasConflicts());
+        assertEquals(3, merge.getResult().dutyCount());
+        String text = text(merge.getResult());
+        assertTrue(text.contains("B{2021-01-11,2021-01-15}") && text.contains("C{2021-01-21,2021-01-25}"), text);
+        assertTrue(merge.getResult().validate().isValid());
+    }
+
+    @Test
+    public void splitDutyAfterMergeIsConflict() throws IOException {
+        RosterDiff.Version base = version("2021-01-01,2021-01-31", "A{2021-01-03,2021-01-05}");
+        RosterDiff.Version ours = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-03}");
+        RosterDiff.Version theirs = version("2021-01-01,2021-01-31", "A{2021-01-05,2021-01-07}");
+        RosterDiff.Merge merge = RosterDiff.merge(base, ours, theirs);
+        assertEquals(1, merge.getConflicts().size());
+        RosterDiff.Conflict conflict = merge.getConflicts().get(0);
+        assertFalse(conflict.isDutyConflict());
+        assertTrue(conflict.describe(TimeCodec.DAY).contains("合并后的排班不连续"), conflict.describe(TimeCodec.DAY));
+        assertFalse(merge.getResult().validate().isValid());
+    }
+
+    @Test
+    public void employeeAndPeriodEditedDifferentlyConflict() throws IOException {
+        RosterDiff.Version base = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-10}");
+        RosterDiff.Version ours = versionWith(EMPLOYEES.replace("A{Manager", "A{Director"), "2021-01-01,2021-02-28",
+                "A{2021-01-01,2021-01-10}");
+        RosterDiff.Version theirs = versionWith(EMPLOYEES.replace("A{Manager", "A{Dean"), "2021-01-01,2021-03-31",
+                "A{2021-01-01,2021-01-10}");
+        RosterDiff.Merge merge = RosterDiff.merge(base, ours, theirs);
+        assertEquals(2, merge.getConflicts().size());
+        StringBuilder described = new StringBuilder();
+        for (RosterDiff.Conflict c : merge.getConflicts()) {
+            assertFalse(c.isDutyConflict());
+            described.append(c.describe(TimeCodec.DAY)).append('\n');
+        }
+        assertTrue(described.indexOf("总时间段") >= 0 && described.indexOf("员工 A") >= 0, described.toString());
+        // 冲突处保留我方
+        String text = text(merge.getResult());
+        assertTrue(text.contains("Period{2021-01-01,2021-02-28}") && text.contains("A{Director"), text);
+    }
+
+    @Test
+    public void rotationRulesTakePartInMerge() throws IOException, NonlapException {
+        EmployeeStore store = new EmployeeStore();
+        store.add("A", "Manager", "139-0000-0001");
+        store.add("B", "Clerk", "139-0000-0002");
+        store.add("C", "Clerk", "139-0000-0003");
+        List<EmployeeView> views = store.views();
+        PersistentRoster roster = PersistentRoster.empty(day("2021-01-01"), day("2021-01-31"));
+        for (EmployeeView e : views)
+            roster = roster.withEmployee(e);
+        roster = roster.withDuty("A", day("2021-01-01"), day("2021-01-05"))
+                .withRotation(new RotationRule<>(Arrays.asList(views.get(1), views.get(2)), day("2021-01-11"),
+                        day("2021-01-20"), 2));
+        RosterDiff.Version ours = RosterDiff.Version.of(roster, TimeCodec.DAY);
+        RosterDiff.Version base = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-05}");
+
+        // 对方只在轮换之外排班：轮换中的员工有多班，不算不连续；各班不写入文件
+        RosterDiff.Version theirs = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-05}", "C{2021-01-21,2021-01-25}");
+        RosterDiff.Merge merge = RosterDiff.merge(base, ours, theirs);
+        assertFalse(merge.hasConflicts());
+        assertEquals(3, merge.getResult().dutyCount());
+        assertTrue(merge.getResult().validate().isValid());
+        String text = text(merge.getResult());
+        assertTrue(text.contains("C{2021-01-21,2021-01-25}") && !text.contains("B{2021"), text);
+
+        // 对方在轮换覆盖的日期排了别人
+        theirs = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-05}", "C{2021-01-11,2021-01-11}");
+        merge = RosterDiff.merge(base, ours, theirs);
+        assertEquals(1, merge.getConflicts().size());
+        RosterDiff.Conflict conflict = merge.getConflicts().get(0);
+        assertTrue(conflict.isDutyConflict());
+        assertEquals(day("2021-01-11"), conflict.getStart());
+        assertEquals(day("2021-01-11"), conflict.getEnd());
+    }
+
+    @Test
+    public void mergedDutiesOutsideMergedPeriodFailValidation() throws IOException {
+        RosterDiff.Version base = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-05}");
+        RosterDiff.Version ours = version("2021-01-01,2021-01-31", "A{2021-01-01,2021-01-05}", "B{2021-01-25,2021-01-31}");
+        RosterDiff.Version theirs = version("2021-01-01,2021-01-20", "A{2021-01-01,2021-01-05}");
+        RosterDiff.Merge merge = RosterDiff.merge(base, ours, theirs);
+        assertFalse(merge.hasConflicts());
+        ScheduleValidator.Report report = merge.getResult().validate();
+        assertFalse(report.isValid());
+        assertEquals(1, report.count(ScheduleValidator.Kind.OUT_OF_PERIOD));
+    }
+}
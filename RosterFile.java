@@ -0,0 +1,296 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 值班表文件的宽松解析结果。文件格式与 {@code DutyRosterApp} 读入的文件相同：
+ * <pre>
+ *   Period{yyyy-mm-dd,yyyy-mm-dd}
+ *   Employee{
+ *       姓名{职务,xxx-xxxx-xxxx}
+ *   }
+ *   Roster{
+ *       姓名{yyyy-mm-dd,yyyy-mm-dd}
+ *   }
+ * </pre>
+ * 日期之后可以跟"HH:mm"时刻（如 {@code 2024-01-01 08:00}），只要文件中出现任何时刻，整个文件就按分钟精度解析，
+ * 此时结束时刻不包含在时间段内，只写日期的开始与结束分别表示该日0点与该日结束，见 {@link TimeCodec}。
+ * <p>与应用中遇到第一个错误就退出的读入方式不同，这里遇到格式错误的行只记录下来并继续解析，
+ * 以便一次报告文件中的所有问题；语义检查（重名、重叠、连续性等）由 {@link ScheduleValidator} 完成。
+ * <p>每行中的空白字符在解析前被去掉。
+ */
+public class RosterFile {
+    private static final String TIME = "(\\d{4}-\\d{2}-\\d{2}(?:T?\\d{2}:\\d{2})?)";
+    private static final Pattern PERIOD = Pattern.compile("Period\\{" + TIME + "," + TIME + "}");
+    private static final Pattern EMPLOYEE = Pattern.compile("([a-zA-Z]+)\\{([a-zA-Z]+),(\\d{3}-\\d{4}-\\d{4})}");
+    private static final Pattern DUTY = Pattern.compile("([a-zA-Z]+)\\{" + TIME + "," + TIME + "}");
+
+    private TimeCodec codec = TimeCodec.DAY;
+    private long periodStart = -1;
+    private long periodEnd = -1;
+    private long periodLine = -1;
+    private final List<EmployeeEntry> employees = new ArrayList<>();
+    private final List<DutyEntry> duties = new ArrayList<>();
+    private final List<Problem> problems = new ArrayList<>();
+    //Abstraction function:
+    //  AF = 一个以codec编码时间的值班表文件：总时间段[periodStart, periodEnd]（未给出时为-1，定义在第periodLine行），
+    //       其中定义的员工employees、排班duties，以及无法解析的行problems
+    //Representation invariant:
+    //  periodStart为-1当且仅当periodEnd为-1；各列表按行号递增
+    //Safety from rep exposure:
+    //  成员变量均为private，列表以不可修改的视图返回，各条目不可变
+
+    private RosterFile() {
+    }
+
+    /**
+     * 解析值班表文件
+     * @param path 文件路径
+     * @return 解析结果
+     * @throws IOException 文件读取失败
+     */
+    public static RosterFile read(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * 从字符流解析值班表
+     * @param in 字符流
+     * @return 解析结果
+     * @throws IOException 读取失败
+     */
+    public static RosterFile parse(Reader in) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        RosterFile file = new RosterFile();
+        // 时间先按原文保存，读完全文确定精度后再统一换算
+        List<RawTimes> raw = new ArrayList<>();
+        boolean withClock = false;
+        String section = "";
+        long lineNo = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            String str = line.replaceAll("\\s", "");
+            if (str.isEmpty())
+                continue;
+            if (str.startsWith("Period{")) {
+                Matcher m = PERIOD.matcher(str);
+                if (!m.matches()) {
+                    file.problems.add(new Problem(lineNo, "总时间段格式错误，正确的格式为：Period{yyyy-mm-dd,yyyy-mm-dd}"));
+                } else {
+                    raw.add(new RawTimes(null, m.group(1), m.group(2), lineNo));
+                    withClock |= m.group(1).length() > 10 || m.group(2).length() > 10;
+                }
+            } else if (str.startsWith("Employee{")) {
+                section = "Employee";
+            } else if (str.startsWith("Roster{")) {
+                section = "Roster";
+            } else if (str.matches("}+")) {
+                section = "";
+            } else if (section.equals("Employee")) {
+                Matcher m = EMPLOYEE.matcher(str);
+                if (m.matches())
+                    file.employees.add(new EmployeeEntry(m.group(1), m.group(2), m.group(3), lineNo));
+                else
+                    file.problems.add(new Problem(lineNo, "员工格式错误，正确的格式为：姓名{职务,xxx-xxxx-xxxx}，姓名与职务只含字母"));
+            } else if (section.equals("Roster")) {
+                Matcher m = DUTY.matcher(str);
+                if (!m.matches()) {
+                    file.problems.add(new Problem(lineNo, "排班格式错误，正确的格式为：姓名{yyyy-mm-dd,yyyy-mm-dd}"));
+                } else {
+                    raw.add(new RawTimes(m.group(1), m.group(2), m.group(3), lineNo));
+                    withClock |= m.group(2).length() > 10 || m.group(3).length() > 10;
+                }
+            } else {
+                file.problems.add(new Problem(lineNo, "无法识别的行"));
+            }
+        }
+        file.codec = withClock ? TimeCodec.MINUTE : TimeCodec.DAY;
+        for (RawTimes r : raw) {
+            long start = file.codec.parseStart(spaced(r.start));
+            long end = file.codec.parseEnd(spaced(r.end));
+            if (start < 0 || end < 0) {
+                file.problems.add(new Problem(r.line, "日期或时刻不合法"));
+            } else if (r.name != null) {
+                file.duties.add(new DutyEntry(r.name, start, end, r.line));
+            } else if (file.periodLine >= 0) {
+                file.problems.add(new Problem(r.line, "重复定义总时间段，已忽略"));
+            } else {
+                file.periodStart = start;
+                file.periodEnd = end;
+                file.periodLine = r.line;
+            }
+        }
+        file.problems.sort((x, y) -> Long.compare(x.line, y.line));
+        return file;
+    }
+
+    /**
+     * 尚未换算的一段时间：总时间段（name为null）或某人的排班
+     */
+    private static final class RawTimes {
+        final String name;
+        final String start;
+        final String end;
+        final long line;
+
+        RawTimes(String name, String start, String end, long line) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.line = line;
+        }
+    }
+
+    /**
+     * 把去掉空白后的"yyyy-mm-ddHH:mm"恢复为"yyyy-mm-dd HH:mm"
+     */
+    private static String spaced(String raw) {
+        if (raw.length() <= 10)
+            return raw;
+        String clock = raw.charAt(10) == 'T' ? raw.substring(11) : raw.substring(10);
+        return raw.substring(0, 10) + " " + clock;
+    }
+
+    /**
+     * @return 文件使用的时间精度，文件中出现任何时刻时为 {@link TimeCodec#MINUTE}
+     */
+    public TimeCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return 总时间段开始时间，文件中没有给出时为-1
+     */
+    public long getPeriodStart() {
+        return periodStart;
+    }
+
+    /**
+     * @return 总时间段结束时间（包含），文件中没有给出时为-1
+     */
+    public long getPeriodEnd() {
+        return periodEnd;
+    }
+
+    /**
+     * @return 总时间段所在行号，文件中没有给出时为-1
+     */
+    public long getPeriodLine() {
+        return periodLine;
+    }
+
+    public List<EmployeeEntry> getEmployees() {
+        return Collections.unmodifiableList(employees);
+    }
+
+    public List<DutyEntry> getDuties() {
+        return Collections.unmodifiableList(duties);
+    }
+
+    /**
+     * @return 无法解析的行
+     */
+    public List<Problem> getProblems() {
+        return Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * 文件中定义的一位员工
+     */
+    public static final class EmployeeEntry {
+        private final String name;
+        private final String position;
+        private final String phone;
+        private final long line;
+
+        EmployeeEntry(String name, String position, String phone, long line) {
+            this.name = name;
+            this.position = position;
+            this.phone = phone;
+            this.line = line;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPosition() {
+            return position;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public long getLine() {
+            return line;
+        }
+    }
+
+    /**
+     * 文件中的一段排班，开始与结束时间均包含在内，单位见 {@link #getCodec()}
+     */
+    public static final class DutyEntry {
+        private final String name;
+        private final long start;
+        private final long end;
+        private final long line;
+
+        DutyEntry(String name, long start, long end, long line) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.line = line;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLine() {
+            return line;
+        }
+    }
+
+    /**
+     * 一行无法解析的内容
+     */
+    public static final class Problem {
+        private final long line;
+        private final String message;
+
+        Problem(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
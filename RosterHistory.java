@@ -0,0 +1,148 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 值班表的版本历史：多级撤销/重做，以及按名称保存的"假设"方案。
+ * <p>保存的都是 {@link PersistentRoster} 版本，相互之间共享结构，保存一个版本只是保存一个引用。
+ * <p>撤销记录最多保留 depth 个版本，超出时丢弃最早的版本，长时间运行时历史不会无限增长；
+ * 内容与当前版本相同的新版本（例如添加后又删除同一段排班）不产生撤销记录。
+ */
+public class RosterHistory {
+    /** 默认的撤销层数 */
+    public static final int DEFAULT_DEPTH = 100;
+
+    private final int depth;
+    private final Deque<PersistentRoster> undo = new ArrayDeque<>();
+    private final Deque<PersistentRoster> redo = new ArrayDeque<>();
+    private final Map<String, PersistentRoster> variants = new LinkedHashMap<>();
+    private PersistentRoster current;
+    //Abstraction function:
+    //  AF = 当前版本current，可撤销回到的版本undo（栈顶最近），可重做的版本redo（栈顶最近），
+    //       以及以名称保存的方案variants
+    //Representation invariant:
+    //  current不为null，depth > 0，undo中最多depth个版本
+    //Safety from rep exposure:
+    //  成员变量均为private final（current除外），版本不可变，variantNames返回不可修改的视图
+
+    /**
+     * @param initial 初始版本
+     */
+    public RosterHistory(PersistentRoster initial) {
+        this(initial, DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param initial 初始版本
+     * @param depth 最多可撤销的层数，必须为正数
+     */
+    public RosterHistory(PersistentRoster initial, int depth) {
+        if (depth <= 0)
+            throw new IllegalArgumentException("撤销层数必须为正数");
+        this.current = initial;
+        this.depth = depth;
+    }
+
+    public PersistentRoster current() {
+        return current;
+    }
+
+    /**
+     * 记录一个新版本，并清空重做记录；与当前版本内容相同时只替换当前版本，不产生撤销记录
+     * @param version 新版本
+     */
+    public void commit(PersistentRoster version) {
+        if (version.sameAs(current)) {
+            current = version;
+            return;
+        }
+        push(undo, current);
+        redo.clear();
+        current = version;
+    }
+
+    public boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    /**
+     * @return 撤销后的当前版本
+     * @throws IllegalStateException 没有可撤销的版本
+     */
+    public PersistentRoster undo() {
+        if (undo.isEmpty())
+            throw new IllegalStateException("没有可撤销的操作");
+        redo.push(current);
+        current = undo.pop();
+        return current;
+    }
+
+    /**
+     * @return 重做后的当前版本
+     * @throws IllegalStateException 没有可重做的版本
+     */
+    public PersistentRoster redo() {
+        if (redo.isEmpty())
+            throw new IllegalStateException("没有可重做的操作");
+        push(undo, current);
+        current = redo.pop();
+        return current;
+    }
+
+    /**
+     * 把当前版本保存为一个方案，同名方案被覆盖
+     * @param name 方案名称
+     */
+    public void saveVariant(String name) {
+        variants.put(name, current);
+    }
+
+    /**
+     * 切换到一个已保存的方案，切换本身可以撤销
+     * @param name 方案名称
+     * @return 切换后的当前版本
+     * @throws noExsistedException 没有该方案
+     */
+    public PersistentRoster switchTo(String name) {
+        PersistentRoster v = variant(name);
+        commit(v);
+        return current;
+    }
+
+    /**
+     * @param name 方案名称
+     * @return 该方案的版本
+     * @throws noExsistedException 没有该方案
+     */
+    public PersistentRoster variant(String name) {
+        PersistentRoster v = variants.get(name);
+        if (v == null)
+            throw new noExsistedException("没有名为 " + name + " 的方案");
+        return v;
+    }
+
+    /**
+     * 压入一个版本，超过depth层时丢弃最早的版本
+     */
+    private void push(Deque<PersistentRoster> stack, PersistentRoster version) {
+        stack.push(version);
+        if (stack.size() > depth)
+            stack.removeLast();
+    }
+
+    /**
+     * @return 所有方案名称，按保存顺序
+     */
+    public Set<String> variantNames() {
+        return Collections.unmodifiableSet(variants.keySet());
+    }
+}
@@ -0,0 +1,201 @@
+package application;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entity.Employee;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 值班表的嵌入式本地 HTTP 查询服务，基于 JDK 自带的 {@code com.sun.net.httpserver}，请求由固定大小的守护线程池处理。
+ * <p>查询只读取最近一次发布的 {@link RosterSnapshot}，不访问正在被菜单修改的值班表，因此无需加锁。
+ * <ul>
+ *     <li>GET /duty?date=yyyy-mm-dd —— 该日值班人员；分钟精度的值班表还可以用 date=yyyy-mm-ddTHH:mm 查询该时刻</li>
+ *     <li>GET /free —— 所有未排班时间段</li>
+ *     <li>GET /employee?name=姓名 —— 该员工最早的显式值班区间duty、全部显式值班区间duties，
+ *     以及包含该员工的轮换规则rotations（规则的范围、每班长度与轮换顺序，不展开为各班）</li>
+ * </ul>
+ * 响应均为 JSON。
+ * <p>第一次启动服务时，若未显式设置系统属性 {@code sun.net.httpserver.nodelay}，会将其设为true。
+ * 该属性作用于整个 JVM 中此后创建的所有 {@code HttpServer}。
+ */
+public class RosterHttpServer {
+    /** 处理请求的线程数 */
+    static final int WORKERS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile RosterSnapshot snapshot;
+    //Abstraction function:
+    //  AF = 在server监听的端口上，根据snapshot回答查询的服务
+    //Representation invariant:
+    //  snapshot 不为 null
+    //Safety from rep exposure:
+    //  成员变量均为private，snapshot本身不可变
+
+    /**
+     * 在本机回环地址的指定端口上启动服务
+     * @param port 端口，0表示由系统分配
+     * @param initial 初始快照
+     * @throws IOException 端口无法绑定
+     */
+    public RosterHttpServer(int port, RosterSnapshot initial) throws IOException {
+        this.snapshot = initial;
+        // 响应体很小，关闭 Nagle 算法，否则与延迟确认叠加会使每个请求多等待约40ms；须在创建第一个HttpServer之前设置
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newFixedThreadPool(WORKERS, task -> {
+            Thread thread = new Thread(task, "roster-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/duty", this::handleDuty);
+        server.createContext("/free", this::handleFree);
+        server.createContext("/employee", this::handleEmployee);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * 发布新的快照，之后到达的请求将基于它回答
+     * @param snapshot 新快照
+     */
+    public void publish(RosterSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return 实际监听的端口
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 停止服务
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handleDuty(HttpExchange exchange) throws IOException {
+        String date = query(exchange, "date");
+        RosterSnapshot current = snapshot;
+        long time = current.getCodec().parseStart(date);
+        if (time < 0) {
+            send(exchange, 400, current.getCodec().hasTimeOfDay()
+                    ? "{\"error\":\"date应为yyyy-mm-dd或yyyy-mm-ddTHH:mm\"}"
+                    : "{\"error\":\"date应为yyyy-mm-dd\"}");
+            return;
+        }
+        Employee e = current.onDuty(time);
+        if (e == null) {
+            send(exchange, 200, "{\"date\":\"" + date + "\",\"onDuty\":null}");
+            return;
+        }
+        send(exchange, 200, "{\"date\":\"" + date + "\",\"onDuty\":" + employeeJson(e) + "}");
+    }
+
+    private void handleFree(HttpExchange exchange) throws IOException {
+        RosterSnapshot current = snapshot;
+        List<long[]> free = current.freePeriods();
+        StringBuilder sb = new StringBuilder("{\"free\":[");
+        for (int i = 0; i < free.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(rangeJson(current.getCodec(), free.get(i)[0], free.get(i)[1]));
+        }
+        send(exchange, 200, sb.append("]}").toString());
+    }
+
+    private void handleEmployee(HttpExchange exchange) throws IOException {
+        String name = query(exchange, "name");
+        if (name == null) {
+            send(exchange, 400, "{\"error\":\"缺少name参数\"}");
+            return;
+        }
+        RosterSnapshot current = snapshot;
+        List<long[]> duties = current.dutiesOf(name);
+        List<RotationRule<Employee>> rules = current.rotationsOf(name);
+        if (duties.isEmpty() && rules.isEmpty()) {
+            send(exchange, 404, "{\"name\":\"" + escape(name) + "\",\"duty\":null,\"duties\":[],\"rotations\":[]}");
+            return;
+        }
+        TimeCodec codec = current.getCodec();
+        StringBuilder sb = new StringBuilder("{\"name\":\"" + escape(name) + "\",\"duty\":");
+        sb.append(duties.isEmpty() ? "null" : rangeJson(codec, duties.get(0)[0], duties.get(0)[1])).append(",\"duties\":[");
+        for (int i = 0; i < duties.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(rangeJson(codec, duties.get(i)[0], duties.get(i)[1]));
+        }
+        sb.append("],\"rotations\":[");
+        for (int i = 0; i < rules.size(); i++) {
+            RotationRule<Employee> rule = rules.get(i);
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"start\":\"").append(codec.format(rule.getStart()))
+                    .append("\",\"end\":\"").append(codec.formatEnd(rule.getEnd()))
+                    .append("\",\"block\":\"").append(codec.formatLength(rule.getBlock()))
+                    .append("\",\"members\":[");
+            for (int j = 0; j < rule.getMembers().size(); j++) {
+                if (j > 0)
+                    sb.append(',');
+                sb.append('"').append(escape(rule.getMembers().get(j).getName())).append('"');
+            }
+            sb.append("]}");
+        }
+        send(exchange, 200, sb.append("]}").toString());
+    }
+
+    /**
+     * @return 请求中指定查询参数的值，不存在时返回null
+     */
+    private static String query(HttpExchange exchange, String key) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null)
+            return null;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(key))
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String employeeJson(Employee e) {
+        return "{\"name\":\"" + escape(e.getName()) + "\",\"position\":\"" + escape(e.getPosition())
+                + "\",\"phone\":\"" + escape(e.getPhoneNum()) + "\"}";
+    }
+
+    /**
+     * 天精度下start与end都是包含在内的日期；分钟精度下end为紧接时间段之后的时刻
+     */
+    private static String rangeJson(TimeCodec codec, long start, long end) {
+        return "{\"start\":\"" + codec.format(start) + "\",\"end\":\"" + codec.formatEnd(end) + "\"}";
+    }
+
+    private static String escape(String s) {
+        if (s == null)
+            return "";
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
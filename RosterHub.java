@@ -0,0 +1,394 @@
+package application;
+
+import concrete.DutyIntervalSet;
+import dimensions.NonlapException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 同时管理多张团队值班表，它们共享同一个员工库（{@link EmployeeStore}）与同一种时间编码（{@link TimeCodec}）。
+ * <p>各值班表都以员工库中的 {@link EmployeeView} 作为员工，同名员工在各团队中是同一人。
+ * <p>除了每张值班表自己的 {@code DutyIntervalSet<EmployeeView>}，还为每位员工维护一个跨值班表的时间段索引
+ * （按开始日期排序的 {@link TreeMap}），因此安排值班时只需在该员工的索引中查找前后相邻的两段，
+ * 就能在 O(log n) 时间内发现同一员工在两个团队同时值班，而不必遍历所有值班表。
+ * <p>值班表中的轮换规则不展开为各班，按员工记录其所在的规则；检查某段时间时按轮换顺序算出该员工在其中的第一班。
+ */
+public class RosterHub {
+    /**
+     * 员工在某张值班表中的一段值班，开始与结束日期均包含在内
+     */
+    public static final class Booking {
+        private final String roster;
+        private final long start;
+        private final long end;
+
+        Booking(String roster, long start, long end) {
+            this.roster = roster;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getRoster() {
+            return roster;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+    }
+
+    /**
+     * 员工所在的某张值班表中的一条轮换规则
+     */
+    private static final class Rotation {
+        final String roster;
+        final RotationRule<EmployeeView> rule;
+
+        Rotation(String roster, RotationRule<EmployeeView> rule) {
+            this.roster = roster;
+            this.rule = rule;
+        }
+    }
+
+    private final TimeCodec codec;
+    private final EmployeeStore registry = new EmployeeStore();
+    private final Map<String, DutyIntervalSet<EmployeeView>> rosters = new LinkedHashMap<>();
+    private final Map<String, TreeMap<Long, Booking>> bookings = new HashMap<>();
+    private final Map<String, List<Rotation>> rotations = new HashMap<>();
+    //Abstraction function:
+    //  AF = 时间按codec编码、以名称索引的多张值班表rosters，共享员工库registry，
+    //       bookings.get(name)为该员工在所有值班表中的显式值班，按开始日期索引，
+    //       rotations.get(name)为包含该员工的各轮换规则
+    //Representation invariant:
+    //  rosters中的员工都是registry中的现存员工；
+    //  bookings中的每段值班恰好对应某张值班表中该员工合并后的值班时间段，反之亦然，
+    //  即每位员工在每张值班表中至多有一段；
+    //  同一员工的各段值班与其在各轮换规则中的各班互不重叠；没有值班的员工不在bookings中，不在任何规则中的员工不在rotations中
+    //Safety from rep exposure:
+    //  成员变量均为private final；查询返回不可修改的视图或新的list
+
+    /**
+     * 创建以天为时间单位的容器
+     */
+    public RosterHub() {
+        this(TimeCodec.DAY);
+    }
+
+    /**
+     * @param codec 所有值班表共用的时间编码
+     */
+    public RosterHub(TimeCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * 在共享员工库中登记员工
+     * @param name 姓名
+     * @param position 职务
+     * @param phone 电话号码
+     * @return 登记的员工
+     * @throws confictName 已存在同名员工
+     */
+    public EmployeeView addEmployee(String name, String position, String phone) {
+        return registry.view(registry.add(name, position, phone));
+    }
+
+    /**
+     * 从共享员工库中删除员工
+     * @param name 姓名
+     * @throws noExsistedException 没有该员工
+     * @throws wrongStatusException 该员工在某张值班表中仍有值班
+     */
+    public void removeEmployee(String name) {
+        EmployeeView employee = employee(name);
+        if (bookings.containsKey(name) || rotations.containsKey(name))
+            throw new wrongStatusException("员工仍在值班表中，必须先删除其排班信息才能删除员工");
+        registry.remove(employee.getId());
+    }
+
+    /**
+     * @param name 姓名
+     * @return 员工库中的员工
+     * @throws noExsistedException 没有该员工
+     */
+    public EmployeeView employee(String name) {
+        int id = registry.find(name);
+        if (id < 0)
+            throw new noExsistedException("没有找到名为 " + name + " 的员工");
+        return registry.view(id);
+    }
+
+    /**
+     * 新建一张值班表
+     * @param name 值班表名称
+     * @param start 值班总时间段开始日期
+     * @param end 值班总时间段结束日期
+     * @return 新的值班表
+     * @throws confictName 已存在同名值班表
+     */
+    public DutyIntervalSet<EmployeeView> createRoster(String name, long start, long end) {
+        if (rosters.containsKey(name))
+            throw new confictName("已存在名为 " + name + " 的值班表");
+        DutyIntervalSet<EmployeeView> set = new DutyIntervalSet<>(start, end);
+        rosters.put(name, set);
+        return set;
+    }
+
+    /**
+     * 删除一张值班表及其中的所有值班
+     * @param name 值班表名称
+     * @throws noExsistedException 没有该值班表
+     */
+    public void removeRoster(String name) {
+        DutyIntervalSet<EmployeeView> set = roster(name);
+        for (EmployeeView e : set.labels())
+            unbook(e.getName(), set.start(e));
+        rotations.values().forEach(list -> list.removeIf(r -> r.roster.equals(name)));
+        rotations.values().removeIf(List::isEmpty);
+        rosters.remove(name);
+    }
+
+    /**
+     * 返回值班表本身，只应通过 {@link #assign}/{@link #unassign} 修改，否则跨值班表索引将失效
+     * @param name 值班表名称
+     * @return 值班表
+     * @throws noExsistedException 没有该值班表
+     */
+    public DutyIntervalSet<EmployeeView> roster(String name) {
+        DutyIntervalSet<EmployeeView> set = rosters.get(name);
+        if (set == null)
+            throw new noExsistedException("没有名为 " + name + " 的值班表");
+        return set;
+    }
+
+    /**
+     * @return 所有值班表名称，按创建顺序
+     */
+    public Set<String> rosterNames() {
+        return Collections.unmodifiableSet(rosters.keySet());
+    }
+
+    /**
+     * 在某张值班表中为员工安排一段值班；员工在该值班表中已有值班时，值班表把两段合并，
+     * 跨值班表索引中该员工在这张值班表的一段同样改为合并后的时间段
+     * @param rosterName 值班表名称
+     * @param employeeName 员工姓名
+     * @param start 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @throws doubleBookedException 该员工在这段时间已在某张值班表中值班
+     * @throws NonlapException 与该值班表中其他人的值班重叠
+     * @throws noExsistedException 没有该值班表或该员工
+     */
+    public void assign(String rosterName, String employeeName, long start, long end) throws NonlapException {
+        DutyIntervalSet<EmployeeView> set = roster(rosterName);
+        EmployeeView employee = employee(employeeName);
+        Booking clash = conflict(employeeName, start, end);
+        if (clash != null)
+            throw new doubleBookedException("员工 " + employeeName + " 在 " + codec.formatRange(clash.start, clash.end)
+                    + " 已在 " + clash.roster + " 值班");
+        boolean booked = set.labels().contains(employee);
+        long bookedStart = booked ? set.start(employee) : 0;
+        set.Insert(start, end, employee);
+        if (booked)
+            unbook(employeeName, bookedStart);
+        long mergedStart = set.start(employee);
+        bookings.computeIfAbsent(employeeName, k -> new TreeMap<>())
+                .put(mergedStart, new Booking(rosterName, mergedStart, set.end(employee)));
+    }
+
+    /**
+     * 在某张值班表中加入一条轮换规则，规则中的员工须是员工库中的员工；
+     * 规则中任何一人的某一班与其在其他值班表中的值班或轮换重叠时不加入。
+     * 同一值班表内规则与显式值班不重叠由调用者保证
+     * @param rosterName 值班表名称
+     * @param rule 轮换规则
+     * @throws doubleBookedException 规则中某人的某一班与其已有的值班重叠
+     * @throws noExsistedException 没有该值班表或规则中的员工
+     */
+    public void addRotation(String rosterName, RotationRule<EmployeeView> rule) {
+        roster(rosterName);
+        Set<EmployeeView> members = new LinkedHashSet<>(rule.getMembers());
+        for (EmployeeView e : members) {
+            employee(e.getName());
+            Booking clash = rotationConflict(e, rule);
+            if (clash != null)
+                throw new doubleBookedException("员工 " + e.getName() + " 在 " + codec.formatRange(clash.start, clash.end)
+                        + " 已在 " + clash.roster + " 值班");
+        }
+        for (EmployeeView e : members)
+            rotations.computeIfAbsent(e.getName(), k -> new ArrayList<>()).add(new Rotation(rosterName, rule));
+    }
+
+    /**
+     * @return 员工在rule中的某一班与其已有值班重叠时，返回重叠的已有值班，否则为null
+     */
+    private Booking rotationConflict(EmployeeView employee, RotationRule<EmployeeView> rule) {
+        TreeMap<Long, Booking> index = bookings.get(employee.getName());
+        if (index != null) {
+            Map.Entry<Long, Booking> before = index.floorEntry(rule.getStart());
+            long from = before != null && before.getValue().end >= rule.getStart() ? before.getKey() : rule.getStart();
+            for (Booking b : index.subMap(from, true, rule.getEnd(), true).values()) {
+                if (rule.firstShiftOf(employee, b.start, b.end) != null)
+                    return b;
+            }
+        }
+        for (Rotation r : rotations.getOrDefault(employee.getName(), new ArrayList<>())) {
+            long from = Math.max(rule.getStart(), r.rule.getStart());
+            long to = Math.min(rule.getEnd(), r.rule.getEnd());
+            // 只在两条规则重叠的范围内逐班比较该员工的班次
+            for (long[] shift = rule.firstShiftOf(employee, from, to); shift != null;
+                 shift = shift[1] >= to ? null : rule.firstShiftOf(employee, shift[1] + 1, to)) {
+                long[] other = r.rule.firstShiftOf(employee, shift[0], shift[1]);
+                if (other != null)
+                    return new Booking(r.roster, other[0], other[1]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 删除员工在某张值班表中的值班
+     * @param rosterName 值班表名称
+     * @param employeeName 员工姓名
+     * @return 删除前该员工在该值班表中是否有值班
+     * @throws noExsistedException 没有该值班表或该员工
+     */
+    public boolean unassign(String rosterName, String employeeName) {
+        DutyIntervalSet<EmployeeView> set = roster(rosterName);
+        EmployeeView employee = employee(employeeName);
+        if (!set.labels().contains(employee))
+            return false;
+        unbook(employeeName, set.start(employee));
+        set.remove(employee);
+        return true;
+    }
+
+    /**
+     * @param employeeName 员工姓名
+     * @param start 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @return 该员工与[start, end]重叠的一段已有值班或轮换中的一班，没有时为null
+     */
+    public Booking conflict(String employeeName, long start, long end) {
+        TreeMap<Long, Booking> index = bookings.get(employeeName);
+        if (index != null) {
+            Map.Entry<Long, Booking> before = index.floorEntry(end);
+            if (before != null && before.getValue().end >= start)
+                return before.getValue();
+        }
+        for (Rotation r : rotations.getOrDefault(employeeName, new ArrayList<>())) {
+            long[] shift = r.rule.firstShiftOf(employee(employeeName), start, end);
+            if (shift != null)
+                return new Booking(r.roster, shift[0], shift[1]);
+        }
+        return null;
+    }
+
+    /**
+     * @param employeeName 员工姓名
+     * @return 该员工在所有值班表中的值班，按开始日期排序
+     */
+    public List<Booking> bookings(String employeeName) {
+        TreeMap<Long, Booking> index = bookings.get(employeeName);
+        return index == null ? new ArrayList<>() : new ArrayList<>(index.values());
+    }
+
+    /**
+     * 把一个值班表文件作为一张团队值班表读入：文件中的员工登记到共享员工库（已存在的同名员工视为同一人），
+     * 排班逐段安排，跨团队重复值班与其他无法安排的排班被跳过并记录下来；
+     * 文件中无法解析的行同样记录下来
+     * @param rosterName 值班表名称
+     * @param path 值班表文件
+     * @return 无法解析的行与被跳过的排班，及其原因
+     * @throws IOException 文件读取失败
+     * @throws confictName 已存在同名值班表
+     * @throws IllegalArgumentException 文件中没有总时间段，或时间精度与本容器不同
+     */
+    public List<String> load(String rosterName, Path path) throws IOException {
+        RosterFile file = RosterFile.read(path);
+        if (file.getPeriodLine() < 0)
+            throw new IllegalArgumentException(path + " 中缺少总时间段");
+        if (file.getCodec() != codec)
+            throw new IllegalArgumentException(path + " 的时间精度与其他值班表不同");
+        createRoster(rosterName, file.getPeriodStart(), file.getPeriodEnd());
+        for (RosterFile.EmployeeEntry e : file.getEmployees()) {
+            if (registry.find(e.getName()) < 0)
+                addEmployee(e.getName(), e.getPosition(), e.getPhone());
+        }
+        List<String> skipped = new ArrayList<>();
+        for (RosterFile.Problem p : file.getProblems())
+            skipped.add(rosterName + " 第" + p.getLine() + "行：" + p.getMessage());
+        for (RosterFile.DutyEntry d : file.getDuties()) {
+            try {
+                assign(rosterName, d.getName(), d.getStart(), d.getEnd());
+            } catch (NonlapException e) {
+                skipped.add(rosterName + " 第" + d.getLine() + "行：与本团队其他人的排班重叠");
+            } catch (IllegalArgumentException e) {
+                skipped.add(rosterName + " 第" + d.getLine() + "行：" + e.getMessage());
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * 把内存中的一个值班表版本作为一张团队值班表加入：其中的员工按姓名登记到共享员工库（已存在的同名员工视为同一人），
+     * 显式值班逐段安排，轮换规则换成共享员工库中的员工后整条加入，不展开为各班；
+     * 与已加入的值班表重复值班的排班与规则被跳过并记录下来
+     * @param rosterName 值班表名称
+     * @param version 值班表版本
+     * @return 被跳过的排班及其原因
+     * @throws confictName 已存在同名值班表
+     */
+    public List<String> include(String rosterName, PersistentRoster version) {
+        createRoster(rosterName, version.getPeriodStart(), version.getPeriodEnd());
+        for (EmployeeView e : version.employees()) {
+            if (registry.find(e.getName()) < 0)
+                addEmployee(e.getName(), e.getPosition(), e.getPhoneNum());
+        }
+        List<String> skipped = new ArrayList<>();
+        for (EmployeeView e : version.sort()) {
+            long[] duty = version.duty(e.getName());
+            try {
+                assign(rosterName, e.getName(), duty[0], duty[1]);
+            } catch (NonlapException ex) {
+                skipped.add(rosterName + " " + e.getName() + "：与本团队其他人的排班重叠");
+            } catch (IllegalArgumentException ex) {
+                skipped.add(rosterName + " " + e.getName() + "：" + ex.getMessage());
+            }
+        }
+        for (RotationRule<EmployeeView> rule : version.getRotations().rules()) {
+            List<EmployeeView> members = new ArrayList<>(rule.getMembers().size());
+            for (EmployeeView e : rule.getMembers())
+                members.add(employee(e.getName()));
+            try {
+                addRotation(rosterName, new RotationRule<>(members, rule.getStart(), rule.getEnd(), rule.getBlock(), codec));
+            } catch (IllegalArgumentException ex) {
+                skipped.add(rosterName + " 轮换规则 " + rule + "：" + ex.getMessage());
+            }
+        }
+        return skipped;
+    }
+
+    private void unbook(String employeeName, long start) {
+        TreeMap<Long, Booking> index = bookings.get(employeeName);
+        if (index == null)
+            return;
+        index.remove(start);
+        if (index.isEmpty())
+            bookings.remove(employeeName);
+    }
+}
@@ -0,0 +1,94 @@
+package application;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地负载生成器，用于测量 {@link RosterHttpServer} 的吞吐量与延迟。
+ * <p>用法：{@code RosterLoadGenerator 端口 并发数 秒数 路径}，例如
+ * {@code RosterLoadGenerator 8080 32 10 /duty?date=2024-03-01}。
+ * 每个并发连接在一个线程中循环发送请求，结束后输出每秒请求数与延迟的 p50/p99/p999/最大值。
+ */
+public class RosterLoadGenerator {
+    private RosterLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("用法：RosterLoadGenerator 端口 并发数 秒数 路径");
+            return;
+        }
+        int port = Integer.parseInt(args[0]);
+        int concurrency = Integer.parseInt(args[1]);
+        long seconds = Long.parseLong(args[2]);
+        URI uri = URI.create("http://127.0.0.1:" + port + args[3]);
+        System.out.println(run(uri, concurrency, seconds * 1_000_000_000L));
+    }
+
+    /**
+     * 对指定地址持续发送 GET 请求
+     * @param uri 请求地址
+     * @param concurrency 并发请求数
+     * @param durationNanos 持续时间
+     * @return 测量结果的文字描述
+     * @throws Exception 请求线程异常退出
+     */
+    public static String run(URI uri, int concurrency, long durationNanos) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        long deadline = System.nanoTime() + durationNanos;
+        List<Future<long[]>> futures = new ArrayList<>();
+        long begin = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long t0 = System.nanoTime();
+                        client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (count == latencies.length)
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        latencies[count++] = System.nanoTime() - t0;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(durationNanos + 60_000_000_000L, TimeUnit.NANOSECONDS);
+        long elapsed = System.nanoTime() - begin;
+        int total = 0;
+        for (Future<long[]> future : futures)
+            total += future.get().length;
+        long[] all = new long[total];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] part = future.get();
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        Arrays.sort(all);
+        if (total == 0)
+            return "没有完成任何请求";
+        return String.format("请求数:%d    吞吐量:%.0f 次/秒    p50:%.3fms    p99:%.3fms    p999:%.3fms    最大:%.3fms",
+                total, total * 1e9 / elapsed, percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6,
+                percentile(all, 0.999) / 1e6, all[total - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
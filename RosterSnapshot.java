@@ -0,0 +1,226 @@
+package application;
+
+import dimensions.NonlapException;
+import entity.Employee;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 值班表在某一时刻的不可变快照，供并发查询使用。
+ * <p>值班区间按开始日期排序存放在并行数组中，按日期查询值班人员时二分查找，
+ * 按姓名查询时通过散列表定位。快照一旦创建就不再修改，可以被任意多个线程同时读取。
+ * <p>轮换规则不展开，以 {@link RotationPlan} 保存，按日期查询时在显式值班中找不到再按规则算出。
+ * <p>快照记录值班表所用的 {@link TimeCodec}，查询方据此解析与显示时间。
+ */
+public class RosterSnapshot {
+    private final TimeCodec codec;
+    private final long periodStart;
+    private final long periodEnd;
+    private final long[] starts;
+    private final long[] ends;
+    private final Employee[] employees;
+    private final Map<String, List<Integer>> indexOfName;
+    private final RotationPlan<Employee> rotations;
+    //Abstraction function:
+    //  AF = 总时间段为[periodStart, periodEnd]的值班表，第i段显式值班为[starts[i], ends[i]]，值班人为employees[i]，
+    //       rotations中各规则覆盖的日期按规则轮换值班
+    //Representation invariant:
+    //  starts、ends、employees长度相同；starts严格递增；对每个i，starts[i] <= ends[i] < starts[i+1]；
+    //  显式值班与rotations中的规则互不重叠；
+    //  indexOfName中每个姓名映射到该员工值班的各个下标，按开始日期递增
+    //Safety from rep exposure:
+    //  所有字段为private final，数组与映射只在构造时写入，不返回内部数组；rotations与其中的规则不可变
+
+    private RosterSnapshot(TimeCodec codec, long periodStart, long periodEnd, long[] starts, long[] ends,
+                           Employee[] employees, RotationPlan<Employee> rotations) {
+        this.codec = codec;
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+        this.starts = starts;
+        this.ends = ends;
+        this.employees = employees;
+        this.rotations = rotations;
+        this.indexOfName = new HashMap<>();
+        for (int i = 0; i < employees.length; i++)
+            indexOfName.computeIfAbsent(employees[i].getName(), k -> new ArrayList<>(1)).add(i);
+    }
+
+    /**
+     * 由以天为单位的值班表创建快照
+     * @param dutySet 值班表
+     * @return 快照
+     */
+    public static RosterSnapshot of(DutyStore<EmployeeView> dutySet) {
+        return of(dutySet, TimeCodec.DAY);
+    }
+
+    /**
+     * 由当前值班表创建快照；员工信息在创建时从员工存储中复制出来，快照不再引用可变的存储
+     * @param dutySet 值班表
+     * @param codec 值班表的时间编码
+     * @return 快照
+     */
+    public static RosterSnapshot of(DutyStore<EmployeeView> dutySet, TimeCodec codec) {
+        List<EmployeeView> sorted = dutySet.sort();
+        int n = sorted.size();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        Employee[] employees = new Employee[n];
+        for (int i = 0; i < n; i++) {
+            EmployeeView e = sorted.get(i);
+            employees[i] = e.toEmployee();
+            starts[i] = dutySet.start(e);
+            ends[i] = dutySet.end(e);
+        }
+        return new RosterSnapshot(codec, dutySet.getStart(), dutySet.getEnd(), starts, ends, employees,
+                RotationPlan.empty());
+    }
+
+    /**
+     * 由值班表版本创建快照；轮换规则不展开，只把规则中的员工信息复制出来，代价与显式值班数和规则人数之和成正比
+     * @param roster 值班表版本
+     * @param codec 值班表的时间编码
+     * @return 快照
+     */
+    public static RosterSnapshot of(PersistentRoster roster, TimeCodec codec) {
+        List<EmployeeView> sorted = roster.sort();
+        int n = sorted.size();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        Employee[] employees = new Employee[n];
+        for (int i = 0; i < n; i++) {
+            EmployeeView e = sorted.get(i);
+            long[] duty = roster.duty(e.getName());
+            employees[i] = e.toEmployee();
+            starts[i] = duty[0];
+            ends[i] = duty[1];
+        }
+        // 同一员工可能在多条规则中，员工信息只复制一次
+        Map<EmployeeView, Employee> copies = new HashMap<>();
+        RotationPlan<Employee> rotations = RotationPlan.empty();
+        for (RotationRule<EmployeeView> rule : roster.getRotations().rules()) {
+            List<Employee> members = new ArrayList<>(rule.getMembers().size());
+            for (EmployeeView e : rule.getMembers())
+                members.add(copies.computeIfAbsent(e, EmployeeView::toEmployee));
+            try {
+                rotations = rotations.with(new RotationRule<>(members, rule.getStart(), rule.getEnd(), rule.getBlock(), codec));
+            } catch (NonlapException e) {
+                // 值班表版本中的规则互不重叠
+                throw new IllegalStateException(e);
+            }
+        }
+        return new RosterSnapshot(codec, roster.getPeriodStart(), roster.getPeriodEnd(), starts, ends, employees,
+                rotations);
+    }
+
+    /**
+     * @param time 按 {@link #getCodec()} 编码的时刻
+     * @return 该时刻值班的员工，无人值班时返回null
+     */
+    public Employee onDuty(long time) {
+        int lo = 0;
+        int hi = starts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= time)
+                lo = mid + 1;
+            else
+                hi = mid - 1;
+        }
+        if (hi >= 0 && ends[hi] >= time)
+            return employees[hi];
+        return rotations.onDuty(time);
+    }
+
+    /**
+     * @param name 员工姓名
+     * @return 该员工最早的一段显式值班区间{开始, 结束}，没有显式值班时返回null
+     */
+    public long[] dutyOf(String name) {
+        List<Integer> indices = indexOfName.get(name);
+        if (indices == null)
+            return null;
+        int i = indices.get(0);
+        return new long[]{starts[i], ends[i]};
+    }
+
+    /**
+     * @param name 员工姓名
+     * @return 该员工的全部显式值班区间，按开始时间排序，每个元素为{开始, 结束}；没有时为空
+     */
+    public List<long[]> dutiesOf(String name) {
+        List<long[]> duties = new ArrayList<>();
+        for (int i : indexOfName.getOrDefault(name, new ArrayList<>()))
+            duties.add(new long[]{starts[i], ends[i]});
+        return duties;
+    }
+
+    /**
+     * @param name 员工姓名
+     * @return 包含该员工的轮换规则，按开始日期排序；没有时为空
+     */
+    public List<RotationRule<Employee>> rotationsOf(String name) {
+        List<RotationRule<Employee>> rules = new ArrayList<>();
+        for (RotationRule<Employee> rule : rotations.rules()) {
+            for (Employee e : rule.getMembers()) {
+                if (e.getName().equals(name)) {
+                    rules.add(rule);
+                    break;
+                }
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * @return 所有未排班时间段，每个元素为{开始, 结束}（都包含在内）；轮换规则的范围整体视为已排班
+     */
+    public List<long[]> freePeriods() {
+        List<long[]> free = new ArrayList<>();
+        List<RotationRule<Employee>> rules = rotations.rules();
+        long cursor = periodStart;
+        int i = 0;
+        int r = 0;
+        while (i < starts.length || r < rules.size()) {
+            long s;
+            long e;
+            if (r == rules.size() || (i < starts.length && starts[i] < rules.get(r).getStart())) {
+                s = starts[i];
+                e = ends[i++];
+            } else {
+                s = Math.max(periodStart, rules.get(r).getStart());
+                e = Math.min(periodEnd, rules.get(r++).getEnd());
+                if (s > e)
+                    continue;
+            }
+            if (s > cursor)
+                free.add(new long[]{cursor, s - 1});
+            cursor = Math.max(cursor, e + 1);
+        }
+        if (cursor <= periodEnd)
+            free.add(new long[]{cursor, periodEnd});
+        return free;
+    }
+
+    public TimeCodec getCodec() {
+        return codec;
+    }
+
+    public long getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getPeriodEnd() {
+        return periodEnd;
+    }
+
+    /**
+     * @return 值班区间个数
+     */
+    public int size() {
+        return starts.length;
+    }
+}
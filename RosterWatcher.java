@@ -0,0 +1,142 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 监视一个值班表文件，文件被修改后重新解析并把解析结果交给回调。
+ * <p>基于 NIO 的 {@link WatchService} 监视文件所在目录，在一个后台线程中等待事件。
+ * 编辑器保存文件时常常连续产生多个事件，收到事件后先等待 {@link #SETTLE_MILLIS} 毫秒并丢弃期间的其余事件，
+ * 再按修改时间与大小判断文件是否真的变化，每次保存只解析一次。
+ * <p>回调在监视线程中执行，调用方负责与其他线程同步；解析失败时把原因交给错误回调，监视继续进行。
+ */
+public class RosterWatcher implements Closeable {
+    static final long SETTLE_MILLIS = 50;
+
+    private final Path file;
+    private final WatchService watcher;
+    private final Consumer<RosterFile> onChange;
+    private final Consumer<String> onError;
+    private final Thread thread;
+    private FileTime lastModified = null;
+    private long lastSize = -1;
+    private volatile boolean closed = false;
+    //Abstraction function:
+    //  AF = 对文件file的监视，文件内容变化时以解析结果调用onChange，读取失败时调用onError
+    //Representation invariant:
+    //  file为绝对路径且有父目录；lastModified与lastSize为最近一次交给回调的文件状态，只在同步的readIfChanged中读写
+    //Safety from rep exposure:
+    //  成员变量均为private，只向回调传递每次新解析出的RosterFile
+
+    /**
+     * 开始监视文件
+     * @param file 值班表文件
+     * @param onChange 文件变化后以新的解析结果调用，在监视线程中执行
+     * @param onError 文件读取失败时以错误信息调用，在监视线程中执行
+     * @throws IOException 无法监视文件所在目录
+     */
+    public RosterWatcher(Path file, Consumer<RosterFile> onChange, Consumer<String> onError) throws IOException {
+        this.file = file.toAbsolutePath().normalize();
+        this.onChange = onChange;
+        this.onError = onError;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "roster-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return 被监视的文件
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 立即读取一次文件并调用回调，不论文件是否变化；在调用者的线程中执行
+     */
+    public void reloadNow() {
+        reload(true);
+    }
+
+    /**
+     * 停止监视
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watcher.close();
+        thread.interrupt();
+    }
+
+    private void watch() {
+        Path name = file.getFileName();
+        try {
+            while (!closed) {
+                WatchKey key = watcher.take();
+                boolean touched = concerns(key, name);
+                key.reset();
+                if (!touched)
+                    continue;
+                // 等待这次保存的其余事件到达后一并丢弃
+                WatchKey more;
+                while ((more = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    more.pollEvents();
+                    more.reset();
+                }
+                reload(false);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 已停止监视
+        }
+    }
+
+    private static boolean concerns(WatchKey key, Path name) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context()))
+                touched = true;
+        }
+        return touched;
+    }
+
+    private void reload(boolean force) {
+        RosterFile parsed;
+        try {
+            parsed = readIfChanged(force);
+        } catch (IOException e) {
+            onError.accept("读取 " + file + " 失败：" + e.getMessage());
+            return;
+        }
+        // 回调可能需要获取调用方的锁，不能在持有本对象的锁时调用
+        if (parsed != null)
+            onChange.accept(parsed);
+    }
+
+    /**
+     * @return 文件的解析结果，文件未变化且不强制读取时为null
+     */
+    private synchronized RosterFile readIfChanged(boolean force) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(file);
+        long size = Files.size(file);
+        if (!force && modified.equals(lastModified) && size == lastSize)
+            return null;
+        RosterFile parsed = RosterFile.read(file);
+        lastModified = modified;
+        lastSize = size;
+        return parsed;
+    }
+}
@@ -0,0 +1,168 @@
+package application;
+
+import dimensions.NonlapException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 一组互不重叠的 {@link RotationRule}，按开始日期排序，叠加在显式的值班时间段之上；不可变。
+ * <p>规则按开始日期存放在 {@link PersistentSortedMap} 中，加入或删除一条规则返回共享其余规则的新对象，
+ * 因此它可以作为值班表版本的一部分随版本保存。
+ * <p>某日的值班人员通过查找所在规则后算术求出；展示时只展开所请求窗口内的各班，代价与窗口内的班数成正比。
+ *
+ * @param <L> 值班人员的类型
+ */
+public final class RotationPlan<L> {
+    private static final RotationPlan<Object> EMPTY =
+            new RotationPlan<>(PersistentSortedMap.<Long, RotationRule<Object>>empty(Comparator.naturalOrder()));
+
+    private final PersistentSortedMap<Long, RotationRule<L>> rules;
+    //Abstraction function:
+    //  AF = rules中各规则覆盖的所有值班日，rules以规则的开始日期为键
+    //Representation invariant:
+    //  相邻规则的时间范围不重叠
+    //Safety from rep exposure:
+    //  rules为private final且不可变，规则不可变，rules()返回新的list
+
+    private RotationPlan(PersistentSortedMap<Long, RotationRule<L>> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @return 没有规则的空计划
+     */
+    @SuppressWarnings("unchecked")
+    public static <L> RotationPlan<L> empty() {
+        return (RotationPlan<L>) EMPTY;
+    }
+
+    /**
+     * @param rule 规则
+     * @return 加入该规则后的计划
+     * @throws NonlapException 与已有规则的时间范围重叠
+     */
+    public RotationPlan<L> with(RotationRule<L> rule) throws NonlapException {
+        RotationRule<L> before = overlapping(rule.getStart(), rule.getEnd());
+        if (before != null)
+            throw new NonlapException("与轮换规则 " + before + " 重叠");
+        return new RotationPlan<>(rules.put(rule.getStart(), rule));
+    }
+
+    /**
+     * @param rule 计划中的一条规则
+     * @return 删除该规则后的计划
+     * @throws noExsistedException 计划中没有该规则
+     */
+    public RotationPlan<L> without(RotationRule<L> rule) {
+        if (rules.get(rule.getStart()) != rule)
+            throw new noExsistedException("没有轮换规则 " + rule);
+        return new RotationPlan<>(rules.remove(rule.getStart()));
+    }
+
+    /**
+     * @return 所有规则，按开始日期排序
+     */
+    public List<RotationRule<L>> rules() {
+        List<RotationRule<L>> list = new ArrayList<>(rules.size());
+        rules.forEach((start, rule) -> list.add(rule));
+        return list;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * @return 规则条数
+     */
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * @param member 人员
+     * @return 该人员是否出现在某条规则中，代价与所有规则的人数之和成正比
+     */
+    public boolean contains(L member) {
+        boolean[] found = {false};
+        rules.forEach((start, rule) -> found[0] |= rule.getMembers().contains(member));
+        return found[0];
+    }
+
+    /**
+     * @param day 日期
+     * @return 覆盖该日的规则，没有时为null
+     */
+    public RotationRule<L> ruleAt(long day) {
+        RotationRule<L> rule = ruleBefore(day);
+        return rule != null && rule.getEnd() >= day ? rule : null;
+    }
+
+    /**
+     * @param day 日期
+     * @return 该日按轮换规则的值班人员，不在任何规则范围内时为null
+     */
+    public L onDuty(long day) {
+        RotationRule<L> rule = ruleBefore(day);
+        return rule == null ? null : rule.onDuty(day);
+    }
+
+    /**
+     * @param start 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @return [start, end]是否与某条规则的时间范围重叠
+     */
+    public boolean overlaps(long start, long end) {
+        return overlapping(start, end) != null;
+    }
+
+    /**
+     * @param start 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @return 与[start, end]重叠的最后一条规则，没有时为null
+     */
+    public RotationRule<L> overlapping(long start, long end) {
+        RotationRule<L> rule = ruleBefore(end);
+        return rule != null && rule.getEnd() >= start ? rule : null;
+    }
+
+    /**
+     * 展开[from, to]内所有规则的各班，首尾两班被裁剪到窗口内
+     * @param from 窗口开始日期（包含）
+     * @param to 窗口结束日期（包含）
+     * @return 按开始日期排序的时间段
+     */
+    public List<CalendarIndex.Duty<L>> materialize(long from, long to) {
+        List<CalendarIndex.Duty<L>> duties = new ArrayList<>();
+        Long key = rules.floorKey(from);
+        if (key == null || rules.get(key).getEnd() < from)
+            key = rules.ceilingKey(from);
+        while (key != null && key <= to) {
+            RotationRule<L> rule = rules.get(key);
+            duties.addAll(rule.materialize(from, to));
+            key = rule.getEnd() == Long.MAX_VALUE ? null : rules.ceilingKey(rule.getEnd() + 1);
+        }
+        return duties;
+    }
+
+    /**
+     * 与另一计划比较，对每处不同的规则调用一次action(本计划中的规则, 另一计划中的规则)，
+     * 只在一边存在的规则另一个参数为null；两个计划共享的规则直接跳过
+     * @param other 另一计划
+     * @param action 差异的处理
+     */
+    public void diff(RotationPlan<L> other, BiConsumer<RotationRule<L>, RotationRule<L>> action) {
+        rules.diff(other.rules, (start, before, after) -> action.accept(before, after));
+    }
+
+    /**
+     * @return 开始日期不晚于day的最后一条规则，没有时为null
+     */
+    private RotationRule<L> ruleBefore(long day) {
+        Long start = rules.floorKey(day);
+        return start == null ? null : rules.get(start);
+    }
+}
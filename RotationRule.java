@@ -0,0 +1,149 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 轮换值班规则：若干人员从某日起按固定天数轮流值班，直到某日为止，例如"A、B、C 从X日起每周轮换"。
+ * <p>规则只保存人员列表、起止日期与每班天数，不论覆盖多少年都只占常数空间；
+ * 某日的值班人员通过算术直接求出，只有在需要展示某个时间窗口时才把窗口内的各班展开为时间段。
+ * 规则覆盖的每一天都有人值班。
+ * <p>时间按 {@link TimeCodec} 编码：分钟精度下起止时刻与每班长度都以分钟计，例如每班12小时的轮换。
+ *
+ * @param <L> 值班人员的类型
+ */
+public final class RotationRule<L> {
+    private final List<L> members;
+    private final long start;
+    private final long end;
+    private final long block;
+    private final TimeCodec codec;
+    //Abstraction function:
+    //  AF = 从start到end（均包含）的每个时间单位t，由members.get(((t - start) / block) % members.size())值班，
+    //       时间单位由codec确定
+    //Representation invariant:
+    //  members非空且不含null，start <= end，block > 0
+    //Safety from rep exposure:
+    //  成员变量均为private final，members为构造时拷贝的不可修改list
+
+    /**
+     * @param members 按轮换顺序排列的值班人员
+     * @param start 第一班的开始日期
+     * @param end 规则的结束日期（包含）
+     * @param blockDays 每班天数
+     * @throws IllegalArgumentException 人员为空、开始日期晚于结束日期或每班天数不为正
+     */
+    public RotationRule(List<L> members, long start, long end, int blockDays) {
+        this(members, start, end, blockDays, TimeCodec.DAY);
+    }
+
+    /**
+     * @param members 按轮换顺序排列的值班人员
+     * @param start 第一班的开始时刻
+     * @param end 规则的结束时刻（包含）
+     * @param block 每班长度，单位与时刻相同
+     * @param codec 时间编码
+     * @throws IllegalArgumentException 人员为空、开始时刻晚于结束时刻或每班长度不为正
+     */
+    public RotationRule(List<L> members, long start, long end, long block, TimeCodec codec) {
+        if (members.isEmpty())
+            throw new IllegalArgumentException("轮换人员不能为空");
+        for (L member : members) {
+            if (member == null)
+                throw new IllegalArgumentException("轮换人员不能为空");
+        }
+        if (start > end)
+            throw new IllegalArgumentException("开始日期应不晚于结束日期");
+        if (block <= 0)
+            throw new IllegalArgumentException("每班时长必须为正");
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+        this.start = start;
+        this.end = end;
+        this.block = block;
+        this.codec = codec;
+    }
+
+    public List<L> getMembers() {
+        return members;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return 每班长度，单位与时刻相同
+     */
+    public long getBlock() {
+        return block;
+    }
+
+    /**
+     * @param time 日期，分钟精度下为时刻
+     * @return 该时刻的值班人员，不在规则范围内时为null
+     */
+    public L onDuty(long time) {
+        if (time < start || time > end)
+            return null;
+        return members.get((int) (((time - start) / block) % members.size()));
+    }
+
+    /**
+     * 不展开各班，按轮换顺序直接求出某人在[from, to]内的第一班
+     * @param member 人员
+     * @param from 窗口开始（包含）
+     * @param to 窗口结束（包含）
+     * @return 该班在规则范围内的{开始, 结束}，不裁剪到窗口；该人员在窗口内没有值班时为null
+     */
+    public long[] firstShiftOf(L member, long from, long to) {
+        long first = Math.max(from, start);
+        long last = Math.min(to, end);
+        if (first > last)
+            return null;
+        int m = members.size();
+        long a = (first - start) / block;
+        long b = (last - start) / block;
+        long best = -1;
+        for (int k = 0; k < m; k++) {
+            if (!members.get(k).equals(member))
+                continue;
+            long j = a + Math.floorMod(k - a, (long) m);
+            if (j <= b && (best < 0 || j < best))
+                best = j;
+        }
+        if (best < 0)
+            return null;
+        return new long[]{start + best * block, Math.min(start + (best + 1) * block - 1, end)};
+    }
+
+    /**
+     * 把规则与[from, to]相交的部分展开为各班的时间段，首尾两班被裁剪到窗口内
+     * @param from 窗口开始日期（包含）
+     * @param to 窗口结束日期（包含）
+     * @return 按开始日期排序的时间段，代价与窗口内的班数成正比
+     */
+    public List<CalendarIndex.Duty<L>> materialize(long from, long to) {
+        List<CalendarIndex.Duty<L>> duties = new ArrayList<>();
+        long first = Math.max(from, start);
+        long last = Math.min(to, end);
+        if (first > last)
+            return duties;
+        long index = (first - start) / block;
+        for (long blockStart = start + index * block; blockStart <= last; blockStart += block, index++) {
+            long s = Math.max(blockStart, first);
+            long e = Math.min(blockStart + block - 1, last);
+            duties.add(new CalendarIndex.Duty<>(members.get((int) (index % members.size())), s, e));
+        }
+        return duties;
+    }
+
+    @Override
+    public String toString() {
+        return codec.formatRange(start, end) + " " + members + " 每" + codec.formatLength(block) + "轮换";
+    }
+}
@@ -0,0 +1,64 @@
+package application;
+
+/**
+ * 时间片轮转调度：就绪进程按到达顺序排队，每次最多执行一个固定时间片，未执行完毕则回到队尾。
+ */
+public class RoundRobinScheduler implements ProcessScheduler {
+    private final long quantum;
+    private final IntRingQueue ready = new IntRingQueue();
+    //Abstraction function:
+    //  AF(quantum, ready) = 时间片长度为quantum、就绪队列为ready的轮转调度器
+    //Representation invariant:
+    //  quantum > 0
+    //Safety from rep exposure:
+    //  成员变量均为private final，不返回内部队列
+
+    /**
+     * @param quantum 时间片长度，必须为正
+     * @throws IllegalArgumentException 时间片长度不为正
+     */
+    public RoundRobinScheduler(long quantum) {
+        if (quantum <= 0)
+            throw new IllegalArgumentException("时间片长度必须为正");
+        this.quantum = quantum;
+    }
+
+    @Override
+    public String name() {
+        return "RR(q=" + quantum + ")";
+    }
+
+    @Override
+    public void reset(long[] deadline) {
+        ready.clear();
+    }
+
+    @Override
+    public void offer(int slot, long now) {
+        ready.offer(slot);
+    }
+
+    @Override
+    public int poll(long now) {
+        return ready.isEmpty() ? -1 : ready.poll();
+    }
+
+    @Override
+    public long quantum(int slot) {
+        return quantum;
+    }
+
+    @Override
+    public void sliceEnd(int slot, long ran, boolean finished) {
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ready.isEmpty();
+    }
+
+    @Override
+    public boolean preemptOnArrival() {
+        return false;
+    }
+}
@@ -0,0 +1,23 @@
+package application;
+
+/**
+ * 调度过程的观察者，每个时间片被执行、每个进程执行完毕时得到通知。
+ */
+public interface ScheduleListener {
+    /**
+     * 一个时间片执行完毕
+     * @param slot 进程槽位
+     * @param start 时间片开始时刻
+     * @param end 时间片结束时刻
+     */
+    void onSlice(int slot, long start, long end);
+
+    /**
+     * 一个进程执行完毕
+     * @param slot 进程槽位
+     * @param arrival 到达时刻
+     * @param finish 完成时刻
+     * @param service 该进程累计执行时间
+     */
+    void onComplete(int slot, long arrival, long finish, long service);
+}
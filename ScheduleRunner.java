@@ -0,0 +1,188 @@
+package application;
+
+import OriginSets.MultiIntervalSet;
+import dimensions.NonlapException;
+import dimensions.NonperiodicException;
+import entity.Process;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 单CPU调度驱动：按 {@link ProcessScheduler} 给出的顺序与时间片执行进程，并将结果写入调度时间轴。
+ * <p>每个进程的实际执行时间在 [最短执行时间, 最长执行时间] 中随机选取，执行满后即完成。
+ * <p>同一进程在时间上首尾相接的时间片会合并为一个时间段后再写入时间轴，
+ * 因此写入次数只取决于进程切换次数，而不取决于时间片数。
+ */
+public class ScheduleRunner {
+    private ScheduleRunner() {
+    }
+
+    /**
+     * 使用给定策略调度所有进程，所有进程在时刻0到达。
+     *
+     * @param scheduler 调度策略
+     * @param processes 进程列表，下标即进程槽位
+     * @param executed 每个槽位已执行的时间，运行结束后更新为新的已执行时间
+     * @param schedule 写入结果的调度时间轴，为null时只统计指标、不写入
+     * @param rand 随机数来源
+     * @param listener 调度过程的观察者，可以为null
+     * @return 本次运行的性能指标
+     */
+    public static SchedulerMetrics run(ProcessScheduler scheduler, List<Process> processes, long[] executed,
+                                       MultiIntervalSet<Process> schedule, Random rand, ScheduleListener listener) {
+        long[] demand = new long[processes.size()];
+        for (int slot = 0; slot < demand.length; slot++)
+            demand[slot] = Math.max(0, drawDemand(processes.get(slot), rand) - executed[slot]);
+        return run(scheduler, processes, demand, executed, schedule, listener);
+    }
+
+    /**
+     * 使用给定策略和已确定的执行时间调度所有进程，所有进程在时刻0到达。
+     *
+     * @param scheduler 调度策略
+     * @param processes 进程列表，下标即进程槽位
+     * @param demand 每个槽位本次还需执行的时间，不会被修改
+     * @param executed 每个槽位已执行的时间，运行结束后更新为新的已执行时间
+     * @param schedule 写入结果的调度时间轴，为null时只统计指标、不写入
+     * @return 本次运行的性能指标
+     */
+    public static SchedulerMetrics run(ProcessScheduler scheduler, List<Process> processes, long[] demand,
+                                       long[] executed, MultiIntervalSet<Process> schedule) {
+        return run(scheduler, processes, demand, executed, schedule, null);
+    }
+
+    /**
+     * 使用给定策略和已确定的执行时间调度所有进程，所有进程在时刻0到达，并把每个时间片与完成事件通知给观察者。
+     *
+     * @param scheduler 调度策略
+     * @param processes 进程列表，下标即进程槽位
+     * @param demand 每个槽位本次还需执行的时间，不会被修改
+     * @param executed 每个槽位已执行的时间，运行结束后更新为新的已执行时间
+     * @param schedule 写入结果的调度时间轴，为null时只统计指标、不写入
+     * @param listener 调度过程的观察者，可以为null
+     * @return 本次运行的性能指标
+     */
+    public static SchedulerMetrics run(ProcessScheduler scheduler, List<Process> processes, long[] demand,
+                                       long[] executed, MultiIntervalSet<Process> schedule,
+                                       ScheduleListener listener) {
+        int n = processes.size();
+        long[] remaining = demand.clone();
+        long[] deadline = new long[n];
+        long[] service = new long[n];
+        for (int slot = 0; slot < n; slot++)
+            deadline[slot] = processes.get(slot).getMaxEXT();
+
+        long begin = System.nanoTime();
+        scheduler.reset(deadline);
+        int active = 0;
+        for (int slot = 0; slot < n; slot++) {
+            if (remaining[slot] > 0) {
+                scheduler.offer(slot, 0);
+                active++;
+            }
+        }
+        long now = 0;
+        long slices = 0;
+        long totalTurnaround = 0;
+        long totalWaiting = 0;
+        SliceWriter writer = new SliceWriter(processes, schedule);
+        while (!scheduler.isEmpty()) {
+            int slot = scheduler.poll(now);
+            if (slot < 0)
+                break;
+            long run = Math.min(scheduler.quantum(slot), remaining[slot]);
+            writer.write(slot, now, now + run);
+            if (listener != null)
+                listener.onSlice(slot, now, now + run);
+            now += run;
+            slices++;
+            remaining[slot] -= run;
+            executed[slot] += run;
+            service[slot] += run;
+            boolean finished = remaining[slot] == 0;
+            scheduler.sliceEnd(slot, run, finished);
+            if (finished) {
+                totalTurnaround += now;
+                totalWaiting += now - service[slot];
+                if (listener != null)
+                    listener.onComplete(slot, 0, now, service[slot]);
+            } else {
+                scheduler.offer(slot, now);
+            }
+        }
+        writer.flush();
+        long wall = System.nanoTime() - begin;
+        return new SchedulerMetrics(scheduler.name(), active, slices, writer.getWritten(), now,
+                totalTurnaround, totalWaiting, wall);
+    }
+
+    /**
+     * 随机确定进程本次的实际执行时间
+     * @param p 进程
+     * @param rand 随机数来源
+     * @return [最短执行时间, 最长执行时间] 中的一个值
+     */
+    static long drawDemand(Process p, Random rand) {
+        long min = p.getMinEXT();
+        long max = p.getMaxEXT();
+        return Math.min(max, min + (long) (rand.nextDouble() * (max - min + 1)));
+    }
+
+    /**
+     * 合并同一进程首尾相接的时间片后写入时间轴
+     */
+    static class SliceWriter {
+        private final List<Process> processes;
+        private final MultiIntervalSet<Process> schedule;
+        private int pendingSlot = -1;
+        private long pendingStart;
+        private long pendingEnd;
+        private long written = 0;
+
+        SliceWriter(List<Process> processes, MultiIntervalSet<Process> schedule) {
+            this.processes = processes;
+            this.schedule = schedule;
+        }
+
+        void write(int slot, long start, long end) {
+            if (start == end)
+                return;
+            if (slot == pendingSlot && start == pendingEnd) {
+                pendingEnd = end;
+                return;
+            }
+            flush();
+            pendingSlot = slot;
+            pendingStart = start;
+            pendingEnd = end;
+        }
+
+        /**
+         * @return 槽位slot从start开始的时间片是否与尚未写入的时间段首尾相接
+         */
+        boolean continues(int slot, long start) {
+            return slot == pendingSlot && start == pendingEnd;
+        }
+
+        void flush() {
+            if (pendingSlot < 0)
+                return;
+            written++;
+            if (schedule != null) {
+                try {
+                    schedule.insert(pendingStart, pendingEnd, processes.get(pendingSlot));
+                } catch (NonlapException e) {
+                    System.out.println("同种进程时间重叠");
+                } catch (NonperiodicException e) {
+                    System.out.println("不符合非周期性");
+                }
+            }
+            pendingSlot = -1;
+        }
+
+        long getWritten() {
+            return written;
+        }
+    }
+}
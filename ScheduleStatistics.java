@@ -0,0 +1,193 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * 一次调度（单核或多核）的增量统计。
+ * <p>每写入一个时间片、每完成一个进程就更新一次，所有汇总指标与单个进程的指标都可以 O(1) 查询，
+ * 分位数查询只遍历直方图中固定数量的桶，都不需要再遍历调度时间轴。
+ * <p>所有时间都以时刻0为起点：总时长为最后一个时间片的结束时刻，CPU可用时间为核心数×总时长，
+ * 其中没有执行时间片的部分（包括第一个时间片之前的空闲）计为空闲时间。
+ * 因此时间片可以按任意顺序通知，多个核心的时间片也可以交错通知。
+ */
+public class ScheduleStatistics implements ScheduleListener {
+    private final int cores;
+    private long slices = 0;
+    private long busyTime = 0;
+    private long lastEnd = 0;
+    private int completed = 0;
+    private long totalTurnaround = 0;
+    private long totalWaiting = 0;
+
+    private int[] sliceCount = new int[16];
+    private long[] turnaround = new long[16];
+    private long[] waiting = new long[16];
+    private boolean[] done = new boolean[16];
+
+    private final LatencyHistogram turnaroundHistogram = new LatencyHistogram();
+    private final LatencyHistogram waitingHistogram = new LatencyHistogram();
+    private final LatencyHistogram sliceHistogram = new LatencyHistogram();
+    //Abstraction function:
+    //  AF = cores个核心上从时刻0开始的调度中已发生的slices个时间片与completed个进程完成事件的统计结果，
+    //       下标为槽位的数组记录每个进程的时间片数、周转时间与等待时间
+    //Representation invariant:
+    //  cores > 0；busyTime <= cores * lastEnd；
+    //  completed 等于 done 中为true的个数
+    //Safety from rep exposure:
+    //  成员变量均为private，只返回基本类型或直方图的文字描述
+
+    /**
+     * 单核调度的统计
+     */
+    public ScheduleStatistics() {
+        this(1);
+    }
+
+    /**
+     * @param cores 核心数
+     * @throws IllegalArgumentException 核心数不为正
+     */
+    public ScheduleStatistics(int cores) {
+        if (cores <= 0)
+            throw new IllegalArgumentException("核心数必须为正");
+        this.cores = cores;
+    }
+
+    @Override
+    public void onSlice(int slot, long start, long end) {
+        ensure(slot);
+        slices++;
+        busyTime += end - start;
+        lastEnd = Math.max(lastEnd, end);
+        sliceCount[slot]++;
+        sliceHistogram.record(end - start);
+    }
+
+    @Override
+    public void onComplete(int slot, long arrival, long finish, long service) {
+        ensure(slot);
+        if (done[slot])
+            return;
+        done[slot] = true;
+        completed++;
+        turnaround[slot] = finish - arrival;
+        waiting[slot] = finish - arrival - service;
+        totalTurnaround += turnaround[slot];
+        totalWaiting += waiting[slot];
+        turnaroundHistogram.record(turnaround[slot]);
+        waitingHistogram.record(waiting[slot]);
+    }
+
+    private void ensure(int slot) {
+        if (slot < sliceCount.length)
+            return;
+        int cap = Math.max(slot + 1, sliceCount.length * 2);
+        sliceCount = Arrays.copyOf(sliceCount, cap);
+        turnaround = Arrays.copyOf(turnaround, cap);
+        waiting = Arrays.copyOf(waiting, cap);
+        done = Arrays.copyOf(done, cap);
+    }
+
+    public long slices() {
+        return slices;
+    }
+
+    public long busyTime() {
+        return busyTime;
+    }
+
+    /**
+     * @return 从时刻0到总时长之间所有核心空闲时间之和
+     */
+    public long idleTime() {
+        return cores * lastEnd - busyTime;
+    }
+
+    public int cores() {
+        return cores;
+    }
+
+    /**
+     * @return 最后一个时间片的结束时刻
+     */
+    public long makespan() {
+        return lastEnd;
+    }
+
+    public int completed() {
+        return completed;
+    }
+
+    /**
+     * @return CPU利用率，即执行时间占 核心数×总时长 的比例，取值0~1
+     */
+    public double utilisation() {
+        long span = cores * lastEnd;
+        return span == 0 ? 0 : (double) busyTime / span;
+    }
+
+    public double avgTurnaround() {
+        return completed == 0 ? 0 : (double) totalTurnaround / completed;
+    }
+
+    public double avgWaiting() {
+        return completed == 0 ? 0 : (double) totalWaiting / completed;
+    }
+
+    /**
+     * @param slot 进程槽位
+     * @return 该进程被分配的时间片数
+     */
+    public int sliceCount(int slot) {
+        return slot < sliceCount.length ? sliceCount[slot] : 0;
+    }
+
+    /**
+     * @param slot 进程槽位
+     * @return 该进程的周转时间，未完成时返回-1
+     */
+    public long turnaround(int slot) {
+        return slot < done.length && done[slot] ? turnaround[slot] : -1;
+    }
+
+    /**
+     * @param slot 进程槽位
+     * @return 该进程的等待时间，未完成时返回-1
+     */
+    public long waiting(int slot) {
+        return slot < done.length && done[slot] ? waiting[slot] : -1;
+    }
+
+    /**
+     * @param p 分位，取值0~1
+     * @return 已完成进程周转时间的该分位数
+     */
+    public long turnaroundPercentile(double p) {
+        return turnaroundHistogram.percentile(p);
+    }
+
+    /**
+     * @param p 分位，取值0~1
+     * @return 已完成进程等待时间的该分位数
+     */
+    public long waitingPercentile(double p) {
+        return waitingHistogram.percentile(p);
+    }
+
+    /**
+     * @param p 分位，取值0~1
+     * @return 时间片长度的该分位数
+     */
+    public long slicePercentile(double p) {
+        return sliceHistogram.percentile(p);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("核心数:%d    时间片数:%d    完成进程数:%d    总时长:%d    执行时间:%d    空闲时间:%d    CPU利用率:%.3f\n",
+                cores, slices, completed, makespan(), busyTime, idleTime(), utilisation())
+                + "周转时间  " + turnaroundHistogram + "\n"
+                + "等待时间  " + waitingHistogram + "\n"
+                + "时间片长  " + sliceHistogram + "\n";
+    }
+}
@@ -0,0 +1,181 @@
+package application;
+
+import entity.Process;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 流式读取 {@link ScheduleTraceWriter} 写出的调度轨迹。
+ * <p>打开时读入进程表，之后每次 {@link #next()} 解码一个时间片，通过 {@link #start()}、{@link #end()}、
+ * {@link #pID()} 读取，不为时间片创建对象，内存占用与轨迹长度无关。
+ * <p>用法：
+ * <pre>
+ *   try (ScheduleTraceReader reader = new ScheduleTraceReader(path)) {
+ *       while (reader.next())
+ *           use(reader.start(), reader.end(), reader.pID());
+ *   }
+ * </pre>
+ */
+public class ScheduleTraceReader implements Closeable {
+    private static final int BUFFER = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+    private final List<Process> processes;
+    private boolean eof = false;
+    private long start = 0;
+    private long end = 0;
+    private long pID = 0;
+    //Abstraction function:
+    //  AF = 轨迹文件中进程表processes，以及当前读到的时间片[start, end]、进程pID
+    //Representation invariant:
+    //  buffer处于读模式，start <= end
+    //Safety from rep exposure:
+    //  成员变量均为private，processes为不可修改的list
+
+    /**
+     * 打开轨迹文件并读入进程表
+     * @param path 文件路径
+     * @throws IOException 文件无法读取，或不是调度轨迹文件
+     */
+    public ScheduleTraceReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer.flip();
+        try {
+            byte[] magic = new byte[ScheduleTraceWriter.MAGIC.length];
+            for (int i = 0; i < magic.length; i++)
+                magic[i] = readByte();
+            if (!Arrays.equals(magic, ScheduleTraceWriter.MAGIC))
+                throw new IOException("不是调度轨迹文件");
+            int version = readByte();
+            if (version != ScheduleTraceWriter.VERSION)
+                throw new IOException("不支持的轨迹版本：" + version);
+            int count = (int) readVarint();
+            List<Process> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = unzigzag(readVarint());
+                byte[] name = new byte[(int) readVarint()];
+                for (int j = 0; j < name.length; j++)
+                    name[j] = readByte();
+                long min = readVarint();
+                long max = readVarint();
+                list.add(new Process(id, new String(name, StandardCharsets.UTF_8), min, max));
+            }
+            processes = Collections.unmodifiableList(list);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return 轨迹中的进程表
+     */
+    public List<Process> processes() {
+        return processes;
+    }
+
+    /**
+     * 读取下一个时间片
+     * @return 读到时间片时返回true，到达文件末尾时返回false
+     * @throws IOException 读取失败或文件在时间片中间截断
+     */
+    public boolean next() throws IOException {
+        if (!fill(1))
+            return false;
+        start += readVarint();
+        end = start + readVarint();
+        pID += unzigzag(readVarint());
+        return true;
+    }
+
+    public long start() {
+        return start;
+    }
+
+    public long end() {
+        return end;
+    }
+
+    public long pID() {
+        return pID;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 流式比较两个轨迹文件中的时间片序列
+     * @param a 一个轨迹文件
+     * @param b 另一个轨迹文件
+     * @return 第一个不同的时间片序号（从0开始），完全相同时返回-1
+     * @throws IOException 文件读取失败
+     */
+    public static long firstDifference(Path a, Path b) throws IOException {
+        try (ScheduleTraceReader x = new ScheduleTraceReader(a);
+             ScheduleTraceReader y = new ScheduleTraceReader(b)) {
+            long index = 0;
+            while (true) {
+                boolean hasX = x.next();
+                boolean hasY = y.next();
+                if (!hasX && !hasY)
+                    return -1;
+                if (hasX != hasY || x.start != y.start || x.end != y.end || x.pID != y.pID)
+                    return index;
+                index++;
+            }
+        }
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private long readVarint() throws IOException {
+        fill(10);
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("轨迹文件已损坏");
+    }
+
+    private byte readByte() throws IOException {
+        if (!fill(1))
+            throw new IOException("轨迹文件不完整");
+        return buffer.get();
+    }
+
+    /**
+     * 尽量使缓冲区中至少有bytes个未读字节
+     * @return 缓冲区中是否还有未读字节
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes || eof)
+            return buffer.hasRemaining();
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.hasRemaining();
+    }
+}
@@ -0,0 +1,182 @@
+package application;
+
+import OriginSets.IntervalSet;
+import OriginSets.MultiIntervalSet;
+import entity.Process;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 以紧凑的二进制格式写出进程调度轨迹，供 {@link ScheduleTraceReader} 流式读回。
+ * <p>文件格式：
+ * <pre>
+ *   "PTRC" 版本号(1字节)
+ *   进程个数 varint，随后每个进程：ID(zigzag varint) 名称长度 varint 名称(UTF-8) 最短执行时间 varint 最长执行时间 varint
+ *   直到文件末尾的时间片，每个：开始时间与上一片开始时间之差 varint  时长 varint  ID与上一片ID之差 zigzag varint
+ * </pre>
+ * 时间片必须按开始时间非递减的顺序写入，因此差值均为非负的小整数，通常每片只占3~4字节。
+ * <p>写入经过一个64KB的缓冲区，满时一次写入 {@link FileChannel}。
+ */
+public class ScheduleTraceWriter implements Closeable {
+    static final byte[] MAGIC = {'P', 'T', 'R', 'C'};
+    static final int VERSION = 1;
+    private static final int BUFFER = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+    private long prevStart = 0;
+    private long prevID = 0;
+    private long slices = 0;
+    private boolean processesWritten = false;
+    //Abstraction function:
+    //  AF = 已写入channel与buffer中的轨迹文件，最后一片的开始时间为prevStart、进程ID为prevID
+    //Representation invariant:
+    //  processesWritten为false时slices为0
+    //Safety from rep exposure:
+    //  成员变量均为private
+
+    /**
+     * 创建（或覆盖）轨迹文件并写入文件头
+     * @param path 文件路径
+     * @throws IOException 文件无法写入
+     */
+    public ScheduleTraceWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(MAGIC).put((byte) VERSION);
+    }
+
+    /**
+     * 写入进程表，必须在写入任何时间片之前调用且只能调用一次
+     * @param processes 轨迹中出现的进程
+     * @throws IOException 写入失败
+     * @throws IllegalStateException 进程表已写入
+     */
+    public void writeProcesses(List<Process> processes) throws IOException {
+        if (processesWritten)
+            throw new IllegalStateException("进程表已写入");
+        processesWritten = true;
+        putVarint(processes.size());
+        for (Process p : processes) {
+            putVarint(zigzag(p.getpID()));
+            byte[] name = p.getpName().getBytes(StandardCharsets.UTF_8);
+            putVarint(name.length);
+            for (byte b : name) {
+                ensure(1);
+                buffer.put(b);
+            }
+            putVarint(p.getMinEXT());
+            putVarint(p.getMaxEXT());
+        }
+    }
+
+    /**
+     * 写入一个时间片
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param pID 进程ID
+     * @throws IOException 写入失败
+     * @throws IllegalArgumentException 开始时间早于上一片的开始时间，或结束时间早于开始时间
+     */
+    public void writeSlice(long start, long end, long pID) throws IOException {
+        if (!processesWritten)
+            writeProcesses(List.of());
+        if (start < prevStart || end < start)
+            throw new IllegalArgumentException("时间片必须按开始时间顺序写入");
+        putVarint(start - prevStart);
+        putVarint(end - start);
+        putVarint(zigzag(pID - prevID));
+        prevStart = start;
+        prevID = pID;
+        slices++;
+    }
+
+    /**
+     * @return 已写入的时间片个数
+     */
+    public long sliceCount() {
+        return slices;
+    }
+
+    /**
+     * 写出缓冲区中剩余的数据并关闭文件
+     * @throws IOException 写入失败
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!processesWritten)
+                writeProcesses(List.of());
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * 把调度时间轴按开始时间排序后写入文件
+     * @param path 文件路径
+     * @param processes 进程列表
+     * @param schedule 调度时间轴
+     * @return 写入的时间片个数
+     * @throws IOException 写入失败
+     */
+    public static long save(Path path, List<Process> processes, MultiIntervalSet<Process> schedule)
+            throws IOException {
+        int n = 0;
+        for (Process p : schedule.labels())
+            n += schedule.intervals(p).labels().size();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        long[] ids = new long[n];
+        int k = 0;
+        for (Process p : schedule.labels()) {
+            IntervalSet<Integer> intervals = schedule.intervals(p);
+            for (Integer i : intervals.labels()) {
+                starts[k] = intervals.start(i);
+                ends[k] = intervals.end(i);
+                ids[k] = p.getpID();
+                k++;
+            }
+        }
+        int[] order = IntervalSort.orderByStart(starts, n);
+        try (ScheduleTraceWriter writer = new ScheduleTraceWriter(path)) {
+            writer.writeProcesses(processes);
+            for (int i : order)
+                writer.writeSlice(starts[i], ends[i], ids[i]);
+            return writer.sliceCount();
+        }
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private void putVarint(long v) throws IOException {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,335 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对一整张值班表或一条进程调度时间轴做批量校验：先按开始时间排序一次，再一次扫描检查所有规则，
+ * 报告全部违规及其位置，而不是像逐条插入那样在第一个错误处停止。
+ * <p>用法：逐条 {@link #add} 时间段，然后调用 {@link #validateRoster} 或 {@link #validateTimeline}。
+ * 时间段只保存在基本类型数组中，千万级时间段的排序与扫描可在数秒内完成。
+ * <p>值班表的时间段两端均包含在内，时间按 {@link TimeCodec} 以天或分钟为单位，检查：时间段合法、在总时间段内、任意两段不重叠、
+ * 同一员工的多段排班首尾相接、人员已定义，以及（可选）总时间段内没有空缺。
+ * <p>调度时间轴的时间段为左闭右开，检查：时间段合法、任意两段不重叠（单CPU）、进程已定义、
+ * 进程累计执行时间不超过其最长执行时间。
+ */
+public class ScheduleValidator {
+    /**
+     * 违规的种类
+     */
+    public enum Kind {
+        FORMAT("格式错误"),
+        DUPLICATE_NAME("重复定义"),
+        UNKNOWN_LABEL("未定义"),
+        INVALID_INTERVAL("时间段不合法"),
+        OUT_OF_PERIOD("超出总时间段"),
+        OVERLAP("时间重叠"),
+        DISCONTINUOUS("排班不连续"),
+        GAP("排班空缺"),
+        EXCEEDS_MAX("超过最长执行时间");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final String unit;
+    private final TimeCodec codec;
+    private long[] starts = new long[1024];
+    private long[] ends = new long[1024];
+    private long[] labels = new long[1024];
+    private long[] locations = new long[1024];
+    private int size = 0;
+    //Abstraction function:
+    //  AF = 待校验的size个时间段，第i个为标签labels[i]在[starts[i], ends[i]]上，位于来源中的第locations[i]个unit
+    //Representation invariant:
+    //  四个数组长度相同且不小于size
+    //Safety from rep exposure:
+    //  成员变量均为private，不返回内部数组
+
+    /**
+     * @param unit 位置的单位，用于报告，如"行"、"个时间片"
+     */
+    public ScheduleValidator(String unit) {
+        this(unit, TimeCodec.DAY);
+    }
+
+    /**
+     * @param unit 位置的单位，用于报告，如"行"、"个时间片"
+     * @param codec 值班表时间的编码，用于在报告中显示时间
+     */
+    public ScheduleValidator(String unit, TimeCodec codec) {
+        this.unit = unit;
+        this.codec = codec;
+    }
+
+    /**
+     * 加入一个待校验的时间段
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param label 标签（员工编号或进程ID），值班表中未定义的人员为-1
+     * @param location 在来源中的位置，用于报告
+     */
+    public void add(long start, long end, long label, long location) {
+        if (size == starts.length) {
+            int cap = size * 2;
+            starts = Arrays.copyOf(starts, cap);
+            ends = Arrays.copyOf(ends, cap);
+            labels = Arrays.copyOf(labels, cap);
+            locations = Arrays.copyOf(locations, cap);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        labels[size] = label;
+        locations[size] = location;
+        size++;
+    }
+
+    /**
+     * @return 已加入的时间段个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 按值班表的规则校验已加入的时间段
+     * @param periodStart 总时间段开始日期
+     * @param periodEnd 总时间段结束日期
+     * @param requireFull 是否把总时间段内的空缺也视为违规
+     * @return 校验报告
+     */
+    public Report validateRoster(long periodStart, long periodEnd, boolean requireFull) {
+        Report report = new Report(unit);
+        validateRoster(periodStart, periodEnd, requireFull, report);
+        return report;
+    }
+
+    private void validateRoster(long periodStart, long periodEnd, boolean requireFull, Report report) {
+        int[] order = IntervalSort.orderByStart(starts, size);
+        LongLongMap lastEnd = new LongLongMap(Long.MIN_VALUE);
+        long maxEnd = Long.MIN_VALUE;
+        long maxEndLocation = -1;
+        long covered = periodStart - 1;
+        for (int i : order) {
+            long s = starts[i];
+            long e = ends[i];
+            long loc = locations[i];
+            if (s > e) {
+                report.add(Kind.INVALID_INTERVAL, loc, "开始日期晚于结束日期");
+                continue;
+            }
+            if (s < periodStart || e > periodEnd)
+                report.add(Kind.OUT_OF_PERIOD, loc, codec.formatRange(s, e)
+                        + " 不在 " + codec.formatRange(periodStart, periodEnd) + " 内");
+            if (labels[i] < 0)
+                report.add(Kind.UNKNOWN_LABEL, loc, "排班中的员工不在员工表中");
+            if (s <= maxEnd)
+                report.add(Kind.OVERLAP, loc, "与" + report.where(maxEndLocation) + "的排班重叠");
+            if (labels[i] >= 0) {
+                long prev = lastEnd.get(labels[i]);
+                if (prev != Long.MIN_VALUE && s > prev + 1)
+                    report.add(Kind.DISCONTINUOUS, loc, "与该员工之前的排班之间有空档");
+                lastEnd.put(labels[i], Math.max(prev, e));
+            }
+            if (requireFull && s > covered + 1 && covered + 1 <= periodEnd)
+                report.add(Kind.GAP, loc, codec.formatRange(covered + 1, Math.min(s - 1, periodEnd)) + " 无人值班");
+            covered = Math.max(covered, e);
+            if (e > maxEnd) {
+                maxEnd = e;
+                maxEndLocation = loc;
+            }
+        }
+        if (requireFull && covered < periodEnd)
+            report.add(Kind.GAP, -1, codec.formatRange(Math.max(covered + 1, periodStart), periodEnd) + " 无人值班");
+    }
+
+    /**
+     * 按单CPU调度时间轴的规则校验已加入的时间段，标签为进程ID
+     * @param maxExecution 进程ID到最长执行时间的映射；为null时不检查进程是否定义及执行时间
+     * @return 校验报告
+     */
+    public Report validateTimeline(LongLongMap maxExecution) {
+        Report report = new Report(unit);
+        int[] order = IntervalSort.orderByStart(starts, size);
+        LongLongMap executed = new LongLongMap(0);
+        long maxEnd = Long.MIN_VALUE;
+        long maxEndLocation = -1;
+        for (int i : order) {
+            long s = starts[i];
+            long e = ends[i];
+            long id = labels[i];
+            long loc = locations[i];
+            if (s > e || s < 0) {
+                report.add(Kind.INVALID_INTERVAL, loc, "时间段 [" + s + ", " + e + ") 不合法");
+                continue;
+            }
+            if (s < maxEnd)
+                report.add(Kind.OVERLAP, loc, "与" + report.where(maxEndLocation) + "的时间片重叠");
+            if (maxExecution != null) {
+                if (!maxExecution.containsKey(id)) {
+                    report.add(Kind.UNKNOWN_LABEL, loc, "进程 " + id + " 没有定义");
+                } else {
+                    long before = executed.get(id);
+                    long after = before + e - s;
+                    executed.put(id, after);
+                    long max = maxExecution.get(id);
+                    if (before <= max && after > max)
+                        report.add(Kind.EXCEEDS_MAX, loc, "进程 " + id + " 累计执行 " + after + "，超过最长执行时间 " + max);
+                }
+            }
+            if (e > maxEnd) {
+                maxEnd = e;
+                maxEndLocation = loc;
+            }
+        }
+        return report;
+    }
+
+    /**
+     * 校验一个值班表文件：格式错误、员工重名、排班人员未定义，以及 {@link #validateRoster} 的全部规则
+     * @param file 解析后的值班表文件
+     * @param requireFull 是否把总时间段内的空缺也视为违规
+     * @return 校验报告
+     */
+    public static Report validateRoster(RosterFile file, boolean requireFull) {
+        ScheduleValidator validator = new ScheduleValidator("行", file.getCodec());
+        Report report = new Report("行");
+        for (RosterFile.Problem p : file.getProblems())
+            report.add(Kind.FORMAT, p.getLine(), p.getMessage());
+        Map<String, Integer> ids = new HashMap<>();
+        for (RosterFile.EmployeeEntry e : file.getEmployees()) {
+            if (ids.putIfAbsent(e.getName(), ids.size()) != null)
+                report.add(Kind.DUPLICATE_NAME, e.getLine(), "员工 " + e.getName() + " 重复定义");
+        }
+        for (RosterFile.DutyEntry d : file.getDuties()) {
+            Integer id = ids.get(d.getName());
+            validator.add(d.getStart(), d.getEnd(), id == null ? -1 : id, d.getLine());
+        }
+        if (file.getPeriodLine() < 0) {
+            report.add(Kind.FORMAT, -1, "缺少总时间段 Period{yyyy-mm-dd,yyyy-mm-dd}");
+            return report;
+        }
+        if (file.getPeriodStart() > file.getPeriodEnd())
+            report.add(Kind.INVALID_INTERVAL, file.getPeriodLine(), "总时间段的开始日期晚于结束日期");
+        validator.validateRoster(file.getPeriodStart(), file.getPeriodEnd(), requireFull, report);
+        return report;
+    }
+
+    /**
+     * 校验报告：每种违规的个数，以及按发现顺序保留的前 {@value #MAX_KEPT} 条违规
+     */
+    public static final class Report {
+        static final int MAX_KEPT = 100;
+
+        private final String unit;
+        private final long[] counts = new long[Kind.values().length];
+        private final List<Violation> violations = new ArrayList<>();
+
+        Report(String unit) {
+            this.unit = unit;
+        }
+
+        void add(Kind kind, long location, String message) {
+            counts[kind.ordinal()]++;
+            if (violations.size() < MAX_KEPT)
+                violations.add(new Violation(kind, location, where(location) + " " + message));
+        }
+
+        String where(long location) {
+            return location < 0 ? "全局" : "第" + location + unit;
+        }
+
+        /**
+         * @return 没有任何违规时返回true
+         */
+        public boolean isValid() {
+            return total() == 0;
+        }
+
+        /**
+         * @return 违规总数
+         */
+        public long total() {
+            long sum = 0;
+            for (long c : counts)
+                sum += c;
+            return sum;
+        }
+
+        /**
+         * @param kind 违规种类
+         * @return 该种违规的个数
+         */
+        public long count(Kind kind) {
+            return counts[kind.ordinal()];
+        }
+
+        /**
+         * @return 保留下来的违规，最多 {@value #MAX_KEPT} 条
+         */
+        public List<Violation> getViolations() {
+            return Collections.unmodifiableList(violations);
+        }
+
+        @Override
+        public String toString() {
+            if (isValid())
+                return "校验通过\n";
+            StringBuilder sb = new StringBuilder();
+            sb.append("共发现 ").append(total()).append(" 处问题：");
+            for (Kind kind : Kind.values()) {
+                if (counts[kind.ordinal()] > 0)
+                    sb.append(kind.getDescription()).append(' ').append(counts[kind.ordinal()]).append("  ");
+            }
+            sb.append('\n');
+            for (Violation v : violations)
+                sb.append(v).append('\n');
+            if (total() > violations.size())
+                sb.append("……另有 ").append(total() - violations.size()).append(" 处未列出\n");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 一处违规：种类、在来源中的位置（-1表示不针对某个位置）与说明
+     */
+    public static final class Violation {
+        private final Kind kind;
+        private final long location;
+        private final String message;
+
+        Violation(Kind kind, long location, String message) {
+            this.kind = kind;
+            this.location = location;
+            this.message = message;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public long getLocation() {
+            return location;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + kind.getDescription() + "] " + message;
+        }
+    }
+}
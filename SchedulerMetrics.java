@@ -0,0 +1,95 @@
+package application;
+
+/**
+ * 一次调度运行的性能指标，不可变。
+ * <p>所有调度引擎使用同一组指标，便于直接横向比较：
+ * 吞吐量以每秒模拟的时间片数计，延迟以模拟时间中的平均周转时间与平均等待时间计。
+ */
+public class SchedulerMetrics {
+    private final String engine;
+    private final int processes;
+    private final long slices;
+    private final long intervals;
+    private final long makespan;
+    private final long totalTurnaround;
+    private final long totalWaiting;
+    private final long wallNanos;
+    //Abstraction function:
+    //  AF = 引擎engine调度processes个进程，产生slices个时间片、写入intervals个时间段，
+    //       模拟时间跨度为makespan，真实耗时为wallNanos纳秒
+    //Representation invariant:
+    //  所有数值字段非负，intervals <= slices
+    //Safety from rep exposure:
+    //  所有字段为private final的不可变类型
+
+    public SchedulerMetrics(String engine, int processes, long slices, long intervals, long makespan,
+                            long totalTurnaround, long totalWaiting, long wallNanos) {
+        this.engine = engine;
+        this.processes = processes;
+        this.slices = slices;
+        this.intervals = intervals;
+        this.makespan = makespan;
+        this.totalTurnaround = totalTurnaround;
+        this.totalWaiting = totalWaiting;
+        this.wallNanos = wallNanos;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public int getProcesses() {
+        return processes;
+    }
+
+    public long getSlices() {
+        return slices;
+    }
+
+    public long getIntervals() {
+        return intervals;
+    }
+
+    public long getMakespan() {
+        return makespan;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return 每秒模拟的时间片数
+     */
+    public double slicesPerSecond() {
+        return wallNanos == 0 ? 0 : slices * 1e9 / wallNanos;
+    }
+
+    /**
+     * @return 平均周转时间（完成时刻减到达时刻）
+     */
+    public double avgTurnaround() {
+        return processes == 0 ? 0 : (double) totalTurnaround / processes;
+    }
+
+    /**
+     * @return 平均等待时间（周转时间减实际执行时间）
+     */
+    public double avgWaiting() {
+        return processes == 0 ? 0 : (double) totalWaiting / processes;
+    }
+
+    /**
+     * @return 与 {@link #toString()} 各列对齐的表头
+     */
+    public static String header() {
+        return String.format("%-20s %10s %12s %12s %12s %14s %14s %16s",
+                "引擎", "进程数", "时间片数", "时间段数", "总时长", "平均周转", "平均等待", "时间片/秒");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-20s %10d %12d %12d %12d %14.2f %14.2f %16.0f",
+                engine, processes, slices, intervals, makespan, avgTurnaround(), avgWaiting(), slicesPerSecond());
+    }
+}
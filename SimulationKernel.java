@@ -0,0 +1,385 @@
+package application;
+
+import OriginSets.MultiIntervalSet;
+import entity.Process;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基于虚拟时间的离散事件进程调度模拟内核。
+ * <p>模拟 N 个CPU核心共享一个由 {@link ProcessScheduler} 管理的就绪队列。
+ * 进程到达、时间片结束（执行完毕或被抢占）、I/O 完成都是事件，按虚拟时间从一个基本类型最小堆中取出处理，
+ * 时间直接跳到下一个事件，不逐单位推进。核心没有可执行进程时进入空闲期，空闲时长按核心累计。
+ * <p>每个核心把自己的执行时间段写入各自的 {@code MultiIntervalSet<Process>}。
+ * <p>若设置了 I/O 参数，进程每累计执行 ioInterval 时间便发起一次时长为 ioLatency 的 I/O，
+ * 期间不占用核心，I/O 完成后重新进入就绪队列。
+ * <p>模拟可以分段推进：{@link #runUntil} 处理到某一时刻为止的事件后返回，
+ * 之后可以继续 {@link #submit} 新到达的进程（槽位可以超出创建时的进程个数），再继续推进。
+ * 每次到达与完成只涉及事件堆与就绪队列上的 O(log n) 操作。
+ */
+public class SimulationKernel {
+    private static final int ARRIVAL = 0;
+    private static final int SLICE_END = 1;
+    private static final int IO_DONE = 2;
+    private static final int TYPE_SHIFT = 30;
+    private static final int INDEX_MASK = (1 << TYPE_SHIFT) - 1;
+
+    private final ProcessScheduler scheduler;
+    private final List<Process> processes;
+    private final int cores;
+    private final LongMinHeap events = new LongMinHeap();
+    private final IntRingQueue idleCores;
+    private final ScheduleRunner.SliceWriter[] writers;
+
+    // 每个进程槽位的状态，随提交的槽位增长
+    private long[] arrival;
+    private long[] remaining;
+    private long[] executed;
+    private long[] deadline;
+    private long[] sinceIo;
+
+    // 每个核心的状态
+    private final int[] running;
+    private final long[] sliceStart;
+    private final long[] sliceEndAt;
+    private final long[] idleSince;
+    private final long[] idleTime;
+    private final long[] busyTime;
+
+    private ScheduleListener listener = null;
+    private long ioInterval = 0;
+    private long ioLatency = 0;
+    private long now = 0;
+    private long slices = 0;
+    private long eventCount = 0;
+    private int submitted = 0;
+    private int queued = 0;
+    private int completed = 0;
+    private long totalTurnaround = 0;
+    private long totalWaiting = 0;
+    private long wallNanos = 0;
+    //Abstraction function:
+    //  AF = 当前虚拟时刻为now、cores个核心的模拟状态；
+    //       running[c]为核心c上执行的进程槽位（-1表示空闲），events为尚未处理的事件
+    //Representation invariant:
+    //  cores > 0，schedules与cores一一对应；
+    //  每个槽位的remaining >= 0；空闲核心恰好都在idleCores中；queued 等于就绪队列中的进程个数；
+    //  核心c忙碌时 sliceStart[c] <= now <= sliceEndAt[c]
+    //Safety from rep exposure:
+    //  成员变量均为private，只通过基本类型返回统计结果
+
+    /**
+     * @param scheduler 调度策略，所有核心共享其就绪队列
+     * @param processes 进程列表，下标即进程槽位
+     * @param schedules 每个核心的调度时间轴，其数量即核心数；元素为null时该核心只统计不写入
+     * @throws IllegalArgumentException 核心数为0
+     */
+    public SimulationKernel(ProcessScheduler scheduler, List<Process> processes,
+                            List<? extends MultiIntervalSet<Process>> schedules) {
+        if (schedules.isEmpty())
+            throw new IllegalArgumentException("核心数必须为正");
+        this.scheduler = scheduler;
+        this.processes = processes;
+        this.cores = schedules.size();
+        int n = Math.max(16, processes.size());
+        arrival = new long[n];
+        remaining = new long[n];
+        executed = new long[n];
+        deadline = new long[n];
+        sinceIo = new long[n];
+        running = new int[cores];
+        sliceStart = new long[cores];
+        sliceEndAt = new long[cores];
+        idleSince = new long[cores];
+        idleTime = new long[cores];
+        busyTime = new long[cores];
+        writers = new ScheduleRunner.SliceWriter[cores];
+        idleCores = new IntRingQueue(cores);
+        for (int c = 0; c < cores; c++) {
+            running[c] = -1;
+            writers[c] = new ScheduleRunner.SliceWriter(processes, schedules.get(c));
+            idleCores.offer(c);
+        }
+        scheduler.reset(deadline);
+    }
+
+    /**
+     * 设置 I/O 等待模型
+     * @param ioInterval 两次 I/O 之间的执行时间，0表示进程不发起 I/O
+     * @param ioLatency 每次 I/O 的等待时间
+     * @throws IllegalArgumentException 参数为负
+     */
+    public void setIo(long ioInterval, long ioLatency) {
+        if (ioInterval < 0 || ioLatency < 0)
+            throw new IllegalArgumentException("I/O 参数不能为负");
+        this.ioInterval = ioInterval;
+        this.ioLatency = ioLatency;
+    }
+
+    /**
+     * 设置调度过程的观察者，每个时间片与完成事件都会通知它
+     * @param listener 观察者，为null时不通知
+     */
+    public void setListener(ScheduleListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 提交一个进程，它将在指定时刻到达；模拟已经推进过时同样可以提交，即在线到达
+     * @param slot 进程槽位，须小于进程列表的长度
+     * @param arrivalTime 到达时刻，不能早于当前虚拟时刻
+     * @param demand 需要执行的总时间，0表示无需执行
+     * @throws IllegalArgumentException 到达时刻早于当前时刻或执行时间为负
+     */
+    public void submit(int slot, long arrivalTime, long demand) {
+        if (arrivalTime < now || demand < 0)
+            throw new IllegalArgumentException("到达时刻不能早于当前时刻，执行时间不能为负");
+        ensureSlot(slot);
+        arrival[slot] = arrivalTime;
+        remaining[slot] = demand;
+        deadline[slot] = arrivalTime + processes.get(slot).getMaxEXT();
+        if (demand == 0)
+            return;
+        submitted++;
+        events.offer(arrivalTime, encode(ARRIVAL, slot));
+    }
+
+    /**
+     * 处理事件直到事件队列为空
+     * @return 本次模拟的性能指标
+     */
+    public SchedulerMetrics run() {
+        runUntil(Long.MAX_VALUE);
+        return metrics();
+    }
+
+    /**
+     * 处理所有不晚于给定时刻的事件，然后把当前时刻推进到该时刻（事件队列为空且给定时刻为 Long.MAX_VALUE 时除外）。
+     * <p>返回前把各核心已执行的时间段写入调度时间轴；正在执行的时间片及与它首尾相接的已执行时间段
+     * 在该时间片结束时一并写入，因此分段推进不会把同一段执行拆成多个时间段。
+     * @param limit 推进到的时刻
+     */
+    public void runUntil(long limit) {
+        long begin = System.nanoTime();
+        while (!events.isEmpty() && events.peekKey() <= limit) {
+            long time = events.peekKey();
+            int event = events.poll();
+            eventCount++;
+            now = time;
+            int index = event & INDEX_MASK;
+            switch (event >>> TYPE_SHIFT) {
+                case ARRIVAL:
+                    ready(index);
+                    break;
+                case SLICE_END:
+                    if (running[index] >= 0 && sliceEndAt[index] == time)
+                        endSlice(index);
+                    break;
+                case IO_DONE:
+                    sinceIo[index] = 0;
+                    ready(index);
+                    break;
+                default:
+                    break;
+            }
+            if (events.isEmpty() || events.peekKey() != time)
+                dispatch();
+        }
+        if (limit != Long.MAX_VALUE && limit > now)
+            now = limit;
+        for (int c = 0; c < cores; c++) {
+            if (running[c] < 0 || !writers[c].continues(running[c], sliceStart[c]))
+                writers[c].flush();
+        }
+        wallNanos += System.nanoTime() - begin;
+    }
+
+    /**
+     * @return 到目前为止的性能指标
+     */
+    public SchedulerMetrics metrics() {
+        long intervals = 0;
+        for (ScheduleRunner.SliceWriter writer : writers)
+            intervals += writer.getWritten();
+        return new SchedulerMetrics(scheduler.name() + "x" + cores, completed, slices, intervals, now,
+                totalTurnaround, totalWaiting, wallNanos);
+    }
+
+    /**
+     * @return 是否已没有待处理的事件，即所有已提交的进程都已执行完毕
+     */
+    public boolean isIdle() {
+        return events.isEmpty();
+    }
+
+    /**
+     * @return 已提交且需要执行的进程个数
+     */
+    public int submitted() {
+        return submitted;
+    }
+
+    /**
+     * @return 已执行完毕的进程个数
+     */
+    public int completed() {
+        return completed;
+    }
+
+    /**
+     * 进程进入就绪队列。抢占式策略下，若空闲核心不够分给就绪进程，
+     * 则只抢占排序值最大的一个正在执行的进程，且仅当到达的进程排序值更小时
+     */
+    private void ready(int slot) {
+        offer(slot);
+        if (!scheduler.preemptOnArrival() || queued <= idleCores.size())
+            return;
+        int worst = -1;
+        for (int c = 0; c < cores; c++) {
+            if (running[c] >= 0 && (worst < 0 || scheduler.rank(running[c]) > scheduler.rank(running[worst])))
+                worst = c;
+        }
+        if (worst >= 0 && scheduler.rank(slot) < scheduler.rank(running[worst]))
+            preempt(worst);
+    }
+
+    private void offer(int slot) {
+        scheduler.offer(slot, now);
+        queued++;
+    }
+
+    private void preempt(int core) {
+        int slot = running[core];
+        long ran = now - sliceStart[core];
+        account(core, slot, ran);
+        scheduler.sliceEnd(slot, ran, false);
+        offer(slot);
+        release(core);
+    }
+
+    private void endSlice(int core) {
+        int slot = running[core];
+        long ran = now - sliceStart[core];
+        account(core, slot, ran);
+        boolean finished = remaining[slot] == 0;
+        scheduler.sliceEnd(slot, ran, finished);
+        release(core);
+        if (finished) {
+            completed++;
+            long turnaround = now - arrival[slot];
+            totalTurnaround += turnaround;
+            totalWaiting += turnaround - executed[slot];
+            if (listener != null)
+                listener.onComplete(slot, arrival[slot], now, executed[slot]);
+        } else if (ioInterval > 0 && sinceIo[slot] >= ioInterval) {
+            events.offer(now + ioLatency, encode(IO_DONE, slot));
+        } else {
+            offer(slot);
+        }
+    }
+
+    private void account(int core, int slot, long ran) {
+        writers[core].write(slot, sliceStart[core], now);
+        remaining[slot] -= ran;
+        executed[slot] += ran;
+        sinceIo[slot] += ran;
+        busyTime[core] += ran;
+        if (ran > 0) {
+            slices++;
+            if (listener != null)
+                listener.onSlice(slot, sliceStart[core], now);
+        }
+    }
+
+    /**
+     * 保证槽位slot有状态空间，数组按倍数增长
+     */
+    private void ensureSlot(int slot) {
+        if (slot < arrival.length)
+            return;
+        int cap = Math.max(slot + 1, arrival.length * 2);
+        arrival = Arrays.copyOf(arrival, cap);
+        remaining = Arrays.copyOf(remaining, cap);
+        executed = Arrays.copyOf(executed, cap);
+        deadline = Arrays.copyOf(deadline, cap);
+        sinceIo = Arrays.copyOf(sinceIo, cap);
+        scheduler.deadlinesResized(deadline);
+    }
+
+    private void release(int core) {
+        running[core] = -1;
+        idleSince[core] = now;
+        idleCores.offer(core);
+    }
+
+    /**
+     * 把就绪进程分派到空闲核心上
+     */
+    private void dispatch() {
+        while (!idleCores.isEmpty() && !scheduler.isEmpty()) {
+            int slot = scheduler.poll(now);
+            if (slot < 0)
+                break;
+            queued--;
+            int core = idleCores.poll();
+            idleTime[core] += now - idleSince[core];
+            long run = Math.min(scheduler.quantum(slot), remaining[slot]);
+            if (ioInterval > 0)
+                run = Math.min(run, ioInterval - sinceIo[slot]);
+            running[core] = slot;
+            sliceStart[core] = now;
+            sliceEndAt[core] = now + run;
+            events.offer(now + run, encode(SLICE_END, core));
+        }
+    }
+
+    private static int encode(int type, int index) {
+        return (type << TYPE_SHIFT) | index;
+    }
+
+    /**
+     * @return 当前虚拟时刻
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * @return 已处理的事件数
+     */
+    public long eventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return 核心数
+     */
+    public int cores() {
+        return cores;
+    }
+
+    /**
+     * @param core 核心编号
+     * @return 该核心累计执行进程的时间
+     */
+    public long busyTime(int core) {
+        return busyTime[core];
+    }
+
+    /**
+     * @param core 核心编号
+     * @return 该核心到当前时刻为止的累计空闲时间，包括仍在持续的空闲期
+     */
+    public long idleTime(int core) {
+        return running[core] < 0 ? idleTime[core] + now - idleSince[core] : idleTime[core];
+    }
+
+    /**
+     * @param slot 进程槽位
+     * @return 该进程已执行的时间
+     */
+    public long executed(int slot) {
+        return executed[slot];
+    }
+}
@@ -0,0 +1,167 @@
+package application;
+
+/**
+ * 值班时间的编码：以天或分钟为单位的long。
+ * <p>{@link #DAY} 与 {@link DayCodec} 的日期编码相同；{@link #MINUTE} 为 日期编码*1440 + 当日分钟数。
+ * 两种精度下时间段都是两端包含的区间 [start, end]，精度更细时时间段仍然只是两个long，查询代价不变。
+ * <p>分钟精度下，时间段的结束时刻按习惯写作"不包含"的时刻：08:00~20:00 表示 [08:00, 19:59]，
+ * {@link #formatEnd} 与 {@link #parseEnd} 负责这一换算；天精度下结束日期本身包含在内。
+ */
+public final class TimeCodec {
+    /** 以天为单位 */
+    public static final TimeCodec DAY = new TimeCodec(1);
+    /** 以分钟为单位 */
+    public static final TimeCodec MINUTE = new TimeCodec(24 * 60);
+
+    private final int unitsPerDay;
+    //Abstraction function:
+    //  AF(unitsPerDay) = 每天分为unitsPerDay个单位的时间编码
+    //Representation invariant:
+    //  unitsPerDay为1或1440
+    //Safety from rep exposure:
+    //  不可变
+
+    private TimeCodec(int unitsPerDay) {
+        this.unitsPerDay = unitsPerDay;
+    }
+
+    /**
+     * @return 每天的单位数
+     */
+    public int unitsPerDay() {
+        return unitsPerDay;
+    }
+
+    /**
+     * @return 是否精确到一天之内的时刻
+     */
+    public boolean hasTimeOfDay() {
+        return unitsPerDay > 1;
+    }
+
+    /**
+     * @param day {@link DayCodec} 的日期编码
+     * @return 该日第一个单位
+     */
+    public long startOfDay(long day) {
+        return day * unitsPerDay;
+    }
+
+    /**
+     * @param day {@link DayCodec} 的日期编码
+     * @return 该日最后一个单位
+     */
+    public long endOfDay(long day) {
+        return day * unitsPerDay + unitsPerDay - 1;
+    }
+
+    /**
+     * @param time 本编码下的时间
+     * @return 所在日期的 {@link DayCodec} 编码
+     */
+    public long dayOf(long time) {
+        return Math.floorDiv(time, unitsPerDay);
+    }
+
+    /**
+     * 解析时间段的开始时刻
+     * @param str "yyyy-mm-dd"，分钟精度下还可以是"yyyy-mm-dd HH:mm"或"yyyy-mm-ddTHH:mm"，只给日期时取当日0点
+     * @return 本编码下的时间，格式不合法时返回-1
+     */
+    public long parseStart(String str) {
+        long day = DayCodec.parse(datePart(str));
+        int clock = clockPart(str);
+        if (day < 0 || clock == -2)
+            return -1;
+        return startOfDay(day) + Math.max(0, clock);
+    }
+
+    /**
+     * 解析时间段的结束时刻，结果为包含在时间段内的最后一个单位
+     * @param str "yyyy-mm-dd"（该日整天），分钟精度下还可以是"yyyy-mm-dd HH:mm"（不包含该时刻）
+     * @return 本编码下的时间，格式不合法时返回-1
+     */
+    public long parseEnd(String str) {
+        long day = DayCodec.parse(datePart(str));
+        int clock = clockPart(str);
+        if (day < 0 || clock == -2)
+            return -1;
+        return clock < 0 ? endOfDay(day) : startOfDay(day) + clock - 1;
+    }
+
+    /**
+     * @param hhmm "HH:mm"形式的时刻
+     * @return 当日的分钟数，格式不合法时返回-1
+     */
+    public static int parseClock(String hhmm) {
+        if (hhmm == null || hhmm.length() != 5 || hhmm.charAt(2) != ':')
+            return -1;
+        int h = digit(hhmm.charAt(0)) * 10 + digit(hhmm.charAt(1));
+        int m = digit(hhmm.charAt(3)) * 10 + digit(hhmm.charAt(4));
+        if (h < 0 || m < 0 || h > 24 || m > 59 || (h == 24 && m != 0))
+            return -1;
+        return h * 60 + m;
+    }
+
+    /**
+     * @param time 本编码下的时间
+     * @return 天精度为"yyyy-mm-dd"，分钟精度为"yyyy-mm-dd HH:mm"
+     */
+    public String format(long time) {
+        String date = DayCodec.format(dayOf(time));
+        if (!hasTimeOfDay())
+            return date;
+        int clock = (int) Math.floorMod(time, (long) unitsPerDay);
+        return String.format("%s %02d:%02d", date, clock / 60, clock % 60);
+    }
+
+    /**
+     * @param end 时间段内的最后一个单位
+     * @return 天精度为该日期，分钟精度为紧接其后的时刻
+     */
+    public String formatEnd(long end) {
+        return hasTimeOfDay() ? format(end + 1) : format(end);
+    }
+
+    /**
+     * @return "开始 ~ 结束"形式的时间段
+     */
+    public String formatRange(long start, long end) {
+        return format(start) + " ~ " + formatEnd(end);
+    }
+
+    /**
+     * @param units 单位数
+     * @return 天精度为"N天"，分钟精度为"N小时M分"
+     */
+    public String formatLength(long units) {
+        if (!hasTimeOfDay())
+            return units + "天";
+        return units / 60 + "小时" + (units % 60 == 0 ? "" : units % 60 + "分");
+    }
+
+    private String datePart(String str) {
+        if (str == null)
+            return null;
+        return str.length() > 10 ? str.substring(0, 10) : str;
+    }
+
+    /**
+     * @return 日期之后的时刻（分钟数），没有时刻时为-1，不合法时为-2
+     */
+    private int clockPart(String str) {
+        if (str == null || str.length() <= 10)
+            return -1;
+        if (!hasTimeOfDay())
+            return -2;
+        String rest = str.substring(10);
+        if (rest.charAt(0) == ' ' || rest.charAt(0) == 'T')
+            rest = rest.substring(1);
+        int clock = parseClock(rest);
+        return clock < 0 ? -2 : clock;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -100;
+    }
+}
@@ -0,0 +1,140 @@
+package application;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 带缓冲的按空白分词输入读取器，用于替代 {@link java.util.Scanner} 读取交互或管道输入。
+ * <p>直接在字节缓冲区上分词，不使用正则；读取数字时就地解析，不创建字符串。
+ * 字符串按 UTF-8 解码。
+ */
+public class TokenReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    private byte[] token = new byte[64];
+    //Abstraction function:
+    //  AF = 输入流in中尚未读取的字节，依次为 buffer[pos..limit) 与 in 中剩余的字节
+    //Representation invariant:
+    //  0 <= pos <= limit <= buffer.length
+    //Safety from rep exposure:
+    //  成员变量均为private，返回的字符串为新建的不可变对象
+
+    /**
+     * @param in 输入流，读取器不会关闭它
+     */
+    public TokenReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * 读取下一个以空白分隔的词
+     * @return 下一个词
+     * @throws NoSuchElementException 输入已结束
+     */
+    public String next() {
+        if (!skipBlank())
+            throw new NoSuchElementException();
+        int length = 0;
+        while (true) {
+            if (pos == limit && !fill())
+                break;
+            byte b = buffer[pos];
+            if (isBlank(b))
+                break;
+            if (length == token.length)
+                token = Arrays.copyOf(token, length * 2);
+            token[length++] = b;
+            pos++;
+        }
+        return new String(token, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取下一个词并按非负十进制整数解析，不创建字符串。
+     * @return 解析出的数；该词不全是数字或超出int范围时返回-1（该词仍被消耗）
+     * @throws NoSuchElementException 输入已结束
+     */
+    public int nextNum() {
+        long value = nextNonNegativeLong();
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /**
+     * 读取下一个词并按非负十进制整数解析，不创建字符串。
+     * @return 解析出的数；该词不全是数字或超出long范围时返回-1（该词仍被消耗）
+     * @throws NoSuchElementException 输入已结束
+     */
+    public long nextNonNegativeLong() {
+        if (!skipBlank())
+            throw new NoSuchElementException();
+        long value = 0;
+        boolean valid = true;
+        while (true) {
+            if (pos == limit && !fill())
+                break;
+            byte b = buffer[pos];
+            if (isBlank(b))
+                break;
+            pos++;
+            if (!valid)
+                continue;
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                valid = false;
+                continue;
+            }
+            value = value * 10 + digit;
+        }
+        return valid ? value : -1;
+    }
+
+    /**
+     * @return 输入中是否还有词
+     */
+    public boolean hasNext() {
+        return skipBlank();
+    }
+
+    /**
+     * 跳过空白
+     * @return 跳过后是否还有输入
+     */
+    private boolean skipBlank() {
+        while (true) {
+            if (pos == limit && !fill())
+                return false;
+            if (!isBlank(buffer[pos]))
+                return true;
+            pos++;
+        }
+    }
+
+    /**
+     * 从输入流读入下一段数据
+     * @return 输入流是否还有数据
+     */
+    private boolean fill() {
+        try {
+            int n = in.read(buffer, 0, buffer.length);
+            if (n <= 0)
+                return false;
+            pos = 0;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+}
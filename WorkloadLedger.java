@@ -0,0 +1,451 @@
+package application;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每位员工的值班工作量账本，在每次排班修改时增量维护。
+ * <p>记录每位员工的值班天数、其中的周末天数与节假日天数，以及全体员工值班天数的公平性指标：
+ * 最大值、最小值与基尼系数。
+ * <p>基尼系数 G = Σ_{i<j}|x_i - x_j| / (n * Σx)。分子 S 随每次修改增量更新：
+ * 以值班天数为下标的两棵树状数组分别记录人数与天数之和，任意值 v 到全体的距离和
+ * Σ_j|v - x_j| 可在 O(log V) 内求出（V 为最大值班天数），因此每次修改是 O(log V)，所有查询都是 O(1)。
+ */
+public class WorkloadLedger {
+    private final Map<EmployeeView, Integer> indexOf = new HashMap<>();
+    private EmployeeView[] employees = new EmployeeView[16];
+    private long[] dutyDays = new long[16];
+    private long[] weekendDays = new long[16];
+    private long[] holidayDays = new long[16];
+    private int size = 0;
+
+    private long[] holidays = new long[0];
+
+    // 以值班天数为下标的树状数组（下标整体加1）
+    private long[] countTree = new long[65];
+    private long[] sumTree = new long[65];
+    private long treeCount = 0;
+    private long totalDays = 0;
+    private long pairDiffSum = 0;
+    private long maxDays = 0;
+    private long minDays = 0;
+    //Abstraction function:
+    //  AF = 账本中的size位员工employees[0..size)，第i位员工值班dutyDays[i]天，
+    //       其中周末weekendDays[i]天、节假日holidayDays[i]天；holidays为节假日集合
+    //Representation invariant:
+    //  indexOf与employees[0..size)一一对应；holidays严格递增；
+    //  countTree/sumTree表示 dutyDays[0..size) 的分布，treeCount为其个数，totalDays为其和，
+    //  pairDiffSum == Σ_{i<j}|dutyDays[i]-dutyDays[j]|，maxDays/minDays为其最大、最小值（size为0时为0）
+    //Safety from rep exposure:
+    //  成员变量均为private，只返回基本类型；setHolidays对传入数组做拷贝
+
+    /**
+     * 登记一位员工，初始值班天数为0；已登记的员工不重复登记
+     * @param employee 员工
+     */
+    public void addEmployee(EmployeeView employee) {
+        if (indexOf.containsKey(employee))
+            return;
+        if (size == employees.length) {
+            int cap = size * 2;
+            employees = Arrays.copyOf(employees, cap);
+            dutyDays = Arrays.copyOf(dutyDays, cap);
+            weekendDays = Arrays.copyOf(weekendDays, cap);
+            holidayDays = Arrays.copyOf(holidayDays, cap);
+        }
+        int i = size++;
+        employees[i] = employee;
+        dutyDays[i] = 0;
+        weekendDays[i] = 0;
+        holidayDays[i] = 0;
+        indexOf.put(employee, i);
+        pairDiffSum += distanceToAll(0);
+        treeAdd(0, 1);
+        refreshExtremes();
+    }
+
+    /**
+     * 注销一位员工及其全部工作量记录
+     * @param employee 员工
+     */
+    public void removeEmployee(EmployeeView employee) {
+        Integer index = indexOf.remove(employee);
+        if (index == null)
+            return;
+        int i = index;
+        long days = dutyDays[i];
+        pairDiffSum -= distanceToAll(days);
+        treeAdd(days, -1);
+        int last = --size;
+        if (i != last) {
+            employees[i] = employees[last];
+            dutyDays[i] = dutyDays[last];
+            weekendDays[i] = weekendDays[last];
+            holidayDays[i] = holidayDays[last];
+            indexOf.put(employees[i], i);
+        }
+        employees[last] = null;
+        refreshExtremes();
+    }
+
+    /**
+     * 记录一段新增的值班，员工未登记时自动登记
+     * @param employee 员工
+     * @param start 值班开始日期（包含）
+     * @param end 值班结束日期（包含）
+     */
+    public void addDuty(EmployeeView employee, long start, long end) {
+        if (!indexOf.containsKey(employee))
+            addEmployee(employee);
+        int i = indexOf.get(employee);
+        weekendDays[i] += weekendsIn(start, end);
+        holidayDays[i] += holidaysIn(start, end);
+        setDutyDays(i, dutyDays[i] + (end - start + 1));
+    }
+
+    /**
+     * 撤销一段值班
+     * @param employee 员工
+     * @param start 值班开始日期（包含）
+     * @param end 值班结束日期（包含）
+     */
+    public void removeDuty(EmployeeView employee, long start, long end) {
+        Integer index = indexOf.get(employee);
+        if (index == null)
+            return;
+        int i = index;
+        weekendDays[i] -= weekendsIn(start, end);
+        holidayDays[i] -= holidaysIn(start, end);
+        setDutyDays(i, dutyDays[i] - (end - start + 1));
+    }
+
+    /**
+     * 记录一条轮换规则在[from, to]内的各班，成员未登记时自动登记。
+     * <p>不逐班展开：成员k的各班每隔 m*block 个单位出现一次（m为人数），其值班天数与周末天数以
+     * P = 7u / gcd(m*block, 7u) 班为周期重复（u为每天的单位数），因此只求一个周期的和再乘以周期数；
+     * 节假日只按落在范围内的各个节假日查找当天的各班。首尾被裁剪的两班单独计算。
+     * @param rule 轮换规则
+     * @param from 范围开始（包含），通常为值班总时间段的开始
+     * @param to 范围结束（包含），通常为值班总时间段的结束
+     * @param codec 规则的时间精度
+     */
+    public void addRotation(RotationRule<EmployeeView> rule, long from, long to, TimeCodec codec) {
+        for (EmployeeView e : rule.getMembers())
+            addEmployee(e);
+        applyRotation(rule, from, to, codec, 1);
+    }
+
+    /**
+     * 撤销 {@link #addRotation} 记录的各班，参数须与记录时相同
+     * @param rule 轮换规则
+     * @param from 范围开始（包含）
+     * @param to 范围结束（包含）
+     * @param codec 规则的时间精度
+     */
+    public void removeRotation(RotationRule<EmployeeView> rule, long from, long to, TimeCodec codec) {
+        applyRotation(rule, from, to, codec, -1);
+    }
+
+    /**
+     * 设置节假日。节假日改变后，已有值班中的节假日天数需要调用者通过清空并重新 {@link #addDuty} 来重算
+     * @param days 节假日的long形式日期，可以无序、可以重复
+     */
+    public void setHolidays(long[] days) {
+        long[] sorted = days.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || sorted[i] != sorted[n - 1])
+                sorted[n++] = sorted[i];
+        }
+        holidays = Arrays.copyOf(sorted, n);
+    }
+
+    /**
+     * 清空所有员工的值班记录，保留员工登记与节假日
+     */
+    public void clearDuties() {
+        for (int i = 0; i < size; i++) {
+            weekendDays[i] = 0;
+            holidayDays[i] = 0;
+            setDutyDays(i, 0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param employee 员工
+     * @return 该员工的值班天数，未登记时返回0
+     */
+    public long dutyDays(EmployeeView employee) {
+        Integer i = indexOf.get(employee);
+        return i == null ? 0 : dutyDays[i];
+    }
+
+    /**
+     * @param employee 员工
+     * @return 该员工值班天数中周六、周日的天数，未登记时返回0
+     */
+    public long weekendDays(EmployeeView employee) {
+        Integer i = indexOf.get(employee);
+        return i == null ? 0 : weekendDays[i];
+    }
+
+    /**
+     * @param employee 员工
+     * @return 该员工值班天数中节假日的天数，未登记时返回0
+     */
+    public long holidayDays(EmployeeView employee) {
+        Integer i = indexOf.get(employee);
+        return i == null ? 0 : holidayDays[i];
+    }
+
+    public long maxDays() {
+        return maxDays;
+    }
+
+    public long minDays() {
+        return minDays;
+    }
+
+    /**
+     * @return 最大值班天数与最小值班天数之比；最小值为0时返回正无穷（无人值班时返回1）
+     */
+    public double maxMinRatio() {
+        if (maxDays == 0)
+            return 1;
+        return minDays == 0 ? Double.POSITIVE_INFINITY : (double) maxDays / minDays;
+    }
+
+    /**
+     * @return 值班天数的基尼系数，取值0~1，0表示完全平均
+     */
+    public double gini() {
+        if (size == 0 || totalDays == 0)
+            return 0;
+        return (double) pairDiffSum / ((double) size * totalDays);
+    }
+
+    /**
+     * @param i 下标
+     * @return 第i位员工，下标范围为 0 ~ size()-1，顺序在删除员工后会改变
+     */
+    public EmployeeView employeeAt(int i) {
+        return employees[i];
+    }
+
+    private void applyRotation(RotationRule<EmployeeView> rule, long from, long to, TimeCodec codec, int sign) {
+        long start = rule.getStart();
+        long block = rule.getBlock();
+        long first = Math.max(from, start);
+        long last = Math.min(to, rule.getEnd());
+        if (first > last)
+            return;
+        List<EmployeeView> members = rule.getMembers();
+        int m = members.size();
+        long[] days = new long[m];
+        long[] weekends = new long[m];
+        long a = (first - start) / block;
+        long b = (last - start) / block;
+        // 首尾两班可能被裁剪，单独计算
+        if (start + a * block < first || a == b) {
+            addShift(codec, first, Math.min(start + (a + 1) * block - 1, last), (int) (a % m), days, weekends);
+            a++;
+        }
+        if (a <= b && start + (b + 1) * block - 1 > last) {
+            addShift(codec, start + b * block, last, (int) (b % m), days, weekends);
+            b--;
+        }
+        long week = 7L * codec.unitsPerDay();
+        long period = week / gcd(m * block % week, week);
+        for (int k = 0; k < m && a <= b; k++) {
+            long j = a + Math.floorMod(k - a, (long) m);
+            if (j > b)
+                continue;
+            long count = (b - j) / m + 1;
+            long cycles = count / period;
+            if (cycles > 0) {
+                long[] cycleDays = new long[m];
+                long[] cycleWeekends = new long[m];
+                for (long c = 0; c < period; c++, j += m) {
+                    long s = start + j * block;
+                    addShift(codec, s, s + block - 1, k, cycleDays, cycleWeekends);
+                }
+                days[k] += cycleDays[k] * cycles;
+                weekends[k] += cycleWeekends[k] * cycles;
+                j = a + Math.floorMod(k - a, (long) m) + cycles * period * m;
+            }
+            for (; j <= b; j += m) {
+                long s = start + j * block;
+                addShift(codec, s, s + block - 1, k, days, weekends);
+            }
+        }
+        for (int k = 0; k < m; k++) {
+            Integer i = indexOf.get(members.get(k));
+            if (i == null)
+                continue;
+            weekendDays[i] += sign * weekends[k];
+            setDutyDays(i, dutyDays[i] + sign * days[k]);
+        }
+        // 节假日不成周期，逐个查找落在范围内的节假日当天的各班
+        for (int h = lowerBound(holidays, codec.dayOf(first)); h < holidays.length && holidays[h] <= codec.dayOf(last); h++) {
+            long dayFrom = Math.max(first, codec.startOfDay(holidays[h]));
+            long dayTo = Math.min(last, codec.endOfDay(holidays[h]));
+            for (CalendarIndex.Duty<EmployeeView> shift : rule.materialize(dayFrom, dayTo)) {
+                Integer i = indexOf.get(shift.getLabel());
+                if (i != null)
+                    holidayDays[i] += sign;
+            }
+        }
+    }
+
+    /**
+     * 把一班[s, e]的值班天数与周末天数计入第k位成员
+     */
+    private static void addShift(TimeCodec codec, long s, long e, int k, long[] days, long[] weekends) {
+        long firstDay = codec.dayOf(s);
+        long lastDay = codec.dayOf(e);
+        days[k] += lastDay - firstDay + 1;
+        weekends[k] += weekendsIn(firstDay, lastDay);
+    }
+
+    private static long gcd(long x, long y) {
+        while (y != 0) {
+            long t = x % y;
+            x = y;
+            y = t;
+        }
+        return x;
+    }
+
+    private void setDutyDays(int i, long days) {
+        long old = dutyDays[i];
+        if (old == days)
+            return;
+        ensureValue(days);
+        pairDiffSum -= distanceToAll(old);
+        treeAdd(old, -1);
+        pairDiffSum += distanceToAll(days);
+        treeAdd(days, 1);
+        dutyDays[i] = days;
+        refreshExtremes();
+    }
+
+    /**
+     * @return 区间 [start, end] 中周六、周日的天数
+     */
+    private static long weekendsIn(long start, long end) {
+        long n = end - start + 1;
+        if (n <= 0)
+            return 0;
+        long count = n / 7 * 2;
+        int first = DayCodec.dayOfWeek(start).getValue();
+        for (long k = 0; k < n % 7; k++) {
+            int dow = (int) ((first - 1 + k) % 7) + 1;
+            if (dow >= 6)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return 区间 [start, end] 中节假日的天数
+     */
+    private long holidaysIn(long start, long end) {
+        return lowerBound(holidays, end + 1) - lowerBound(holidays, start);
+    }
+
+    private static int lowerBound(long[] sorted, long key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return Σ_j |value - x_j|，j 取当前树中的所有员工
+     */
+    private long distanceToAll(long value) {
+        long countBelow = prefix(countTree, value);
+        long sumBelow = prefix(sumTree, value);
+        return value * countBelow - sumBelow + (totalDays - sumBelow) - value * (treeCount - countBelow);
+    }
+
+    private void treeAdd(long value, int delta) {
+        treeCount += delta;
+        totalDays += delta * value;
+        treeInsert(value, delta);
+    }
+
+    private void treeInsert(long value, int delta) {
+        for (int i = (int) value + 1; i < countTree.length; i += i & -i) {
+            countTree[i] += delta;
+            sumTree[i] += delta * value;
+        }
+    }
+
+    /**
+     * @return 树中不大于value的元素的个数或值之和
+     */
+    private static long prefix(long[] tree, long value) {
+        long sum = 0;
+        for (int i = (int) Math.min(value + 1, tree.length - 1); i > 0; i -= i & -i)
+            sum += tree[i];
+        return sum;
+    }
+
+    /**
+     * 扩容树状数组以容纳value，只能在树与 dutyDays[0..size) 一致时调用
+     */
+    private void ensureValue(long value) {
+        if (value + 1 < countTree.length)
+            return;
+        int cap = countTree.length - 1;
+        while (value + 1 > cap)
+            cap <<= 1;
+        countTree = new long[cap + 1];
+        sumTree = new long[cap + 1];
+        for (int i = 0; i < size; i++)
+            treeInsert(dutyDays[i], 1);
+    }
+
+    /**
+     * 通过树状数组上的二分查找重新求最大、最小值班天数
+     */
+    private void refreshExtremes() {
+        if (treeCount == 0) {
+            maxDays = 0;
+            minDays = 0;
+            return;
+        }
+        minDays = kth(1);
+        maxDays = kth(treeCount);
+    }
+
+    /**
+     * @return 第k小的值班天数
+     */
+    private long kth(long k) {
+        int pos = 0;
+        int step = Integer.highestOneBit(countTree.length - 1);
+        for (; step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next < countTree.length && countTree[next] < k) {
+                pos = next;
+                k -= countTree[next];
+            }
+        }
+        return pos;
+    }
+}
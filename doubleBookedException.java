@@ -0,0 +1,7 @@
+package application;
+
+public class doubleBookedException extends IllegalArgumentException{
+    public doubleBookedException(String s) {
+        super(s);
+    }
+}